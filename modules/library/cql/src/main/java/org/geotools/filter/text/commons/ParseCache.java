@@ -0,0 +1,173 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.text.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.geotools.filter.Filters;
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.util.LRULinkedHashMap;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * A bounded, process wide cache of parsed filters and expressions, with the same methods as {@link
+ * CompilerUtil}, backing the <code>toCachedFilter</code>, <code>toCachedExpression</code> and
+ * <code>toCachedFilterList</code> methods of {@link org.geotools.filter.text.cql2.CQL} and {@link
+ * org.geotools.filter.text.ecql.ECQL}. Parsing the same text again returns the same instance, so
+ * the cached filters are frozen (see {@link Filters#freeze(Filter)}), and trying to modify them
+ * throws an {@link UnsupportedOperationException}. The other parsing methods are not cached, and
+ * keep returning new, modifiable filters.
+ *
+ * <p>Only the filters built by the default filter factory are cached, the ones built by a provided
+ * factory, or containing filters or expressions that cannot be frozen, are parsed every time and
+ * returned untouched, none of their parts being frozen. The least recently used entries are evicted
+ * once the cache is full.
+ *
+ * <p>The cache size defaults to 1000, and can be changed with the <code>
+ * org.geotools.filter.text.parseCacheSize</code> system variable, 0 disabling the cache.
+ *
+ * <p>Warning: This component is not published. It is part of module implementation. Client module
+ * should not use this feature.
+ *
+ * @author GeoTools
+ */
+public final class ParseCache {
+
+    static final int CACHE_SIZE =
+            Integer.getInteger("org.geotools.filter.text.parseCacheSize", 1000);
+
+    static final Map<List<Object>, Object> CACHE =
+            CACHE_SIZE > 0
+                    ? Collections.synchronizedMap(
+                            new LRULinkedHashMap<>(16, 0.75f, true, CACHE_SIZE))
+                    : null;
+
+    /** What has been parsed, part of the cache key */
+    enum Kind {
+        FILTER,
+        EXPRESSION,
+        FILTER_LIST
+    }
+
+    private ParseCache() {
+        // utility class
+    }
+
+    /**
+     * Parses the predicate, see {@link CompilerUtil#parseFilter(String, AbstractCompilerFactory,
+     * FilterFactory)}
+     */
+    public static Filter parseFilter(
+            final String source,
+            final AbstractCompilerFactory compilerFactory,
+            final FilterFactory filterFactory)
+            throws CQLException {
+        List<Object> key = getKey(Kind.FILTER, source, compilerFactory, filterFactory);
+        if (key == null) {
+            return CompilerUtil.parseFilter(source, compilerFactory, filterFactory);
+        }
+        Filter filter = (Filter) CACHE.get(key);
+        if (filter == null) {
+            filter = CompilerUtil.parseFilter(source, compilerFactory, filterFactory);
+            if (Filters.freeze(filter)) {
+                CACHE.put(key, filter);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Parses the expression, see {@link CompilerUtil#parseExpression(String,
+     * AbstractCompilerFactory, FilterFactory)}
+     */
+    public static Expression parseExpression(
+            final String source,
+            final AbstractCompilerFactory compilerFactory,
+            FilterFactory filterFactory)
+            throws CQLException {
+        List<Object> key = getKey(Kind.EXPRESSION, source, compilerFactory, filterFactory);
+        if (key == null) {
+            return CompilerUtil.parseExpression(source, compilerFactory, filterFactory);
+        }
+        Expression expression = (Expression) CACHE.get(key);
+        if (expression == null) {
+            expression = CompilerUtil.parseExpression(source, compilerFactory, filterFactory);
+            if (Filters.freeze(expression)) {
+                CACHE.put(key, expression);
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Parses the sequence of predicates, see {@link CompilerUtil#parseFilterList(String,
+     * AbstractCompilerFactory, FilterFactory)}. The cached lists are not modifiable.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Filter> parseFilterList(
+            final String predicateSequence,
+            final AbstractCompilerFactory compilerFactory,
+            final FilterFactory filterFactory)
+            throws CQLException {
+        List<Object> key =
+                getKey(Kind.FILTER_LIST, predicateSequence, compilerFactory, filterFactory);
+        if (key == null) {
+            return CompilerUtil.parseFilterList(predicateSequence, compilerFactory, filterFactory);
+        }
+        List<Filter> filters = (List<Filter>) CACHE.get(key);
+        if (filters == null) {
+            filters =
+                    CompilerUtil.parseFilterList(predicateSequence, compilerFactory, filterFactory);
+            boolean freezable = true;
+            for (Filter filter : filters) {
+                freezable &= Filters.freeze(filter, false);
+            }
+            if (freezable) {
+                for (Filter filter : filters) {
+                    Filters.freeze(filter, true);
+                }
+                filters = Collections.unmodifiableList(new ArrayList<>(filters));
+                CACHE.put(key, filters);
+            }
+        }
+        return filters;
+    }
+
+    /** Returns the cache key, or null if the result should not be cached */
+    static List<Object> getKey(
+            Kind kind,
+            String source,
+            AbstractCompilerFactory compilerFactory,
+            FilterFactory filterFactory) {
+        if (CACHE == null || filterFactory != null || source == null) {
+            return null;
+        }
+        return Arrays.asList(kind, compilerFactory.getClass(), source);
+    }
+
+    /** Empties the cache */
+    public static void clear() {
+        if (CACHE != null) {
+            CACHE.clear();
+        }
+    }
+}
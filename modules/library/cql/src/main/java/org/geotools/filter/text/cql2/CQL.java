@@ -24,6 +24,7 @@ import java.util.List;
 import javax.xml.transform.TransformerException;
 import org.geotools.filter.text.commons.CompilerUtil;
 import org.geotools.filter.text.commons.ExpressionToText;
+import org.geotools.filter.text.commons.ParseCache;
 import org.geotools.xml.filter.FilterTransformer;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
@@ -167,6 +168,44 @@ public class CQL {
         return filters;
     }
 
+    /**
+     * Parses the input string in OGC CQL format into a Filter, like {@link #toFilter(String)}, but
+     * returns a cached instance shared among the callers. The filter is frozen, and trying to
+     * modify it throws an {@link UnsupportedOperationException} (see {@link ParseCache}), use a
+     * {@link org.geotools.filter.visitor.DuplicatingFilterVisitor} to get a modifiable copy.
+     *
+     * @param cqlPredicate a string containing a query predicate in OGC CQL format.
+     * @return a shared {@link Filter} equivalent to <code>cqlPredicate</code>.
+     */
+    public static Filter toCachedFilter(final String cqlPredicate) throws CQLException {
+        return ParseCache.parseFilter(cqlPredicate, new CQLCompilerFactory(), null);
+    }
+
+    /**
+     * Parses the input string in OGC CQL format into an Expression, like {@link
+     * #toExpression(String)}, but returns a cached instance shared among the callers, that cannot
+     * be modified (see {@link #toCachedFilter(String)}).
+     *
+     * @param cqlExpression a string containing an OGC CQL expression.
+     * @return a shared {@link Expression} equivalent to <code>cqlExpression</code>.
+     */
+    public static Expression toCachedExpression(final String cqlExpression) throws CQLException {
+        return ParseCache.parseExpression(cqlExpression, new CQLCompilerFactory(), null);
+    }
+
+    /**
+     * Parses the input string, which has to be a list of OGC CQL predicates separated by "<code>;
+     * </code>", like {@link #toFilterList(String)}, but returns a cached list shared among the
+     * callers, neither the list nor its filters can be modified (see {@link
+     * #toCachedFilter(String)}).
+     *
+     * @param cqlFilterList a list of OGC CQL predicates separated by "<code>;</code>"
+     * @return a shared {@link List} of {@link Filter}, one for each input OGC CQL statement
+     */
+    public static List<Filter> toCachedFilterList(final String cqlFilterList) throws CQLException {
+        return ParseCache.parseFilterList(cqlFilterList, new CQLCompilerFactory(), null);
+    }
+
     /**
      * Generates the ecql predicates associated to the {@link List} of {@link Filter}s object.
      *
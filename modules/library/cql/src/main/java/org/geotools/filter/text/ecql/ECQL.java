@@ -24,6 +24,7 @@ import java.util.List;
 import javax.xml.transform.TransformerException;
 import org.geotools.filter.text.commons.CompilerUtil;
 import org.geotools.filter.text.commons.ExpressionToText;
+import org.geotools.filter.text.commons.ParseCache;
 import org.geotools.filter.text.cql2.CQLException;
 import org.geotools.util.factory.Hints;
 import org.geotools.xml.filter.FilterTransformer;
@@ -159,6 +160,44 @@ public class ECQL {
         return toFilterList(ecqlSequencePredicate, null);
     }
 
+    /**
+     * Parses the input string in ECQL format into a Filter, like {@link #toFilter(String)}, but
+     * returns a cached instance shared among the callers. The filter is frozen, and trying to
+     * modify it throws an {@link UnsupportedOperationException} (see {@link ParseCache}), use a
+     * {@link org.geotools.filter.visitor.DuplicatingFilterVisitor} to get a modifiable copy.
+     *
+     * @param ecqlPredicate a string containing a query predicate in ECQL format.
+     * @return a shared {@link Filter} equivalent to <code>ecqlPredicate</code>.
+     */
+    public static Filter toCachedFilter(final String ecqlPredicate) throws CQLException {
+        return ParseCache.parseFilter(ecqlPredicate, new ECQLCompilerFactory(), null);
+    }
+
+    /**
+     * Parses the input string in ECQL format into an Expression, like {@link
+     * #toExpression(String)}, but returns a cached instance shared among the callers, that cannot
+     * be modified (see {@link #toCachedFilter(String)}).
+     *
+     * @param ecqlExpression a string containing an ECQL expression.
+     * @return a shared {@link Expression} equivalent to <code>ecqlExpression</code>.
+     */
+    public static Expression toCachedExpression(final String ecqlExpression) throws CQLException {
+        return ParseCache.parseExpression(ecqlExpression, new ECQLCompilerFactory(), null);
+    }
+
+    /**
+     * Parses the input string, which has to be a list of ECQL predicates separated by "<code>;
+     * </code>", like {@link #toFilterList(String)}, but returns a cached list shared among the
+     * callers, neither the list nor its filters can be modified (see {@link
+     * #toCachedFilter(String)}).
+     *
+     * @param ecqlFilterList a list of ECQL predicates separated by "<code>;</code>"
+     * @return a shared {@link List} of {@link Filter}, one for each input ECQL statement
+     */
+    public static List<Filter> toCachedFilterList(final String ecqlFilterList) throws CQLException {
+        return ParseCache.parseFilterList(ecqlFilterList, new ECQLCompilerFactory(), null);
+    }
+
     /**
      * Parses the input string, which has to be a list of ECQL predicates separated by "<code>;
      * </code>" into a {@link List} of {@link Filter}, using the provided FilterFactory.
@@ -0,0 +1,112 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.text.commons;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.FilterAbstract;
+import org.geotools.filter.LikeFilterImpl;
+import org.geotools.filter.text.cql2.CQL;
+import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.filter.visitor.DuplicatingFilterVisitor;
+import org.junit.Test;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.expression.Expression;
+
+public class ParseCacheTest {
+
+    @Test
+    public void testSharedFilters() throws Exception {
+        String cql = "name LIKE 'Main%' AND lanes BETWEEN 2 AND 4";
+        Filter filter = ECQL.toCachedFilter(cql);
+        assertSame(filter, ECQL.toCachedFilter(cql));
+        assertNotSame(filter, CQL.toCachedFilter(cql));
+
+        // the other methods keep returning a fresh filter
+        Filter fresh = ECQL.toFilter(cql);
+        assertNotSame(filter, fresh);
+        assertNotSame(fresh, ECQL.toFilter(cql));
+        assertEquals(filter, fresh);
+        assertNotSame(filter, ECQL.toFilter(cql, CommonFactoryFinder.getFilterFactory2()));
+
+        Expression expression = ECQL.toCachedExpression("lanes * 2");
+        assertSame(expression, ECQL.toCachedExpression("lanes * 2"));
+        assertNotSame(expression, ECQL.toExpression("lanes * 2"));
+        List<Filter> filters = ECQL.toCachedFilterList("a = 1; b = 2");
+        assertSame(filters, ECQL.toCachedFilterList("a = 1; b = 2"));
+        assertNotSame(filters, ECQL.toFilterList("a = 1; b = 2"));
+    }
+
+    @Test
+    public void testFreshFiltersModifiable() throws Exception {
+        String cql = "name LIKE 'Main%' AND lanes > 2";
+        Filter cached = ECQL.toCachedFilter(cql);
+        And filter = (And) ECQL.toFilter(cql);
+        LikeFilterImpl like = (LikeFilterImpl) filter.getChildren().get(0);
+        assertFalse(like.isFrozen());
+        like.setLiteral("Old%");
+        assertEquals("Old%", like.getLiteral());
+        assertEquals(ECQL.toFilter(cql), cached);
+
+        List<Filter> filters = CQL.toFilterList("a = 1; b = 2");
+        filters.clear();
+        assertEquals(2, CQL.toFilterList("a = 1; b = 2").size());
+    }
+
+    @Test
+    public void testStatefulFunctionNotCached() throws Exception {
+        String cql = "lanes > Collection_Average(lanes)";
+        Filter filter = ECQL.toCachedFilter(cql);
+        assertNotSame(filter, ECQL.toCachedFilter(cql));
+        assertFalse(((FilterAbstract) filter).isFrozen());
+    }
+
+    @Test
+    public void testImmutable() throws Exception {
+        String cql = "name LIKE 'Main%' AND lanes > 2";
+        And filter = (And) ECQL.toCachedFilter(cql);
+        LikeFilterImpl like = (LikeFilterImpl) filter.getChildren().get(0);
+        assertTrue(like.isFrozen());
+        try {
+            like.setLiteral("Old%");
+            fail("Cached filters should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // fine
+        }
+        try {
+            ECQL.toCachedFilterList("a = 1; b = 2").clear();
+            fail("Cached filter lists should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // fine
+        }
+
+        // copies can be modified
+        And copy = (And) filter.accept(new DuplicatingFilterVisitor(), null);
+        LikeFilterImpl copiedLike = (LikeFilterImpl) copy.getChildren().get(0);
+        assertFalse(copiedLike.isFrozen());
+        copiedLike.setLiteral("Old%");
+        assertEquals(ECQL.toCachedFilter(cql), filter);
+    }
+}
@@ -385,6 +385,10 @@ public class JDBCFeatureReader implements FeatureReader<SimpleFeatureType, Simpl
                                     } else {
                                         value = screenMap.getSimplifiedShape(geometry);
                                     }
+                                } else if (screenMap.isCovered(geometry.getEnvelopeInternal())) {
+                                    // the area is already painted, no point returning it
+                                    builder.reset();
+                                    return null;
                                 }
                             }
                         } catch (TransformException e) {
@@ -18,9 +18,11 @@ package org.geotools.data;
 
 import java.io.IOException;
 import java.util.NoSuchElementException;
+import org.geotools.filter.FilterCompiler;
 import org.geotools.filter.visitor.BindingFilterVisitor;
 import org.opengis.feature.Feature;
 import org.opengis.feature.IllegalAttributeException;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
 
@@ -54,10 +56,12 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature>
      */
     public FilteringFeatureReader(FeatureReader<T, F> featureReader, Filter filter) {
         this.featureReader = featureReader;
-        this.filter =
-                (Filter)
-                        filter.accept(
-                                new BindingFilterVisitor(featureReader.getFeatureType()), null);
+        T schema = featureReader.getFeatureType();
+        if (schema instanceof SimpleFeatureType) {
+            this.filter = FilterCompiler.compile(filter, (SimpleFeatureType) schema);
+        } else {
+            this.filter = (Filter) filter.accept(new BindingFilterVisitor(schema), null);
+        }
         next = null;
     }
 
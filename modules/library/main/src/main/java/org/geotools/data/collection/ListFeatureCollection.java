@@ -28,6 +28,8 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.feature.collection.RangeFeatureAccess;
+import org.geotools.feature.visitor.ParallelVisitorDriver;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.Feature;
 import org.opengis.feature.FeatureVisitor;
@@ -35,6 +37,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.filter.Filter;
 import org.opengis.filter.sort.SortBy;
+import org.opengis.util.ProgressListener;
 
 /**
  * FeatureCollection implementation wrapping around a java.util.List.
@@ -59,7 +62,7 @@ import org.opengis.filter.sort.SortBy;
  * @author Jody
  */
 public class ListFeatureCollection extends AbstractFeatureCollection
-        implements Collection<SimpleFeature> {
+        implements Collection<SimpleFeature>, RangeFeatureAccess {
     /** wrapped list of features containing the contents */
     protected List<SimpleFeature> list;
 
@@ -159,6 +162,27 @@ public class ListFeatureCollection extends AbstractFeatureCollection
         return new ListFeatureIterator(list);
     }
 
+    @Override
+    public int getRangeSize() {
+        return list.size();
+    }
+
+    @Override
+    public SimpleFeatureIterator features(int start, int end) {
+        return new ListFeatureIterator(list.subList(start, end));
+    }
+
+    /**
+     * Visits the features in parallel when enabled and the visitor allows it, see {@link
+     * ParallelVisitorDriver}
+     */
+    @Override
+    public void accepts(FeatureVisitor visitor, ProgressListener progress) throws IOException {
+        if (!ParallelVisitorDriver.visit(this, visitor, progress)) {
+            super.accepts(visitor, progress);
+        }
+    }
+
     @Override
     public synchronized ReferencedEnvelope getBounds() {
         if (bounds == null) {
@@ -0,0 +1,351 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.util;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * A {@link ScreenMap} that, on top of the pixels, tracks the coverage of blocks of 2x2, 4x4, 8x8,
+ * ... pixels, a block being marked once all the pixels in it are set. This allows to quickly
+ * determine, via {@link #isCovered(Envelope)}, if a feature larger than a pixel falls in a fully
+ * painted area of the map, and can be skipped as well. The pixels get set both by the features
+ * smaller than a pixel, via {@link #checkAndSet(Envelope)}, and by the larger polygons being
+ * painted, via {@link #setCovered(Geometry)}.
+ *
+ * <p>Skipping covered features is correct only if the features being painted have an opaque fill
+ * (so that nothing shows through them) and are painted in the same way, in all other cases the
+ * plain {@link ScreenMap} should be used.
+ *
+ * @author GeoTools
+ */
+public class HierarchicalScreenMap extends ScreenMap {
+
+    /**
+     * The coverage bits of the block levels, level i containing blocks of 2^(i+1) pixels per side.
+     * Lazily allocated.
+     */
+    int[][] levels;
+
+    /** Number of blocks per row in each level */
+    int[] levelWidths;
+
+    public HierarchicalScreenMap(int x, int y, int width, int height, MathTransform mt) {
+        super(x, y, width, height, mt);
+    }
+
+    public HierarchicalScreenMap(int x, int y, int width, int height) {
+        this(x, y, width, height, null);
+    }
+
+    public HierarchicalScreenMap(HierarchicalScreenMap original, int expandBy) {
+        this(
+                original.minx - expandBy,
+                original.miny - expandBy,
+                original.width + expandBy * 2,
+                original.height + expandBy * 2);
+    }
+
+    private int[][] getLevels() {
+        if (levels == null) {
+            int count = 0;
+            for (int size = 2; size < Math.max(width, height) * 2; size *= 2) {
+                count++;
+            }
+            levels = new int[count][];
+            levelWidths = new int[count];
+            for (int level = 0; level < count; level++) {
+                int shift = level + 1;
+                int levelWidth = ((width - 1) >> shift) + 1;
+                int levelHeight = ((height - 1) >> shift) + 1;
+                levelWidths[level] = levelWidth;
+                levels[level] = new int[(levelWidth * levelHeight) / 32 + 1];
+            }
+        }
+        return levels;
+    }
+
+    @Override
+    public boolean checkAndSet(int x, int y) {
+        boolean busy = super.checkAndSet(x, y);
+        if (!busy) {
+            updateLevels(x - minx, y - miny, true);
+        }
+        return busy;
+    }
+
+    @Override
+    public void set(int x, int y, boolean value) {
+        super.set(x, y, value);
+        updateLevels(x - minx, y - miny, value);
+    }
+
+    /**
+     * Updates the blocks containing the specified pixel, going up as long as the blocks are getting
+     * full (or, when clearing, as long as they were full)
+     */
+    private void updateLevels(int px, int py, boolean value) {
+        if (px < 0 || px >= width || py < 0 || py >= height) {
+            return;
+        }
+        int[][] levels = getLevels();
+        for (int level = 0; level < levels.length; level++) {
+            int shift = level + 1;
+            int bx = px >> shift;
+            int by = py >> shift;
+            if (value) {
+                if (!childrenFull(level, bx, by)) {
+                    return;
+                }
+                setBit(level, bx, by, true);
+            } else {
+                if (!getBit(level, bx, by)) {
+                    return;
+                }
+                setBit(level, bx, by, false);
+            }
+        }
+    }
+
+    /** Checks the four children of the specified block, at the level below */
+    private boolean childrenFull(int level, int bx, int by) {
+        for (int cy = by * 2; cy <= by * 2 + 1; cy++) {
+            for (int cx = bx * 2; cx <= bx * 2 + 1; cx++) {
+                if (!isFull(level - 1, cx, cy)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if the block (or pixel, at level -1) is full, false if it's outside the map */
+    private boolean isFull(int level, int bx, int by) {
+        int shift = level + 1;
+        if ((bx << shift) >= width || (by << shift) >= height) {
+            return false;
+        }
+        if (level < 0) {
+            return get(bx + minx, by + miny);
+        }
+        return getBit(level, bx, by);
+    }
+
+    boolean getBit(int level, int bx, int by) {
+        int bit = by * levelWidths[level] + bx;
+        return (levels[level][bit >>> 5] & (1 << (bit & 31))) != 0;
+    }
+
+    private void setBit(int level, int bx, int by, boolean value) {
+        int bit = by * levelWidths[level] + bx;
+        if (value) {
+            levels[level][bit >>> 5] |= 1 << (bit & 31);
+        } else {
+            levels[level][bit >>> 5] &= ~(1 << (bit & 31));
+        }
+    }
+
+    /**
+     * Returns true if all the pixels touched by the envelope, once transformed to the screen, are
+     * already set. Envelopes falling even partially outside of the screen map are never covered.
+     */
+    @Override
+    public boolean isCovered(Envelope envelope) throws TransformException {
+        if (mt == null || envelope == null || envelope.isNull()) {
+            return false;
+        }
+        int[] pixels = toPixels(envelope);
+        return isCovered(pixels[0], pixels[1], pixels[2], pixels[3]);
+    }
+
+    /** Returns the range of pixels touched by the envelope, as x0, y0, x1, y1, extremes included */
+    private int[] toPixels(Envelope envelope) throws TransformException {
+        double[] corners = {
+            envelope.getMinX(), envelope.getMinY(),
+            envelope.getMaxX(), envelope.getMinY(),
+            envelope.getMaxX(), envelope.getMaxY(),
+            envelope.getMinX(), envelope.getMaxY()
+        };
+        mt.transform(corners, 0, corners, 0, 4);
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < corners.length; i += 2) {
+            minX = Math.min(minX, corners[i]);
+            maxX = Math.max(maxX, corners[i]);
+            minY = Math.min(minY, corners[i + 1]);
+            maxY = Math.max(maxY, corners[i + 1]);
+        }
+        return new int[] {
+            (int) Math.floor(minX),
+            (int) Math.floor(minY),
+            (int) Math.floor(maxX),
+            (int) Math.floor(maxY)
+        };
+    }
+
+    /**
+     * Sets the pixels lying fully inside a polygonal geometry about to be painted with an opaque
+     * fill, so that the features falling in the painted area can be skipped afterwards. The
+     * pixels only partially covered by the geometry are left alone. Does nothing if the geometry
+     * is not polygonal, or if the transformation to the screen is not affine.
+     */
+    public void setCovered(Geometry geometry) throws TransformException {
+        if (!(geometry instanceof Polygonal) || geometry.isEmpty() || mt == null) {
+            return;
+        }
+        AffineTransform screenToWorld;
+        try {
+            if (mt instanceof AffineTransform) {
+                screenToWorld = ((AffineTransform) mt).createInverse();
+            } else if (mt.isIdentity()) {
+                screenToWorld = new AffineTransform();
+            } else {
+                return;
+            }
+        } catch (NoninvertibleTransformException e) {
+            return;
+        }
+
+        int[] pixels = toPixels(geometry.getEnvelopeInternal());
+        int x0 = Math.max(pixels[0], minx);
+        int y0 = Math.max(pixels[1], miny);
+        int x1 = Math.min(pixels[2], minx + width - 1);
+        int y1 = Math.min(pixels[3], miny + height - 1);
+        if (x0 > x1 || y0 > y1) {
+            return;
+        }
+        PreparedGeometry prepared = PreparedGeometryFactory.prepare(geometry);
+        setCovered(prepared, geometry.getFactory(), screenToWorld, x0, y0, x1, y1);
+    }
+
+    /**
+     * Sets the pixels of the range fully inside the geometry, splitting the range in two halves
+     * until it's either inside, outside, or down to a single pixel
+     */
+    private void setCovered(
+            PreparedGeometry prepared,
+            GeometryFactory factory,
+            AffineTransform screenToWorld,
+            int x0,
+            int y0,
+            int x1,
+            int y1) {
+        Polygon block = toWorld(factory, screenToWorld, x0, y0, x1 + 1, y1 + 1);
+        if (prepared.contains(block)) {
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    if (!get(x, y)) {
+                        set(x, y, true);
+                    }
+                }
+            }
+        } else if ((x0 == x1 && y0 == y1) || !prepared.intersects(block)) {
+            return;
+        } else if (x1 - x0 >= y1 - y0) {
+            int mx = (x0 + x1) >> 1;
+            setCovered(prepared, factory, screenToWorld, x0, y0, mx, y1);
+            setCovered(prepared, factory, screenToWorld, mx + 1, y0, x1, y1);
+        } else {
+            int my = (y0 + y1) >> 1;
+            setCovered(prepared, factory, screenToWorld, x0, y0, x1, my);
+            setCovered(prepared, factory, screenToWorld, x0, my + 1, x1, y1);
+        }
+    }
+
+    /** Returns the world polygon corresponding to the screen rectangle */
+    private Polygon toWorld(
+            GeometryFactory factory,
+            AffineTransform screenToWorld,
+            double x0,
+            double y0,
+            double x1,
+            double y1) {
+        double[] corners = {x0, y0, x1, y0, x1, y1, x0, y1};
+        screenToWorld.transform(corners, 0, corners, 0, 4);
+        Coordinate[] ring = new Coordinate[5];
+        for (int i = 0; i < 4; i++) {
+            ring[i] = new Coordinate(corners[i * 2], corners[i * 2 + 1]);
+        }
+        ring[4] = new Coordinate(ring[0]);
+        return factory.createPolygon(ring);
+    }
+
+    /** Returns true if all the pixels in the specified range, extremes included, are set */
+    public boolean isCovered(int x0, int y0, int x1, int y1) {
+        int px0 = x0 - minx, py0 = y0 - miny, px1 = x1 - minx, py1 = y1 - miny;
+        if (px0 < 0 || py0 < 0 || px1 >= width || py1 >= height || px0 > px1 || py0 > py1) {
+            return false;
+        }
+        int[][] levels = getLevels();
+        // start from the level whose blocks are not smaller than the range, so that the range
+        // touches at most 2x2 blocks
+        int span = Math.max(px1 - px0, py1 - py0) + 1;
+        int level = -1;
+        while (level < levels.length - 1 && (1 << (level + 1)) < span) {
+            level++;
+        }
+        int shift = level + 1;
+        for (int by = py0 >> shift; by <= py1 >> shift; by++) {
+            for (int bx = px0 >> shift; bx <= px1 >> shift; bx++) {
+                if (!isCovered(level, bx, by, px0, py0, px1, py1)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Checks the part of the pixel range falling in the specified block */
+    private boolean isCovered(int level, int bx, int by, int px0, int py0, int px1, int py1) {
+        if (isFull(level, bx, by)) {
+            return true;
+        }
+        if (level < 0) {
+            return false;
+        }
+        // check the children intersecting the range
+        int shift = level;
+        for (int cy = by * 2; cy <= by * 2 + 1; cy++) {
+            int cy0 = cy << shift;
+            int cy1 = ((cy + 1) << shift) - 1;
+            if (cy1 < py0 || cy0 > py1) {
+                continue;
+            }
+            for (int cx = bx * 2; cx <= bx * 2 + 1; cx++) {
+                int cx0 = cx << shift;
+                int cx1 = ((cx + 1) << shift) - 1;
+                if (cx1 < px0 || cx0 > px1) {
+                    continue;
+                }
+                if (!isCovered(level - 1, cx, cy, px0, py0, px1, py1)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -58,9 +58,9 @@ public class ScreenMap {
 
     int height;
 
-    private int minx;
+    int minx;
 
-    private int miny;
+    int miny;
 
     MathTransform mt;
 
@@ -151,6 +151,16 @@ public class ScreenMap {
         return get(r, c);
     }
 
+    /**
+     * Returns true if all the pixels touched by the envelope are already set, meaning a feature
+     * with an opaque fill and this envelope would not add anything to the map. The flat screen map
+     * does not track coverage beyond single pixels and always returns false, see {@link
+     * HierarchicalScreenMap} for an implementation.
+     */
+    public boolean isCovered(Envelope envelope) throws TransformException {
+        return false;
+    }
+
     /** Returns true if the pixel at location x,y is set or out of bounds. */
     public boolean get(int x, int y) {
         return getBitField().get(x, y);
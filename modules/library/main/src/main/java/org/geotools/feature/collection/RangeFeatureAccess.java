@@ -0,0 +1,49 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.collection;
+
+import java.io.IOException;
+import org.geotools.feature.FeatureIterator;
+import org.opengis.feature.Feature;
+
+/**
+ * Access Feature content by ranges of positions, e.g. list indexes or file records.
+ *
+ * <p>Feature collections supporting this interface can be split in independent partitions, and
+ * visited in parallel (see {@link org.geotools.feature.visitor.ParallelVisitorDriver}). The ranges
+ * follow the natural order of the collection, and iterating over contiguous ranges covering <code>
+ * [0, getRangeSize())</code> returns all the features of the collection, once.
+ *
+ * @author GeoTools
+ */
+public interface RangeFeatureAccess {
+
+    /**
+     * Returns the exclusive upper bound of the ranges, such as the number of features in a list, or
+     * the number of records in a file (some of which might be skipped, e.g. deleted records)
+     */
+    int getRangeSize() throws IOException;
+
+    /**
+     * Returns the features in the <code>[start, end)</code> range. Might be called concurrently by
+     * different threads, each one getting its own iterator.
+     *
+     * @param start the first position, inclusive
+     * @param end the last position, exclusive
+     */
+    FeatureIterator<? extends Feature> features(int start, int end) throws IOException;
+}
@@ -0,0 +1,180 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Estimates the quantiles of an expression in a single pass and bounded memory, using a KLL sketch.
+ * Unlike {@link QuantileListVisitor} and {@link MedianVisitor}, which keep all the values in
+ * memory, the number of retained values depends only on the requested accuracy (a few hundred
+ * values for a 1% rank error). The minimum and maximum values are exact.
+ *
+ * <p>The result has the same structure as the {@link QuantileListVisitor} one, an array of lists,
+ * one per bin, but each list only contains the estimated lower and upper bounds of the bin, sorted.
+ * A bin with identical bounds contains a single value.
+ *
+ * <p>As with {@link QuantileListVisitor}, null, NaN and infinite values are skipped.
+ *
+ * @author GeoTools
+ */
+public class ApproximateQuantileListVisitor
+        implements SplittableFeatureCalc, FeatureAttributeVisitor {
+
+    private Expression expr;
+
+    private int bins;
+
+    private double accuracy;
+
+    KllSketch sketch;
+
+    int countNull = 0;
+
+    int countNaN = 0;
+
+    /**
+     * Builds the visitor
+     *
+     * @param expr the expression whose quantiles are computed
+     * @param bins the number of bins
+     * @param accuracy the normalized rank error of the quantiles, e.g. 0.01 for a 1% error
+     */
+    public ApproximateQuantileListVisitor(Expression expr, int bins, double accuracy) {
+        this.expr = expr;
+        this.bins = bins;
+        this.accuracy = accuracy;
+        this.sketch = new KllSketch(KllSketch.k(accuracy));
+    }
+
+    @Override
+    public List<Expression> getExpressions() {
+        return Arrays.asList(expr);
+    }
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public void visit(SimpleFeature feature) {
+        visit((Feature) feature);
+    }
+
+    public void visit(Feature feature) {
+        Object value = expr.evaluate(feature);
+        if (value == null) {
+            countNull++;
+            return;
+        }
+        if (value instanceof Double) {
+            double doubleVal = ((Double) value).doubleValue();
+            if (Double.isNaN(doubleVal) || Double.isInfinite(doubleVal)) {
+                countNaN++;
+                return;
+            }
+        }
+        sketch.add(value);
+    }
+
+    /**
+     * Returns the estimated quantile, e.g. 0.5 for the median, or null if no value has been visited
+     */
+    public Object getQuantile(double fraction) {
+        Object[] quantiles = sketch.getQuantiles(new double[] {fraction});
+        return quantiles == null ? null : quantiles[0];
+    }
+
+    /** Returns the exact minimum value, or null if no value has been visited */
+    public Object getMin() {
+        return sketch.min;
+    }
+
+    /** Returns the exact maximum value, or null if no value has been visited */
+    public Object getMax() {
+        return sketch.max;
+    }
+
+    /** Returns the number of values visited, nulls and NaNs excluded */
+    public long getCount() {
+        return sketch.count;
+    }
+
+    public CalcResult getResult() {
+        if (bins == 0 || sketch.count == 0) {
+            return CalcResult.NULL_RESULT;
+        }
+        int binCount = (int) Math.min(bins, sketch.count);
+        double[] fractions = new double[binCount + 1];
+        for (int i = 0; i <= binCount; i++) {
+            fractions[i] = (double) i / binCount;
+        }
+        Object[] bounds = sketch.getQuantiles(fractions);
+        List[] bin = new List[binCount];
+        for (int i = 0; i < binCount; i++) {
+            List<Object> values = new ArrayList<>(2);
+            values.add(bounds[i]);
+            if (KllSketch.ORDER.compare(bounds[i], bounds[i + 1]) != 0) {
+                values.add(bounds[i + 1]);
+            }
+            bin[i] = values;
+        }
+        return new AbstractCalcResult() {
+            public Object getValue() {
+                return bin;
+            }
+        };
+    }
+
+    public void reset(int bins) {
+        this.bins = bins;
+        this.sketch = new KllSketch(sketch.k);
+        this.countNull = 0;
+        this.countNaN = 0;
+    }
+
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new ApproximateQuantileListVisitor(expr, bins, accuracy);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        ApproximateQuantileListVisitor other = (ApproximateQuantileListVisitor) partial;
+        sketch.merge(other.sketch);
+        countNull += other.countNull;
+        countNaN += other.countNaN;
+    }
+
+    /** @return the number of features which returned a NaN */
+    public int getNaNCount() {
+        return countNaN;
+    }
+
+    /** @return the number of features which returned a null */
+    public int getNullCount() {
+        return countNull;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Finds the most frequent distinct values of an expression in bounded memory, tracking frequencies
+ * with a Count-Min sketch and keeping only the current top candidates. Unlike {@link
+ * UniqueVisitor}, which keeps all the distinct values, at most <code>size</code> values are kept in
+ * memory.
+ *
+ * <p>The frequencies are estimated, overcounting by at most <code>accuracy</code> times the number
+ * of visited values with high probability, so values with frequencies close to each other may be
+ * reported in the wrong order, or be missing from the top values. Null values are skipped.
+ *
+ * @author GeoTools
+ */
+public class ApproximateTopUniqueVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
+
+    private Expression expr;
+
+    private int size;
+
+    private double accuracy;
+
+    CountMinSketch sketch;
+
+    /** The current top values, with their last known frequency estimate */
+    Map<Object, Long> candidates = new HashMap<>();
+
+    /** A lower bound for the smallest frequency among the candidates */
+    long threshold = 0;
+
+    /**
+     * Builds the visitor
+     *
+     * @param expr the expression whose values are counted
+     * @param size the number of top values to be returned
+     * @param accuracy the relative error of the frequencies, e.g. 0.001 to overcount by at most
+     *     0.1% of the visited values
+     */
+    public ApproximateTopUniqueVisitor(Expression expr, int size, double accuracy) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size should be positive, was " + size);
+        }
+        this.expr = expr;
+        this.size = size;
+        this.accuracy = accuracy;
+        this.sketch = new CountMinSketch(CountMinSketch.width(accuracy));
+    }
+
+    @Override
+    public List<Expression> getExpressions() {
+        return Arrays.asList(expr);
+    }
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public void visit(SimpleFeature feature) {
+        visit((Feature) feature);
+    }
+
+    public void visit(Feature feature) {
+        Object value = expr.evaluate(feature);
+        if (value != null) {
+            offer(value, sketch.add(Sketches.hash(value)));
+        }
+    }
+
+    /** Adds the value to the candidates, if frequent enough */
+    void offer(Object value, long estimate) {
+        if (candidates.containsKey(value) || candidates.size() < size) {
+            candidates.put(value, estimate);
+        } else if (estimate > threshold) {
+            // refresh the estimates and find the least frequent candidate
+            Object least = null;
+            long leastEstimate = Long.MAX_VALUE;
+            for (Map.Entry<Object, Long> entry : candidates.entrySet()) {
+                long current = sketch.estimate(Sketches.hash(entry.getKey()));
+                entry.setValue(current);
+                if (current < leastEstimate) {
+                    least = entry.getKey();
+                    leastEstimate = current;
+                }
+            }
+            if (estimate > leastEstimate) {
+                candidates.remove(least);
+                candidates.put(value, estimate);
+            }
+            threshold = leastEstimate;
+        }
+    }
+
+    /**
+     * Returns the top values, sorted by decreasing estimated frequency, associated to their
+     * estimated frequency
+     */
+    public Map<Object, Long> getTopValues() {
+        return TopUniqueResult.top(size, sketch, candidates.keySet());
+    }
+
+    public void reset() {
+        this.sketch = new CountMinSketch(sketch.width);
+        this.candidates = new HashMap<>();
+        this.threshold = 0;
+    }
+
+    /** The result value is the list of top values, sorted by decreasing frequency */
+    public CalcResult getResult() {
+        if (candidates.isEmpty()) {
+            return CalcResult.NULL_RESULT;
+        }
+        return new TopUniqueResult(size, sketch, candidates.keySet());
+    }
+
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new ApproximateTopUniqueVisitor(expr, size, accuracy);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        ApproximateTopUniqueVisitor other = (ApproximateTopUniqueVisitor) partial;
+        sketch.merge(other.sketch);
+        List<Object> values = new ArrayList<>(candidates.keySet());
+        values.addAll(other.candidates.keySet());
+        candidates = new HashMap<>();
+        for (Object value : TopUniqueResult.top(size, sketch, values).keySet()) {
+            candidates.put(value, sketch.estimate(Sketches.hash(value)));
+        }
+        threshold = 0;
+    }
+
+    /** The top values, can be merged with results of the same size and accuracy */
+    public static class TopUniqueResult extends AbstractCalcResult {
+        private final int size;
+
+        private final CountMinSketch sketch;
+
+        private final Map<Object, Long> values;
+
+        TopUniqueResult(int size, CountMinSketch sketch, Iterable<Object> candidates) {
+            this.size = size;
+            this.sketch = sketch;
+            this.values = top(size, sketch, candidates);
+        }
+
+        /** Returns the most frequent candidates, sorted by decreasing frequency estimate */
+        static Map<Object, Long> top(int size, CountMinSketch sketch, Iterable<Object> candidates) {
+            List<Map.Entry<Object, Long>> entries = new ArrayList<>();
+            for (Object value : candidates) {
+                long estimate = sketch.estimate(Sketches.hash(value));
+                entries.add(new AbstractMap.SimpleEntry<>(value, estimate));
+            }
+            entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            Map<Object, Long> result = new LinkedHashMap<>();
+            for (Map.Entry<Object, Long> entry : entries) {
+                if (result.size() == size) {
+                    break;
+                }
+                result.put(entry.getKey(), entry.getValue());
+            }
+            return result;
+        }
+
+        @Override
+        public Object getValue() {
+            return new ArrayList<>(values.keySet());
+        }
+
+        @Override
+        public Map toMap() {
+            return new LinkedHashMap<>(values);
+        }
+
+        @Override
+        public boolean isCompatible(CalcResult targetResults) {
+            if (targetResults == CalcResult.NULL_RESULT) {
+                return true;
+            }
+            if (!(targetResults instanceof TopUniqueResult)) {
+                return false;
+            }
+            TopUniqueResult other = (TopUniqueResult) targetResults;
+            return other.size == size && other.sketch.width == sketch.width;
+        }
+
+        @Override
+        public CalcResult merge(CalcResult resultsToAdd) {
+            if (!isCompatible(resultsToAdd)) {
+                throw new IllegalArgumentException("Parameter is not a compatible type");
+            }
+            if (resultsToAdd == CalcResult.NULL_RESULT) {
+                return this;
+            }
+            TopUniqueResult other = (TopUniqueResult) resultsToAdd;
+            CountMinSketch merged = sketch.copy();
+            merged.merge(other.sketch);
+            List<Object> candidates = new ArrayList<>(values.keySet());
+            candidates.addAll(other.values.keySet());
+            return new TopUniqueResult(size, merged, candidates);
+        }
+    }
+}
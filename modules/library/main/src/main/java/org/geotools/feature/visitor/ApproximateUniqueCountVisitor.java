@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.Arrays;
+import java.util.List;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Estimates the number of distinct values of an expression, using a HyperLogLog sketch. Unlike
+ * {@link UniqueVisitor}, which keeps all the distinct values in memory, the memory used is fixed
+ * and depends only on the requested accuracy: a relative standard error of 0.01 takes about 16KB.
+ * Null values are not counted.
+ *
+ * @author GeoTools
+ */
+public class ApproximateUniqueCountVisitor
+        implements SplittableFeatureCalc, FeatureAttributeVisitor {
+
+    private Expression expr;
+
+    private double accuracy;
+
+    HyperLogLog sketch;
+
+    boolean visited = false;
+
+    /**
+     * Builds the visitor
+     *
+     * @param expr the expression whose distinct values are counted
+     * @param accuracy the relative standard error of the estimate, e.g. 0.01 for a 1% error
+     */
+    public ApproximateUniqueCountVisitor(Expression expr, double accuracy) {
+        this.expr = expr;
+        this.accuracy = accuracy;
+        this.sketch = new HyperLogLog(HyperLogLog.precision(accuracy));
+    }
+
+    @Override
+    public List<Expression> getExpressions() {
+        return Arrays.asList(expr);
+    }
+
+    public Expression getExpression() {
+        return expr;
+    }
+
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    public void visit(SimpleFeature feature) {
+        visit((Feature) feature);
+    }
+
+    public void visit(Feature feature) {
+        Object value = expr.evaluate(feature);
+        if (value != null) {
+            sketch.add(value);
+            visited = true;
+        }
+    }
+
+    /** Returns the estimated number of distinct values */
+    public long getCount() {
+        return visited ? sketch.estimate() : 0;
+    }
+
+    public void reset() {
+        this.sketch = new HyperLogLog(sketch.precision);
+        this.visited = false;
+    }
+
+    public CalcResult getResult() {
+        if (!visited) {
+            return CalcResult.NULL_RESULT;
+        }
+        return new UniqueCountResult(sketch);
+    }
+
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new ApproximateUniqueCountVisitor(expr, accuracy);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        ApproximateUniqueCountVisitor other = (ApproximateUniqueCountVisitor) partial;
+        if (other.visited) {
+            sketch.merge(other.sketch);
+            visited = true;
+        }
+    }
+
+    /** The estimated number of distinct values, can be merged with results of the same accuracy */
+    public static class UniqueCountResult extends AbstractCalcResult {
+        private final HyperLogLog sketch;
+
+        UniqueCountResult(HyperLogLog sketch) {
+            this.sketch = sketch;
+        }
+
+        @Override
+        public Object getValue() {
+            return sketch.estimate();
+        }
+
+        @Override
+        public boolean isCompatible(CalcResult targetResults) {
+            return targetResults == CalcResult.NULL_RESULT
+                    || (targetResults instanceof UniqueCountResult
+                            && ((UniqueCountResult) targetResults).sketch.precision
+                                    == sketch.precision);
+        }
+
+        @Override
+        public CalcResult merge(CalcResult resultsToAdd) {
+            if (!isCompatible(resultsToAdd)) {
+                throw new IllegalArgumentException("Parameter is not a compatible type");
+            }
+            if (resultsToAdd == CalcResult.NULL_RESULT) {
+                return this;
+            }
+            HyperLogLog merged = sketch.copy();
+            merged.merge(((UniqueCountResult) resultsToAdd).sketch);
+            return new UniqueCountResult(merged);
+        }
+    }
+}
@@ -34,7 +34,7 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions
  * @since 2.2.M2
  */
-public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class AverageVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
     private Expression expr;
 
     /**
@@ -157,6 +157,21 @@ public class AverageVisitor implements FeatureCalc, FeatureAttributeVisitor {
         return new AverageResult(strategy, isOptimized);
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        // an optimized result cannot be merged
+        return isOptimized ? null : new AverageVisitor(expr);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        CalcResult merged = getResult().merge(partial.getResult());
+        if (merged instanceof AverageResult) {
+            AverageResult average = (AverageResult) merged;
+            setValue(average.getCount(), average.getSum());
+        }
+    }
+
     public void setValue(Object newAverage) {
         reset();
 
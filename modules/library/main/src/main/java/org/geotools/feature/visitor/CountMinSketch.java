@@ -0,0 +1,96 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A Count-Min sketch (Cormode, Muthukrishnan), estimating the frequency of values in a stream with
+ * a fixed size table of counters. Estimates never undercount, and overcount by at most <code>
+ * accuracy * total</code> with a probability of about 99%.
+ *
+ * @author GeoTools
+ */
+final class CountMinSketch {
+
+    /** Number of rows, giving a failure probability of e^-5 */
+    static final int DEPTH = 5;
+
+    final int width;
+
+    final long[] table;
+
+    long total;
+
+    CountMinSketch(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Width should be positive, was " + width);
+        }
+        this.width = width;
+        this.table = new long[DEPTH * width];
+    }
+
+    /** Returns the table width matching the relative error */
+    static int width(double accuracy) {
+        Sketches.checkAccuracy(accuracy);
+        return (int) Math.ceil(Math.E / accuracy);
+    }
+
+    /** Counts the value, and returns its updated frequency estimate */
+    long add(long hash) {
+        total++;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * width + index(hash, row);
+            estimate = Math.min(estimate, ++table[index]);
+        }
+        return estimate;
+    }
+
+    long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, table[row * width + index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(width);
+        copy.merge(this);
+        return copy;
+    }
+
+    /** Derives the row hashes from the two halves of the value hash (Kirsch, Mitzenmacher) */
+    int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+    }
+
+    void merge(CountMinSketch other) {
+        if (other.width != width) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches with different widths, "
+                            + width
+                            + " and "
+                            + other.width);
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+    }
+}
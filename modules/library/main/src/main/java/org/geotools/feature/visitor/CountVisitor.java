@@ -26,7 +26,7 @@ import org.opengis.feature.simple.SimpleFeature;
  * @author Cory Horner, Refractions
  * @since 2.2.M2
  */
-public class CountVisitor implements FeatureCalc {
+public class CountVisitor implements SplittableFeatureCalc {
     Integer count = null;
 
     public void init(SimpleFeatureCollection collection) {
@@ -66,6 +66,19 @@ public class CountVisitor implements FeatureCalc {
         return new CountResult(count);
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new CountVisitor();
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        CalcResult merged = getResult().merge(partial.getResult());
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.toInt());
+        }
+    }
+
     public static class CountResult extends AbstractCalcResult {
         private int count;
 
@@ -33,7 +33,7 @@ import org.opengis.filter.expression.Expression;
 import org.opengis.util.ProgressListener;
 
 /** Group features by one or several attributes and applies an aggregator visitor to each group. */
-public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class GroupByVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
 
     private final Aggregate aggregate;
     private final Expression expression;
@@ -44,6 +44,9 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
 
     private CalcResult optimizationResult = CalcResult.NULL_RESULT;
 
+    /** The results of the partial visitors merged into this one */
+    private CalcResult partialsResult = CalcResult.NULL_RESULT;
+
     public GroupByVisitor(
             Aggregate aggregateVisitor,
             Expression expression,
@@ -60,7 +63,7 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
     }
 
     public boolean wasVisited() {
-        return !inMemoryGroupBy.groupByIndexes.isEmpty();
+        return !inMemoryGroupBy.isEmpty() || partialsResult != CalcResult.NULL_RESULT;
     }
 
     /**
@@ -77,7 +80,10 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
         Map<List<Object>, CalcResult> results = inMemoryGroupBy.visit();
         // create the result, if no feature was visited this will be an empty result that can be
         // safely merged
-        GroupByResult result = new GroupByResult(results, aggregate, groupByAttributes);
+        CalcResult result = new GroupByResult(results, aggregate, groupByAttributes);
+        if (partialsResult != CalcResult.NULL_RESULT) {
+            result = partialsResult.merge(result);
+        }
         if (optimizationResult == CalcResult.NULL_RESULT) {
             // there is no optimization result so we just return the created one
             return result;
@@ -86,6 +92,23 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
         return optimizationResult.merge(result);
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        // the aggregate results of the same group in different partitions will be merged
+        FeatureCalc aggregateCalc = aggregate.create(expression);
+        if (!(aggregateCalc instanceof SplittableFeatureCalc)
+                || ((SplittableFeatureCalc) aggregateCalc).createPartial() == null) {
+            return null;
+        }
+        return new GroupByVisitor(aggregate, expression, groupByAttributes, null);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        GroupByVisitor other = (GroupByVisitor) partial;
+        partialsResult = partialsResult.merge(other.getResult());
+    }
+
     @Override
     public void visit(Feature feature) {
         inMemoryGroupBy.index((SimpleFeature) feature);
@@ -141,18 +164,35 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
         }
     }
 
-    /** Helper class that do the computations for the group by visitor in memory. */
+    /**
+     * Helper class that do the computations for the group by visitor in memory. Count, sum,
+     * average, min and max are computed by a {@link PrimitiveGroupBy}, the other aggregates with a
+     * visitor per group.
+     */
     private class InMemoryGroupBy {
 
         // feature collections grouped by the group by attributes
         private final Map<List<Object>, FeatureCalc> groupByIndexes = new HashMap<>();
 
+        private final PrimitiveGroupBy primitiveGroupBy =
+                PrimitiveGroupBy.supports(aggregate)
+                        ? new PrimitiveGroupBy(aggregate, expression, groupByAttributes)
+                        : null;
+
+        boolean isEmpty() {
+            return primitiveGroupBy != null ? primitiveGroupBy.isEmpty() : groupByIndexes.isEmpty();
+        }
+
         /**
          * Add a feature to the appropriate group by feature collection.
          *
          * @param feature the feature to be indexed
          */
         void index(SimpleFeature feature) {
+            if (primitiveGroupBy != null) {
+                primitiveGroupBy.visit(feature);
+                return;
+            }
             // list of group by attributes values
             List<Object> groupByValues =
                     groupByAttributes
@@ -175,6 +215,9 @@ public class GroupByVisitor implements FeatureCalc, FeatureAttributeVisitor {
          * @return the result of applying the aggregation visitor to eac feature collection
          */
         Map<List<Object>, CalcResult> visit() {
+            if (primitiveGroupBy != null) {
+                return primitiveGroupBy.getResults();
+            }
             Map<List<Object>, CalcResult> results = new HashMap<>();
             for (Map.Entry<List<Object>, FeatureCalc> entry : groupByIndexes.entrySet()) {
                 // we add the aggregation visitor to the results
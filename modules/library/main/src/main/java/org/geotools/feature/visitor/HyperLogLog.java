@@ -0,0 +1,123 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A HyperLogLog sketch, estimating the number of distinct values in a stream with a fixed amount of
+ * memory (one byte per register). The relative standard error is about <code>1.04 / sqrt(m)</code>
+ * with <code>m</code> the number of registers.
+ *
+ * @author GeoTools
+ */
+final class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+
+    static final int MAX_PRECISION = 18;
+
+    final int precision;
+
+    final byte[] registers;
+
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "Precision should be between "
+                            + MIN_PRECISION
+                            + " and "
+                            + MAX_PRECISION
+                            + ", but was "
+                            + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /** Returns the precision (log2 of the number of registers) matching the relative error */
+    static int precision(double accuracy) {
+        Sketches.checkAccuracy(accuracy);
+        double m = Math.pow(1.04 / accuracy, 2);
+        int precision = (int) Math.ceil(Math.log(m) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    void add(Object value) {
+        addHash(Sketches.hash(value));
+    }
+
+    void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // the sentinel bit bounds the rank when the remaining bits are all zeroes
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches with different precisions, "
+                            + precision
+                            + " and "
+                            + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeroes = 0;
+        for (byte register : registers) {
+            sum += 1d / (1L << register);
+            if (register == 0) {
+                zeroes++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeroes > 0) {
+            // small range correction, linear counting
+            estimate = m * Math.log((double) m / zeroes);
+        }
+        return Math.round(estimate);
+    }
+
+    static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
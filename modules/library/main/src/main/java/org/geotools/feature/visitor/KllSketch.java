@@ -0,0 +1,215 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A KLL quantile sketch (Karnin, Lang, Liberty), estimating the quantiles of a stream of comparable
+ * values while retaining only a bounded number of them. Values are kept in a hierarchy of
+ * compactors, a value at level <code>h</code> standing for <code>2^h</code> values of the stream;
+ * once a level is full it is sorted, and every other value is promoted to the next level.
+ *
+ * <p>The minimum and maximum values are tracked exactly. The compactions use a random generator
+ * with a fixed seed, so the same stream always gives the same quantiles.
+ *
+ * @author GeoTools
+ */
+final class KllSketch {
+
+    /** Capacity ratio between consecutive levels */
+    static final double LEVEL_RATIO = 2d / 3;
+
+    static final int MIN_K = 8;
+
+    /** Orders values by their natural order, comparing numbers of different types as doubles */
+    @SuppressWarnings("unchecked")
+    static final Comparator<Object> ORDER =
+            (a, b) -> {
+                if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+                    return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+                }
+                return ((Comparable<Object>) a).compareTo(b);
+            };
+
+    final int k;
+
+    final List<List<Object>> levels = new ArrayList<>();
+
+    final Random random = new Random(0x6b6cL);
+
+    long count;
+
+    int retained;
+
+    Object min;
+
+    Object max;
+
+    KllSketch(int k) {
+        if (k < MIN_K) {
+            throw new IllegalArgumentException("K should be at least " + MIN_K + ", was " + k);
+        }
+        this.k = k;
+        levels.add(new ArrayList<>());
+    }
+
+    /** Returns the k parameter giving the requested normalized rank error */
+    static int k(double accuracy) {
+        Sketches.checkAccuracy(accuracy);
+        // empirical error of the KLL sketch, see the DataSketches library documentation
+        double k = Math.pow(2.296 / accuracy, 1 / 0.9723);
+        return (int) Math.max(MIN_K, Math.min(Integer.MAX_VALUE / 2, Math.ceil(k)));
+    }
+
+    void add(Object value) {
+        count++;
+        if (min == null || ORDER.compare(value, min) < 0) {
+            min = value;
+        }
+        if (max == null || ORDER.compare(value, max) > 0) {
+            max = value;
+        }
+        levels.get(0).add(value);
+        retained++;
+        compress();
+    }
+
+    void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        if (min == null || ORDER.compare(other.min, min) < 0) {
+            min = other.min;
+        }
+        if (max == null || ORDER.compare(other.max, max) > 0) {
+            max = other.max;
+        }
+        for (int h = 0; h < other.levels.size(); h++) {
+            if (h == levels.size()) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(h).addAll(other.levels.get(h));
+        }
+        retained += other.retained;
+        compress();
+    }
+
+    KllSketch copy() {
+        KllSketch copy = new KllSketch(k);
+        copy.merge(this);
+        return copy;
+    }
+
+    int capacity(int level) {
+        int depth = levels.size() - level - 1;
+        return (int) Math.max(2, Math.ceil(k * Math.pow(LEVEL_RATIO, depth)));
+    }
+
+    int capacity() {
+        int capacity = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            capacity += capacity(h);
+        }
+        return capacity;
+    }
+
+    /** Compacts the lowest full levels until the retained values fit the sketch capacity */
+    void compress() {
+        while (retained >= capacity()) {
+            for (int h = 0; h < levels.size(); h++) {
+                List<Object> level = levels.get(h);
+                if (level.size() >= capacity(h)) {
+                    if (h + 1 == levels.size()) {
+                        levels.add(new ArrayList<>());
+                    }
+                    compact(level, levels.get(h + 1));
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Promotes every other value of the sorted level to the next one */
+    void compact(List<Object> level, List<Object> next) {
+        level.sort(ORDER);
+        int pairs = level.size() / 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = 0; i < pairs; i++) {
+            next.add(level.get(2 * i + offset));
+        }
+        // an odd value out stays at this level
+        Object last = level.size() % 2 == 1 ? level.get(level.size() - 1) : null;
+        level.clear();
+        if (last != null) {
+            level.add(last);
+        }
+        retained -= pairs;
+    }
+
+    /**
+     * Returns the estimated quantiles for the given fractions, sorted in increasing order, or null
+     * if no value has been added. The quantile of a fraction <code>f</code> is the first value
+     * whose rank exceeds <code>f * count</code>, the minimum and maximum for 0 and 1.
+     */
+    Object[] getQuantiles(double[] fractions) {
+        if (count == 0) {
+            return null;
+        }
+        // the retained values, sorted, with their weights
+        Object[] values = new Object[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        int i = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            for (Object value : levels.get(h)) {
+                values[i] = value;
+                weights[i] = 1L << h;
+                order[i] = i;
+                i++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> ORDER.compare(values[a], values[b]));
+
+        Object[] result = new Object[fractions.length];
+        for (int f = 0; f < fractions.length; f++) {
+            double fraction = fractions[f];
+            if (fraction <= 0) {
+                result[f] = min;
+            } else if (fraction >= 1) {
+                result[f] = max;
+            } else {
+                double rank = fraction * count;
+                long cumulated = 0;
+                result[f] = max;
+                for (Integer idx : order) {
+                    cumulated += weights[idx];
+                    if (cumulated > rank) {
+                        result[f] = values[idx];
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
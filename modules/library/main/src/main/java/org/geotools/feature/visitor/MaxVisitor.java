@@ -32,7 +32,7 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions Research Inc.
  * @since 2.2.M2
  */
-public class MaxVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class MaxVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
     private Expression expr;
     Comparable maxvalue;
     Comparable curvalue;
@@ -160,6 +160,22 @@ public class MaxVisitor implements FeatureCalc, FeatureAttributeVisitor {
         maxvalue = (Comparable) result;
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new MaxVisitor(expr);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        MaxVisitor other = (MaxVisitor) partial;
+        CalcResult merged = getResult().merge(other.getResult());
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+        countNull += other.countNull;
+        countNaN += other.countNaN;
+    }
+
     public static class MaxResult extends AbstractCalcResult {
         private Comparable maxValue;
 
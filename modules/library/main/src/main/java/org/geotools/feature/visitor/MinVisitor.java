@@ -32,7 +32,7 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions
  * @since 2.2.M2
  */
-public class MinVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class MinVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
     private Expression expr;
     Comparable minvalue;
     Comparable curvalue;
@@ -135,6 +135,19 @@ public class MinVisitor implements FeatureCalc, FeatureAttributeVisitor {
         minvalue = (Comparable) result;
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new MinVisitor(expr);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        CalcResult merged = getResult().merge(partial.getResult());
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     public static class MinResult extends AbstractCalcResult {
         private Comparable minValue;
 
@@ -0,0 +1,278 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotools.data.util.NullProgressListener;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.collection.RangeFeatureAccess;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.util.ProgressListener;
+
+/**
+ * Visits a feature collection in parallel, when the collection can be split in ranges ({@link
+ * RangeFeatureAccess}) and the visitor can be split in partial calculations ({@link
+ * SplittableFeatureCalc}). The features are split in partitions, each visited by its own partial
+ * calculator on the provided executor, and the partial calculators are then merged back in the
+ * collection order. The partitions no executor thread picked up yet are visited by the calling
+ * thread, so a busy executor slows down the visit, but cannot stall it.
+ *
+ * <p>Parallel visits are opt-in: the {@link #visit(FeatureCollection, FeatureVisitor,
+ * ProgressListener)} method, used by the collections to decide how to visit themselves, runs them
+ * on the fork-join common pool only if the <code>org.geotools.feature.visitor.parallelThreshold
+ * </code> system variable is set, collections smaller than the threshold being visited
+ * sequentially. Data stores can instead call {@link #visitRanges(RangeFeatureAccess,
+ * SplittableFeatureCalc, ProgressListener, Executor, int)} with an executor of their own.
+ *
+ * @author GeoTools
+ */
+public final class ParallelVisitorDriver {
+
+    /** The minimum size of the collections visited in parallel by default, negative if disabled */
+    static final int THRESHOLD =
+            Integer.getInteger("org.geotools.feature.visitor.parallelThreshold", -1);
+
+    /** The minimum number of features visited by a single task */
+    static final int MIN_PARTITION_SIZE = 5000;
+
+    /** How often the visiting tasks check for cancellation */
+    static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private ParallelVisitorDriver() {}
+
+    /**
+     * Visits the collection in parallel on the fork-join common pool, if enabled with the <code>
+     * org.geotools.feature.visitor.parallelThreshold</code> system variable and possible
+     *
+     * @return true if the collection has been visited, false if it cannot be visited in parallel,
+     *     and should be visited sequentially instead
+     */
+    public static boolean visit(
+            FeatureCollection<?, ?> collection, FeatureVisitor visitor, ProgressListener progress)
+            throws IOException {
+        if (collection instanceof RangeFeatureAccess && visitor instanceof SplittableFeatureCalc) {
+            return visitRanges(
+                    (RangeFeatureAccess) collection, (SplittableFeatureCalc) visitor, progress);
+        }
+        return false;
+    }
+
+    /**
+     * Visits the ranges in parallel on the fork-join common pool, if enabled with the <code>
+     * org.geotools.feature.visitor.parallelThreshold</code> system variable and worthwhile
+     *
+     * @return true if the features have been visited, false if they should be visited sequentially
+     *     instead
+     */
+    public static boolean visitRanges(
+            RangeFeatureAccess access, SplittableFeatureCalc calc, ProgressListener progress)
+            throws IOException {
+        if (THRESHOLD < 0 || access.getRangeSize() < THRESHOLD) {
+            return false;
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return visitRanges(access, calc, progress, pool, pool.getParallelism());
+    }
+
+    /**
+     * Visits the ranges in parallel on the provided executor, if worthwhile
+     *
+     * @param access the features to visit
+     * @param calc the visitor, receiving the merged results of the partial calculators
+     * @param progress the progress listener, may be null
+     * @param executor the executor running the partial visits
+     * @param parallelism the number of partial visits expected to run at the same time
+     * @return true if the features have been visited, false if they should be visited sequentially
+     *     instead
+     */
+    public static boolean visitRanges(
+            RangeFeatureAccess access,
+            SplittableFeatureCalc calc,
+            ProgressListener progress,
+            Executor executor,
+            int parallelism)
+            throws IOException {
+        int size = access.getRangeSize();
+        if (executor == null || parallelism < 2 || size < 2 * MIN_PARTITION_SIZE) {
+            return false;
+        }
+        // subclasses not overriding createPartial would be split into instances of the parent
+        SplittableFeatureCalc probe = calc.createPartial();
+        if (probe == null || probe.getClass() != calc.getClass()) {
+            return false;
+        }
+
+        if (progress == null) {
+            progress = new NullProgressListener();
+        }
+        int partitionSize = Math.max(MIN_PARTITION_SIZE, size / (parallelism * 4) + 1);
+        Progress tracker = new Progress(progress, size);
+        List<Partition> partitions = new ArrayList<>();
+        for (int start = 0; start < size; start += partitionSize) {
+            int end = Math.min(size, start + partitionSize);
+            partitions.add(new Partition(access, calc, start, end, tracker));
+        }
+        progress.started();
+        try {
+            for (Partition partition : partitions) {
+                try {
+                    executor.execute(partition::runIfUnclaimed);
+                } catch (RejectedExecutionException e) {
+                    // the calling thread will visit the others
+                    break;
+                }
+            }
+            for (Partition partition : partitions) {
+                partition.runIfUnclaimed();
+            }
+            // wait for all the partitions, so that none is still running on failure
+            IOException failure = null;
+            for (Partition partition : partitions) {
+                try {
+                    SplittableFeatureCalc partial = partition.get();
+                    if (failure == null) {
+                        calc.merge(partial);
+                    }
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                progress.exceptionOccurred(failure);
+                throw failure;
+            }
+        } finally {
+            progress.complete();
+        }
+        return true;
+    }
+
+    /** Tracks the progress of all the partitions */
+    static class Progress {
+        final ProgressListener listener;
+
+        final float size;
+
+        final AtomicInteger visited = new AtomicInteger();
+
+        Progress(ProgressListener listener, int size) {
+            this.listener = listener;
+            this.size = size;
+        }
+
+        boolean isCanceled() {
+            return listener.isCanceled();
+        }
+
+        void visited(int count) {
+            int total = visited.addAndGet(count);
+            synchronized (listener) {
+                listener.progress(100f * total / size);
+            }
+        }
+    }
+
+    /** A range of features, visited by an executor thread or the caller, whoever claims it */
+    static class Partition {
+        final RangeFeatureAccess access;
+
+        final SplittableFeatureCalc calc;
+
+        final int start;
+
+        final int end;
+
+        final Progress progress;
+
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        final CompletableFuture<SplittableFeatureCalc> result = new CompletableFuture<>();
+
+        Partition(
+                RangeFeatureAccess access,
+                SplittableFeatureCalc calc,
+                int start,
+                int end,
+                Progress progress) {
+            this.access = access;
+            this.calc = calc;
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+        }
+
+        void runIfUnclaimed() {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    result.complete(visitRange());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+        }
+
+        SplittableFeatureCalc get() throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while visiting the features");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Problem visiting the features: " + cause, cause);
+            }
+        }
+
+        SplittableFeatureCalc visitRange() throws IOException {
+            SplittableFeatureCalc partial = calc.createPartial();
+            int count = 0;
+            Feature feature = null;
+            try (FeatureIterator<? extends Feature> features = access.features(start, end)) {
+                while (features.hasNext()) {
+                    if (count % CANCEL_CHECK_INTERVAL == 0 && progress.isCanceled()) {
+                        break;
+                    }
+                    feature = features.next();
+                    partial.visit(feature);
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                String fid = feature == null ? "feature" : feature.getIdentifier().toString();
+                throw new IOException("Problem visiting " + fid + ":" + e, e);
+            }
+            progress.visited(count);
+            return partial;
+        }
+    }
+}
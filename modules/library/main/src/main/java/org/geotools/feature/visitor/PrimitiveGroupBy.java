@@ -0,0 +1,435 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.opengis.feature.Feature;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * In memory group by engine for the count, sum, average, min and max aggregates, avoiding the per
+ * feature allocations of a map keyed by lists of values, holding a visitor per group.
+ *
+ * <p>The values of each group by attribute are dictionary encoded into integer codes, the groups
+ * are found in an open addressing hash table keyed by the codes, and the aggregates are accumulated
+ * in primitive arrays indexed by group. The results are the same as the ones of the visitors of the
+ * aggregates, sums and averages keep the numeric type of the first value of each group, as {@link
+ * SumVisitor} and {@link AverageVisitor} do.
+ *
+ * @author GeoTools
+ */
+final class PrimitiveGroupBy {
+
+    static final EnumSet<Aggregate> SUPPORTED =
+            EnumSet.of(
+                    Aggregate.COUNT,
+                    Aggregate.SUM,
+                    Aggregate.AVERAGE,
+                    Aggregate.MIN,
+                    Aggregate.MAX);
+
+    /** The numeric types of sums, as used by the sum and average strategies */
+    static final byte NONE = 0;
+
+    static final byte INTEGER = 1;
+
+    static final byte LONG = 2;
+
+    static final byte FLOAT = 3;
+
+    static final byte DOUBLE = 4;
+
+    static final int INITIAL_CAPACITY = 16;
+
+    final Aggregate aggregate;
+
+    final Expression expression;
+
+    final List<Expression> groupByAttributes;
+
+    final ValueDictionary[] dictionaries;
+
+    final GroupTable groups;
+
+    /** Scratch array for the codes of the visited feature */
+    final int[] codes;
+
+    // accumulators, indexed by group, allocated depending on the aggregate
+    long[] counts;
+
+    long[] longSums;
+
+    double[] doubleSums;
+
+    byte[] types;
+
+    Object[] extremes;
+
+    PrimitiveGroupBy(
+            Aggregate aggregate, Expression expression, List<Expression> groupByAttributes) {
+        this.aggregate = aggregate;
+        this.expression = expression;
+        this.groupByAttributes = groupByAttributes;
+        int size = groupByAttributes.size();
+        this.dictionaries = new ValueDictionary[size];
+        for (int i = 0; i < size; i++) {
+            dictionaries[i] = new ValueDictionary();
+        }
+        this.codes = new int[size];
+        this.groups = new GroupTable(size);
+        switch (aggregate) {
+            case COUNT:
+                counts = new long[INITIAL_CAPACITY];
+                break;
+            case AVERAGE:
+                counts = new long[INITIAL_CAPACITY];
+                // fall through
+            case SUM:
+                longSums = new long[INITIAL_CAPACITY];
+                doubleSums = new double[INITIAL_CAPACITY];
+                types = new byte[INITIAL_CAPACITY];
+                break;
+            default:
+                extremes = new Object[INITIAL_CAPACITY];
+        }
+    }
+
+    /** Returns true if the aggregate can be computed by this engine */
+    static boolean supports(Aggregate aggregate) {
+        return SUPPORTED.contains(aggregate);
+    }
+
+    boolean isEmpty() {
+        return groups.size == 0;
+    }
+
+    void visit(Feature feature) {
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = dictionaries[i].encode(groupByAttributes.get(i).evaluate(feature));
+        }
+        int group = groups.findOrAdd(codes);
+        if (group >= capacity()) {
+            grow(groups.capacity());
+        }
+        switch (aggregate) {
+            case COUNT:
+                counts[group]++;
+                break;
+            case SUM:
+            case AVERAGE:
+                Object value = expression.evaluate(feature);
+                if (value != null) {
+                    add(group, (Number) value);
+                    if (counts != null) {
+                        counts[group]++;
+                    }
+                }
+                break;
+            case MIN:
+                Object min = expression.evaluate(feature);
+                if (min != null && (extremes[group] == null || compare(min, group) < 0)) {
+                    extremes[group] = min;
+                }
+                break;
+            default:
+                Object max = expression.evaluate(feature);
+                if (max == null || isNaNOrInfinite(max)) {
+                    break;
+                }
+                if (extremes[group] == null || compare(max, group) > 0) {
+                    extremes[group] = max;
+                }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    int compare(Object value, int group) {
+        return ((Comparable<Object>) value).compareTo(extremes[group]);
+    }
+
+    static boolean isNaNOrInfinite(Object value) {
+        // same as MaxVisitor, only doubles are checked
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return Double.isNaN(d) || Double.isInfinite(d);
+        }
+        return false;
+    }
+
+    /** Adds the value with the arithmetic of the sum strategy chosen on the first value */
+    void add(int group, Number value) {
+        byte type = types[group];
+        if (type == NONE) {
+            type = getType(value);
+            types[group] = type;
+        }
+        switch (type) {
+            case INTEGER:
+                longSums[group] = (int) longSums[group] + value.intValue();
+                break;
+            case LONG:
+                longSums[group] += value.longValue();
+                break;
+            case FLOAT:
+                doubleSums[group] = (float) doubleSums[group] + value.floatValue();
+                break;
+            default:
+                doubleSums[group] += value.doubleValue();
+        }
+    }
+
+    static byte getType(Number value) {
+        if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        }
+        return DOUBLE;
+    }
+
+    Number getSum(int group) {
+        switch (types[group]) {
+            case INTEGER:
+                return Integer.valueOf((int) longSums[group]);
+            case LONG:
+                return Long.valueOf(longSums[group]);
+            case FLOAT:
+                return Float.valueOf((float) doubleSums[group]);
+            default:
+                return Double.valueOf(doubleSums[group]);
+        }
+    }
+
+    int capacity() {
+        switch (aggregate) {
+            case COUNT:
+                return counts.length;
+            case SUM:
+            case AVERAGE:
+                return types.length;
+            default:
+                return extremes.length;
+        }
+    }
+
+    void grow(int capacity) {
+        if (counts != null) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        if (types != null) {
+            longSums = Arrays.copyOf(longSums, capacity);
+            doubleSums = Arrays.copyOf(doubleSums, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+        if (extremes != null) {
+            extremes = Arrays.copyOf(extremes, capacity);
+        }
+    }
+
+    /** Returns the results keyed by the list of group by values, like the visitors would */
+    Map<List<Object>, CalcResult> getResults() {
+        Map<List<Object>, CalcResult> results = new HashMap<>();
+        for (int group = 0; group < groups.size; group++) {
+            List<Object> key = new ArrayList<>(codes.length);
+            for (int i = 0; i < codes.length; i++) {
+                key.add(dictionaries[i].decode(groups.getCode(group, i)));
+            }
+            results.put(key, getResult(group));
+        }
+        return results;
+    }
+
+    CalcResult getResult(int group) {
+        switch (aggregate) {
+            case COUNT:
+                return new CountVisitor.CountResult((int) counts[group]);
+            case SUM:
+                if (types[group] == NONE) {
+                    return CalcResult.NULL_RESULT;
+                }
+                return new SumVisitor.SumResult(getSum(group));
+            case AVERAGE:
+                if (types[group] == NONE) {
+                    return CalcResult.NULL_RESULT;
+                }
+                return new AverageVisitor.AverageResult((int) counts[group], getSum(group));
+            case MIN:
+                if (extremes[group] == null) {
+                    return CalcResult.NULL_RESULT;
+                }
+                return new MinVisitor.MinResult((Comparable<?>) extremes[group]);
+            default:
+                if (extremes[group] == null) {
+                    return CalcResult.NULL_RESULT;
+                }
+                return new MaxVisitor.MaxResult((Comparable<?>) extremes[group]);
+        }
+    }
+
+    /**
+     * Encodes the values of an attribute into consecutive integer codes, with an open addressing
+     * hash table (linear probing). Null is a value like any other.
+     */
+    static final class ValueDictionary {
+
+        /** The codes plus one, zero marking an empty slot */
+        int[] slots = new int[INITIAL_CAPACITY];
+
+        Object[] values = new Object[INITIAL_CAPACITY];
+
+        int[] hashes = new int[INITIAL_CAPACITY];
+
+        int size;
+
+        int encode(Object value) {
+            int hash = Sketches.mixInt(Objects.hashCode(value));
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            int code;
+            while ((code = slots[slot]) != 0) {
+                if (hashes[code - 1] == hash && Objects.equals(values[code - 1], value)) {
+                    return code - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            code = size++;
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+                hashes = Arrays.copyOf(hashes, code * 2);
+            }
+            values[code] = value;
+            hashes[code] = hash;
+            slots[slot] = code + 1;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return code;
+        }
+
+        Object decode(int code) {
+            return values[code];
+        }
+
+        void rehash() {
+            int[] newSlots = new int[slots.length * 2];
+            int mask = newSlots.length - 1;
+            for (int code = 0; code < size; code++) {
+                int slot = hashes[code] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = code + 1;
+            }
+            slots = newSlots;
+        }
+    }
+
+    /**
+     * Assigns consecutive group numbers to tuples of codes, with an open addressing hash table
+     * (linear probing). The codes of each group are stored in a single flat array.
+     */
+    static final class GroupTable {
+
+        final int width;
+
+        /** The group numbers plus one, zero marking an empty slot */
+        int[] slots = new int[INITIAL_CAPACITY];
+
+        int[] codes;
+
+        int[] hashes = new int[INITIAL_CAPACITY];
+
+        int size;
+
+        GroupTable(int width) {
+            this.width = width;
+            this.codes = new int[INITIAL_CAPACITY * width];
+        }
+
+        int capacity() {
+            return hashes.length;
+        }
+
+        int getCode(int group, int index) {
+            return codes[group * width + index];
+        }
+
+        int findOrAdd(int[] tuple) {
+            int hash = hash(tuple);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            int group;
+            while ((group = slots[slot]) != 0) {
+                if (hashes[group - 1] == hash && matches(group - 1, tuple)) {
+                    return group - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            group = size++;
+            if (group == hashes.length) {
+                hashes = Arrays.copyOf(hashes, group * 2);
+                codes = Arrays.copyOf(codes, group * 2 * width);
+            }
+            System.arraycopy(tuple, 0, codes, group * width, width);
+            hashes[group] = hash;
+            slots[slot] = group + 1;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return group;
+        }
+
+        boolean matches(int group, int[] tuple) {
+            int offset = group * width;
+            for (int i = 0; i < width; i++) {
+                if (codes[offset + i] != tuple[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static int hash(int[] tuple) {
+            int hash = 1;
+            for (int code : tuple) {
+                hash = 31 * hash + code;
+            }
+            return Sketches.mixInt(hash);
+        }
+
+        void rehash() {
+            int[] newSlots = new int[slots.length * 2];
+            int mask = newSlots.length - 1;
+            for (int group = 0; group < size; group++) {
+                int slot = hashes[group] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = group + 1;
+            }
+            slots = newSlots;
+        }
+    }
+}
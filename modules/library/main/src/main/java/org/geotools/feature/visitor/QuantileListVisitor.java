@@ -31,7 +31,7 @@ import org.opengis.filter.expression.Expression;
  *
  * @author Cory Horner, Refractions Research Inc.
  */
-public class QuantileListVisitor implements FeatureCalc {
+public class QuantileListVisitor implements SplittableFeatureCalc {
     private Expression expr;
     private int count = 0;
     private int bins;
@@ -89,6 +89,24 @@ public class QuantileListVisitor implements FeatureCalc {
         };
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new QuantileListVisitor(expr, bins);
+    }
+
+    /**
+     * Merges the values collected by the partial visitor. The bins are computed on the whole list
+     * of values, so the partial results are not used here.
+     */
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        QuantileListVisitor other = (QuantileListVisitor) partial;
+        items.addAll(other.items);
+        count += other.count;
+        countNull += other.countNull;
+        countNaN += other.countNaN;
+    }
+
     public void visit(SimpleFeature feature) {
         visit((org.opengis.feature.Feature) feature);
     }
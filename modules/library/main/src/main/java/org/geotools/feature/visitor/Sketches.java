@@ -0,0 +1,84 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * Hashing helpers shared by the sketches backing the approximate visitors, and the in memory group
+ * by tables
+ *
+ * @author GeoTools
+ */
+final class Sketches {
+
+    private Sketches() {}
+
+    /** Checks the accuracy is a relative error, strictly between 0 and 1 */
+    static double checkAccuracy(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException(
+                    "Accuracy should be a relative error between 0 and 1, but was " + accuracy);
+        }
+        return accuracy;
+    }
+
+    /**
+     * Returns a well mixed 64 bit hash of the value, consistent with {@link Object#equals(Object)}
+     * for strings and numbers, and based on {@link Object#hashCode()} for the other values.
+     */
+    static long hash(Object value) {
+        long h;
+        if (value instanceof CharSequence) {
+            // 64 bits FNV-1a, String.hashCode() collides too often on large layers
+            CharSequence cs = (CharSequence) value;
+            h = 0xcbf29ce484222325L;
+            for (int i = 0; i < cs.length(); i++) {
+                h ^= cs.charAt(i);
+                h *= 0x100000001b3L;
+            }
+        } else if (value instanceof Double || value instanceof Float) {
+            h = Double.doubleToLongBits(((Number) value).doubleValue());
+        } else if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte) {
+            h = ((Number) value).longValue();
+        } else {
+            h = value.hashCode();
+        }
+        return mix(h);
+    }
+
+    /** The MurmurHash3 finalizer */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** The 32 bits MurmurHash3 finalizer */
+    static int mixInt(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+/**
+ * A {@link FeatureCalc} whose calculation can be split among partitions of the visited features,
+ * e.g. to visit them in parallel: each partition is visited by a partial calculator obtained with
+ * {@link #createPartial()}, the partial states are then merged back in order with {@link
+ * #merge(SplittableFeatureCalc)}, usually through {@link CalcResult#merge(CalcResult)}.
+ *
+ * @author GeoTools
+ * @see ParallelVisitorDriver
+ */
+public interface SplittableFeatureCalc extends FeatureCalc {
+
+    /**
+     * Returns a new calculator with the same configuration as this one and an empty state, used to
+     * visit a partition of the features. Might be called concurrently by different threads.
+     *
+     * @return the partial calculator, or null if the calculation cannot be split in its current
+     *     configuration (e.g., when paging over the visited values)
+     */
+    SplittableFeatureCalc createPartial();
+
+    /**
+     * Merges in this calculator the state of a partial one, created by {@link #createPartial()},
+     * that visited the features following the ones visited by this calculator
+     *
+     * @param partial the partial calculator to merge
+     */
+    void merge(SplittableFeatureCalc partial);
+}
@@ -40,21 +40,69 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions Research Inc.
  * @author Andrea Aime, GeoSolutions
  */
-public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class StandardDeviationVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
     public static class Result extends AbstractCalcResult {
         final Double deviation;
 
+        /** The running state, only known when computed in memory, with count set to -1 otherwise */
+        final int count;
+
+        final double mean;
+
+        final double m2;
+
         public Result() {
             this.deviation = null;
+            this.count = -1;
+            this.mean = 0;
+            this.m2 = 0;
         }
 
         public Result(double deviation) {
             this.deviation = deviation;
+            this.count = -1;
+            this.mean = 0;
+            this.m2 = 0;
+        }
+
+        Result(int count, double mean, double m2) {
+            this.deviation = Math.sqrt(m2 / count);
+            this.count = count;
+            this.mean = mean;
+            this.m2 = m2;
         }
 
         public Object getValue() {
             return deviation;
         }
+
+        @Override
+        public boolean isCompatible(CalcResult targetResults) {
+            return targetResults == CalcResult.NULL_RESULT
+                    || (count > 0
+                            && targetResults instanceof Result
+                            && ((Result) targetResults).count > 0);
+        }
+
+        /**
+         * Merges two results computed in memory, combining their running states as described in
+         * https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm
+         */
+        @Override
+        public CalcResult merge(CalcResult resultsToAdd) {
+            if (!isCompatible(resultsToAdd)) {
+                throw new IllegalArgumentException("Parameter is not a compatible type");
+            }
+            if (resultsToAdd == CalcResult.NULL_RESULT) {
+                return this;
+            }
+            Result other = (Result) resultsToAdd;
+            int newCount = count + other.count;
+            double delta = other.mean - mean;
+            double newMean = mean + delta * other.count / newCount;
+            double newM2 = m2 + other.m2 + delta * delta * count / newCount * other.count;
+            return new Result(newCount, newMean, newM2);
+        }
     }
 
     private Expression expr;
@@ -89,7 +137,26 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
         if (count == 0) {
             return CalcResult.NULL_RESULT;
         }
-        return new Result(Math.sqrt(m2 / count));
+        return new Result(count, mean, m2);
+    }
+
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new StandardDeviationVisitor(expr);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        StandardDeviationVisitor other = (StandardDeviationVisitor) partial;
+        CalcResult merged = getResult().merge(other.getResult());
+        if (merged instanceof Result) {
+            Result result = (Result) merged;
+            count = result.count;
+            mean = result.mean;
+            m2 = result.m2;
+        }
+        countNull += other.countNull;
+        countNaN += other.countNaN;
     }
 
     public void visit(SimpleFeature feature) {
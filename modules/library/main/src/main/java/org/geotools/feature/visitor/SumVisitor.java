@@ -36,7 +36,7 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions
  * @since 2.2.M2
  */
-public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
+public class SumVisitor implements SplittableFeatureCalc, FeatureAttributeVisitor {
     private Expression expr;
 
     SumStrategy strategy;
@@ -135,6 +135,19 @@ public class SumVisitor implements FeatureCalc, FeatureAttributeVisitor {
         return new SumResult(strategy);
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        return new SumVisitor(expr);
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        CalcResult merged = getResult().merge(partial.getResult());
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     protected interface SumStrategy {
         public void add(Object value);
 
@@ -39,7 +39,8 @@ import org.opengis.filter.expression.Expression;
  * @author Cory Horner, Refractions
  * @since 2.2.M2
  */
-public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, LimitingVisitor {
+public class UniqueVisitor
+        implements SplittableFeatureCalc, FeatureAttributeVisitor, LimitingVisitor {
     private Expression expr;
     Set set = new HashSet();
     Set skipped = new HashSet();
@@ -161,6 +162,25 @@ public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, Limi
         return new UniqueResult(set, this.preserveOrder);
     }
 
+    @Override
+    public SplittableFeatureCalc createPartial() {
+        // paging depends on the values found in the previous partitions
+        if (hasLimits()) {
+            return null;
+        }
+        UniqueVisitor partial = new UniqueVisitor(expr);
+        partial.setPreserveOrder(preserveOrder);
+        return partial;
+    }
+
+    @Override
+    public void merge(SplittableFeatureCalc partial) {
+        CalcResult merged = getResult().merge(partial.getResult());
+        if (merged != CalcResult.NULL_RESULT) {
+            setValue(merged.getValue());
+        }
+    }
+
     public static class UniqueResult extends AbstractCalcResult {
         private Set unique;
         private boolean preserveOrder = false;
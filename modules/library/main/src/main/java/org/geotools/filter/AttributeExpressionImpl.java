@@ -153,6 +153,7 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
     }
 
     public void setPropertyName(String attPath) {
+        checkNotFrozen();
         LOGGER.entering("ExpressionAttribute", "setAttributePath", attPath);
         if (LOGGER.isLoggable(Level.FINEST))
             LOGGER.finest("schema: " + schema + "\n\nattribute: " + attPath);
@@ -256,14 +257,15 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
         return Converters.convert(value, target);
     }
 
-    // accessor caching, scanning the registry every time is really very expensive
-    private PropertyAccessor lastAccessor;
+    // accessor caching, scanning the registry every time is really very expensive. The field is
+    // volatile rather than guarded by a lock, as shared expressions are evaluated by many threads
+    private volatile PropertyAccessor lastAccessor;
 
-    private synchronized PropertyAccessor getLastPropertyAccessor() {
+    private PropertyAccessor getLastPropertyAccessor() {
         return lastAccessor;
     }
 
-    private synchronized void setLastPropertyAccessor(PropertyAccessor accessor) {
+    private void setLastPropertyAccessor(PropertyAccessor accessor) {
         lastAccessor = accessor;
     }
 
@@ -362,6 +364,7 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
      * @param lenient
      */
     public void setLenient(boolean lenient) {
+        checkNotFrozen();
         this.lenient = lenient;
     }
 
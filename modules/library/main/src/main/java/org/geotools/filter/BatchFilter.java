@@ -0,0 +1,501 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import org.geotools.filter.spatial.BBOXImpl;
+import org.geotools.util.Converters;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.Attribute;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+
+/**
+ * A filter compiled against a {@link SimpleFeatureType} that evaluates whole {@link FeatureBatch}
+ * blocks at once, returning the selected rows as a bitmap. Comparisons, between, like and bbox
+ * filters on an attribute work directly on the batch columns (numeric comparisons on the primitive
+ * ones, without boxing), logic operators combine the bitmaps of their children, evaluating each
+ * child only on the rows that can still change the result. Any other filter is evaluated row by row
+ * against a feature built out of the batch.
+ *
+ * <p>The result is the same as evaluating the original filter against each feature in the batch.
+ * Instances are created via {@link FilterCompiler#compileBatch(Filter, SimpleFeatureType)}.
+ *
+ * @author GeoTools
+ */
+public class BatchFilter {
+
+    /** Selects the rows matching a filter, among the candidate ones */
+    interface Selector {
+        BitSet select(FeatureBatch batch, BitSet candidates);
+    }
+
+    static final int EQ = 0, NE = 1, LT = 2, LE = 3, GT = 4, GE = 5;
+
+    final Filter filter;
+
+    final SimpleFeatureType schema;
+
+    final Selector selector;
+
+    int fallbacks;
+
+    BatchFilter(Filter filter, SimpleFeatureType schema) {
+        this.filter = filter;
+        this.schema = schema;
+        this.selector = buildSelector(filter);
+    }
+
+    /** The filter, bound to the feature type */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /** The feature type the filter is compiled against */
+    public SimpleFeatureType getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns true if all the filter can be evaluated on the batch columns, false if some parts of
+     * it need to build features out of the rows
+     */
+    public boolean isVectorized() {
+        return fallbacks == 0;
+    }
+
+    /** Evaluates the filter on all the rows in the batch, returning the selected ones */
+    public BitSet evaluate(FeatureBatch batch) {
+        BitSet candidates = new BitSet(batch.getSize());
+        candidates.set(0, batch.getSize());
+        return evaluate(batch, candidates);
+    }
+
+    /**
+     * Evaluates the filter on the candidate rows only, returning the selected ones. The candidates
+     * are not modified.
+     */
+    public BitSet evaluate(FeatureBatch batch, BitSet candidates) {
+        if (batch.getSchema() != schema) {
+            throw new IllegalArgumentException(
+                    "The batch type "
+                            + batch.getSchema().getTypeName()
+                            + " is not the one the filter has been compiled against");
+        }
+        return selector.select(batch, candidates);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchFilter[" + filter + "]";
+    }
+
+    Selector buildSelector(Filter filter) {
+        if (filter instanceof IncludeFilter) {
+            return (batch, candidates) -> (BitSet) candidates.clone();
+        } else if (filter instanceof ExcludeFilter) {
+            return (batch, candidates) -> new BitSet();
+        } else if (filter instanceof And) {
+            final Selector[] children = buildSelectors(((And) filter).getChildren());
+            return (batch, candidates) -> {
+                BitSet result = candidates;
+                for (Selector child : children) {
+                    if (result.isEmpty()) {
+                        break;
+                    }
+                    result = child.select(batch, result);
+                }
+                return result == candidates ? (BitSet) candidates.clone() : result;
+            };
+        } else if (filter instanceof Or) {
+            final Selector[] children = buildSelectors(((Or) filter).getChildren());
+            return (batch, candidates) -> {
+                BitSet result = new BitSet();
+                BitSet remaining = (BitSet) candidates.clone();
+                for (Selector child : children) {
+                    if (remaining.isEmpty()) {
+                        break;
+                    }
+                    BitSet selected = child.select(batch, remaining);
+                    result.or(selected);
+                    remaining.andNot(selected);
+                }
+                return result;
+            };
+        } else if (filter instanceof Not) {
+            final Selector child = buildSelector(((Not) filter).getFilter());
+            return (batch, candidates) -> {
+                BitSet result = (BitSet) candidates.clone();
+                result.andNot(child.select(batch, candidates));
+                return result;
+            };
+        } else if (filter instanceof MultiCompareFilterImpl) {
+            Selector comparison = buildComparison((MultiCompareFilterImpl) filter);
+            if (comparison != null) {
+                return comparison;
+            }
+        } else if (filter.getClass() == IsBetweenImpl.class) {
+            Selector between = buildBetween((IsBetweenImpl) filter);
+            if (between != null) {
+                return between;
+            }
+        } else if (filter.getClass() == LikeFilterImpl.class) {
+            Selector like = buildLike((LikeFilterImpl) filter);
+            if (like != null) {
+                return like;
+            }
+        } else if (filter.getClass() == BBOXImpl.class) {
+            Selector bbox = buildBBOX((BBOXImpl) filter);
+            if (bbox != null) {
+                return bbox;
+            }
+        } else if (filter instanceof IsNullImpl) {
+            final int index = getIndex(((IsNullImpl) filter).getExpression());
+            if (index >= 0) {
+                return (batch, candidates) -> {
+                    BitSet result = new BitSet(batch.getSize());
+                    for (int row = candidates.nextSetBit(0);
+                            row >= 0;
+                            row = candidates.nextSetBit(row + 1)) {
+                        if (batch.isNull(row, index)) {
+                            result.set(row);
+                        }
+                    }
+                    return result;
+                };
+            }
+        }
+
+        return buildFallback(filter);
+    }
+
+    private Selector[] buildSelectors(List<Filter> filters) {
+        Selector[] result = new Selector[filters.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buildSelector(filters.get(i));
+        }
+        return result;
+    }
+
+    /** Evaluates the filter against the features built out of the candidate rows */
+    private Selector buildFallback(final Filter filter) {
+        fallbacks++;
+        return (batch, candidates) -> {
+            BitSet result = new BitSet(batch.getSize());
+            for (int row = candidates.nextSetBit(0);
+                    row >= 0;
+                    row = candidates.nextSetBit(row + 1)) {
+                if (filter.evaluate(batch.getFeature(row))) {
+                    result.set(row);
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Compiles comparisons between an attribute and a literal, returns null if the comparison is of
+     * any other kind
+     */
+    private Selector buildComparison(final MultiCompareFilterImpl filter) {
+        Expression ex1 = filter.getExpression1();
+        Expression ex2 = filter.getExpression2();
+        final boolean attributeFirst;
+        final int index;
+        final Object literal;
+        if (ex2 instanceof Literal && getIndex(ex1) >= 0) {
+            attributeFirst = true;
+            index = getIndex(ex1);
+            literal = ((Literal) ex2).getValue();
+        } else if (ex1 instanceof Literal && getIndex(ex2) >= 0) {
+            attributeFirst = false;
+            index = getIndex(ex2);
+            literal = ((Literal) ex1).getValue();
+        } else {
+            return null;
+        }
+        if (literal instanceof Collection || literal instanceof Attribute) {
+            return null;
+        }
+
+        final Selector values =
+                (batch, candidates) -> {
+                    BitSet result = new BitSet(batch.getSize());
+                    for (int row = candidates.nextSetBit(0);
+                            row >= 0;
+                            row = candidates.nextSetBit(row + 1)) {
+                        Object value = batch.getValue(row, index);
+                        boolean selected;
+                        if (value instanceof Collection || value instanceof Attribute) {
+                            selected = filter.evaluate(batch.getFeature(row));
+                        } else {
+                            selected =
+                                    attributeFirst
+                                            ? filter.evaluateInternal(value, literal)
+                                            : filter.evaluateInternal(literal, value);
+                        }
+                        if (selected) {
+                            result.set(row);
+                        }
+                    }
+                    return result;
+                };
+
+        // primitive comparison, only if the literal has the same type as the column values,
+        // in that case the filters compare the values as doubles (or as equal objects)
+        final int operator = getOperator(filter);
+        Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+        if (operator < 0
+                || literal == null
+                || literal.getClass() != binding
+                || !FeatureBatch.isNumericBinding(binding)) {
+            return values;
+        }
+        final double number = ((Number) literal).doubleValue();
+        final boolean floating = binding == Double.class || binding == Float.class;
+        final boolean nullResult =
+                attributeFirst
+                        ? filter.evaluateInternal(null, literal)
+                        : filter.evaluateInternal(literal, null);
+        return (batch, candidates) -> {
+            if (!batch.isNumeric(index)) {
+                return values.select(batch, candidates);
+            }
+            double[] column = batch.getDoubles(index);
+            BitSet nulls = batch.nulls[index];
+            BitSet result = new BitSet(batch.getSize());
+            for (int row = candidates.nextSetBit(0);
+                    row >= 0;
+                    row = candidates.nextSetBit(row + 1)) {
+                boolean selected;
+                if (nulls.get(row)) {
+                    selected = nullResult;
+                } else if (attributeFirst) {
+                    selected = compare(operator, column[row], number, floating);
+                } else {
+                    selected = compare(operator, number, column[row], floating);
+                }
+                if (selected) {
+                    result.set(row);
+                }
+            }
+            return result;
+        };
+    }
+
+    private static int getOperator(MultiCompareFilterImpl filter) {
+        Class<?> type = filter.getClass();
+        if (type == IsEqualsToImpl.class) {
+            return EQ;
+        } else if (type == IsNotEqualToImpl.class) {
+            return NE;
+        } else if (type == IsLessThenImpl.class) {
+            return LT;
+        } else if (type == IsLessThenOrEqualToImpl.class) {
+            return LE;
+        } else if (type == IsGreaterThanImpl.class) {
+            return GT;
+        } else if (type == IsGreaterThanOrEqualToImpl.class) {
+            return GE;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares two values of the same numeric type the way the comparison filters do: equality
+     * follows {@link Double#equals(Object)} for floating point values, ordering uses the plain
+     * double operators
+     */
+    static boolean compare(int operator, double left, double right, boolean floating) {
+        switch (operator) {
+            case EQ:
+                return floating
+                        ? Double.doubleToLongBits(left) == Double.doubleToLongBits(right)
+                        : left == right;
+            case NE:
+                return !compare(EQ, left, right, floating);
+            default:
+                int cmp = left > right ? 1 : (left == right ? 0 : -1);
+                switch (operator) {
+                    case LT:
+                        return cmp < 0;
+                    case LE:
+                        return cmp <= 0;
+                    case GT:
+                        return cmp > 0;
+                    default:
+                        return cmp >= 0;
+                }
+        }
+    }
+
+    /** Compiles between filters on an attribute with literal boundaries, null otherwise */
+    private Selector buildBetween(final IsBetweenImpl filter) {
+        final int index = getIndex(filter.getExpression());
+        if (index < 0
+                || !(filter.getLowerBoundary() instanceof Literal)
+                || !(filter.getUpperBoundary() instanceof Literal)) {
+            return null;
+        }
+        final Object lower = ((Literal) filter.getLowerBoundary()).getValue();
+        final Object upper = ((Literal) filter.getUpperBoundary()).getValue();
+        if (lower == null
+                || upper == null
+                || lower instanceof Collection
+                || upper instanceof Collection) {
+            return null;
+        }
+
+        final Selector values =
+                (batch, candidates) -> {
+                    BitSet result = new BitSet(batch.getSize());
+                    for (int row = candidates.nextSetBit(0);
+                            row >= 0;
+                            row = candidates.nextSetBit(row + 1)) {
+                        Object value = batch.getValue(row, index);
+                        boolean selected;
+                        if (value instanceof Collection) {
+                            selected = filter.evaluate(batch.getFeature(row));
+                        } else {
+                            selected = filter.evaluateInternal(value, lower, upper);
+                        }
+                        if (selected) {
+                            result.set(row);
+                        }
+                    }
+                    return result;
+                };
+
+        Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+        if (lower.getClass() != binding
+                || upper.getClass() != binding
+                || !FeatureBatch.isNumericBinding(binding)) {
+            return values;
+        }
+        // same type values are compared with compareTo, that for floating point values puts
+        // NaN after all the other values and -0 before 0, as Double.compare does
+        final double low = ((Number) lower).doubleValue();
+        final double high = ((Number) upper).doubleValue();
+        return (batch, candidates) -> {
+            if (!batch.isNumeric(index)) {
+                return values.select(batch, candidates);
+            }
+            double[] column = batch.getDoubles(index);
+            BitSet nulls = batch.nulls[index];
+            BitSet result = new BitSet(batch.getSize());
+            for (int row = candidates.nextSetBit(0);
+                    row >= 0;
+                    row = candidates.nextSetBit(row + 1)) {
+                if (!nulls.get(row)) {
+                    double value = column[row];
+                    if (Double.compare(low, value) <= 0 && Double.compare(high, value) >= 0) {
+                        result.set(row);
+                    }
+                }
+            }
+            return result;
+        };
+    }
+
+    /** Compiles like filters on an attribute, null otherwise */
+    private Selector buildLike(final LikeFilterImpl filter) {
+        final int index = getIndex(filter.getExpression());
+        if (index < 0) {
+            return null;
+        }
+        return (batch, candidates) -> {
+            BitSet result = new BitSet(batch.getSize());
+            for (int row = candidates.nextSetBit(0);
+                    row >= 0;
+                    row = candidates.nextSetBit(row + 1)) {
+                Object value = batch.getValue(row, index);
+                boolean selected;
+                if (value == null) {
+                    selected = false;
+                } else if (value instanceof Collection) {
+                    selected = filter.evaluate(batch.getFeature(row));
+                } else {
+                    selected = filter.matches(value);
+                }
+                if (selected) {
+                    result.set(row);
+                }
+            }
+            return result;
+        };
+    }
+
+    /** Compiles bbox filters on a geometry attribute, null otherwise */
+    private Selector buildBBOX(final BBOXImpl filter) {
+        final int index = getIndex(filter.getExpression1());
+        if (index < 0 || !(filter.getExpression2() instanceof Literal)) {
+            return null;
+        }
+        final Geometry bounds = filter.getExpression2().evaluate(null, Geometry.class);
+        if (bounds == null) {
+            return null;
+        }
+        final Envelope envelope = bounds.getEnvelopeInternal();
+        // geometries fully inside a rectangle intersect it, no need to check them further
+        final boolean rectangle = bounds.isRectangle();
+        return (batch, candidates) -> {
+            BitSet result = new BitSet(batch.getSize());
+            for (int row = candidates.nextSetBit(0);
+                    row >= 0;
+                    row = candidates.nextSetBit(row + 1)) {
+                Object value = batch.getValue(row, index);
+                boolean selected;
+                if (value == null) {
+                    selected = false;
+                } else if (value instanceof Geometry) {
+                    Geometry geometry = (Geometry) value;
+                    Envelope ge = geometry.getEnvelopeInternal();
+                    if (!envelope.intersects(ge)) {
+                        selected = false;
+                    } else if (rectangle && envelope.covers(ge) && !geometry.isEmpty()) {
+                        selected = true;
+                    } else {
+                        selected = filter.evaluateInternal(geometry, bounds);
+                    }
+                } else if (value instanceof Collection) {
+                    selected = filter.evaluate(batch.getFeature(row));
+                } else {
+                    Geometry geometry = Converters.convert(value, Geometry.class);
+                    selected = geometry != null && filter.evaluateInternal(geometry, bounds);
+                }
+                if (selected) {
+                    result.set(row);
+                }
+            }
+            return result;
+        };
+    }
+
+    private int getIndex(Expression expression) {
+        return FilterCompiler.getIndex(expression, schema);
+    }
+}
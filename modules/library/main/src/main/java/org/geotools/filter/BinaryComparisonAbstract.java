@@ -63,6 +63,7 @@ public abstract class BinaryComparisonAbstract extends AbstractFilter implements
     }
 
     public void setExpression1(Expression expression) {
+        checkNotFrozen();
         this.expression1 = expression;
     }
 
@@ -71,9 +72,17 @@ public abstract class BinaryComparisonAbstract extends AbstractFilter implements
     }
 
     public void setExpression2(Expression expression) {
+        checkNotFrozen();
         this.expression2 = expression;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply)
+                && Filters.freeze(expression1, apply)
+                && Filters.freeze(expression2, apply);
+    }
+
     public boolean isMatchingCase() {
         return matchingCase;
     }
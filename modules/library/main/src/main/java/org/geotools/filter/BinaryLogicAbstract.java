@@ -33,9 +33,25 @@ public abstract class BinaryLogicAbstract extends AbstractFilter {
     }
 
     public void setChildren(List<org.opengis.filter.Filter> children) {
+        checkNotFrozen();
         this.children = children;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        if (!super.freeze(apply)) {
+            return false;
+        }
+        if (children != null) {
+            for (org.opengis.filter.Filter child : children) {
+                if (!Filters.freeze(child, apply)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -16,6 +16,9 @@
  */
 package org.geotools.filter;
 
+import org.geotools.filter.spatial.IndexedDistance;
+import org.geotools.filter.spatial.LiteralGeometryCache;
+import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.spatial.Beyond;
 import org.opengis.filter.spatial.DWithin;
@@ -47,6 +50,8 @@ public abstract class CartesianDistanceFilter extends GeometryFilterImpl
     private double distance;
     /** the distnace units */
     private String units;
+    /** The indexed version of the literal geometry, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
 
     protected CartesianDistanceFilter(Expression e1, Expression e2) {
         super(e1, e2);
@@ -62,6 +67,7 @@ public abstract class CartesianDistanceFilter extends GeometryFilterImpl
      * @param distance the length beyond which this filter is valid or not.
      */
     public void setDistance(double distance) {
+        checkNotFrozen();
         this.distance = distance;
     }
 
@@ -79,9 +85,26 @@ public abstract class CartesianDistanceFilter extends GeometryFilterImpl
     }
 
     public void setUnits(String units) {
+        checkNotFrozen();
         this.units = units;
     }
 
+    /**
+     * Checks if the two geometries are within the filter distance. When one of the two geometries
+     * is a literal the distance is computed against its indexed segments.
+     */
+    protected boolean isWithinDistance(Geometry left, Geometry right) {
+        IndexedDistance indexed = literalCache.getIndexedDistance(getExpression2(), right);
+        if (indexed != null) {
+            return indexed.isWithinDistance(left, distance);
+        }
+        indexed = literalCache.getIndexedDistance(getExpression1(), left);
+        if (indexed != null) {
+            return indexed.isWithinDistance(right, distance);
+        }
+        return left.isWithinDistance(right, distance);
+    }
+
     /**
      * Returns a string representation of this filter.
      *
@@ -59,10 +59,12 @@ public abstract class CompareFilterImpl extends BinaryComparisonAbstract {
     }
 
     public void setExpression1(org.opengis.filter.expression.Expression leftValue) {
+        checkNotFrozen();
         this.expression1 = leftValue;
     }
 
     public void setExpression2(org.opengis.filter.expression.Expression rightValue) {
+        checkNotFrozen();
         this.expression2 = rightValue;
     }
 
@@ -0,0 +1,279 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A block of features of the same {@link SimpleFeatureType}, stored by column rather than by row,
+ * so that a {@link BatchFilter} can evaluate a whole block at once without creating any feature
+ * object. Attributes bound to {@link Byte}, {@link Short}, {@link Integer}, {@link Float} or {@link
+ * Double} are stored in primitive <code>double[]</code> columns (all these types are represented
+ * exactly as doubles), every other attribute, geometries included, is stored in an object column.
+ *
+ * <p>A batch is meant to be filled, evaluated, and then cleared and reused for the next block:
+ *
+ * <pre><code>
+ * FeatureBatch batch = new FeatureBatch(schema, 1024);
+ * while (...) {
+ *     batch.clear();
+ *     while (batch.getSize() < batch.getCapacity() && ...) {
+ *         int row = batch.addRow();
+ *         batch.setValue(row, 0, ...);
+ *     }
+ *     BitSet selected = filter.evaluate(batch);
+ * }
+ * </code></pre>
+ *
+ * Should a value not match the binding of its numeric column (e.g., a Long in an Integer column)
+ * the column is switched to object storage for the rest of the block, the values are never altered.
+ *
+ * @author GeoTools
+ */
+public class FeatureBatch {
+
+    final SimpleFeatureType schema;
+
+    final int capacity;
+
+    /** The bindings of the numeric columns, null for the object ones */
+    final Class<?>[] numericBindings;
+
+    final double[][] doubles;
+
+    final Object[][] objects;
+
+    /** The null values of the numeric columns */
+    final BitSet[] nulls;
+
+    /** Whether the numeric columns are currently stored as doubles */
+    final boolean[] numeric;
+
+    String[] ids;
+
+    int size;
+
+    public FeatureBatch(SimpleFeatureType schema, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive, was " + capacity);
+        }
+        this.schema = schema;
+        this.capacity = capacity;
+        int count = schema.getAttributeCount();
+        this.numericBindings = new Class<?>[count];
+        this.doubles = new double[count][];
+        this.objects = new Object[count][];
+        this.nulls = new BitSet[count];
+        this.numeric = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            Class<?> binding = schema.getDescriptor(i).getType().getBinding();
+            if (isNumericBinding(binding)) {
+                numericBindings[i] = binding;
+                doubles[i] = new double[capacity];
+                nulls[i] = new BitSet(capacity);
+                numeric[i] = true;
+            } else {
+                objects[i] = new Object[capacity];
+            }
+        }
+    }
+
+    static boolean isNumericBinding(Class<?> binding) {
+        return binding == Double.class
+                || binding == Integer.class
+                || binding == Float.class
+                || binding == Short.class
+                || binding == Byte.class;
+    }
+
+    /** The feature type of the features in the batch */
+    public SimpleFeatureType getSchema() {
+        return schema;
+    }
+
+    /** The maximum number of rows in the batch */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** The current number of rows in the batch */
+    public int getSize() {
+        return size;
+    }
+
+    /** Removes all the rows, the batch can then be filled again */
+    public void clear() {
+        for (int i = 0; i < numericBindings.length; i++) {
+            if (numericBindings[i] != null) {
+                nulls[i].clear();
+                numeric[i] = true;
+            }
+            if (objects[i] != null) {
+                Arrays.fill(objects[i], 0, size, null);
+            }
+        }
+        if (ids != null) {
+            Arrays.fill(ids, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds a row, with all values set to null
+     *
+     * @return The index of the new row
+     * @throws IllegalStateException if the batch is full
+     */
+    public int addRow() {
+        if (size >= capacity) {
+            throw new IllegalStateException("The batch is full");
+        }
+        int row = size++;
+        for (int i = 0; i < numericBindings.length; i++) {
+            if (numeric[i]) {
+                nulls[i].set(row);
+            } else {
+                objects[i][row] = null;
+            }
+        }
+        return row;
+    }
+
+    /** Sets the feature identifier of a row, used only to build the feature out of the row */
+    public void setId(int row, String id) {
+        if (ids == null) {
+            ids = new String[capacity];
+        }
+        ids[row] = id;
+    }
+
+    /** Returns the feature identifier of a row, or null if not set */
+    public String getId(int row) {
+        return ids != null ? ids[row] : null;
+    }
+
+    /** Sets the value of an attribute in a row */
+    public void setValue(int row, int attribute, Object value) {
+        if (numeric[attribute]) {
+            if (value == null) {
+                nulls[attribute].set(row);
+                return;
+            } else if (value.getClass() == numericBindings[attribute]) {
+                doubles[attribute][row] = ((Number) value).doubleValue();
+                nulls[attribute].clear(row);
+                return;
+            }
+            toObjects(attribute);
+        }
+        objects[attribute][row] = value;
+    }
+
+    /**
+     * Sets the value of a numeric attribute in a row, without boxing it. The value must be
+     * representable in the attribute binding.
+     */
+    public void setDouble(int row, int attribute, double value) {
+        if (numericBindings[attribute] == null) {
+            throw new IllegalArgumentException("Attribute " + attribute + " is not numeric");
+        } else if (!numeric[attribute]) {
+            setValue(row, attribute, box(numericBindings[attribute], value));
+        } else {
+            doubles[attribute][row] = value;
+            nulls[attribute].clear(row);
+        }
+    }
+
+    /** Returns the value of an attribute in a row */
+    public Object getValue(int row, int attribute) {
+        if (numeric[attribute]) {
+            if (nulls[attribute].get(row)) {
+                return null;
+            }
+            return box(numericBindings[attribute], doubles[attribute][row]);
+        }
+        return objects[attribute][row];
+    }
+
+    /**
+     * Returns true if the attribute is currently stored in a primitive column, that can be accessed
+     * with {@link #getDoubles(int)} and {@link #isNull(int, int)}
+     */
+    public boolean isNumeric(int attribute) {
+        return numeric[attribute];
+    }
+
+    /**
+     * Returns the primitive column of a numeric attribute, with at least {@link #getSize()} rows
+     */
+    public double[] getDoubles(int attribute) {
+        if (!numeric[attribute]) {
+            throw new IllegalStateException(
+                    "Attribute " + attribute + " is not stored as a numeric column");
+        }
+        return doubles[attribute];
+    }
+
+    /** Returns true if the value of an attribute is null in the specified row */
+    public boolean isNull(int row, int attribute) {
+        if (numeric[attribute]) {
+            return nulls[attribute].get(row);
+        }
+        return objects[attribute][row] == null;
+    }
+
+    /**
+     * Builds the feature of a row. Used to evaluate the filters that cannot work on the columns
+     * directly, it should be avoided in the common case.
+     */
+    public SimpleFeature getFeature(int row) {
+        Object[] values = new Object[numericBindings.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getValue(row, i);
+        }
+        return SimpleFeatureBuilder.build(schema, values, getId(row));
+    }
+
+    /** Moves a numeric column to object storage, for the rest of the current block */
+    private void toObjects(int attribute) {
+        if (objects[attribute] == null) {
+            objects[attribute] = new Object[capacity];
+        }
+        Object[] values = objects[attribute];
+        for (int row = 0; row < size; row++) {
+            values[row] = getValue(row, attribute);
+        }
+        numeric[attribute] = false;
+    }
+
+    static Object box(Class<?> binding, double value) {
+        if (binding == Double.class) {
+            return Double.valueOf(value);
+        } else if (binding == Integer.class) {
+            return Integer.valueOf((int) value);
+        } else if (binding == Float.class) {
+            return Float.valueOf((float) value);
+        } else if (binding == Short.class) {
+            return Short.valueOf((short) value);
+        } else {
+            return Byte.valueOf((byte) value);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.geotools.filter;
 // Geotools dependencies
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -78,11 +79,12 @@ public class FidFilterImpl extends AbstractFilter implements Id {
 
     /** @see org.opengis.filter.Id#getIdentifiers() */
     public Set<Identifier> getIdentifiers() {
-        return fids;
+        return isFrozen() ? Collections.unmodifiableSet(fids) : fids;
     }
 
     /** @see org.opengis.filter.identity.FeatureId#setIDs(Set) */
     public void setIDs(Set ids) {
+        checkNotFrozen();
         fids = new HashSet();
         addAllFids(ids);
     }
@@ -111,6 +113,7 @@ public class FidFilterImpl extends AbstractFilter implements Id {
      * @param fid A single feature ID.
      */
     public final void addFid(String fid) {
+        checkNotFrozen();
         LOGGER.finest("got fid: " + fid);
         fids.add(new FeatureIdImpl(fid));
         ids.add(fid);
@@ -136,6 +139,7 @@ public class FidFilterImpl extends AbstractFilter implements Id {
      * @param fid A single feature ID.
      */
     public final void removeFid(String fid) {
+        checkNotFrozen();
         if (fid == null) {
             return;
         }
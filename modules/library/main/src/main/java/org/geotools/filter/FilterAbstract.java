@@ -30,6 +30,9 @@ import org.opengis.feature.simple.SimpleFeature;
  */
 public abstract class FilterAbstract implements org.opengis.filter.Filter {
 
+    /** Set by {@link #freeze()}, the filter cannot be modified afterwards */
+    private boolean frozen;
+
     protected FilterAbstract() {}
 
     /**
@@ -111,4 +114,56 @@ public abstract class FilterAbstract implements org.opengis.filter.Filter {
         if (expression == null) return null;
         return expression.evaluate(object, context);
     }
+
+    /**
+     * Makes this filter immutable, along with the filters and expressions it contains, so that it
+     * can be safely shared among threads (e.g., by the CQL parse cache). Once frozen, the setters
+     * throw an {@link UnsupportedOperationException}.
+     *
+     * <p>The tree is checked before being frozen: if it contains filters or expressions of
+     * implementations that cannot be frozen, nothing is frozen at all.
+     *
+     * @return true if the whole tree has been frozen, false if it contains filters or expressions
+     *     of implementations that cannot be frozen, and has been left untouched
+     * @see Filters#freeze(org.opengis.filter.Filter)
+     */
+    public boolean freeze() {
+        return freeze(false) && freeze(true);
+    }
+
+    /**
+     * Checks if this filter, and the filters and expressions it contains, can be frozen, freezing
+     * them as well if {@code apply} is true. Subclasses holding other filters or expressions must
+     * override to visit them too, see {@link Filters#freeze(org.opengis.filter.Filter, boolean)}.
+     *
+     * <p>Only the implementations audited as immutable once frozen can be frozen, see {@link
+     * Filters#isFreezable(Class)}, this method returns false for any other class, subclasses of the
+     * audited ones included.
+     *
+     * @param apply false to just check the tree, true to freeze it
+     * @return true if the whole tree can be frozen
+     */
+    public boolean freeze(boolean apply) {
+        if (!Filters.isFreezable(getClass())) {
+            return false;
+        }
+        if (apply) {
+            frozen = true;
+        }
+        return true;
+    }
+
+    /** Returns true if this filter has been frozen, and cannot be modified anymore */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /** To be called by the setters, throws an exception if the filter has been frozen */
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "This filter is immutable as it may be shared, "
+                            + "use a DuplicatingFilterVisitor to get a modifiable copy");
+        }
+    }
 }
@@ -0,0 +1,514 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import org.geotools.filter.visitor.BindingFilterVisitor;
+import org.geotools.filter.visitor.DefaultFilterVisitor;
+import org.opengis.feature.Attribute;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.expression.VolatileFunction;
+
+/**
+ * Compiles filters and expressions against a {@link SimpleFeatureType}, so that they can be
+ * evaluated repeatedly against features of that type with as little overhead as possible:
+ *
+ * <ul>
+ *   <li>property names are resolved once to the index of the attribute in the feature type,
+ *       skipping the property accessor lookup during evaluation
+ *   <li>literals are converted once to the binding of the attributes they are compared to
+ *   <li>logic operators, comparisons between an attribute and a literal, and null checks are turned
+ *       into a flat tree of predicates working directly on the attribute values
+ * </ul>
+ *
+ * The compiled filter evaluates to the same result as the original one, for any object. When
+ * evaluated against objects other than features of the bound type (e.g., features of a retyped
+ * schema) it falls back on the usual, dynamic evaluation.
+ *
+ * <p>Filters can also be compiled into a {@link BatchFilter}, evaluating whole blocks of features
+ * stored by column, or compiled as a set sharing the expressions they have in common.
+ *
+ * @author GeoTools
+ */
+public class FilterCompiler {
+
+    private FilterCompiler() {}
+
+    /**
+     * Compiles the filter against the specified feature type
+     *
+     * @return A filter that evaluates like the original one, but faster on features of the
+     *     specified type
+     */
+    public static Filter compile(Filter filter, SimpleFeatureType schema) {
+        if (filter == null
+                || schema == null
+                || filter instanceof IncludeFilter
+                || filter instanceof ExcludeFilter
+                || filter instanceof CompiledFilter) {
+            return filter;
+        }
+        Filter bound = (Filter) filter.accept(new CompilingVisitor(schema), null);
+        return new CompiledFilter(bound, schema, buildPredicate(bound, schema));
+    }
+
+    /**
+     * Compiles a set of filters that are evaluated one after the other against the same features,
+     * like the rule filters of a feature type style. On top of what {@link #compile(Filter,
+     * SimpleFeatureType)} does, functions and math expressions appearing more than once across the
+     * filters (e.g. a <code>Recode</code> or a <code>strToLowerCase(name)</code> used by many
+     * rules) are evaluated only once per feature, the following filters reusing the value.
+     *
+     * <p>The values are shared only within an evaluation pass, see {@link
+     * #beginEvaluation(Filter[])}, otherwise the filters evaluate like the ones returned by {@link
+     * #compile(Filter, SimpleFeatureType)}. The returned filters should be used by one thread at a
+     * time.
+     *
+     * @return The compiled filters, in the same order. Null filters are returned as null.
+     */
+    public static Filter[] compile(Filter[] filters, SimpleFeatureType schema) {
+        Filter[] result = new Filter[filters.length];
+        if (schema == null) {
+            System.arraycopy(filters, 0, result, 0, filters.length);
+            return result;
+        }
+        // count the occurrences of each shareable expression
+        Map<Expression, Integer> counts = new HashMap<>();
+        SharedExpressionCounter counter = new SharedExpressionCounter();
+        for (Filter filter : filters) {
+            if (filter != null) {
+                filter.accept(counter, counts);
+            }
+        }
+        int shared = 0;
+        for (Integer count : counts.values()) {
+            if (count > 1) {
+                shared++;
+            }
+        }
+        if (shared == 0) {
+            for (int i = 0; i < filters.length; i++) {
+                result[i] = compile(filters[i], schema);
+            }
+            return result;
+        }
+
+        SharingVisitor visitor =
+                new SharingVisitor(schema, counts, new SharedExpression.Values(shared));
+        for (int i = 0; i < filters.length; i++) {
+            Filter filter = filters[i];
+            if (filter == null
+                    || filter instanceof IncludeFilter
+                    || filter instanceof ExcludeFilter) {
+                result[i] = filter;
+            } else {
+                if (filter instanceof CompiledFilter) {
+                    filter = ((CompiledFilter) filter).filter;
+                }
+                Filter bound = (Filter) filter.accept(visitor, null);
+                CompiledFilter compiled =
+                        new CompiledFilter(bound, schema, buildPredicate(bound, schema));
+                compiled.values = visitor.values;
+                result[i] = compiled;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts the evaluation of an object against the filters returned by {@link #compile(Filter[],
+     * SimpleFeatureType)}: until {@link #endEvaluation(Filter[])} is called the expressions shared
+     * by the filters are evaluated once, and their value reused by all the filters. The object
+     * should not be modified during the pass.
+     */
+    public static void beginEvaluation(Filter[] compiled) {
+        SharedExpression.Values values = getValues(compiled);
+        if (values != null) {
+            values.begin();
+        }
+    }
+
+    /**
+     * Ends the evaluation pass started by {@link #beginEvaluation(Filter[])}, releasing the
+     * evaluated object and the values computed for it
+     */
+    public static void endEvaluation(Filter[] compiled) {
+        SharedExpression.Values values = getValues(compiled);
+        if (values != null) {
+            values.end();
+        }
+    }
+
+    private static SharedExpression.Values getValues(Filter[] compiled) {
+        for (Filter filter : compiled) {
+            if (filter instanceof CompiledFilter && ((CompiledFilter) filter).values != null) {
+                return ((CompiledFilter) filter).values;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the expression against the specified feature type, resolving the property names to
+     * attribute indexes
+     */
+    public static Expression compile(Expression expression, SimpleFeatureType schema) {
+        if (expression == null || schema == null) {
+            return expression;
+        }
+        return (Expression) expression.accept(new CompilingVisitor(schema), null);
+    }
+
+    /**
+     * Compiles the filter against the specified feature type, for the evaluation of blocks of
+     * features stored in a {@link FeatureBatch}
+     */
+    public static BatchFilter compileBatch(Filter filter, SimpleFeatureType schema) {
+        if (filter == null) {
+            filter = Filter.INCLUDE;
+        }
+        Filter bound;
+        if (filter instanceof CompiledFilter && ((CompiledFilter) filter).schema == schema) {
+            bound = ((CompiledFilter) filter).filter;
+        } else {
+            bound = (Filter) filter.accept(new CompilingVisitor(schema), null);
+        }
+        return new BatchFilter(bound, schema);
+    }
+
+    /** Returns true if the filter has been compiled against the specified feature type */
+    public static boolean isCompiled(Filter filter, SimpleFeatureType schema) {
+        return filter instanceof CompiledFilter && ((CompiledFilter) filter).schema == schema;
+    }
+
+    static Predicate<SimpleFeature> buildPredicate(Filter filter, SimpleFeatureType schema) {
+        if (filter instanceof IncludeFilter) {
+            return f -> true;
+        } else if (filter instanceof ExcludeFilter) {
+            return f -> false;
+        } else if (filter instanceof And) {
+            final Predicate<SimpleFeature>[] children =
+                    buildPredicates(((And) filter).getChildren(), schema);
+            return f -> {
+                for (Predicate<SimpleFeature> child : children) {
+                    if (!child.test(f)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        } else if (filter instanceof Or) {
+            final Predicate<SimpleFeature>[] children =
+                    buildPredicates(((Or) filter).getChildren(), schema);
+            return f -> {
+                for (Predicate<SimpleFeature> child : children) {
+                    if (child.test(f)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        } else if (filter instanceof Not) {
+            return buildPredicate(((Not) filter).getFilter(), schema).negate();
+        } else if (filter instanceof MultiCompareFilterImpl) {
+            Predicate<SimpleFeature> comparison =
+                    buildComparison((MultiCompareFilterImpl) filter, schema);
+            if (comparison != null) {
+                return comparison;
+            }
+        } else if (filter instanceof IsNullImpl) {
+            final int index = getIndex(((IsNullImpl) filter).getExpression(), schema);
+            if (index >= 0) {
+                return f -> f.getAttribute(index) == null;
+            }
+        }
+
+        return f -> filter.evaluate(f);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<SimpleFeature>[] buildPredicates(
+            List<Filter> filters, SimpleFeatureType schema) {
+        Predicate<SimpleFeature>[] result = new Predicate[filters.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buildPredicate(filters.get(i), schema);
+        }
+        return result;
+    }
+
+    /**
+     * Compiles comparisons between an attribute and a literal, returns null if the comparison is of
+     * any other kind
+     */
+    private static Predicate<SimpleFeature> buildComparison(
+            final MultiCompareFilterImpl filter, SimpleFeatureType schema) {
+        Expression ex1 = filter.getExpression1();
+        Expression ex2 = filter.getExpression2();
+        final boolean attributeFirst;
+        final int index;
+        final Object literal;
+        if (ex2 instanceof Literal && getIndex(ex1, schema) >= 0) {
+            attributeFirst = true;
+            index = getIndex(ex1, schema);
+            literal = ((Literal) ex2).getValue();
+        } else if (ex1 instanceof Literal && getIndex(ex2, schema) >= 0) {
+            attributeFirst = false;
+            index = getIndex(ex2, schema);
+            literal = ((Literal) ex1).getValue();
+        } else {
+            return null;
+        }
+        if (literal instanceof Collection || literal instanceof Attribute) {
+            return null;
+        }
+
+        return f -> {
+            Object value = f.getAttribute(index);
+            if (value instanceof Collection || value instanceof Attribute) {
+                // multi-valued, needs the match action and unpacking logic
+                return filter.evaluate(f);
+            }
+            return attributeFirst
+                    ? filter.evaluateInternal(value, literal)
+                    : filter.evaluateInternal(literal, value);
+        };
+    }
+
+    static int getIndex(Expression expression, SimpleFeatureType schema) {
+        if (expression instanceof IndexedAttributeExpression
+                && ((IndexedAttributeExpression) expression).schema == schema) {
+            return ((IndexedAttributeExpression) expression).index;
+        }
+        return -1;
+    }
+
+    /**
+     * Binds the literals to the attribute types and replaces the property names with indexed ones
+     */
+    static class CompilingVisitor extends BindingFilterVisitor {
+
+        SimpleFeatureType schema;
+
+        public CompilingVisitor(SimpleFeatureType schema) {
+            super(schema);
+            this.schema = schema;
+        }
+
+        @Override
+        public Object visit(PropertyName expression, Object extraData) {
+            String name = expression.getPropertyName();
+            int index = -1;
+            if ("".equals(name)) {
+                // the default geometry
+                GeometryDescriptor gd = schema.getGeometryDescriptor();
+                if (gd != null) {
+                    index = schema.indexOf(gd.getLocalName());
+                }
+            } else if (name != null && name.indexOf(':') < 0 && name.indexOf('/') < 0) {
+                index = schema.indexOf(name);
+            }
+            if (index < 0) {
+                return super.visit(expression, extraData);
+            }
+
+            return new IndexedAttributeExpression(expression, schema, index);
+        }
+    }
+
+    /**
+     * Returns true if the expression is worth sharing among filters: functions, save the volatile
+     * ones, and math expressions
+     */
+    static boolean isShareable(Expression expression) {
+        if (expression instanceof Function) {
+            return !(expression instanceof VolatileFunction);
+        }
+        return expression instanceof BinaryExpression;
+    }
+
+    /** Counts the occurrences of the shareable expressions, in the map passed as extra data */
+    static class SharedExpressionCounter extends DefaultFilterVisitor {
+
+        @SuppressWarnings("unchecked")
+        Object count(Expression expression, Object data) {
+            if (isShareable(expression)) {
+                ((Map<Expression, Integer>) data).merge(expression, 1, Integer::sum);
+            }
+            return data;
+        }
+
+        @Override
+        public Object visit(Function expression, Object data) {
+            return super.visit(expression, count(expression, data));
+        }
+
+        @Override
+        public Object visit(Add expression, Object data) {
+            return super.visit(expression, count(expression, data));
+        }
+
+        @Override
+        public Object visit(Subtract expression, Object data) {
+            return super.visit(expression, count(expression, data));
+        }
+
+        @Override
+        public Object visit(Multiply expression, Object data) {
+            return super.visit(expression, count(expression, data));
+        }
+
+        @Override
+        public Object visit(Divide expression, Object data) {
+            return super.visit(expression, count(expression, data));
+        }
+    }
+
+    /**
+     * Compiles the filters like {@link CompilingVisitor}, replacing the expressions occurring more
+     * than once with a {@link SharedExpression}, the same instance being used for all occurrences
+     */
+    static class SharingVisitor extends CompilingVisitor {
+
+        final Map<Expression, Integer> counts;
+
+        final Map<Expression, SharedExpression> sharedExpressions = new HashMap<>();
+
+        final SharedExpression.Values values;
+
+        public SharingVisitor(
+                SimpleFeatureType schema,
+                Map<Expression, Integer> counts,
+                SharedExpression.Values values) {
+            super(schema);
+            this.counts = counts;
+            this.values = values;
+        }
+
+        Object share(Expression original, Object compiled) {
+            Integer count = counts.get(original);
+            if (count == null || count < 2) {
+                return compiled;
+            }
+            SharedExpression shared = sharedExpressions.get(original);
+            if (shared == null) {
+                shared =
+                        new SharedExpression(
+                                (Expression) compiled, values, sharedExpressions.size());
+                sharedExpressions.put(original, shared);
+            }
+            return shared;
+        }
+
+        @Override
+        public Object visit(Function expression, Object extraData) {
+            return share(expression, super.visit(expression, extraData));
+        }
+
+        @Override
+        public Object visit(Add expression, Object extraData) {
+            return share(expression, super.visit(expression, extraData));
+        }
+
+        @Override
+        public Object visit(Subtract expression, Object extraData) {
+            return share(expression, super.visit(expression, extraData));
+        }
+
+        @Override
+        public Object visit(Multiply expression, Object extraData) {
+            return share(expression, super.visit(expression, extraData));
+        }
+
+        @Override
+        public Object visit(Divide expression, Object extraData) {
+            return share(expression, super.visit(expression, extraData));
+        }
+    }
+
+    /**
+     * A filter evaluating features of the bound type with a flat predicate, and any other object
+     * with the bound filter. Visitors see the bound filter.
+     */
+    static class CompiledFilter implements Filter {
+
+        final Filter filter;
+
+        final SimpleFeatureType schema;
+
+        final Predicate<SimpleFeature> predicate;
+
+        /** The values of the expressions shared with other filters, if any */
+        SharedExpression.Values values;
+
+        CompiledFilter(
+                Filter filter, SimpleFeatureType schema, Predicate<SimpleFeature> predicate) {
+            this.filter = filter;
+            this.schema = schema;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean evaluate(Object object) {
+            if (object instanceof SimpleFeature && ((SimpleFeature) object).getType() == schema) {
+                return predicate.test((SimpleFeature) object);
+            }
+            return filter.evaluate(object);
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return filter.accept(visitor, extraData);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CompiledFilter && filter.equals(((CompiledFilter) obj).filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return filter.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return filter.toString();
+        }
+    }
+}
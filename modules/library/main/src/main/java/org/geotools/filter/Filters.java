@@ -20,12 +20,48 @@ import java.awt.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.expression.AddImpl;
+import org.geotools.filter.expression.DivideImpl;
+import org.geotools.filter.expression.ExpressionAbstract;
+import org.geotools.filter.expression.MultiplyImpl;
+import org.geotools.filter.expression.SubtractImpl;
+import org.geotools.filter.function.FilterFunction_area;
+import org.geotools.filter.function.FilterFunction_geomLength;
+import org.geotools.filter.function.FilterFunction_strConcat;
+import org.geotools.filter.function.FilterFunction_strEndsWith;
+import org.geotools.filter.function.FilterFunction_strEqualsIgnoreCase;
+import org.geotools.filter.function.FilterFunction_strIndexOf;
+import org.geotools.filter.function.FilterFunction_strLength;
+import org.geotools.filter.function.FilterFunction_strReplace;
+import org.geotools.filter.function.FilterFunction_strStartsWith;
+import org.geotools.filter.function.FilterFunction_strSubstring;
+import org.geotools.filter.function.FilterFunction_strSubstringStart;
+import org.geotools.filter.function.FilterFunction_strToLowerCase;
+import org.geotools.filter.function.FilterFunction_strToUpperCase;
+import org.geotools.filter.function.FilterFunction_strTrim;
+import org.geotools.filter.function.math.FilterFunction_abs;
+import org.geotools.filter.function.math.FilterFunction_ceil;
+import org.geotools.filter.function.math.FilterFunction_floor;
+import org.geotools.filter.function.math.FilterFunction_round;
+import org.geotools.filter.spatial.BBOXImpl;
+import org.geotools.filter.spatial.BeyondImpl;
+import org.geotools.filter.spatial.ContainsImpl;
+import org.geotools.filter.spatial.CrossesImpl;
+import org.geotools.filter.spatial.DWithinImpl;
+import org.geotools.filter.spatial.DisjointImpl;
+import org.geotools.filter.spatial.EqualsImpl;
+import org.geotools.filter.spatial.IntersectsImpl;
+import org.geotools.filter.spatial.OverlapsImpl;
+import org.geotools.filter.spatial.TouchesImpl;
+import org.geotools.filter.spatial.WithinImpl;
+import org.geotools.filter.temporal.BinaryTemporalOperatorImpl;
 import org.geotools.filter.visitor.AbstractSearchFilterVisitor;
 import org.geotools.filter.visitor.DefaultFilterVisitor;
 import org.geotools.filter.visitor.DuplicatingFilterVisitor;
@@ -1014,6 +1050,161 @@ public class Filters {
         return (String) filter.accept(search, null);
     }
 
+    /**
+     * The filter and expression implementations audited as immutable once frozen: their setters
+     * check the frozen flag, and evaluating them keeps no state, or only thread safe caches.
+     * Subclasses are not included, as they may add state of their own.
+     */
+    static final Set<Class<?>> FREEZABLE =
+            new HashSet<>(
+                    Arrays.asList(
+                            AndImpl.class,
+                            OrImpl.class,
+                            NotImpl.class,
+                            IsEqualsToImpl.class,
+                            IsNotEqualToImpl.class,
+                            IsGreaterThanImpl.class,
+                            IsGreaterThanOrEqualToImpl.class,
+                            IsLessThenImpl.class,
+                            IsLessThenOrEqualToImpl.class,
+                            IsBetweenImpl.class,
+                            IsNullImpl.class,
+                            IsNilImpl.class,
+                            NullFilterImpl.class,
+                            LikeFilterImpl.class,
+                            FidFilterImpl.class,
+                            BBOXImpl.class,
+                            ContainsImpl.class,
+                            CrossesImpl.class,
+                            DisjointImpl.class,
+                            DWithinImpl.class,
+                            BeyondImpl.class,
+                            EqualsImpl.class,
+                            IntersectsImpl.class,
+                            OverlapsImpl.class,
+                            TouchesImpl.class,
+                            WithinImpl.class,
+                            AttributeExpressionImpl.class,
+                            LiteralExpressionImpl.class,
+                            AddImpl.class,
+                            SubtractImpl.class,
+                            MultiplyImpl.class,
+                            DivideImpl.class,
+                            FunctionImpl.class,
+                            FilterFunction_strConcat.class,
+                            FilterFunction_strEndsWith.class,
+                            FilterFunction_strEqualsIgnoreCase.class,
+                            FilterFunction_strIndexOf.class,
+                            FilterFunction_strLength.class,
+                            FilterFunction_strReplace.class,
+                            FilterFunction_strStartsWith.class,
+                            FilterFunction_strSubstring.class,
+                            FilterFunction_strSubstringStart.class,
+                            FilterFunction_strToLowerCase.class,
+                            FilterFunction_strToUpperCase.class,
+                            FilterFunction_strTrim.class,
+                            FilterFunction_abs.class,
+                            FilterFunction_ceil.class,
+                            FilterFunction_floor.class,
+                            FilterFunction_round.class,
+                            FilterFunction_area.class,
+                            FilterFunction_geomLength.class));
+
+    /**
+     * Returns true if the instances of this exact class can be frozen. Filters and expressions are
+     * not freezable by default, only the implementations audited as immutable once frozen are, as
+     * a stateful implementation (e.g., a function caching the last feature collection it
+     * aggregated) cannot be shared among threads.
+     *
+     * @param type the filter or expression class
+     * @return true if instances of the class can be frozen
+     */
+    public static boolean isFreezable(Class<?> type) {
+        return FREEZABLE.contains(type);
+    }
+
+    /**
+     * Makes the filter immutable, along with all the filters and expressions it contains, so that
+     * it can be safely shared among threads. Once frozen, the setters of the GeoTools filter and
+     * expression implementations throw an {@link UnsupportedOperationException}, use a {@link
+     * DuplicatingFilterVisitor} to get a modifiable copy.
+     *
+     * <p>Filters and expressions of other implementations cannot be frozen: the whole tree is
+     * checked first, and if any part of it cannot be frozen the method returns false without
+     * freezing anything, meaning the filter should not be shared.
+     *
+     * @param filter the filter to freeze, may be null
+     * @return true if the whole filter tree is immutable, false if it has been left untouched
+     */
+    public static boolean freeze(Filter filter) {
+        return freeze(filter, false) && freeze(filter, true);
+    }
+
+    /**
+     * Makes the expression immutable, along with all the expressions it contains. See {@link
+     * #freeze(Filter)}.
+     *
+     * @param expression the expression to freeze, may be null
+     * @return true if the whole expression tree is immutable, false if it has been left untouched
+     */
+    public static boolean freeze(Expression expression) {
+        return freeze(expression, false) && freeze(expression, true);
+    }
+
+    /**
+     * Checks if the filter tree can be frozen, freezing it as well if {@code apply} is true. Used
+     * by the filter implementations to visit their children, see {@link #freeze(Filter)} to freeze
+     * a filter.
+     *
+     * @param filter the filter to check or freeze, may be null
+     * @param apply false to just check the tree, true to freeze it
+     * @return true if the whole filter tree can be frozen
+     */
+    public static boolean freeze(Filter filter, boolean apply) {
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE) {
+            return true;
+        } else if (filter instanceof FilterAbstract) {
+            return ((FilterAbstract) filter).freeze(apply);
+        } else if (filter instanceof BinaryTemporalOperatorImpl) {
+            // no setters, just freeze the expressions
+            BinaryTemporalOperatorImpl temporal = (BinaryTemporalOperatorImpl) filter;
+            return freeze(temporal.getExpression1(), apply)
+                    && freeze(temporal.getExpression2(), apply);
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the expression tree can be frozen, freezing it as well if {@code apply} is true.
+     * See {@link #freeze(Filter, boolean)}.
+     *
+     * @param expression the expression to check or freeze, may be null
+     * @param apply false to just check the tree, true to freeze it
+     * @return true if the whole expression tree can be frozen
+     */
+    public static boolean freeze(Expression expression, boolean apply) {
+        if (expression == null
+                || expression == Expression.NIL
+                || expression instanceof ConstantExpression) {
+            return true;
+        } else if (expression instanceof ExpressionAbstract) {
+            return ((ExpressionAbstract) expression).freeze(apply);
+        }
+        return false;
+    }
+
+    /** Checks or freezes the expressions in the list, see {@link #freeze(Expression, boolean)} */
+    static boolean freeze(List<? extends Expression> expressions, boolean apply) {
+        if (expressions != null) {
+            for (Expression expression : expressions) {
+                if (!freeze(expression, apply)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Find all filters (including the base filter itself) that are of the given type and use the
      * specified property.
@@ -117,15 +117,24 @@ public abstract class FunctionExpressionImpl extends org.geotools.filter.Default
     }
 
     public void setFallbackValue(Literal fallback) {
+        checkNotFrozen();
         this.fallback = fallback;
     }
+
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply)
+                && Filters.freeze(params, apply)
+                && Filters.freeze(fallback, apply);
+    }
     /** Returns the function parameters. */
     public List<org.opengis.filter.expression.Expression> getParameters() {
-        return params;
+        return isFrozen() && params != null ? Collections.unmodifiableList(params) : params;
     }
 
     /** Sets the function parameters. */
     public void setParameters(List<Expression> params) {
+        checkNotFrozen();
         if (params == null) {
             throw new NullPointerException("Function parameters required");
         }
@@ -81,6 +81,7 @@ public class FunctionImpl extends ExpressionAbstract implements Function {
 
     /** Sets the name of the function. */
     public void setName(String name) {
+        checkNotFrozen();
         this.name = name;
     }
 
@@ -107,10 +108,12 @@ public class FunctionImpl extends ExpressionAbstract implements Function {
     /** Sets the function parameters. */
     @SuppressWarnings("unchecked")
     public void setParameters(List<Expression> params) {
+        checkNotFrozen();
         this.params = params == null ? Collections.EMPTY_LIST : new ArrayList<Expression>(params);
     }
 
     public void setFallbackValue(Literal fallbackValue) {
+        checkNotFrozen();
         this.fallbackValue = fallbackValue;
     }
 
@@ -118,6 +121,13 @@ public class FunctionImpl extends ExpressionAbstract implements Function {
         return fallbackValue;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply)
+                && Filters.freeze(params, apply)
+                && Filters.freeze(fallbackValue, apply);
+    }
+
     public Object accept(ExpressionVisitor visitor, Object extraData) {
         return visitor.visit(this, extraData);
     }
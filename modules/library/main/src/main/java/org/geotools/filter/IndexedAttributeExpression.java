@@ -0,0 +1,56 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * A property name bound to an attribute of a {@link SimpleFeatureType}, reading the value by index
+ * when evaluated against features of that very type, and falling back on the property accessors for
+ * any other object.
+ *
+ * @author GeoTools
+ * @see FilterCompiler
+ */
+class IndexedAttributeExpression extends AttributeExpressionImpl {
+
+    final SimpleFeatureType schema;
+
+    final int index;
+
+    IndexedAttributeExpression(PropertyName original, SimpleFeatureType schema, int index) {
+        super(original.getPropertyName(), original.getNamespaceContext());
+        this.schema = schema;
+        this.index = index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T evaluate(Object obj, Class<T> target) {
+        if (obj instanceof SimpleFeature && ((SimpleFeature) obj).getType() == schema) {
+            Object value = ((SimpleFeature) obj).getAttribute(index);
+            if (target == null) {
+                return (T) value;
+            }
+            return Converters.convert(value, target);
+        }
+        return super.evaluate(obj, target);
+    }
+}
@@ -50,9 +50,15 @@ public class IsBetweenImpl extends CompareFilterImpl implements PropertyIsBetwee
     }
 
     public void setExpression(Expression expression) {
+        checkNotFrozen();
         this.expression = expression;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply) && Filters.freeze(expression, apply);
+    }
+
     public MatchAction getMatchAction() {
         return matchAction;
     }
@@ -18,8 +18,6 @@ package org.geotools.filter;
 
 import java.util.Collection;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.opengis.filter.FilterVisitor;
 import org.opengis.filter.PropertyIsLike;
 
@@ -46,8 +44,8 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
     /** The escape sequence for the REGEXP pattern. */
     private String escape = "\\";
 
-    /** the pattern compiled into a java regex */
-    private Pattern compPattern = null;
+    /** the pattern compiled into a matcher, shared with the other filters using the same pattern */
+    private LikeMatcher matcher = null;
 
     /** Used to indicate if case should be ignored or not */
     boolean matchingCase;
@@ -139,23 +137,27 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
     }
 
     public void setWildCard(String wildCard) {
+        checkNotFrozen();
         this.wildcardMulti = wildCard;
-        compPattern = null;
+        matcher = null;
     }
 
     public void setSingleChar(String singleChar) {
+        checkNotFrozen();
         this.wildcardSingle = singleChar;
-        compPattern = null;
+        matcher = null;
     }
 
     public void setEscape(String escape) {
+        checkNotFrozen();
         this.escape = escape;
-        compPattern = null;
+        matcher = null;
     }
 
     public void setMatchCase(boolean matchingCase) {
+        checkNotFrozen();
         this.matchingCase = matchingCase;
-        compPattern = null;
+        matcher = null;
     }
 
     public boolean isMatchingCase() {
@@ -167,19 +169,18 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
     }
 
     public void setMatchingCase(boolean matchingCase) {
+        checkNotFrozen();
         this.matchingCase = matchingCase;
+        matcher = null;
     }
 
-    private Matcher getMatcher(String string) {
-        if (compPattern == null) {
-            String pattern = new LikeToRegexConverter(this).getPattern();
-            compPattern =
-                    isMatchingCase()
-                            ? Pattern.compile(pattern)
-                            : Pattern.compile(
-                                    pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private LikeMatcher getMatcher() {
+        LikeMatcher result = matcher;
+        if (result == null) {
+            result = LikeMatcher.get(this);
+            matcher = result;
         }
-        return compPattern.matcher(string);
+        return result;
     }
 
     /** Constructor which flags the operator as like. */
@@ -231,9 +232,15 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
     }
 
     public void setExpression(org.opengis.filter.expression.Expression e) {
+        checkNotFrozen();
         this.attribute = e;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply) && Filters.freeze(attribute, apply);
+    }
+
     /** Returns the pattern. */
     public String getLiteral() {
         return this.pattern;
@@ -241,8 +248,9 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
 
     /** Sets the pattern. */
     public void setLiteral(String literal) {
+        checkNotFrozen();
         this.pattern = literal;
-        compPattern = null;
+        matcher = null;
     }
 
     /**
@@ -278,8 +286,7 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
             int count = 0;
 
             for (Object element : (Collection<Object>) value) {
-                Matcher matcher = getMatcher(element.toString());
-                boolean temp = matcher.matches();
+                boolean temp = getMatcher().matches(element.toString());
                 if (temp) {
                     count++;
                 }
@@ -307,11 +314,15 @@ public class LikeFilterImpl extends AbstractFilter implements PropertyIsLike {
                     return false;
             }
         } else {
-            Matcher matcher = getMatcher(value.toString());
-            return matcher.matches();
+            return matches(value);
         }
     }
 
+    /** Matches a single, non null value against the pattern */
+    boolean matches(Object value) {
+        return getMatcher().matches(value.toString());
+    }
+
     /**
      * Return this filter as a string.
      *
@@ -0,0 +1,188 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import org.opengis.filter.PropertyIsLike;
+
+/**
+ * Matches strings against the pattern of a {@link PropertyIsLike} filter. Patterns made of a plain
+ * text with a multiple char wildcard at the start, at the end, or both (e.g. <code>Main*</code>,
+ * <code>*Street</code> or <code>*Main*</code>) and patterns without wildcards are matched with
+ * plain string comparisons, all others are converted to a regular expression by {@link
+ * LikeToRegexConverter}.
+ *
+ * <p>Matchers are immutable and thread safe, and are shared among filters with the same pattern via
+ * {@link PatternCache}.
+ *
+ * @author GeoTools
+ */
+public final class LikeMatcher {
+
+    enum Kind {
+        EXACT,
+        PREFIX,
+        SUFFIX,
+        CONTAINS,
+        REGEX
+    }
+
+    final Kind kind;
+
+    /** The text to look for, for all kinds but {@link Kind#REGEX} */
+    final String text;
+
+    final boolean matchCase;
+
+    /** The regular expression, for the {@link Kind#REGEX} kind or lazily built for the others */
+    private volatile Pattern pattern;
+
+    private final String regex;
+
+    private LikeMatcher(Kind kind, String text, boolean matchCase, String regex) {
+        this.kind = kind;
+        this.text = text;
+        this.matchCase = matchCase;
+        this.regex = regex;
+    }
+
+    /** Returns the matcher for the pattern of the like filter */
+    public static LikeMatcher get(PropertyIsLike like) {
+        PatternCache.Key key =
+                new PatternCache.Key(
+                        like.getLiteral(),
+                        Arrays.asList(
+                                LikeMatcher.class,
+                                like.getWildCard(),
+                                like.getSingleChar(),
+                                like.getEscape(),
+                                like.isMatchingCase()));
+        return PatternCache.getLikeMatcher(key, () -> build(like));
+    }
+
+    static LikeMatcher build(PropertyIsLike like) {
+        String literal = like.getLiteral();
+        String multi = like.getWildCard();
+        String single = like.getSingleChar();
+        String escape = like.getEscape();
+        boolean matchCase = like.isMatchingCase();
+        String regex = new LikeToRegexConverter(like).getPattern();
+
+        // look for a plain text, possibly surrounded by multiple char wildcards
+        if (multi.isEmpty()
+                || single.isEmpty()
+                || literal.contains(single)
+                || (!escape.isEmpty() && literal.contains(escape))) {
+            return new LikeMatcher(Kind.REGEX, null, matchCase, regex);
+        }
+        boolean leading = false;
+        boolean trailing = false;
+        int start = 0;
+        int end = literal.length();
+        while (literal.startsWith(multi, start)) {
+            leading = true;
+            start += multi.length();
+        }
+        while (end - multi.length() >= start && literal.startsWith(multi, end - multi.length())) {
+            trailing = true;
+            end -= multi.length();
+        }
+        String text = literal.substring(start, end);
+        if (text.contains(multi) || !isPlain(text, escape)) {
+            return new LikeMatcher(Kind.REGEX, null, matchCase, regex);
+        }
+
+        Kind kind;
+        if (leading && trailing) {
+            kind = Kind.CONTAINS;
+        } else if (leading) {
+            kind = Kind.SUFFIX;
+        } else if (trailing) {
+            kind = Kind.PREFIX;
+        } else {
+            kind = Kind.EXACT;
+        }
+        return new LikeMatcher(kind, text, matchCase, regex);
+    }
+
+    /**
+     * Returns true if the regular expression would match the text literally: no special chars, or
+     * special chars properly escaped by the converter
+     */
+    static boolean isPlain(String text, String escape) {
+        // the converter escapes these with the like escape, which works only if a backslash
+        boolean escaped = "\\".equals(escape);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '}' || (!escaped && ".?*^$+[]()|\\&".indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if the value matches the like pattern */
+    public boolean matches(String value) {
+        if (kind == Kind.REGEX || (kind != Kind.EXACT && hasLineTerminator(value))) {
+            // the regex wildcard does not match line terminators
+            return getPattern().matcher(value).matches();
+        }
+        final int length = text.length();
+        final boolean ignoreCase = !matchCase;
+        switch (kind) {
+            case EXACT:
+                return value.length() == length
+                        && value.regionMatches(ignoreCase, 0, text, 0, length);
+            case PREFIX:
+                return value.regionMatches(ignoreCase, 0, text, 0, length);
+            case SUFFIX:
+                return value.regionMatches(ignoreCase, value.length() - length, text, 0, length);
+            default:
+                if (matchCase) {
+                    return value.contains(text);
+                }
+                for (int i = 0, last = value.length() - length; i <= last; i++) {
+                    if (value.regionMatches(true, i, text, 0, length)) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    private Pattern getPattern() {
+        Pattern result = pattern;
+        if (result == null) {
+            result =
+                    PatternCache.compile(
+                            regex, matchCase ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            pattern = result;
+        }
+        return result;
+    }
+
+    static boolean hasLineTerminator(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
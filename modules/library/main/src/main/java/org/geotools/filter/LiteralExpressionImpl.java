@@ -122,6 +122,7 @@ public class LiteralExpressionImpl extends DefaultExpression implements Literal
      * @throws IllegalFilterException This literal type is not in scope.
      */
     public final void setValue(Object literal) {
+        checkNotFrozen();
         this.literal = literal;
     }
 
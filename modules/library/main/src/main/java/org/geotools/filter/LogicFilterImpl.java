@@ -72,6 +72,7 @@ public abstract class LogicFilterImpl extends BinaryLogicAbstract {
      * @task REVISIT: make all filters immutable. This should return a new filter.
      */
     public final void addFilter(org.opengis.filter.Filter filter) throws IllegalFilterException {
+        checkNotFrozen();
         // reset
         cachedHash = 0;
         if (this instanceof Not && children.size() != 0) {
@@ -88,7 +89,7 @@ public abstract class LogicFilterImpl extends BinaryLogicAbstract {
      * @return the iterator of the filters.
      */
     public Iterator getFilterIterator() {
-        return children.iterator();
+        return isFrozen() ? getChildren().iterator() : children.iterator();
     }
 
     /**
@@ -63,6 +63,7 @@ public abstract class MathExpressionImpl extends DefaultExpression implements Bi
      * @throws IllegalFilterException
      */
     public void setExpression1(org.opengis.filter.expression.Expression expression) {
+        checkNotFrozen();
         if (isGeometryExpression(Filters.getExpressionType(expression))) {
             throw new IllegalFilterException(
                     "Attempted to add Geometry expression to math expression.");
@@ -85,6 +86,7 @@ public abstract class MathExpressionImpl extends DefaultExpression implements Bi
      * @throws IllegalFilterException
      */
     public void setExpression2(org.opengis.filter.expression.Expression expression) {
+        checkNotFrozen();
         // Check to see if this is a valid math expression before adding.
         if (isGeometryExpression(Filters.getExpressionType(expression))) {
             throw new IllegalFilterException(
@@ -93,6 +95,13 @@ public abstract class MathExpressionImpl extends DefaultExpression implements Bi
         this.rightValue = expression;
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply)
+                && Filters.freeze(leftValue, apply)
+                && Filters.freeze(rightValue, apply);
+    }
+
     /**
      * Convenience method which ensures that both expressions have been set. If any of operands not
      * set an exception is thrown.
@@ -34,6 +34,7 @@ public class NotImpl extends LogicFilterImpl implements Not {
     }
 
     public void setFilter(Filter filter) {
+        checkNotFrozen();
         if (children.isEmpty()) {
             children.add(filter);
         } else {
@@ -42,6 +42,7 @@ public class NullFilterImpl extends AbstractFilter implements PropertyIsNull {
 
     /** Sets the expression which represents the null check. */
     public void setExpression(Expression nullCheck) {
+        checkNotFrozen();
         if (nullCheck != null) {
             this.nullCheck = nullCheck;
         } else {
@@ -49,6 +50,11 @@ public class NullFilterImpl extends AbstractFilter implements PropertyIsNull {
         }
     }
 
+    @Override
+    public boolean freeze(boolean apply) {
+        return super.freeze(apply) && Filters.freeze(nullCheck, apply);
+    }
+
     /**
      * Determines whether or not a given feature is 'inside' this filter.
      *
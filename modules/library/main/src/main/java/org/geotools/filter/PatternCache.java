@@ -0,0 +1,114 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.geotools.util.LRULinkedHashMap;
+
+/**
+ * A bounded, process wide cache of compiled regular expressions, used by the filters and functions
+ * so that filters built over and over (e.g., parsed from CQL at each request) do not compile the
+ * same patterns every time. The least recently used patterns are evicted once the cache is full.
+ *
+ * <p>The cache size defaults to 500, and can be changed with the <code>
+ * org.geotools.filter.patternCacheSize</code> system variable, 0 disabling the cache.
+ *
+ * @author GeoTools
+ */
+public final class PatternCache {
+
+    static final int CACHE_SIZE = Integer.getInteger("org.geotools.filter.patternCacheSize", 500);
+
+    static final Map<Key, Object> CACHE =
+            CACHE_SIZE > 0
+                    ? Collections.synchronizedMap(
+                            new LRULinkedHashMap<>(16, 0.75f, true, CACHE_SIZE))
+                    : null;
+
+    /** The cache key, a regular expression or like pattern, and its options */
+    static final class Key {
+        final String pattern;
+
+        final Object options;
+
+        Key(String pattern, Object options) {
+            this.pattern = pattern;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return pattern.equals(other.pattern) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pattern, options);
+        }
+    }
+
+    private PatternCache() {}
+
+    /** Returns the compiled regular expression, equivalent to {@link Pattern#compile(String)} */
+    public static Pattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    /**
+     * Returns the compiled regular expression, equivalent to {@link Pattern#compile(String, int)}
+     */
+    public static Pattern compile(String regex, int flags) {
+        if (CACHE == null) {
+            return Pattern.compile(regex, flags);
+        }
+        Key key = new Key(regex, flags);
+        Pattern pattern = (Pattern) CACHE.get(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            CACHE.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    /** Returns the matcher for a like pattern, see {@link LikeMatcher#get} */
+    static LikeMatcher getLikeMatcher(Key key, Supplier<LikeMatcher> builder) {
+        if (CACHE == null) {
+            return builder.get();
+        }
+        LikeMatcher matcher = (LikeMatcher) CACHE.get(key);
+        if (matcher == null) {
+            matcher = builder.get();
+            CACHE.put(key, matcher);
+        }
+        return matcher;
+    }
+
+    /** Empties the cache */
+    public static void clear() {
+        if (CACHE != null) {
+            CACHE.clear();
+        }
+    }
+}
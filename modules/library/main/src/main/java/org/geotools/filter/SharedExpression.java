@@ -0,0 +1,153 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import java.util.Arrays;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+
+/**
+ * An expression occurring several times in a set of filters evaluated against the same objects,
+ * e.g. the rule filters of a feature type style. Within an evaluation pass, delimited by {@link
+ * FilterCompiler#beginEvaluation(org.opengis.filter.Filter[])} and {@link
+ * FilterCompiler#endEvaluation(org.opengis.filter.Filter[])}, the value is computed once and then
+ * reused by all the filters. Outside of a pass the expression is evaluated every time, as the
+ * same object might be evaluated again with different values (e.g., a feature instance reused by
+ * a reader).
+ *
+ * <p>The cache is meant to be used by one thread at a time.
+ *
+ * @author GeoTools
+ * @see FilterCompiler#compile(org.opengis.filter.Filter[],
+ *     org.opengis.feature.simple.SimpleFeatureType)
+ */
+class SharedExpression implements Expression {
+
+    /** The cached values of all the shared expressions of a set of filters */
+    static class Values {
+
+        /** True during an evaluation pass */
+        boolean open;
+
+        /** The object evaluated in the current pass */
+        Object object;
+
+        final Object[] values;
+
+        /** The target class of each cached value, null if not computed yet */
+        final Class<?>[] targets;
+
+        Values(int size) {
+            this.values = new Object[size];
+            this.targets = new Class<?>[size];
+        }
+
+        /** Starts a new evaluation pass, forgetting the values computed so far */
+        void begin() {
+            clear();
+            open = true;
+        }
+
+        /** Ends the evaluation pass, releasing the evaluated object and the cached values */
+        void end() {
+            clear();
+            open = false;
+        }
+
+        private void clear() {
+            Arrays.fill(targets, null);
+            Arrays.fill(values, null);
+            object = null;
+        }
+
+        Object get(Object object, int slot, Class<?> target, Expression expression) {
+            if (!open) {
+                return evaluate(object, target, expression);
+            }
+            if (this.object != object) {
+                clear();
+                this.object = object;
+            }
+            Class<?> key = target == null ? Object.class : target;
+            if (targets[slot] == key) {
+                return values[slot];
+            }
+            Object value = evaluate(object, target, expression);
+            // a nested expression might have been evaluated against another object meanwhile
+            if (open && this.object == object) {
+                values[slot] = value;
+                targets[slot] = key;
+            }
+            return value;
+        }
+
+        private static Object evaluate(Object object, Class<?> target, Expression expression) {
+            return target == null
+                    ? expression.evaluate(object)
+                    : expression.evaluate(object, target);
+        }
+    }
+
+    final Expression expression;
+
+    final Values values;
+
+    final int slot;
+
+    SharedExpression(Expression expression, Values values, int slot) {
+        this.expression = expression;
+        this.values = values;
+        this.slot = slot;
+    }
+
+    /** The expression whose values are cached */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    @Override
+    public Object evaluate(Object object) {
+        return values.get(object, slot, null, expression);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T evaluate(Object object, Class<T> context) {
+        return (T) values.get(object, slot, context, expression);
+    }
+
+    @Override
+    public Object accept(ExpressionVisitor visitor, Object extraData) {
+        return expression.accept(visitor, extraData);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SharedExpression
+                && expression.equals(((SharedExpression) obj).expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return expression.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.geotools.filter.expression;
 
+import org.geotools.filter.Filters;
 import org.geotools.util.Converters;
 import org.opengis.filter.expression.Expression;
 
@@ -27,6 +28,9 @@ import org.opengis.filter.expression.Expression;
  */
 public abstract class ExpressionAbstract implements Expression {
 
+    /** Set by {@link #freeze()}, the expression cannot be modified afterwards */
+    private boolean frozen;
+
     /**
      * Subclass should override, default implementation returns null.
      *
@@ -44,4 +48,55 @@ public abstract class ExpressionAbstract implements Expression {
     public <T> T evaluate(Object object, Class<T> context) {
         return Converters.convert(evaluate(object), context);
     }
+
+    /**
+     * Makes this expression immutable, along with the expressions it contains, so that it can be
+     * safely shared among threads. Once frozen, the setters throw an {@link
+     * UnsupportedOperationException}.
+     *
+     * <p>The tree is checked before being frozen: if it contains expressions of implementations
+     * that cannot be frozen, nothing is frozen at all.
+     *
+     * @return true if the whole tree has been frozen, false if it contains expressions of
+     *     implementations that cannot be frozen, and has been left untouched
+     * @see Filters#freeze(Expression)
+     */
+    public boolean freeze() {
+        return freeze(false) && freeze(true);
+    }
+
+    /**
+     * Checks if this expression, and the expressions it contains, can be frozen, freezing them as
+     * well if {@code apply} is true. Subclasses holding other expressions must override to visit
+     * them too, see {@link Filters#freeze(Expression, boolean)}.
+     *
+     * <p>Returns false unless the exact class of the expression is listed by {@link
+     * Filters#isFreezable(Class)}.
+     *
+     * @param apply false to just check the tree, true to freeze it
+     * @return true if the whole tree can be frozen
+     */
+    public boolean freeze(boolean apply) {
+        if (!Filters.isFreezable(getClass())) {
+            return false;
+        }
+        if (apply) {
+            frozen = true;
+        }
+        return true;
+    }
+
+    /** Returns true if this expression has been frozen, and cannot be modified anymore */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /** To be called by the setters, throws an exception if the expression has been frozen */
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException(
+                    "This expression is immutable as it may be shared, "
+                            + "use a DuplicatingFilterVisitor to get a modifiable copy");
+        }
+    }
 }
@@ -26,6 +26,7 @@ import java.util.logging.Level;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.util.NullProgressListener;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.visitor.ApproximateQuantileListVisitor;
 import org.geotools.feature.visitor.CalcResult;
 import org.geotools.feature.visitor.FeatureCalc;
 import org.opengis.filter.capability.FunctionName;
@@ -45,8 +46,20 @@ public abstract class AbstractQuantityClassificationFunction extends Classificat
      */
     protected abstract FeatureCalc getListVisitor();
 
+    /**
+     * Returns a visitor estimating the bins in a single pass and bounded memory, used instead of
+     * the {@link #getListVisitor() list visitor} when not null. The estimated bins only contain the
+     * bounds of each class. The default implementation returns null, the bins are computed exactly.
+     */
+    protected ApproximateQuantileListVisitor getApproximateListVisitor() {
+        return null;
+    }
+
     private Object calculate(SimpleFeatureCollection featureCollection) {
-        FeatureCalc quantityVisitor = getListVisitor();
+        FeatureCalc quantityVisitor = getApproximateListVisitor();
+        if (quantityVisitor == null) {
+            quantityVisitor = getListVisitor();
+        }
         if (progress == null) progress = new NullProgressListener();
         try {
             featureCollection.accepts(quantityVisitor, progress);
@@ -72,11 +85,28 @@ public abstract class AbstractQuantityClassificationFunction extends Classificat
 
         if ((globalMin instanceof Number) && (globalMax instanceof Number)) {
             return calculateNumerical(bin, globalMin, globalMax);
+        } else if (quantityVisitor instanceof ApproximateQuantileListVisitor) {
+            // the bins only contain their bounds, cannot enumerate the values
+            return calculateRanges(bin);
         } else {
             return calculateNonNumerical(bin, globalMin, globalMax);
         }
     }
 
+    /**
+     * Builds the classes from bins only containing their bounds, such as the ones estimated by an
+     * {@link ApproximateQuantileListVisitor}
+     */
+    static RangedClassifier calculateRanges(List[] bin) {
+        Comparable[] localMin = new Comparable[bin.length];
+        Comparable[] localMax = new Comparable[bin.length];
+        for (int i = 0; i < bin.length; i++) {
+            localMin[i] = (Comparable) bin[i].get(0);
+            localMax[i] = (Comparable) bin[i].get(bin[i].size() - 1);
+        }
+        return new RangedClassifier(localMin, localMax);
+    }
+
     private Object calculateNumerical(List[] bin, Comparable globalMin, Comparable globalMax) {
         if (globalMax.equals(globalMin)) {
             return new RangedClassifier(new Comparable[] {globalMin}, new Comparable[] {globalMax});
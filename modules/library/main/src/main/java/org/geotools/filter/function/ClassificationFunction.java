@@ -118,6 +118,27 @@ public abstract class ClassificationFunction extends DefaultExpression
         getParameters().set(1, expression);
     }
 
+    /**
+     * Returns the optional accuracy hint found at the given parameter index, a relative error
+     * between 0 and 1 allowing the classes to be computed approximately, in bounded memory. Returns
+     * 0 if the parameter is missing, meaning the classes should be computed exactly.
+     */
+    protected double getAccuracy(int index) {
+        List<org.opengis.filter.expression.Expression> params = getParameters();
+        if (params == null || params.size() <= index) {
+            return 0;
+        }
+        Double accuracy = params.get(index).evaluate(null, Double.class);
+        if (accuracy == null || accuracy <= 0) {
+            return 0;
+        }
+        if (accuracy >= 1) {
+            throw new IllegalArgumentException(
+                    "Accuracy should be a relative error between 0 and 1, but was " + accuracy);
+        }
+        return accuracy;
+    }
+
     /** Returns the implementation hints. The default implementation returns an empty map. */
     public Map<RenderingHints.Key, ?> getImplementationHints() {
         return Collections.emptyMap();
@@ -26,6 +26,8 @@ import java.util.logging.Level;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.util.NullProgressListener;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.visitor.ApproximateQuantileListVisitor;
+import org.geotools.feature.visitor.CalcResult;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
@@ -36,6 +38,11 @@ import org.opengis.filter.capability.FunctionName;
 /**
  * Classification function for breaking a feature collection into edible chunks of "equal" size.
  *
+ * <p>The optional third parameter is an accuracy hint (e.g. 0.01 for 1%). When provided, the
+ * collection is visited once by an {@link ApproximateQuantileListVisitor}, which finds the exact
+ * minimum and maximum values in the same pass, and for non numeric values the classes are
+ * approximated by quantiles of the values, instead of collecting all the distinct ones.
+ *
  * @author James Macgill
  * @author Cory Horner, Refractions Research Inc.
  */
@@ -46,7 +53,8 @@ public class EqualIntervalFunction extends ClassificationFunction {
                     "EqualInterval",
                     RangedClassifier.class,
                     parameter("value", Double.class),
-                    parameter("classes", Integer.class));
+                    parameter("classes", Integer.class),
+                    parameter("accuracy", Double.class, 0, 1));
 
     public EqualIntervalFunction() {
         super(NAME);
@@ -57,6 +65,10 @@ public class EqualIntervalFunction extends ClassificationFunction {
         Comparable globalMin;
         Comparable globalMax;
         try {
+            double accuracy = getAccuracy(2);
+            if (accuracy > 0) {
+                return calculateApproximate(classNum, accuracy, featureCollection);
+            }
             MinVisitor minVisit = new MinVisitor(getParameters().get(0));
             if (progress == null) progress = new NullProgressListener();
             featureCollection.accepts(minVisit, progress);
@@ -88,6 +100,26 @@ public class EqualIntervalFunction extends ClassificationFunction {
         }
     }
 
+    private RangedClassifier calculateApproximate(
+            int classNum, double accuracy, FeatureCollection<?, ?> featureCollection)
+            throws IOException {
+        ApproximateQuantileListVisitor visitor =
+                new ApproximateQuantileListVisitor(getParameters().get(0), classNum, accuracy);
+        if (progress == null) progress = new NullProgressListener();
+        featureCollection.accepts(visitor, progress);
+        if (progress.isCanceled()) return null;
+        Comparable globalMin = (Comparable) visitor.getMin();
+        Comparable globalMax = (Comparable) visitor.getMax();
+        if ((globalMin instanceof Number) && (globalMax instanceof Number)) {
+            return calculateNumerical(classNum, globalMin, globalMax);
+        }
+        CalcResult result = visitor.getResult();
+        if (result == CalcResult.NULL_RESULT) {
+            return null;
+        }
+        return AbstractQuantityClassificationFunction.calculateRanges((List[]) result.getValue());
+    }
+
     private RangedClassifier calculateNumerical(
             int classNum, Comparable globalMin, Comparable globalMax) {
         // handle constant value case
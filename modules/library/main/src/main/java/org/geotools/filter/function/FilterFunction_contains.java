@@ -22,6 +22,7 @@ import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
 import org.geotools.filter.FunctionExpressionImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.LiteralGeometryCache;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.capability.FunctionName;
 
@@ -46,6 +47,9 @@ public class FilterFunction_contains extends FunctionExpressionImpl {
                             "Geometry 2",
                             "The Geometry that will be compared to Geometry 1 for containment"));
 
+    /** The prepared or indexed version of the literal geometry argument, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
+
     public FilterFunction_contains() {
         super(NAME);
     }
@@ -70,6 +74,6 @@ public class FilterFunction_contains extends FunctionExpressionImpl {
                     "Filter Function problem for function contains argument #1 - expected type Geometry");
         }
 
-        return Boolean.valueOf(StaticGeometry.contains(arg0, arg1));
+        return Boolean.valueOf(literalCache.contains(this, arg0, arg1));
     }
 }
@@ -22,6 +22,7 @@ import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
 import org.geotools.filter.FunctionExpressionImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.LiteralGeometryCache;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.capability.FunctionName;
 
@@ -34,6 +35,9 @@ public class FilterFunction_disjoint extends FunctionExpressionImpl {
                     parameter("geometry1", Geometry.class),
                     parameter("geometry2", Geometry.class));
 
+    /** The prepared or indexed version of the literal geometry argument, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
+
     public FilterFunction_disjoint() {
         super(NAME);
     }
@@ -58,6 +62,6 @@ public class FilterFunction_disjoint extends FunctionExpressionImpl {
                     "Filter Function problem for function disjoint argument #1 - expected type Geometry");
         }
 
-        return Boolean.valueOf(StaticGeometry.disjoint(arg0, arg1));
+        return Boolean.valueOf(literalCache.disjoint(this, arg0, arg1));
     }
 }
@@ -22,6 +22,7 @@ import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
 import org.geotools.filter.FunctionExpressionImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.LiteralGeometryCache;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.capability.FunctionName;
 
@@ -34,6 +35,9 @@ public class FilterFunction_distance extends FunctionExpressionImpl {
                     parameter("geometry1", Geometry.class),
                     parameter("geometry2", Geometry.class));
 
+    /** The prepared or indexed version of the literal geometry argument, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
+
     public FilterFunction_distance() {
         super(NAME);
     }
@@ -58,6 +62,6 @@ public class FilterFunction_distance extends FunctionExpressionImpl {
                     "Filter Function problem for function distance argument #1 - expected type Geometry");
         }
 
-        return Double.valueOf(StaticGeometry.distance(arg0, arg1));
+        return Double.valueOf(literalCache.distance(this, arg0, arg1));
     }
 }
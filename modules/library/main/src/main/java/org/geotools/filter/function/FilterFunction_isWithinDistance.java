@@ -22,6 +22,7 @@ import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
 import org.geotools.filter.FunctionExpressionImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.LiteralGeometryCache;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.capability.FunctionName;
 
@@ -35,6 +36,9 @@ public class FilterFunction_isWithinDistance extends FunctionExpressionImpl {
                     parameter("geometry2", Geometry.class),
                     parameter("distance", Double.class));
 
+    /** The prepared or indexed version of the literal geometry argument, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
+
     public FilterFunction_isWithinDistance() {
         super(NAME);
     }
@@ -68,6 +72,6 @@ public class FilterFunction_isWithinDistance extends FunctionExpressionImpl {
                     "Filter Function problem for function isWithinDistance argument #2 - expected type double");
         }
 
-        return Boolean.valueOf(StaticGeometry.isWithinDistance(arg0, arg1, arg2));
+        return Boolean.valueOf(literalCache.isWithinDistance(this, arg0, arg1, arg2));
     }
 }
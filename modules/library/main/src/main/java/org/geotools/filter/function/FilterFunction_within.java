@@ -22,6 +22,7 @@ import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
 import org.geotools.filter.FunctionExpressionImpl;
 import org.geotools.filter.capability.FunctionNameImpl;
+import org.geotools.filter.spatial.LiteralGeometryCache;
 import org.locationtech.jts.geom.Geometry;
 import org.opengis.filter.capability.FunctionName;
 
@@ -34,6 +35,9 @@ public class FilterFunction_within extends FunctionExpressionImpl {
                     parameter("geometry", Geometry.class),
                     parameter("geometry", Geometry.class));
 
+    /** The prepared or indexed version of the literal geometry argument, if any */
+    private final LiteralGeometryCache literalCache = new LiteralGeometryCache();
+
     public FilterFunction_within() {
         super(NAME);
     }
@@ -58,6 +62,6 @@ public class FilterFunction_within extends FunctionExpressionImpl {
                     "Filter Function problem for function within argument #1 - expected type Geometry");
         }
 
-        return Boolean.valueOf(StaticGeometry.within(arg0, arg1));
+        return Boolean.valueOf(literalCache.within(this, arg0, arg1));
     }
 }
@@ -18,6 +18,7 @@ package org.geotools.filter.function;
 
 import static org.geotools.filter.capability.FunctionNameImpl.parameter;
 
+import org.geotools.feature.visitor.ApproximateQuantileListVisitor;
 import org.geotools.feature.visitor.QuantileListVisitor;
 import org.geotools.filter.capability.FunctionNameImpl;
 import org.opengis.filter.capability.FunctionName;
@@ -25,6 +26,10 @@ import org.opengis.filter.capability.FunctionName;
 /**
  * Breaks a SimpleFeatureCollection into classes with an equal number of items in each.
  *
+ * <p>The optional third parameter is an accuracy hint, the rank error allowed for the class breaks
+ * (e.g. 0.01 for 1%). When provided, the breaks are estimated in a single pass and bounded memory
+ * by an {@link ApproximateQuantileListVisitor}, instead of sorting all the values.
+ *
  * @author Cory Horner, Refractions Research Inc.
  */
 public class QuantileFunction extends AbstractQuantityClassificationFunction {
@@ -34,7 +39,8 @@ public class QuantileFunction extends AbstractQuantityClassificationFunction {
                     "Quantile",
                     RangedClassifier.class,
                     parameter("value", Double.class),
-                    parameter("classes", Integer.class));
+                    parameter("classes", Integer.class),
+                    parameter("accuracy", Double.class, 0, 1));
 
     public QuantileFunction() {
         super(NAME);
@@ -44,4 +50,14 @@ public class QuantileFunction extends AbstractQuantityClassificationFunction {
         // use a visitor to find the values in each bin
         return new QuantileListVisitor(getParameters().get(0), getClasses());
     }
+
+    @Override
+    protected ApproximateQuantileListVisitor getApproximateListVisitor() {
+        double accuracy = getAccuracy(2);
+        if (accuracy > 0) {
+            return new ApproximateQuantileListVisitor(
+                    getParameters().get(0), getClasses(), accuracy);
+        }
+        return null;
+    }
 }
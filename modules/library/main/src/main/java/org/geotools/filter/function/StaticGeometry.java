@@ -20,6 +20,7 @@ package org.geotools.filter.function;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.PatternCache;
 import org.locationtech.jts.algorithm.MinimumBoundingCircle;
 import org.locationtech.jts.algorithm.MinimumDiameter;
 import org.locationtech.jts.geom.Geometry;
@@ -478,15 +479,15 @@ public class StaticGeometry {
 
     public static boolean strMatches(String s1, String s2) {
         if (s1 == null || s2 == null) return false;
-        return s1.matches(s2);
+        return PatternCache.compile(s2).matcher(s1).matches();
     }
 
     public static String strReplace(String s1, String s2, String s3, Boolean bAll) {
         if (s1 == null || s2 == null || s3 == null) return null;
         if (bAll != null && bAll) {
-            return s1.replaceAll(s2, s3);
+            return PatternCache.compile(s2).matcher(s1).replaceAll(s3);
         } else {
-            return s1.replaceFirst(s2, s3);
+            return PatternCache.compile(s2).matcher(s1).replaceFirst(s3);
         }
     }
 
@@ -616,7 +617,7 @@ public class StaticGeometry {
 
     public static boolean isLike(String s1, String s2) {
         if (s1 == null || s2 == null) return false;
-        return s1.matches(s2); // this sucks, but hay...
+        return PatternCache.compile(s2).matcher(s1).matches(); // this sucks, but hay...
     }
 
     public static boolean isNull(Object o) {
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.geotools.filter.PatternCache;
 import org.geotools.filter.capability.FunctionNameImpl;
 import org.geotools.util.Converters;
 import org.opengis.filter.capability.FunctionName;
@@ -169,7 +170,7 @@ public class StringTemplateFunction implements Function {
             if (ps == null) {
                 return null;
             } else {
-                return Pattern.compile(ps);
+                return PatternCache.compile(ps);
             }
         }
     }
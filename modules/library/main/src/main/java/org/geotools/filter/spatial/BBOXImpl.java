@@ -144,6 +144,7 @@ public class BBOXImpl extends AbstractPreparedGeometryFilter implements BBOX {
     }
 
     public void setExpression1(Expression expression) {
+        checkNotFrozen();
         // BBOX filters can be also created setting the expressions directly, and some
         // old code sets the property name the other way around, try to handle this silliness
         updateMinMaxFields(expression);
@@ -151,6 +152,7 @@ public class BBOXImpl extends AbstractPreparedGeometryFilter implements BBOX {
     }
 
     public void setExpression2(Expression expression) {
+        checkNotFrozen();
         // BBOX filters can be also created setting the expressions directly, and some
         // old code sets the property name the other way around, try to handle this silliness
         updateMinMaxFields(expression);
@@ -37,7 +37,7 @@ public class BeyondImpl extends CartesianDistanceFilter implements Beyond {
         if (left == null || right == null) {
             return false;
         }
-        return !left.isWithinDistance(right, getDistance());
+        return !isWithinDistance(left, right);
     }
 
     public Object accept(FilterVisitor visitor, Object extraData) {
@@ -34,7 +34,7 @@ public class DWithinImpl extends CartesianDistanceFilter implements DWithin {
 
     @Override
     public boolean evaluateInternal(Geometry left, Geometry right) {
-        return left.isWithinDistance(right, getDistance());
+        return isWithinDistance(left, right);
     }
 
     public Object accept(FilterVisitor visitor, Object extraData) {
@@ -0,0 +1,78 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.spatial;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+
+/**
+ * Computes the distance between a fixed geometry and many others, indexing the segments of the
+ * fixed geometry once. Compared to {@link Geometry#distance(Geometry)}, that compares all the
+ * segments of the two geometries, this pays off as soon as the fixed geometry has more than a few
+ * vertices.
+ *
+ * <p>The facet distance is the distance between the geometries only when they do not intersect,
+ * hence the intersection is checked first, with a prepared version of the fixed geometry.
+ *
+ * @author GeoTools
+ */
+public class IndexedDistance {
+
+    final PreparedGeometry prepared;
+
+    final IndexedFacetDistance facetDistance;
+
+    public IndexedDistance(Geometry geometry) {
+        this(PreparedGeometryFactory.prepare(geometry));
+    }
+
+    public IndexedDistance(PreparedGeometry prepared) {
+        this.prepared = prepared;
+        this.facetDistance = new IndexedFacetDistance(prepared.getGeometry());
+    }
+
+    /** The fixed geometry */
+    public Geometry getGeometry() {
+        return prepared.getGeometry();
+    }
+
+    /** Returns the same as {@link Geometry#distance(Geometry)} on the fixed geometry */
+    public double distance(Geometry other) {
+        Geometry geometry = prepared.getGeometry();
+        if (geometry.isEmpty() || other.isEmpty()) {
+            return geometry.distance(other);
+        }
+        if (prepared.intersects(other)) {
+            return 0;
+        }
+        return facetDistance.distance(other);
+    }
+
+    /** Returns the same as {@link Geometry#isWithinDistance(Geometry, double)} on the fixed one */
+    public boolean isWithinDistance(Geometry other, double distance) {
+        Geometry geometry = prepared.getGeometry();
+        if (geometry.isEmpty() || other.isEmpty()) {
+            return geometry.isWithinDistance(other, distance);
+        }
+        if (geometry.getEnvelopeInternal().distance(other.getEnvelopeInternal()) > distance) {
+            return false;
+        }
+        return distance(other) <= distance;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.spatial;
+
+import org.geotools.filter.function.StaticGeometry;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+
+/**
+ * Keeps the prepared and indexed versions of the literal geometry used by a filter or function, so
+ * that they are built once and reused for all the evaluations. The cache is keyed by the identity
+ * of the literal value: a geometry is considered only if it is the very value of a {@link Literal}
+ * expression, so that geometries that change at each evaluation are never prepared.
+ *
+ * <p>The spatial functions evaluate through the methods named after them, taking the function and
+ * its evaluated arguments, which use the cached structures when an argument is a literal and fall
+ * back on {@link StaticGeometry} otherwise.
+ *
+ * <p>Safe for concurrent use, at worst the same structure is built more than once.
+ *
+ * @author GeoTools
+ */
+public class LiteralGeometryCache {
+
+    static final class Entry {
+        final Geometry geometry;
+
+        volatile PreparedGeometry prepared;
+
+        volatile IndexedDistance distance;
+
+        Entry(Geometry geometry) {
+            this.geometry = geometry;
+        }
+    }
+
+    private volatile Entry entry;
+
+    /**
+     * Returns the prepared geometry, or null if the geometry is not the value of the expression, or
+     * the expression is not a literal
+     */
+    public PreparedGeometry getPrepared(Expression expression, Geometry geometry) {
+        Entry e = getEntry(expression, geometry);
+        if (e == null) {
+            return null;
+        }
+        PreparedGeometry prepared = e.prepared;
+        if (prepared == null) {
+            prepared = PreparedGeometryFactory.prepare(geometry);
+            e.prepared = prepared;
+        }
+        return prepared;
+    }
+
+    /**
+     * Returns the indexed distance calculator for the geometry, or null if the geometry is not the
+     * value of the expression, or the expression is not a literal
+     */
+    public IndexedDistance getIndexedDistance(Expression expression, Geometry geometry) {
+        Entry e = getEntry(expression, geometry);
+        if (e == null) {
+            return null;
+        }
+        IndexedDistance distance = e.distance;
+        if (distance == null) {
+            distance = new IndexedDistance(getPrepared(expression, geometry));
+            e.distance = distance;
+        }
+        return distance;
+    }
+
+    /** Same as {@link StaticGeometry#intersects(Geometry, Geometry)} */
+    public boolean intersects(Function function, Geometry arg0, Geometry arg1) {
+        if (arg0 != null && arg1 != null) {
+            PreparedGeometry cached = getPrepared(getParameter(function, 1), arg1);
+            if (cached != null) {
+                return cached.intersects(arg0);
+            }
+            cached = getPrepared(getParameter(function, 0), arg0);
+            if (cached != null) {
+                return cached.intersects(arg1);
+            }
+        }
+        return StaticGeometry.intersects(arg0, arg1);
+    }
+
+    /** Same as {@link StaticGeometry#disjoint(Geometry, Geometry)} */
+    public boolean disjoint(Function function, Geometry arg0, Geometry arg1) {
+        if (arg0 != null && arg1 != null) {
+            PreparedGeometry cached = getPrepared(getParameter(function, 1), arg1);
+            if (cached != null) {
+                return cached.disjoint(arg0);
+            }
+            cached = getPrepared(getParameter(function, 0), arg0);
+            if (cached != null) {
+                return cached.disjoint(arg1);
+            }
+        }
+        return StaticGeometry.disjoint(arg0, arg1);
+    }
+
+    /** Same as {@link StaticGeometry#contains(Geometry, Geometry)} */
+    public boolean contains(Function function, Geometry arg0, Geometry arg1) {
+        if (arg0 != null && arg1 != null) {
+            PreparedGeometry cached = getPrepared(getParameter(function, 0), arg0);
+            if (cached != null) {
+                return cached.contains(arg1);
+            }
+        }
+        return StaticGeometry.contains(arg0, arg1);
+    }
+
+    /** Same as {@link StaticGeometry#within(Geometry, Geometry)} */
+    public boolean within(Function function, Geometry arg0, Geometry arg1) {
+        if (arg0 != null && arg1 != null) {
+            // arg0 is within arg1 if arg1 contains arg0
+            PreparedGeometry cached = getPrepared(getParameter(function, 1), arg1);
+            if (cached != null) {
+                return cached.contains(arg0);
+            }
+        }
+        return StaticGeometry.within(arg0, arg1);
+    }
+
+    /** Same as {@link StaticGeometry#distance(Geometry, Geometry)} */
+    public double distance(Function function, Geometry arg0, Geometry arg1) {
+        if (arg0 != null && arg1 != null) {
+            IndexedDistance cached = getIndexedDistance(getParameter(function, 1), arg1);
+            if (cached != null) {
+                return cached.distance(arg0);
+            }
+            cached = getIndexedDistance(getParameter(function, 0), arg0);
+            if (cached != null) {
+                return cached.distance(arg1);
+            }
+        }
+        return StaticGeometry.distance(arg0, arg1);
+    }
+
+    /** Same as {@link StaticGeometry#isWithinDistance(Geometry, Geometry, Double)} */
+    public boolean isWithinDistance(
+            Function function, Geometry arg0, Geometry arg1, double distance) {
+        if (arg0 != null && arg1 != null) {
+            IndexedDistance cached = getIndexedDistance(getParameter(function, 1), arg1);
+            if (cached != null) {
+                return cached.isWithinDistance(arg0, distance);
+            }
+            cached = getIndexedDistance(getParameter(function, 0), arg0);
+            if (cached != null) {
+                return cached.isWithinDistance(arg1, distance);
+            }
+        }
+        return StaticGeometry.isWithinDistance(arg0, arg1, distance);
+    }
+
+    private static Expression getParameter(Function function, int index) {
+        return function.getParameters().get(index);
+    }
+
+    private Entry getEntry(Expression expression, Geometry geometry) {
+        if (geometry == null
+                || !(expression instanceof Literal)
+                || ((Literal) expression).getValue() != geometry) {
+            return null;
+        }
+        Entry e = entry;
+        if (e == null || e.geometry != geometry) {
+            e = new Entry(geometry);
+            entry = e;
+        }
+        return e;
+    }
+}
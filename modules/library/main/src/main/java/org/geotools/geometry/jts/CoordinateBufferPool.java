@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+/**
+ * A small pool of scratch coordinate arrays, one per thread, used to decimate and transform
+ * coordinates while painting without allocating new arrays for each feature.
+ *
+ * <p>Buffers are borrowed and given back explicitly. A buffer that is never given back is simply
+ * garbage collected, the pool will allocate a new one on the next request. Very large buffers are
+ * not retained, to avoid pinning memory after painting a single huge geometry.
+ */
+final class CoordinateBufferPool {
+
+    /** Maximum number of idle buffers kept per thread */
+    static final int MAX_IDLE_BUFFERS = 8;
+
+    /** Buffers larger than this (in doubles) are not retained in the pool */
+    static final int MAX_RETAINED_LENGTH = 1 << 20;
+
+    /** Smallest buffer ever allocated, in doubles */
+    static final int MIN_LENGTH = 256;
+
+    private static final ThreadLocal<CoordinateBufferPool> POOLS =
+            ThreadLocal.withInitial(CoordinateBufferPool::new);
+
+    /** Returns the pool associated to the current thread */
+    static CoordinateBufferPool get() {
+        return POOLS.get();
+    }
+
+    private final double[][] idle = new double[MAX_IDLE_BUFFERS][];
+
+    private int idleCount;
+
+    private long allocations;
+
+    /** Returns a buffer whose length is at least the requested one */
+    double[] borrow(int length) {
+        // look for the smallest idle buffer that can satisfy the request
+        int best = -1;
+        for (int i = 0; i < idleCount; i++) {
+            double[] candidate = idle[i];
+            if (candidate.length >= length
+                    && (best == -1 || candidate.length < idle[best].length)) {
+                best = i;
+            }
+        }
+        if (best != -1) {
+            double[] result = idle[best];
+            idle[best] = idle[--idleCount];
+            idle[idleCount] = null;
+            return result;
+        }
+
+        allocations++;
+        int size = MIN_LENGTH;
+        while (size < length && size > 0) {
+            size <<= 1;
+        }
+        return new double[size > 0 ? size : length];
+    }
+
+    /** Gives back a buffer previously obtained via {@link #borrow(int)} */
+    void release(double[] buffer) {
+        if (buffer == null || buffer.length > MAX_RETAINED_LENGTH) {
+            return;
+        }
+        if (idleCount < MAX_IDLE_BUFFERS) {
+            idle[idleCount++] = buffer;
+        } else {
+            // replace the smallest idle buffer, bigger ones are more expensive to re-allocate
+            int smallest = 0;
+            for (int i = 1; i < idleCount; i++) {
+                if (idle[i].length < idle[smallest].length) {
+                    smallest = i;
+                }
+            }
+            if (idle[smallest].length < buffer.length) {
+                idle[smallest] = buffer;
+            }
+        }
+    }
+
+    /** Number of buffers this pool had to allocate so far */
+    long getAllocations() {
+        return allocations;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * A path iterator that decimates and transforms the coordinates of a linear or polygonal geometry
+ * in a single streaming pass, without modifying nor copying the geometry. The decimation is the
+ * same performed by {@link Decimator#decimateTransformGeneralize(Geometry, MathTransform)}, but the
+ * coordinates of each component are decimated into a scratch buffer taken from a per thread pool,
+ * so iterating does not allocate coordinate arrays.
+ *
+ * <p>Only affine transformations are supported, see {@link #canIterate(Geometry, MathTransform)}.
+ * The iterator can be re-used by calling {@link #init(Geometry, AffineTransform, double, double)}.
+ *
+ * @see LiteShape2#createStreaming(Geometry, MathTransform, Decimator)
+ */
+public final class DecimatingPathIterator extends AbstractLiteIterator {
+
+    /** The components being iterated */
+    private final List<LineString> components = new ArrayList<>();
+
+    /** Index of the current component */
+    private int component;
+
+    /** Decimated and transformed coordinates of the current component */
+    private double[] buffer;
+
+    /** Number of coordinates in the buffer */
+    private int count;
+
+    /** Current coordinate in the buffer (equal to count when closing a ring) */
+    private int index;
+
+    /** Whether the current component is a ring, and needs to be closed */
+    private boolean closed;
+
+    private int windingRule;
+
+    private double spanx;
+
+    private double spany;
+
+    private double m00, m01, m02, m10, m11, m12;
+
+    /** Creates an empty iterator, to be initialized with {@link #init} */
+    public DecimatingPathIterator() {
+        component = 0;
+    }
+
+    /**
+     * Creates an iterator over the specified geometry
+     *
+     * @param geometry The geometry to iterate over
+     * @param transform The transformation to apply to the coordinates, or null
+     * @param spanx The decimation distance along the x axis, in source units, or -1 to disable
+     *     decimation
+     * @param spany The decimation distance along the y axis, in source units, or -1 to disable
+     *     decimation
+     */
+    public DecimatingPathIterator(
+            Geometry geometry, AffineTransform transform, double spanx, double spany) {
+        init(geometry, transform, spanx, spany);
+    }
+
+    /**
+     * Returns true if the geometry and the transformation can be handled by this iterator, that is,
+     * the geometry is made of (multi) linestrings and polygons without curves, and the transform is
+     * either missing or affine
+     */
+    public static boolean canIterate(Geometry geometry, MathTransform transform) {
+        if (transform != null && !(transform instanceof AffineTransform)) {
+            return false;
+        }
+        return isSupported(geometry);
+    }
+
+    private static boolean isSupported(Geometry geometry) {
+        if (geometry == null || geometry instanceof CurvedGeometry) {
+            return false;
+        } else if (geometry instanceof LineString) {
+            return true;
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            if (!isSupported(polygon.getExteriorRing())) {
+                return false;
+            }
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                if (!isSupported(polygon.getInteriorRingN(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                if (!isSupported(geometry.getGeometryN(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prepares the iterator to iterate over the specified geometry
+     *
+     * @param geometry The geometry to iterate over
+     * @param transform The transformation to apply to the coordinates, or null
+     * @param spanx The decimation distance along the x axis, in source units, or -1 to disable
+     *     decimation
+     * @param spany The decimation distance along the y axis, in source units, or -1 to disable
+     *     decimation
+     */
+    public void init(Geometry geometry, AffineTransform transform, double spanx, double spany) {
+        this.spanx = spanx;
+        this.spany = spany;
+        if (transform == null) {
+            m00 = m11 = 1;
+            m01 = m02 = m10 = m12 = 0;
+        } else {
+            m00 = transform.getScaleX();
+            m01 = transform.getShearX();
+            m02 = transform.getTranslateX();
+            m10 = transform.getShearY();
+            m11 = transform.getScaleY();
+            m12 = transform.getTranslateY();
+        }
+        windingRule = geometry instanceof Polygon ? WIND_EVEN_ODD : WIND_NON_ZERO;
+
+        releaseBuffer();
+        components.clear();
+        if (geometry != null) {
+            collect(geometry);
+        }
+        component = -1;
+        nextComponent();
+    }
+
+    private void collect(Geometry geometry) {
+        if (geometry.isEmpty()) {
+            return;
+        } else if (geometry instanceof LineString) {
+            components.add((LineString) geometry);
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            components.add(polygon.getExteriorRing());
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                components.add(polygon.getInteriorRingN(i));
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                collect(geometry.getGeometryN(i));
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported geometry type " + geometry.getGeometryType());
+        }
+    }
+
+    /** Moves to the next non empty component, decimating and transforming it */
+    private void nextComponent() {
+        count = 0;
+        while (count == 0 && ++component < components.size()) {
+            LineString ls = components.get(component);
+            CoordinateSequence cs = ls.getCoordinateSequence();
+            int ncoords = cs.size();
+            if (ncoords == 0) {
+                continue;
+            }
+
+            // copy the x/y coordinates into the scratch buffer
+            if (buffer == null || buffer.length < ncoords * 2) {
+                releaseBuffer();
+                buffer = CoordinateBufferPool.get().borrow(ncoords * 2);
+            }
+            if (cs instanceof LiteCoordinateSequence && cs.getDimension() == 2) {
+                System.arraycopy(
+                        ((LiteCoordinateSequence) cs).getArray(), 0, buffer, 0, ncoords * 2);
+            } else {
+                for (int i = 0; i < ncoords; i++) {
+                    buffer[i * 2] = cs.getX(i);
+                    buffer[i * 2 + 1] = cs.getY(i);
+                }
+            }
+
+            // decimate in source space, same as the Decimator does
+            closed = ls instanceof LinearRing;
+            if (ncoords > 1 && (spanx != -1 || spany != -1)) {
+                boolean loop = closed;
+                if (!loop) {
+                    int last = (ncoords - 1) * 2;
+                    loop =
+                            Math.abs(buffer[0] - buffer[last]) < Decimator.EPS
+                                    && Math.abs(buffer[1] - buffer[last + 1]) < Decimator.EPS;
+                }
+                count = Decimator.generalize(buffer, ncoords, loop, spanx, spany);
+            } else {
+                count = ncoords;
+            }
+
+            // transform
+            for (int i = 0; i < count * 2; i += 2) {
+                double x = buffer[i];
+                double y = buffer[i + 1];
+                buffer[i] = m00 * x + m01 * y + m02;
+                buffer[i + 1] = m10 * x + m11 * y + m12;
+            }
+        }
+        index = 0;
+        if (component >= components.size()) {
+            releaseBuffer();
+        }
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null) {
+            CoordinateBufferPool.get().release(buffer);
+            buffer = null;
+        }
+    }
+
+    @Override
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    @Override
+    public boolean isDone() {
+        return component >= components.size();
+    }
+
+    @Override
+    public void next() {
+        index++;
+        if (index > count || (index == count && !closed)) {
+            nextComponent();
+        }
+    }
+
+    @Override
+    public int currentSegment(double[] coords) {
+        if (index == count) {
+            return SEG_CLOSE;
+        }
+        coords[0] = buffer[index * 2];
+        coords[1] = buffer[index * 2 + 1];
+        return index == 0 ? SEG_MOVETO : SEG_LINETO;
+    }
+}
@@ -62,7 +62,7 @@ public final class Decimator {
         DP_THRESHOLD = threshold;
     }
 
-    private static final double EPS = 1e-9;
+    static final double EPS = 1e-9;
 
     private double spanx = -1;
 
@@ -489,6 +489,36 @@ public final class Decimator {
             return;
         }
 
+        int actualCoords = generalize(coords, ncoords, ring, spanx, spany);
+
+        // DO THE XFORM
+        if (transform != null && !transform.isIdentity()) {
+            transform.transform(coords, 0, coords, 0, actualCoords);
+        }
+
+        // stick back into the coordinate sequence
+        if (actualCoords * 2 < coords.length) {
+            double[] seqDouble = new double[2 * actualCoords];
+            System.arraycopy(coords, 0, seqDouble, 0, actualCoords * 2);
+            seq.setArray(seqDouble, 2);
+        } else {
+            seq.setArray(coords, 2);
+        }
+    }
+
+    /**
+     * Generalizes in place a packed array of x/y coordinates, returning the number of coordinates
+     * retained. The first and last coordinates are always preserved, rings are never collapsed
+     * below three coordinates (plus the closing one).
+     *
+     * @param coords The x/y coordinates, will be modified in place
+     * @param ncoords The number of coordinates in the array
+     * @param ring Whether the coordinates form a ring
+     * @param spanx The generalization distance along the x axis
+     * @param spany The generalization distance along the y axis
+     * @return The number of coordinates left in the array after generalization
+     */
+    static int generalize(double[] coords, int ncoords, boolean ring, double spanx, double spany) {
         // generalize, use the heavier algorithm for longer lines
         int actualCoords = spanBasedGeneralize(ncoords, coords, spanx, spany);
         if (DP_THRESHOLD > 0 && actualCoords > DP_THRESHOLD) {
@@ -499,14 +529,14 @@ public final class Decimator {
 
         // handle rings
         if (ring && actualCoords <= 3) {
-            if (coords.length > 6) {
+            if (ncoords > 3) {
                 // normal rings
                 coords[2] = coords[2];
                 coords[3] = coords[3];
                 coords[4] = coords[4];
                 coords[5] = coords[5];
                 actualCoords = 3;
-            } else if (coords.length > 4) {
+            } else if (ncoords > 2) {
                 // invalid rings, they do A-B-A, that is, two overlapping lines
                 coords[2] = coords[2];
                 coords[3] = coords[3];
@@ -519,22 +549,11 @@ public final class Decimator {
         coords[actualCoords * 2 + 1] = coords[(ncoords - 1) * 2 + 1];
         actualCoords++;
 
-        // DO THE XFORM
-        if (transform != null && !transform.isIdentity()) {
-            transform.transform(coords, 0, coords, 0, actualCoords);
-        }
-
-        // stick back into the coordinate sequence
-        if (actualCoords * 2 < coords.length) {
-            double[] seqDouble = new double[2 * actualCoords];
-            System.arraycopy(coords, 0, seqDouble, 0, actualCoords * 2);
-            seq.setArray(seqDouble, 2);
-        } else {
-            seq.setArray(coords, 2);
-        }
+        return actualCoords;
     }
 
-    private int spanBasedGeneralize(int ncoords, double[] coords, double spanx, double spany) {
+    private static int spanBasedGeneralize(
+            int ncoords, double[] coords, double spanx, double spany) {
         int actualCoords = 1;
         double lastX = coords[0];
         double lastY = coords[1];
@@ -553,7 +572,7 @@ public final class Decimator {
         return actualCoords;
     }
 
-    private int dpBasedGeneralize(int ncoords, double[] coords, double maxDistance) {
+    private static int dpBasedGeneralize(int ncoords, double[] coords, double maxDistance) {
         while (coords[0] == coords[(ncoords - 1) * 2]
                 && coords[1] == coords[2 * ncoords - 1]
                 && ncoords > 0) {
@@ -578,7 +597,7 @@ public final class Decimator {
         return actualCoords;
     }
 
-    private void dpSimplifySection(
+    private static void dpSimplifySection(
             int first, int last, double[] coords, double maxDistanceSquared) {
         if (last - 1 <= first) {
             return;
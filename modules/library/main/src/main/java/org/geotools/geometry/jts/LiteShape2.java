@@ -52,7 +52,7 @@ import org.opengis.referencing.operation.TransformException;
 public final class LiteShape2 implements Shape, Cloneable {
 
     /** The wrapped JTS geometry */
-    private Geometry geometry;
+    private volatile Geometry geometry;
 
     private boolean generalize = false;
 
@@ -63,6 +63,17 @@ public final class LiteShape2 implements Shape, Cloneable {
     /** transform from dataspace to screenspace */
     private MathTransform mathTransform;
 
+    /**
+     * The untouched source geometry of a streaming shape, see {@link #createStreaming(Geometry,
+     * MathTransform, Decimator)}, or null if the shape holds an already transformed geometry
+     */
+    private Geometry source;
+
+    /** The decimation distances used by a streaming shape */
+    private double spanx = -1;
+
+    private double spany = -1;
+
     /**
      * Creates a new LiteShape object.
      *
@@ -155,6 +166,48 @@ public final class LiteShape2 implements Shape, Cloneable {
         this.generalize = false;
     }
 
+    /** Used by {@link #createStreaming(Geometry, MathTransform, Decimator)} */
+    private LiteShape2() {}
+
+    /**
+     * Creates a shape that wraps the geometry without cloning nor modifying it. The coordinates are
+     * decimated and transformed on the fly by the path iterator, in a single pass and using pooled
+     * scratch buffers, while the transformed geometry is built lazily only if {@link
+     * #getGeometry()} (or one of the methods depending on it) gets called.
+     *
+     * <p>Only linear and polygonal geometries transformed by an affine transformation are
+     * supported, in other cases the method returns null and a normal shape should be built instead.
+     *
+     * @param geom the wrapped geometry, will not be modified
+     * @param mathTransform the affine transformation applied to the geometry, or null
+     * @param decimator the decimator providing the generalization distances, or null if no
+     *     generalization should be performed
+     * @return the shape, or null if the geometry or transformation are not supported
+     * @see DecimatingPathIterator#canIterate(Geometry, MathTransform)
+     */
+    public static LiteShape2 createStreaming(
+            Geometry geom, MathTransform mathTransform, Decimator decimator) {
+        if (!DecimatingPathIterator.canIterate(geom, mathTransform)) {
+            return null;
+        }
+        LiteShape2 shape = new LiteShape2();
+        shape.source = geom;
+        shape.mathTransform = mathTransform;
+        if (decimator != null) {
+            shape.spanx = decimator.getSpanX();
+            shape.spany = decimator.getSpanY();
+        }
+        return shape;
+    }
+
+    /**
+     * Returns true if this shape decimates and transforms the source geometry on the fly, see
+     * {@link #createStreaming(Geometry, MathTransform, Decimator)}
+     */
+    public boolean isStreaming() {
+        return source != null;
+    }
+
     private Rectangle getRectangle(Envelope envelope) {
         int minX = (int) Math.floor(envelope.getMinX());
         int minY = (int) Math.floor(envelope.getMinY());
@@ -212,6 +265,7 @@ public final class LiteShape2 implements Shape, Cloneable {
      */
     public void setGeometry(Geometry g) throws TransformException, FactoryException {
         if (g != null) {
+            this.source = null;
             this.geometry = getGeometryFactory().createGeometry(g);
             transformGeometry(geometry);
         }
@@ -242,7 +296,7 @@ public final class LiteShape2 implements Shape, Cloneable {
     public boolean contains(Rectangle2D r) {
         Geometry rect = rectangleToGeometry(r);
 
-        return geometry.contains(rect);
+        return getGeometry().contains(rect);
     }
 
     /**
@@ -254,6 +308,7 @@ public final class LiteShape2 implements Shape, Cloneable {
      */
     public boolean contains(Point2D p) {
         Coordinate coord = new Coordinate(p.getX(), p.getY());
+        Geometry geometry = getGeometry();
         Geometry point = geometry.getFactory().createPoint(coord);
 
         return geometry.contains(point);
@@ -269,6 +324,7 @@ public final class LiteShape2 implements Shape, Cloneable {
      */
     public boolean contains(double x, double y) {
         Coordinate coord = new Coordinate(x, y);
+        Geometry geometry = getGeometry();
         Geometry point = geometry.getFactory().createPoint(coord);
 
         return geometry.contains(point);
@@ -307,7 +363,7 @@ public final class LiteShape2 implements Shape, Cloneable {
     public boolean contains(double x, double y, double w, double h) {
         Geometry rect = createRectangle(x, y, w, h);
 
-        return geometry.contains(rect);
+        return getGeometry().contains(rect);
     }
 
     /**
@@ -346,6 +402,20 @@ public final class LiteShape2 implements Shape, Cloneable {
      * @see #getBounds
      */
     public Rectangle2D getBounds2D() {
+        if (source != null) {
+            // the decimated geometry is contained in the source one, no need to build it
+            Envelope env = source.getEnvelopeInternal();
+            Rectangle2D bounds =
+                    new Rectangle2D.Double(
+                            env.getMinX(), env.getMinY(), env.getWidth(), env.getHeight());
+            if (mathTransform != null) {
+                bounds =
+                        ((AffineTransform) mathTransform)
+                                .createTransformedShape(bounds)
+                                .getBounds2D();
+            }
+            return bounds;
+        }
         Envelope env = geometry.getEnvelopeInternal();
         // note, we dont' use getWidth/getHeight since they are slower
         return new Rectangle2D.Double(
@@ -382,6 +452,17 @@ public final class LiteShape2 implements Shape, Cloneable {
     public PathIterator getPathIterator(AffineTransform at) {
         PathIterator pi = null;
 
+        if (source != null) {
+            AffineTransform transform = (AffineTransform) mathTransform;
+            if (at != null && !at.isIdentity()) {
+                transform = transform == null ? at : new AffineTransform(transform);
+                if (transform != at) {
+                    transform.preConcatenate(at);
+                }
+            }
+            return new DecimatingPathIterator(source, transform, spanx, spany);
+        }
+
         if (this.geometry == null || this.geometry.isEmpty()) return EmptyIterator.INSTANCE;
 
         // return iterator according to the kind of geometry we include
@@ -464,7 +545,7 @@ public final class LiteShape2 implements Shape, Cloneable {
     public boolean intersects(Rectangle2D r) {
         Geometry rect = rectangleToGeometry(r);
 
-        return geometry.intersects(rect);
+        return getGeometry().intersects(rect);
     }
 
     /**
@@ -498,7 +579,7 @@ public final class LiteShape2 implements Shape, Cloneable {
     public boolean intersects(double x, double y, double w, double h) {
         Geometry rect = createRectangle(x, y, w, h);
 
-        return geometry.intersects(rect);
+        return getGeometry().intersects(rect);
     }
 
     /**
@@ -528,16 +609,71 @@ public final class LiteShape2 implements Shape, Cloneable {
             new Coordinate(x + w, y),
             new Coordinate(x, y)
         };
-        LinearRing lr = geometry.getFactory().createLinearRing(coords);
+        GeometryFactory factory = getGeometry().getFactory();
+        LinearRing lr = factory.createLinearRing(coords);
 
-        return geometry.getFactory().createPolygon(lr, null);
+        return factory.createPolygon(lr, null);
     }
 
     public MathTransform getMathTransform() {
         return mathTransform;
     }
 
+    /**
+     * Returns the transformed geometry. For streaming shapes the geometry is built, and cached, on
+     * the first call
+     */
     public Geometry getGeometry() {
+        if (source != null && geometry == null) {
+            buildStreamingGeometry();
+        }
         return geometry;
     }
+
+    private synchronized void buildStreamingGeometry() {
+        if (geometry != null) {
+            return;
+        }
+        try {
+            Geometry clone = LiteCoordinateSequence.cloneGeometry(source);
+            Geometry result =
+                    new Decimator(spanx, spany).decimateTransformGeneralize(clone, mathTransform);
+            result.geometryChanged();
+            this.geometry = result;
+        } catch (TransformException e) {
+            throw new IllegalStateException("Failed to transform the geometry", e);
+        }
+    }
+
+    /**
+     * Returns the type of the wrapped geometry, without forcing the transformation of streaming
+     * shapes
+     */
+    public Class<? extends Geometry> getGeometryClass() {
+        return source != null ? source.getClass() : geometry.getClass();
+    }
+
+    /**
+     * Returns the number of geometries in the wrapped geometry, without forcing the transformation
+     * of streaming shapes
+     */
+    public int getNumGeometries() {
+        return source != null ? source.getNumGeometries() : geometry.getNumGeometries();
+    }
+
+    /**
+     * Returns a shape for the n-th geometry of the wrapped geometry. Streaming shapes return
+     * another streaming shape, without forcing the transformation of the whole geometry
+     */
+    public LiteShape2 getGeometryN(int n) throws TransformException, FactoryException {
+        if (source != null) {
+            LiteShape2 shape = new LiteShape2();
+            shape.source = source.getGeometryN(n);
+            shape.mathTransform = mathTransform;
+            shape.spanx = spanx;
+            shape.spany = spany;
+            return shape;
+        }
+        return new LiteShape2(geometry.getGeometryN(n), null, null, false, false);
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.IdentityTransform;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+public class HierarchicalScreenMapTest {
+
+    @Test
+    public void testCoveredBlocks() {
+        HierarchicalScreenMap map = new HierarchicalScreenMap(0, 0, 16, 16);
+        assertFalse(map.isCovered(0, 0, 3, 3));
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                assertFalse(map.checkAndSet(x, y));
+            }
+        }
+        assertTrue(map.isCovered(0, 0, 3, 3));
+        assertTrue(map.isCovered(1, 1, 2, 3));
+        assertFalse(map.isCovered(0, 0, 4, 3));
+        // the blocks have been marked
+        assertTrue(map.getBit(1, 0, 0));
+        assertFalse(map.getBit(2, 0, 0));
+
+        // clearing a pixel clears the blocks too
+        map.set(2, 2, false);
+        assertFalse(map.isCovered(0, 0, 3, 3));
+        assertFalse(map.getBit(0, 1, 1));
+        assertFalse(map.getBit(1, 0, 0));
+        assertTrue(map.isCovered(0, 0, 1, 1));
+    }
+
+    @Test
+    public void testOutside() {
+        HierarchicalScreenMap map = new HierarchicalScreenMap(10, 10, 5, 5);
+        for (int x = 10; x < 15; x++) {
+            for (int y = 10; y < 15; y++) {
+                map.set(x, y, true);
+            }
+        }
+        assertTrue(map.isCovered(10, 10, 14, 14));
+        assertFalse(map.isCovered(9, 10, 14, 14));
+        assertFalse(map.isCovered(10, 10, 15, 14));
+    }
+
+    @Test
+    public void testCompareBruteForce() {
+        Random random = new Random(42);
+        int width = 50, height = 37;
+        HierarchicalScreenMap map = new HierarchicalScreenMap(-5, 3, width, height);
+        for (int i = 0; i < 3000; i++) {
+            int x = -5 + random.nextInt(width);
+            int y = 3 + random.nextInt(height);
+            if (random.nextInt(10) == 0) {
+                map.set(x, y, false);
+            } else {
+                map.checkAndSet(x, y);
+            }
+            int x0 = -6 + random.nextInt(width + 2);
+            int y0 = 2 + random.nextInt(height + 2);
+            int x1 = x0 + random.nextInt(8);
+            int y1 = y0 + random.nextInt(8);
+            assertEquals(bruteForce(map, x0, y0, x1, y1), map.isCovered(x0, y0, x1, y1));
+        }
+    }
+
+    private boolean bruteForce(ScreenMap map, int x0, int y0, int x1, int y1) {
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                if (x < map.minx
+                        || y < map.miny
+                        || x >= map.minx + map.width
+                        || y >= map.miny + map.height
+                        || !map.get(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testEnvelope() throws Exception {
+        HierarchicalScreenMap map = new HierarchicalScreenMap(0, 0, 8, 8);
+        map.setTransform(IdentityTransform.create(2));
+        map.setSpans(1, 1);
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                map.checkAndSet(new Envelope(x + 0.25, x + 0.75, y + 0.25, y + 0.75));
+            }
+        }
+        assertTrue(map.isCovered(new Envelope(0.5, 7.5, 0.5, 7.5)));
+        assertFalse(map.isCovered(new Envelope(-0.5, 7.5, 0.5, 7.5)));
+        // the flat screen map does not track coverage
+        assertFalse(new ScreenMap(0, 0, 8, 8).isCovered(new Envelope(0.5, 1.5, 0.5, 1.5)));
+    }
+
+    @Test
+    public void testPaintedPolygons() throws Exception {
+        HierarchicalScreenMap map = new HierarchicalScreenMap(0, 0, 16, 16);
+        // two screen pixels per world unit
+        map.setTransform(new AffineTransform2D(2, 0, 0, 2, 0, 0));
+        map.setSpans(0.5, 0.5);
+
+        WKTReader reader = new WKTReader();
+        Geometry square = reader.read("POLYGON((1 1, 5 1, 5 5, 1 5, 1 1))");
+        Envelope inside = new Envelope(2, 4, 2, 4);
+        assertFalse(map.isCovered(inside));
+        map.setCovered(square);
+        assertTrue(map.isCovered(inside));
+        assertFalse(map.isCovered(0, 0, 0, 0));
+        assertTrue(map.isCovered(2, 2, 9, 9));
+        assertFalse(map.isCovered(2, 2, 10, 9));
+
+        // only the pixels fully inside the triangle are set
+        Geometry triangle = reader.read("POLYGON((5 0, 8 0, 8 3, 5 0))");
+        map.setCovered(triangle);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                boolean inSquare = x >= 2 && x < 10 && y >= 2 && y < 10;
+                // the (x, y + 1) corner of the pixel must not be past the y = x - 10 edge
+                boolean inTriangle = y + 1 <= x - 10;
+                assertEquals(inSquare || inTriangle, map.get(x, y));
+            }
+        }
+
+        // lines are not painted with fills
+        map.setCovered(reader.read("LINESTRING(0 0, 8 0)"));
+        assertFalse(map.get(0, 0));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+
+public class ApproximateVisitorsTest {
+
+    static final int SIZE = 100000;
+
+    static FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    static ListFeatureCollection collection;
+
+    static List<SimpleFeature> features = new ArrayList<>();
+
+    static List<Double> sortedValues = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType("values", "value:Double,id:Integer,category:String");
+        collection = new ListFeatureCollection(type);
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            // skewed values, and a zipf-like category distribution
+            double value = Math.exp(random.nextGaussian());
+            String category = "c" + (int) (1 / (random.nextDouble() + 0.001));
+            sortedValues.add(value);
+            features.add(
+                    SimpleFeatureBuilder.build(
+                            type, new Object[] {value, i % 30000, category}, "v." + i));
+        }
+        collection.addAll(features);
+        Collections.sort(sortedValues);
+    }
+
+    @Test
+    public void testUniqueCount() throws Exception {
+        ApproximateUniqueCountVisitor visitor =
+                new ApproximateUniqueCountVisitor(ff.property("id"), 0.01);
+        collection.accepts(visitor, null);
+        // 3 standard errors
+        assertEquals(30000, visitor.getCount(), 30000 * 0.03);
+        assertEquals(visitor.getCount(), visitor.getResult().toLong());
+
+        // small cardinalities are exact enough
+        ApproximateUniqueCountVisitor small =
+                new ApproximateUniqueCountVisitor(ff.property("id"), 0.01);
+        for (int i = 0; i < 1000; i++) {
+            small.visit(features.get(i % 10));
+        }
+        assertEquals(10, small.getCount());
+    }
+
+    @Test
+    public void testUniqueCountMerge() throws Exception {
+        ApproximateUniqueCountVisitor first =
+                new ApproximateUniqueCountVisitor(ff.property("id"), 0.02);
+        ApproximateUniqueCountVisitor second =
+                new ApproximateUniqueCountVisitor(ff.property("id"), 0.02);
+        ApproximateUniqueCountVisitor all =
+                new ApproximateUniqueCountVisitor(ff.property("id"), 0.02);
+        for (int i = 0; i < SIZE; i++) {
+            SimpleFeature feature = features.get(i);
+            (i < SIZE / 3 ? first : second).visit(feature);
+            all.visit(feature);
+        }
+        // merging sketches is lossless
+        assertEquals(all.getCount(), first.getResult().merge(second.getResult()).toLong());
+        first.merge(second);
+        assertEquals(all.getCount(), first.getCount());
+    }
+
+    @Test
+    public void testQuantiles() throws Exception {
+        double accuracy = 0.01;
+        ApproximateQuantileListVisitor visitor =
+                new ApproximateQuantileListVisitor(ff.property("value"), 4, accuracy);
+        collection.accepts(visitor, null);
+        assertEquals(SIZE, visitor.getCount());
+        assertEquals(sortedValues.get(0), visitor.getMin());
+        assertEquals(sortedValues.get(SIZE - 1), visitor.getMax());
+        for (double fraction : new double[] {0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            double estimate = (Double) visitor.getQuantile(fraction);
+            double rank = Collections.binarySearch(sortedValues, estimate) / (double) SIZE;
+            assertEquals(fraction, rank, 3 * accuracy);
+        }
+
+        List[] bins = (List[]) visitor.getResult().getValue();
+        assertEquals(4, bins.length);
+        assertEquals(sortedValues.get(0), bins[0].get(0));
+        assertEquals(sortedValues.get(SIZE - 1), bins[3].get(1));
+        for (int i = 1; i < bins.length; i++) {
+            assertEquals(bins[i - 1].get(1), bins[i].get(0));
+        }
+    }
+
+    @Test
+    public void testQuantilesBoundedMemory() throws Exception {
+        ApproximateQuantileListVisitor visitor =
+                new ApproximateQuantileListVisitor(ff.property("value"), 4, 0.01);
+        collection.accepts(visitor, null);
+        assertTrue(visitor.sketch.retained < 2000);
+    }
+
+    @Test
+    public void testSmallQuantilesExact() throws Exception {
+        ApproximateQuantileListVisitor visitor =
+                new ApproximateQuantileListVisitor(ff.property("id"), 2, 0.01);
+        for (int i = 0; i < 8; i++) {
+            visitor.visit(features.get(7 - i));
+        }
+        List[] bins = (List[]) visitor.getResult().getValue();
+        assertEquals(Arrays.asList(0, 4), bins[0]);
+        assertEquals(Arrays.asList(4, 7), bins[1]);
+    }
+
+    @Test
+    public void testTopUnique() throws Exception {
+        ApproximateTopUniqueVisitor visitor =
+                new ApproximateTopUniqueVisitor(ff.property("category"), 3, 0.001);
+        collection.accepts(visitor, null);
+
+        // exact frequencies
+        Map<Object, Integer> counts = new HashMap<>();
+        for (SimpleFeature feature : collection) {
+            counts.merge(feature.getAttribute("category"), 1, Integer::sum);
+        }
+        List<Map.Entry<Object, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+
+        Map<Object, Long> top = visitor.getTopValues();
+        assertEquals(3, top.size());
+        List<Object> values = new ArrayList<>(top.keySet());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(entries.get(i).getKey(), values.get(i));
+            long estimate = top.get(values.get(i));
+            assertTrue(estimate >= entries.get(i).getValue());
+            assertTrue(estimate <= entries.get(i).getValue() + SIZE * 0.001);
+        }
+        assertEquals(values, visitor.getResult().getValue());
+    }
+
+    @Test
+    public void testTopUniqueMerge() throws Exception {
+        ApproximateTopUniqueVisitor first =
+                new ApproximateTopUniqueVisitor(ff.property("category"), 3, 0.001);
+        ApproximateTopUniqueVisitor second =
+                new ApproximateTopUniqueVisitor(ff.property("category"), 3, 0.001);
+        ApproximateTopUniqueVisitor all =
+                new ApproximateTopUniqueVisitor(ff.property("category"), 3, 0.001);
+        for (int i = 0; i < SIZE; i++) {
+            SimpleFeature feature = features.get(i);
+            (i % 2 == 0 ? first : second).visit(feature);
+            all.visit(feature);
+        }
+        CalcResult merged = first.getResult().merge(second.getResult());
+        assertEquals(all.getTopValues(), merged.toMap());
+        first.merge(second);
+        assertEquals(all.getTopValues(), first.getTopValues());
+    }
+}
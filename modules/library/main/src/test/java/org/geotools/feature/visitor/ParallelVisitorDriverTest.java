@@ -0,0 +1,234 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+public class ParallelVisitorDriverTest {
+
+    static final int SIZE = 120000;
+
+    static FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    static SimpleFeatureType type;
+
+    static ListFeatureCollection collection;
+
+    static ExecutorService executor;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        type = DataUtilities.createType("values", "value:Double,category:String");
+        collection = new ListFeatureCollection(type);
+        for (int i = 0; i < SIZE; i++) {
+            // a skewed distribution, with a few nulls
+            Double value = i % 997 == 0 ? null : Math.sqrt(i) * ((i * 31) % 101);
+            String category = "c" + (i * 7) % 13;
+            collection.add(
+                    SimpleFeatureBuilder.build(type, new Object[] {value, category}, "v." + i));
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    /** Visits the features in parallel, on the test executor */
+    void visitInParallel(FeatureCalc visitor) throws Exception {
+        assertTrue(
+                ParallelVisitorDriver.visitRanges(
+                        collection, (SplittableFeatureCalc) visitor, null, executor, 4));
+    }
+
+    /** Visits the features sequentially, one by one */
+    void visitSequentially(FeatureCalc visitor) {
+        try (SimpleFeatureIterator it = collection.features()) {
+            while (it.hasNext()) {
+                visitor.visit(it.next());
+            }
+        }
+    }
+
+    Expression value() {
+        return ff.property("value");
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        // parallel visits are opt-in, unless enabled by system variable
+        if (ParallelVisitorDriver.THRESHOLD < 0) {
+            assertFalse(ParallelVisitorDriver.visit(collection, new CountVisitor(), null));
+        }
+        CountVisitor count = new CountVisitor();
+        collection.accepts(count, null);
+        assertEquals(SIZE, count.getCount());
+    }
+
+    @Test
+    public void testSplit() throws Exception {
+        CountVisitor count = new CountVisitor();
+        visitInParallel(count);
+        assertEquals(SIZE, count.getCount());
+
+        // too small to be worth it
+        ListFeatureCollection small = new ListFeatureCollection(type);
+        small.add(collection.iterator().next());
+        assertFalse(
+                ParallelVisitorDriver.visitRanges(small, new CountVisitor(), null, executor, 4));
+
+        // no parallelism
+        CountVisitor sequential = new CountVisitor();
+        assertFalse(ParallelVisitorDriver.visitRanges(collection, sequential, null, executor, 1));
+
+        // cannot be split
+        UniqueVisitor limited = new UniqueVisitor(value());
+        limited.setMaxFeatures(10);
+        assertFalse(ParallelVisitorDriver.visitRanges(collection, limited, null, executor, 4));
+    }
+
+    @Test
+    public void testBusyExecutor() throws Exception {
+        // rejected partitions are visited by the caller
+        CountVisitor rejected = new CountVisitor();
+        assertTrue(
+                ParallelVisitorDriver.visitRanges(
+                        collection,
+                        rejected,
+                        null,
+                        r -> {
+                            throw new RejectedExecutionException();
+                        },
+                        4));
+        assertEquals(SIZE, rejected.getCount());
+
+        // so are the ones queued but never started
+        CountVisitor queued = new CountVisitor();
+        assertTrue(ParallelVisitorDriver.visitRanges(collection, queued, null, r -> {}, 4));
+        assertEquals(SIZE, queued.getCount());
+    }
+
+    @Test
+    public void testSimpleVisitors() throws Exception {
+        List<FeatureCalc> sequential =
+                Arrays.asList(
+                        new CountVisitor(),
+                        new SumVisitor(value()),
+                        new AverageVisitor(value()),
+                        new MinVisitor(value()),
+                        new MaxVisitor(value()));
+        List<FeatureCalc> parallel =
+                Arrays.asList(
+                        new CountVisitor(),
+                        new SumVisitor(value()),
+                        new AverageVisitor(value()),
+                        new MinVisitor(value()),
+                        new MaxVisitor(value()));
+        for (int i = 0; i < sequential.size(); i++) {
+            visitSequentially(sequential.get(i));
+            visitInParallel(parallel.get(i));
+            CalcResult expected = sequential.get(i).getResult();
+            CalcResult actual = parallel.get(i).getResult();
+            assertEquals(expected.toDouble(), actual.toDouble(), 1e-6 * expected.toDouble());
+        }
+    }
+
+    @Test
+    public void testStandardDeviation() throws Exception {
+        StandardDeviationVisitor sequential = new StandardDeviationVisitor(value());
+        visitSequentially(sequential);
+        StandardDeviationVisitor parallel = new StandardDeviationVisitor(value());
+        visitInParallel(parallel);
+        double expected = sequential.getResult().toDouble();
+        assertEquals(expected, parallel.getResult().toDouble(), 1e-9 * expected);
+        assertEquals(sequential.getMean(), parallel.getMean(), 1e-9 * sequential.getMean());
+
+        // merging two results is the same as computing over all the values
+        StandardDeviationVisitor first = new StandardDeviationVisitor(value());
+        StandardDeviationVisitor second = new StandardDeviationVisitor(value());
+        List<SimpleFeature> features = new ArrayList<>(collection);
+        features.subList(0, 1000).forEach(first::visit);
+        features.subList(1000, SIZE).forEach(second::visit);
+        CalcResult merged = first.getResult().merge(second.getResult());
+        assertEquals(expected, merged.toDouble(), 1e-9 * expected);
+    }
+
+    @Test
+    public void testUnique() throws Exception {
+        UniqueVisitor sequential = new UniqueVisitor(ff.property("category"));
+        sequential.setPreserveOrder(true);
+        visitSequentially(sequential);
+        UniqueVisitor parallel = new UniqueVisitor(ff.property("category"));
+        parallel.setPreserveOrder(true);
+        visitInParallel(parallel);
+        assertEquals(
+                new ArrayList<>(sequential.getUnique()), new ArrayList<>(parallel.getUnique()));
+    }
+
+    @Test
+    public void testQuantileList() throws Exception {
+        QuantileListVisitor sequential = new QuantileListVisitor(value(), 5);
+        visitSequentially(sequential);
+        QuantileListVisitor parallel = new QuantileListVisitor(value(), 5);
+        visitInParallel(parallel);
+        assertArrayEquals(
+                (Object[]) sequential.getResult().getValue(),
+                (Object[]) parallel.getResult().getValue());
+        assertEquals(sequential.getNullCount(), parallel.getNullCount());
+    }
+
+    @Test
+    public void testGroupBy() throws Exception {
+        GroupByVisitor sequential = buildGroupBy();
+        visitSequentially(sequential);
+        GroupByVisitor parallel = buildGroupBy();
+        visitInParallel(parallel);
+        assertEquals(13, parallel.getResult().toMap().size());
+        assertEquals(sequential.getResult().toMap(), parallel.getResult().toMap());
+    }
+
+    GroupByVisitor buildGroupBy() {
+        return new GroupByVisitorBuilder()
+                .withAggregateAttribute("value", type)
+                .withAggregateVisitor("Max")
+                .withGroupByAttribute("category", type)
+                .build();
+    }
+}
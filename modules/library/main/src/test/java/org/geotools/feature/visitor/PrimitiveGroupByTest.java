@@ -0,0 +1,186 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.feature.visitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+public class PrimitiveGroupByTest {
+
+    static FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    static List<SimpleFeature> features = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType(
+                        "values",
+                        "code:Integer,name:String,intValue:Integer,longValue:java.lang.Long,"
+                                + "floatValue:java.lang.Float,doubleValue:Double");
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            Integer code = i % 101 == 0 ? null : random.nextInt(500);
+            String name = "n" + random.nextInt(7);
+            Integer intValue = random.nextInt(10) == 0 ? null : random.nextInt(1000000);
+            Long longValue = random.nextLong() >> 20;
+            Float floatValue = random.nextFloat() * 100;
+            Double doubleValue = random.nextInt(50) == 0 ? Double.NaN : random.nextGaussian();
+            features.add(
+                    SimpleFeatureBuilder.build(
+                            type,
+                            new Object[] {code, name, intValue, longValue, floatValue, doubleValue},
+                            "v." + i));
+        }
+    }
+
+    /** Computes the groups with a visitor per group, as the generic group by does */
+    Map<List<Object>, CalcResult> expected(
+            Aggregate aggregate, Expression expression, List<Expression> groupBy) {
+        Map<List<Object>, FeatureCalc> calcs = new HashMap<>();
+        for (SimpleFeature feature : features) {
+            List<Object> key = new ArrayList<>();
+            for (Expression e : groupBy) {
+                key.add(e.evaluate(feature));
+            }
+            calcs.computeIfAbsent(key, k -> aggregate.create(expression)).visit(feature);
+        }
+        Map<List<Object>, CalcResult> results = new HashMap<>();
+        calcs.forEach((k, v) -> results.put(k, v.getResult()));
+        return results;
+    }
+
+    void assertSameResults(Aggregate aggregate, String attribute, String... groupBy) {
+        Expression expression = ff.property(attribute);
+        List<Expression> groupByAttributes = new ArrayList<>();
+        for (String name : groupBy) {
+            groupByAttributes.add(ff.property(name));
+        }
+        assertTrue(PrimitiveGroupBy.supports(aggregate));
+        PrimitiveGroupBy engine = new PrimitiveGroupBy(aggregate, expression, groupByAttributes);
+        features.forEach(engine::visit);
+
+        Map<List<Object>, CalcResult> expected = expected(aggregate, expression, groupByAttributes);
+        Map<List<Object>, CalcResult> actual = engine.getResults();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<List<Object>, CalcResult> entry : expected.entrySet()) {
+            CalcResult result = actual.get(entry.getKey());
+            String message = aggregate + " " + attribute + " " + entry.getKey();
+            if (entry.getValue() == CalcResult.NULL_RESULT) {
+                assertEquals(message, CalcResult.NULL_RESULT, result);
+            } else {
+                assertEquals(message, entry.getValue().getClass(), result.getClass());
+                assertEquals(message, entry.getValue().getValue(), result.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testCount() {
+        assertSameResults(Aggregate.COUNT, "intValue", "code");
+        assertSameResults(Aggregate.COUNT, "intValue", "name", "code");
+    }
+
+    @Test
+    public void testSum() {
+        for (String attribute : new String[] {"intValue", "longValue", "floatValue"}) {
+            assertSameResults(Aggregate.SUM, attribute, "code");
+            assertSameResults(Aggregate.SUM, attribute, "code", "name");
+        }
+        assertSameResults(Aggregate.SUM, "doubleValue", "name");
+    }
+
+    @Test
+    public void testAverage() {
+        for (String attribute : new String[] {"intValue", "longValue", "floatValue"}) {
+            assertSameResults(Aggregate.AVERAGE, attribute, "code", "name");
+        }
+        assertSameResults(Aggregate.AVERAGE, "doubleValue", "code");
+    }
+
+    @Test
+    public void testMinMax() {
+        for (String attribute :
+                new String[] {"intValue", "longValue", "floatValue", "doubleValue", "name"}) {
+            assertSameResults(Aggregate.MIN, attribute, "code");
+            assertSameResults(Aggregate.MAX, attribute, "code", "name");
+        }
+    }
+
+    @Test
+    public void testGroupByVisitor() {
+        GroupByVisitor visitor =
+                new GroupByVisitor(
+                        Aggregate.SUM,
+                        ff.property("intValue"),
+                        Arrays.asList(ff.property("name")),
+                        null);
+        assertFalse(visitor.wasVisited());
+        features.forEach(visitor::visit);
+        assertTrue(visitor.wasVisited());
+        Map<List<Object>, CalcResult> expected =
+                expected(Aggregate.SUM, ff.property("intValue"), visitor.getGroupByAttributes());
+        Map results = visitor.getResult().toMap();
+        assertEquals(7, results.size());
+        for (Map.Entry<List<Object>, CalcResult> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().getValue(), results.get(entry.getKey()));
+        }
+
+        // not supported by the primitive engine, still works
+        assertFalse(PrimitiveGroupBy.supports(Aggregate.MEDIAN));
+        GroupByVisitor median =
+                new GroupByVisitor(
+                        Aggregate.MEDIAN,
+                        ff.property("intValue"),
+                        Arrays.asList(ff.property("name")),
+                        null);
+        features.forEach(median::visit);
+        assertEquals(7, median.getResult().toMap().size());
+    }
+
+    @Test
+    public void testDictionary() {
+        PrimitiveGroupBy.ValueDictionary dictionary = new PrimitiveGroupBy.ValueDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.encode("v" + i));
+        }
+        assertEquals(1000, dictionary.encode(null));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.encode("v" + i));
+            assertEquals("v" + i, dictionary.decode(i));
+        }
+        assertEquals(1000, dictionary.encode(null));
+        assertEquals(null, dictionary.decode(1000));
+    }
+}
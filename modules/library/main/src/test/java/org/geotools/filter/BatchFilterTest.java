@@ -0,0 +1,237 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class BatchFilterTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    GeometryFactory gf = new GeometryFactory();
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setup() throws Exception {
+        schema =
+                DataUtilities.createType(
+                        "test",
+                        "geom:Point,i:java.lang.Integer,d:java.lang.Double,f:java.lang.Float,"
+                                + "label:String,date:java.util.Date");
+        features = new ArrayList<>();
+        String[] labels = {"Main Street", "main street", "10", "9", null};
+        double[] specials = {Double.NaN, -0d, 0d, Double.POSITIVE_INFINITY};
+        for (int i = 0; i < 40; i++) {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+            fb.add(i % 11 == 10 ? null : gf.createPoint(new Coordinate(i, i)));
+            fb.add(i % 7 == 6 ? null : i);
+            fb.add(i % 5 == 4 ? null : (i < 20 ? i / 2d : specials[i % specials.length]));
+            fb.add(i % 6 == 5 ? null : (float) (i / 4d));
+            fb.add(labels[i % labels.length]);
+            fb.add(new java.util.Date(i * 1000L));
+            features.add(fb.buildFeature("f" + i));
+        }
+    }
+
+    FeatureBatch buildBatch(List<SimpleFeature> features) {
+        FeatureBatch batch = new FeatureBatch(schema, features.size());
+        for (SimpleFeature feature : features) {
+            int row = batch.addRow();
+            batch.setId(row, feature.getID());
+            for (int i = 0; i < schema.getAttributeCount(); i++) {
+                batch.setValue(row, i, feature.getAttribute(i));
+            }
+        }
+        return batch;
+    }
+
+    List<Filter> buildFilters() {
+        List<Filter> filters = new ArrayList<>();
+        filters.add(ff.equals(ff.property("i"), ff.literal(10)));
+        filters.add(ff.equals(ff.literal("10"), ff.property("i")));
+        filters.add(ff.notEqual(ff.property("i"), ff.literal(10)));
+        filters.add(ff.equals(ff.property("d"), ff.literal(0d)));
+        filters.add(ff.equals(ff.property("d"), ff.literal(-0d)));
+        filters.add(ff.equals(ff.property("d"), ff.literal(Double.NaN)));
+        filters.add(ff.notEqual(ff.property("d"), ff.literal(2.5)));
+        filters.add(ff.notEqual(ff.property("d"), ff.literal("2.5")));
+        filters.add(ff.less(ff.property("d"), ff.literal(3d)));
+        filters.add(ff.greater(ff.property("d"), ff.literal(3d)));
+        filters.add(ff.equals(ff.property("f"), ff.literal(2.5f)));
+        filters.add(ff.greater(ff.property("i"), ff.literal(5.5)));
+        filters.add(ff.greaterOrEqual(ff.property("i"), ff.literal(12)));
+        filters.add(ff.lessOrEqual(ff.literal(12), ff.property("i")));
+        filters.add(ff.less(ff.literal(4), ff.property("i")));
+        filters.add(ff.greaterOrEqual(ff.property("f"), ff.literal(3f)));
+        filters.add(ff.lessOrEqual(ff.property("label"), ff.literal("10")));
+        filters.add(ff.equal(ff.property("label"), ff.literal("MAIN STREET"), false));
+        filters.add(ff.less(ff.property("date"), ff.literal("1970-01-01T00:00:05Z")));
+        filters.add(ff.isNull(ff.property("i")));
+        filters.add(ff.isNull(ff.property("label")));
+        filters.add(ff.between(ff.property("i"), ff.literal(3), ff.literal(15)));
+        filters.add(ff.between(ff.property("d"), ff.literal(-0d), ff.literal(5d)));
+        filters.add(ff.between(ff.property("d"), ff.literal(2), ff.literal("5")));
+        filters.add(ff.like(ff.property("label"), "Main*"));
+        filters.add(ff.like(ff.property("label"), "main*", "*", "?", "\\", false));
+        filters.add(ff.bbox(ff.property(""), 2.5, 2.5, 8.5, 8.5, null));
+        filters.add(ff.bbox(ff.property("geom"), 5, 5, 5, 5, null));
+        filters.add(
+                ff.and(
+                        ff.greater(ff.property("i"), ff.literal(2)),
+                        ff.not(ff.isNull(ff.property("d")))));
+        filters.add(
+                ff.or(
+                        Arrays.asList(
+                                ff.equals(ff.property("i"), ff.literal(1)),
+                                ff.equals(ff.property("i"), ff.literal(3)),
+                                ff.equals(ff.property("label"), ff.literal("9")))));
+        filters.add(ff.not(ff.or(ff.less(ff.property("i"), ff.literal(5)), Filter.EXCLUDE)));
+        filters.add(ff.and(Filter.INCLUDE, ff.like(ff.property("label"), "*treet")));
+        filters.add(ff.greater(ff.add(ff.property("i"), ff.property("d")), ff.literal(10)));
+        filters.add(ff.equals(ff.property("i"), ff.property("d")));
+        filters.add(ff.equals(ff.property("missing"), ff.literal(1)));
+        filters.add(ff.id(ff.featureId("f3"), ff.featureId("f7")));
+        return filters;
+    }
+
+    @Test
+    public void testSameResults() {
+        FeatureBatch batch = buildBatch(features);
+        for (Filter filter : buildFilters()) {
+            BatchFilter batchFilter = FilterCompiler.compileBatch(filter, schema);
+            BitSet selected = batchFilter.evaluate(batch);
+            for (int i = 0; i < features.size(); i++) {
+                SimpleFeature feature = features.get(i);
+                assertEquals(
+                        filter + " on " + feature.getID(),
+                        filter.evaluate(feature),
+                        selected.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        FeatureBatch batch = buildBatch(features);
+        BitSet candidates = new BitSet();
+        for (int i = 0; i < features.size(); i += 3) {
+            candidates.set(i);
+        }
+        BitSet original = (BitSet) candidates.clone();
+        for (Filter filter : buildFilters()) {
+            BitSet selected =
+                    FilterCompiler.compileBatch(filter, schema).evaluate(batch, candidates);
+            assertEquals(original, candidates);
+            for (int i = 0; i < features.size(); i++) {
+                boolean expected = candidates.get(i) && filter.evaluate(features.get(i));
+                assertEquals(filter + " on row " + i, expected, selected.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testVectorized() {
+        assertTrue(
+                FilterCompiler.compileBatch(
+                                ff.and(
+                                        ff.greater(ff.property("i"), ff.literal(2)),
+                                        ff.like(ff.property("label"), "M*")),
+                                schema)
+                        .isVectorized());
+        assertTrue(
+                FilterCompiler.compileBatch(ff.bbox(ff.property(""), 0, 0, 1, 1, null), schema)
+                        .isVectorized());
+        assertFalse(FilterCompiler.compileBatch(ff.id(ff.featureId("f3")), schema).isVectorized());
+        assertFalse(
+                FilterCompiler.compileBatch(
+                                ff.or(
+                                        ff.isNull(ff.property("i")),
+                                        ff.equals(ff.property("i"), ff.property("d"))),
+                                schema)
+                        .isVectorized());
+    }
+
+    @Test
+    public void testBatchStorage() {
+        FeatureBatch batch = new FeatureBatch(schema, 4);
+        int i = schema.indexOf("i");
+        int d = schema.indexOf("d");
+        assertTrue(batch.isNumeric(i));
+        assertFalse(batch.isNumeric(schema.indexOf("label")));
+
+        int row = batch.addRow();
+        assertNull(batch.getValue(row, i));
+        batch.setValue(row, i, 3);
+        batch.setDouble(row, d, 1.5);
+        assertEquals(3, batch.getValue(row, i));
+        assertEquals(1.5, batch.getValue(row, d));
+
+        // a value not matching the binding moves the column to object storage
+        row = batch.addRow();
+        batch.setValue(row, i, 4L);
+        assertFalse(batch.isNumeric(i));
+        assertEquals(3, batch.getValue(0, i));
+        assertEquals(4L, batch.getValue(1, i));
+        BitSet selected =
+                FilterCompiler.compileBatch(ff.greater(ff.property("i"), ff.literal(3)), schema)
+                        .evaluate(batch);
+        assertFalse(selected.get(0));
+        assertTrue(selected.get(1));
+
+        // until the batch is cleared
+        batch.clear();
+        assertEquals(0, batch.getSize());
+        assertTrue(batch.isNumeric(i));
+        row = batch.addRow();
+        assertNull(batch.getValue(row, i));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBatchFull() {
+        FeatureBatch batch = new FeatureBatch(schema, 1);
+        batch.addRow();
+        batch.addRow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherSchema() throws Exception {
+        SimpleFeatureType other = DataUtilities.createType("test", "i:java.lang.Integer");
+        FilterCompiler.compileBatch(Filter.INCLUDE, schema).evaluate(new FeatureBatch(other, 10));
+    }
+}
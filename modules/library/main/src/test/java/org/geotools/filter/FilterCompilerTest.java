@@ -0,0 +1,301 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.DefaultFilterVisitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.InternalFunction;
+import org.opengis.filter.expression.PropertyName;
+
+public class FilterCompilerTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    GeometryFactory gf = new GeometryFactory();
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setup() throws Exception {
+        schema =
+                DataUtilities.createType(
+                        "test",
+                        "geom:Point,i:java.lang.Integer,d:java.lang.Double,label:String,"
+                                + "date:java.util.Date,list:java.util.List");
+        features = new ArrayList<>();
+        String[] labels = {"Main Street", "main street", "10", "9", null};
+        for (int i = 0; i < 20; i++) {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+            fb.add(gf.createPoint(new Coordinate(i, i)));
+            fb.add(i % 7 == 6 ? null : i);
+            fb.add(i % 5 == 4 ? null : i / 2d);
+            fb.add(labels[i % labels.length]);
+            fb.add(new java.util.Date(i * 1000L));
+            fb.add(i % 3 == 0 ? Arrays.asList(i, i + 1) : null);
+            features.add(fb.buildFeature("f" + i));
+        }
+    }
+
+    List<Filter> buildFilters() {
+        List<Filter> filters = new ArrayList<>();
+        filters.add(ff.equals(ff.property("i"), ff.literal(10)));
+        filters.add(ff.equals(ff.literal("10"), ff.property("i")));
+        filters.add(ff.notEqual(ff.property("d"), ff.literal("2.5")));
+        filters.add(ff.greater(ff.property("i"), ff.literal(5.5)));
+        filters.add(ff.greaterOrEqual(ff.property("d"), ff.literal("3")));
+        filters.add(ff.less(ff.literal(4), ff.property("i")));
+        filters.add(ff.lessOrEqual(ff.property("label"), ff.literal("10")));
+        filters.add(ff.greater(ff.property("label"), ff.literal("2")));
+        filters.add(ff.equal(ff.property("label"), ff.literal("MAIN STREET"), false));
+        filters.add(ff.equal(ff.property("label"), ff.literal("MAIN STREET"), true));
+        filters.add(ff.less(ff.property("date"), ff.literal("1970-01-01T00:00:05Z")));
+        filters.add(ff.isNull(ff.property("i")));
+        filters.add(ff.between(ff.property("d"), ff.literal(2), ff.literal("5")));
+        filters.add(ff.like(ff.property("label"), "Main*"));
+        filters.add(ff.equals(ff.property("list"), ff.literal(4)));
+        filters.add(ff.equal(ff.property("list"), ff.literal(3), true, MatchAction.ALL));
+        filters.add(
+                ff.and(
+                        ff.greater(ff.property("i"), ff.literal(2)),
+                        ff.not(ff.isNull(ff.property("d")))));
+        filters.add(
+                ff.or(
+                        Arrays.asList(
+                                ff.equals(ff.property("i"), ff.literal(1)),
+                                ff.equals(ff.property("i"), ff.literal(3)),
+                                ff.equals(ff.property("label"), ff.literal("9")))));
+        filters.add(ff.bbox(ff.property(""), 2.5, 2.5, 8.5, 8.5, null));
+        filters.add(ff.greater(ff.add(ff.property("i"), ff.property("d")), ff.literal(10)));
+        filters.add(ff.equals(ff.property("i"), ff.property("d")));
+        filters.add(ff.equals(ff.property("missing"), ff.literal(1)));
+        filters.add(ff.id(ff.featureId("f3"), ff.featureId("f7")));
+        return filters;
+    }
+
+    @Test
+    public void testSameResults() {
+        for (Filter filter : buildFilters()) {
+            Filter compiled = FilterCompiler.compile(filter, schema);
+            assertTrue(FilterCompiler.isCompiled(compiled, schema));
+            for (SimpleFeature feature : features) {
+                assertEquals(
+                        filter + " on " + feature.getID(),
+                        filter.evaluate(feature),
+                        compiled.evaluate(feature));
+            }
+        }
+    }
+
+    @Test
+    public void testOtherTypes() throws Exception {
+        // a type with the attributes in another order
+        SimpleFeatureType other =
+                DataUtilities.createType("test", "i:java.lang.Integer,geom:Point");
+        SimpleFeature feature = DataUtilities.createFeature(other, "10|POINT(1 1)");
+        for (Filter filter : buildFilters()) {
+            Filter compiled = FilterCompiler.compile(filter, schema);
+            assertEquals(filter.evaluate(feature), compiled.evaluate(feature));
+            assertEquals(filter.evaluate(null), compiled.evaluate(null));
+        }
+
+        // a plain old java object
+        Filter filter = FilterCompiler.compile(ff.equals(ff.property("i"), ff.literal(10)), schema);
+        assertFalse(filter.evaluate(new Object()));
+    }
+
+    @Test
+    public void testIncludeExclude() {
+        assertSame(Filter.INCLUDE, FilterCompiler.compile(Filter.INCLUDE, schema));
+        assertSame(Filter.EXCLUDE, FilterCompiler.compile(Filter.EXCLUDE, schema));
+        Filter compiled =
+                FilterCompiler.compile(ff.equals(ff.property("i"), ff.literal(1)), schema);
+        assertSame(compiled, FilterCompiler.compile(compiled, schema));
+    }
+
+    @Test
+    public void testVisitors() {
+        Filter compiled =
+                FilterCompiler.compile(
+                        ff.and(
+                                ff.equals(ff.property("i"), ff.literal("10")),
+                                ff.like(ff.property("label"), "Main*")),
+                        schema);
+        final List<String> names = new ArrayList<>();
+        compiled.accept(
+                new DefaultFilterVisitor() {
+                    @Override
+                    public Object visit(PropertyName expression, Object data) {
+                        names.add(expression.getPropertyName());
+                        return data;
+                    }
+                },
+                null);
+        assertEquals(Arrays.asList("i", "label"), names);
+        // the literal has been bound to the attribute type
+        assertEquals("[[ i = 10 ] AND [ label is like Main* ]]", compiled.toString());
+    }
+
+    @Test
+    public void testExpression() {
+        SimpleFeature feature = features.get(3);
+        Expression source = ff.add(ff.property("i"), ff.property("missing"));
+        Expression expression = FilterCompiler.compile(source, schema);
+        assertEquals(source.evaluate(feature), expression.evaluate(feature));
+        source = ff.multiply(ff.property("i"), ff.literal("2"));
+        expression = FilterCompiler.compile(source, schema);
+        assertEquals(6d, expression.evaluate(feature, Double.class), 0d);
+
+        Expression property = FilterCompiler.compile(ff.property("d"), schema);
+        assertTrue(property instanceof IndexedAttributeExpression);
+        assertEquals(1.5, property.evaluate(feature));
+        assertEquals("1.5", property.evaluate(feature, String.class));
+        assertEquals("d", ((PropertyName) property).getPropertyName());
+
+        Expression geometry = FilterCompiler.compile(ff.property(""), schema);
+        assertSame(feature.getDefaultGeometry(), geometry.evaluate(feature));
+    }
+
+    @Test
+    public void testSharedExpressions() {
+        // a counting function, to check how many times the shared expression is evaluated
+        AtomicInteger calls = new AtomicInteger();
+        Function lower = new CountingLowerCase(calls, ff.property("label"));
+        Filter[] filters = {
+            ff.equals(lower, ff.literal("main street")),
+            null,
+            ff.like(lower, "main*"),
+            ff.and(ff.equals(lower, ff.literal("10")), ff.greater(ff.property("i"), ff.literal(3))),
+            Filter.INCLUDE,
+            ff.greater(ff.add(ff.property("i"), ff.literal(1)), ff.literal(4)),
+            ff.less(ff.add(ff.property("i"), ff.literal(1)), ff.literal(9))
+        };
+        Filter[] compiled = FilterCompiler.compile(filters, schema);
+        assertEquals(filters.length, compiled.length);
+        assertNull(compiled[1]);
+        assertSame(Filter.INCLUDE, compiled[4]);
+        for (SimpleFeature feature : features) {
+            calls.set(0);
+            FilterCompiler.beginEvaluation(compiled);
+            for (int i = 0; i < filters.length; i++) {
+                if (filters[i] != null) {
+                    assertEquals(
+                            filters[i] + " on " + feature.getID(),
+                            filters[i].evaluate(feature),
+                            compiled[i].evaluate(feature));
+                }
+            }
+            FilterCompiler.endEvaluation(compiled);
+            // the original filters evaluate the function 3 times, the compiled ones just once
+            assertEquals(4, calls.get());
+        }
+
+        // only the expressions occurring more than once are shared
+        assertTrue(getExpression1(compiled[0]) instanceof SharedExpression);
+        assertTrue(getExpression1(compiled[5]) instanceof SharedExpression);
+        assertSame(getExpression1(compiled[0]), getExpression1(compiled[2]));
+        Filter[] single = FilterCompiler.compile(new Filter[] {filters[0]}, schema);
+        assertFalse(getExpression1(single[0]) instanceof SharedExpression);
+    }
+
+    @Test
+    public void testSharedExpressionsReusedFeature() {
+        AtomicInteger calls = new AtomicInteger();
+        Function lower = new CountingLowerCase(calls, ff.property("label"));
+        Filter[] filters = {
+            ff.equals(lower, ff.literal("main street")),
+            ff.equals(lower, ff.literal("high street"))
+        };
+        Filter[] compiled = FilterCompiler.compile(filters, schema);
+        assertTrue(getExpression1(compiled[0]) instanceof SharedExpression);
+
+        // a reader reusing the same feature instance for all the records
+        SimpleFeature feature = SimpleFeatureBuilder.copy(features.get(0));
+        for (String label : new String[] {"Main Street", "High Street", "Main Street"}) {
+            feature.setAttribute("label", label);
+            FilterCompiler.beginEvaluation(compiled);
+            assertEquals(filters[0].evaluate(feature), compiled[0].evaluate(feature));
+            assertEquals(filters[1].evaluate(feature), compiled[1].evaluate(feature));
+            FilterCompiler.endEvaluation(compiled);
+        }
+
+        // outside of a pass nothing is cached
+        calls.set(0);
+        feature.setAttribute("label", "High Street");
+        assertFalse(compiled[0].evaluate(feature));
+        assertTrue(compiled[1].evaluate(feature));
+        assertEquals(2, calls.get());
+    }
+
+    Expression getExpression1(Filter compiled) {
+        Filter filter = ((FilterCompiler.CompiledFilter) compiled).filter;
+        if (filter instanceof BinaryComparisonOperator) {
+            return ((BinaryComparisonOperator) filter).getExpression1();
+        }
+        return ((PropertyIsLike) filter).getExpression();
+    }
+
+    /** Lower cases its argument, counting the calls */
+    static class CountingLowerCase extends FunctionExpressionImpl implements InternalFunction {
+
+        final AtomicInteger calls;
+
+        CountingLowerCase(AtomicInteger calls, Expression... parameters) {
+            super("countingLowerCase");
+            this.calls = calls;
+            setParameters(Arrays.asList(parameters));
+        }
+
+        @Override
+        public Object evaluate(Object feature) {
+            calls.incrementAndGet();
+            String label = getExpression(0).evaluate(feature, String.class);
+            return label == null ? null : label.toLowerCase();
+        }
+
+        @Override
+        public InternalFunction duplicate(Expression... parameters) {
+            return new CountingLowerCase(calls, parameters);
+        }
+    }
+}
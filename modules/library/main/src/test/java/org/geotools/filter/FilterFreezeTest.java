@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.expression.ExpressionAbstract;
+import org.geotools.filter.visitor.DuplicatingFilterVisitor;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.NilExpression;
+
+public class FilterFreezeTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    Filter buildFilter() {
+        Function upper = ff.function("strToUpperCase", ff.property("name"));
+        return ff.and(
+                Arrays.asList(
+                        ff.like(upper, "MAIN*"),
+                        ff.between(
+                                ff.add(ff.property("lanes"), ff.literal(1)),
+                                ff.literal(2),
+                                ff.literal(5)),
+                        ff.not(ff.isNull(ff.property("name")))));
+    }
+
+    void assertFrozen(Runnable setter) {
+        try {
+            setter.run();
+            fail("Should have failed, the filter is frozen");
+        } catch (UnsupportedOperationException e) {
+            // fine
+        }
+    }
+
+    @Test
+    public void testFreeze() throws Exception {
+        SimpleFeatureType schema = DataUtilities.createType("roads", "name:String,lanes:Integer");
+        SimpleFeature feature = SimpleFeatureBuilder.build(schema, new Object[] {"Main", 2}, "r.1");
+
+        Filter filter = buildFilter();
+        assertTrue(filter.evaluate(feature));
+        assertTrue(Filters.freeze(filter));
+        assertTrue(filter.evaluate(feature));
+
+        And and = (And) filter;
+        LikeFilterImpl like = (LikeFilterImpl) and.getChildren().get(0);
+        assertTrue(like.isFrozen());
+        assertFrozen(() -> like.setLiteral("*"));
+        assertFrozen(() -> like.setMatchingCase(false));
+        FunctionExpressionImpl upper = (FunctionExpressionImpl) like.getExpression();
+        assertTrue(upper.isFrozen());
+        assertFrozen(() -> upper.getParameters().clear());
+        AttributeExpressionImpl name = (AttributeExpressionImpl) upper.getParameters().get(0);
+        assertFrozen(() -> name.setPropertyName("lanes"));
+
+        IsBetweenImpl between = (IsBetweenImpl) and.getChildren().get(1);
+        assertFrozen(() -> between.setLowerBoundary(ff.literal(0)));
+        MathExpressionImpl add = (MathExpressionImpl) between.getExpression();
+        assertFrozen(() -> add.setExpression2(ff.literal(2)));
+        LiteralExpressionImpl one = (LiteralExpressionImpl) add.getExpression2();
+        assertFrozen(() -> one.setValue(2));
+
+        NotImpl not = (NotImpl) and.getChildren().get(2);
+        assertFrozen(() -> not.setFilter(Filter.INCLUDE));
+        assertFrozen(() -> ((LogicFilterImpl) and).addFilter(Filter.EXCLUDE));
+
+        // a copy can be modified again
+        And copy = (And) filter.accept(new DuplicatingFilterVisitor(), null);
+        LikeFilterImpl copiedLike = (LikeFilterImpl) copy.getChildren().get(0);
+        assertFalse(copiedLike.isFrozen());
+        copiedLike.setLiteral("OLD*");
+        assertFalse(copy.evaluate(feature));
+        assertTrue(filter.evaluate(feature));
+    }
+
+    @Test
+    public void testFreezeIds() {
+        FidFilterImpl id = (FidFilterImpl) ff.id(ff.featureId("r.1"), ff.featureId("r.2"));
+        assertTrue(Filters.freeze(id));
+        assertFrozen(() -> id.addFid("r.3"));
+        assertFrozen(() -> id.getIdentifiers().clear());
+        assertEquals(2, id.getIdentifiers().size());
+    }
+
+    @Test
+    public void testStatefulFunction() {
+        // the average function keeps the last collection and average, cannot be shared
+        Function average = ff.function("Collection_Average", ff.property("lanes"));
+        assertFalse(Filters.isFreezable(average.getClass()));
+        Filter filter = ff.and(ff.greater(ff.property("lanes"), average), buildFilter());
+        assertFalse(Filters.freeze(filter));
+        assertFalse(((FilterAbstract) filter).isFrozen());
+        assertFalse(((ExpressionAbstract) average).isFrozen());
+
+        // subclasses of the audited implementations are not trusted either
+        LiteralExpressionImpl literal = new LiteralExpressionImpl(1) {};
+        assertFalse(Filters.freeze(ff.equals(ff.property("lanes"), literal)));
+        assertFalse(literal.isFrozen());
+    }
+
+    @Test
+    public void testForeignExpression() {
+        Expression foreign =
+                new Expression() {
+                    @Override
+                    public Object evaluate(Object object) {
+                        return "Main";
+                    }
+
+                    @Override
+                    public <T> T evaluate(Object object, Class<T> context) {
+                        return context.cast(evaluate(object));
+                    }
+
+                    @Override
+                    public Object accept(ExpressionVisitor visitor, Object extraData) {
+                        return visitor.visit((NilExpression) Expression.NIL, extraData);
+                    }
+                };
+        PropertyIsLike like = ff.like(foreign, "M*");
+        PropertyIsBetween between = ff.between(ff.property("lanes"), ff.literal(1), ff.literal(2));
+        // cannot freeze the foreign expression, the rest is left untouched too
+        Filter and = ff.and(like, between);
+        assertFalse(Filters.freeze(and));
+        assertFalse(((FilterAbstract) and).isFrozen());
+        assertFalse(((LikeFilterImpl) like).isFrozen());
+        assertFalse(((IsBetweenImpl) between).isFrozen());
+        assertFalse(((ExpressionAbstract) between.getLowerBoundary()).isFrozen());
+        // and can still be modified
+        ((LikeFilterImpl) like).setLiteral("N*");
+        assertEquals("N*", like.getLiteral());
+    }
+}
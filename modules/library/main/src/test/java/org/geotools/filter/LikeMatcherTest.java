@@ -0,0 +1,141 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsLike;
+
+public class LikeMatcherTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    static final String[] VALUES = {
+        "",
+        "Main",
+        "Main Street",
+        "main street",
+        "MAIN STREET",
+        "Old Main Street",
+        "Main.Street",
+        "Main\nStreet",
+        "Old\nMain",
+        "Street",
+        "a+b",
+        "a{2}",
+        "aa",
+        "50% off",
+        "Main!Street"
+    };
+
+    static final String[] PATTERNS = {
+        "Main",
+        "Main*",
+        "*Street",
+        "*Main*",
+        "*",
+        "**Main**",
+        "Main*Street",
+        "Main?Street",
+        "Main.Street",
+        "Main.*",
+        "a+b",
+        "a{2}",
+        "50%*",
+        "Main!*Street",
+        "Main!.Street",
+        ""
+    };
+
+    PropertyIsLike like(String pattern, String escape, boolean matchCase) {
+        return ff.like(ff.property("name"), pattern, "*", "?", escape, matchCase);
+    }
+
+    /** The old matching logic, straight with the regular expression */
+    boolean regexMatches(PropertyIsLike like, String value) {
+        String regex = new LikeToRegexConverter(like).getPattern();
+        Pattern pattern =
+                like.isMatchingCase()
+                        ? Pattern.compile(regex)
+                        : Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return pattern.matcher(value).matches();
+    }
+
+    @Test
+    public void testSameAsRegex() {
+        for (String escape : new String[] {"\\", "!", ""}) {
+            for (boolean matchCase : new boolean[] {true, false}) {
+                for (String pattern : PATTERNS) {
+                    PropertyIsLike like = like(pattern, escape, matchCase);
+                    LikeMatcher matcher = LikeMatcher.get(like);
+                    for (String value : VALUES) {
+                        boolean expected;
+                        try {
+                            expected = regexMatches(like, value);
+                        } catch (Exception e) {
+                            // not a valid regular expression, skip
+                            continue;
+                        }
+                        assertEquals(
+                                pattern + " (" + escape + "," + matchCase + ") on " + value,
+                                expected,
+                                matcher.matches(value));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFastPaths() {
+        assertEquals(LikeMatcher.Kind.EXACT, LikeMatcher.get(like("Main", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.PREFIX, LikeMatcher.get(like("Main*", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.SUFFIX, LikeMatcher.get(like("*Main", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.CONTAINS, LikeMatcher.get(like("**Main*", "\\", false)).kind);
+        assertEquals(LikeMatcher.Kind.PREFIX, LikeMatcher.get(like("M.a*", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.REGEX, LikeMatcher.get(like("M.a*", "!", true)).kind);
+        assertEquals(LikeMatcher.Kind.REGEX, LikeMatcher.get(like("M*a*", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.REGEX, LikeMatcher.get(like("M?a*", "\\", true)).kind);
+        assertEquals(LikeMatcher.Kind.REGEX, LikeMatcher.get(like("M\\*a", "\\", true)).kind);
+    }
+
+    @Test
+    public void testShared() {
+        LikeMatcher matcher = LikeMatcher.get(like("Main*", "\\", true));
+        assertSame(matcher, LikeMatcher.get(like("Main*", "\\", true)));
+        assertFalse(matcher == LikeMatcher.get(like("Main*", "\\", false)));
+        assertSame(PatternCache.compile("a+b"), PatternCache.compile("a+b"));
+        assertFalse(PatternCache.compile("a+b") == PatternCache.compile("a+b", Pattern.DOTALL));
+    }
+
+    @Test
+    public void testFilter() {
+        LikeFilterImpl like = (LikeFilterImpl) like("main*", "\\", false);
+        assertTrue(like.matches("Main Street"));
+        like.setMatchingCase(true);
+        assertFalse(like.matches("Main Street"));
+        like.setLiteral("*Street");
+        assertTrue(like.matches("Main Street"));
+    }
+}
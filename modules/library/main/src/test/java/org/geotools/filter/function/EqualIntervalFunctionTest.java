@@ -94,6 +94,17 @@ public class EqualIntervalFunctionTest extends FunctionTestSupport {
         // try again with foo
     }
 
+    public void testEvaluateApproximate() throws Exception {
+        Function func =
+                ff.function("EqualInterval", ff.property("foo"), ff.literal(3), ff.literal(0.01));
+        RangedClassifier ranged = (RangedClassifier) func.evaluate(featureCollection);
+        // min and max are exact, same classes as above
+        assertEquals(3, ranged.getSize());
+        assertEquals("4..32.667", ranged.getTitle(0));
+        assertEquals("32.667..61.333", ranged.getTitle(1));
+        assertEquals("61.333..90", ranged.getTitle(2));
+    }
+
     /** FIXME: Please for the love on binpop */
     public void testEvaulateWithStrings() throws Exception {
         org.opengis.filter.expression.Expression function =
@@ -237,4 +237,24 @@ public class QuantileFunctionTest extends FunctionTestSupport {
         assertEquals(1, classifier.getValues(0).size());
         assertEquals("abc", classifier.getValues(0).iterator().next());
     }
+
+    public void testApproximate() throws Exception {
+        Function func =
+                ff.function("Quantile", ff.property("foo"), ff.literal(2), ff.literal(0.01));
+        RangedClassifier ranged = (RangedClassifier) func.evaluate(featureCollection);
+        // few values, the sketch is exact and gives the same breaks
+        assertEquals(2, ranged.getSize());
+        assertEquals("4..29", ranged.getTitle(0));
+        assertEquals("29..90", ranged.getTitle(1));
+    }
+
+    public void testApproximateString() throws Exception {
+        Function func =
+                ff.function("Quantile", ff.property("group"), ff.literal(2), ff.literal(0.01));
+        RangedClassifier ranged = (RangedClassifier) func.evaluate(featureCollection);
+        assertEquals(2, ranged.getSize());
+        for (SimpleFeature feature : testFeatures) {
+            assertTrue(ranged.classify(ff.property("group"), feature) >= 0);
+        }
+    }
 }
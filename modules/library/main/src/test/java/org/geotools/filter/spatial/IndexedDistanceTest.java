@@ -0,0 +1,138 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Expression;
+
+public class IndexedDistanceTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    WKTReader reader = new WKTReader();
+
+    List<Geometry> buildTargets() throws Exception {
+        List<Geometry> result = new ArrayList<>();
+        for (int i = -2; i < 14; i++) {
+            result.add(reader.read("POINT(" + i + " " + (i * 0.7) + ")"));
+            result.add(reader.read("LINESTRING(" + i + " -3, " + (i + 0.5) + " 12)"));
+            result.add(
+                    reader.read(
+                            "POLYGON(("
+                                    + (i - 1)
+                                    + " 4, "
+                                    + (i - 0.5)
+                                    + " 4, "
+                                    + (i - 0.5)
+                                    + " 4.5, "
+                                    + (i - 1)
+                                    + " 4))"));
+        }
+        result.add(reader.read("POINT EMPTY"));
+        result.add(reader.read("POLYGON((-100 -100, 100 -100, 100 100, -100 100, -100 -100))"));
+        return result;
+    }
+
+    Geometry buildFixed() throws Exception {
+        // a concave polygon with a hole, and a separate small one
+        return reader.read(
+                "MULTIPOLYGON(((0 0, 10 0, 10 10, 5 7, 0 10, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2)), "
+                        + "((20 20, 21 20, 21 21, 20 20)))");
+    }
+
+    @Test
+    public void testSameAsJTS() throws Exception {
+        Geometry fixed = buildFixed();
+        IndexedDistance indexed = new IndexedDistance(fixed);
+        for (Geometry target : buildTargets()) {
+            assertEquals(target.toString(), fixed.distance(target), indexed.distance(target), 1e-9);
+            for (double d : new double[] {0, 0.5, 1, 3}) {
+                assertEquals(
+                        target + " within " + d,
+                        fixed.isWithinDistance(target, d),
+                        indexed.isWithinDistance(target, d));
+            }
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Geometry fixed = buildFixed();
+        LiteralGeometryCache cache = new LiteralGeometryCache();
+        Expression literal = ff.literal(fixed);
+        PreparedGeometry prepared = cache.getPrepared(literal, fixed);
+        assertNotNull(prepared);
+        assertSame(prepared, cache.getPrepared(literal, fixed));
+        IndexedDistance distance = cache.getIndexedDistance(literal, fixed);
+        assertSame(distance, cache.getIndexedDistance(literal, fixed));
+
+        // same value, but not the literal one
+        assertNull(cache.getPrepared(literal, buildFixed()));
+        // not a literal
+        assertNull(cache.getPrepared(ff.property("geom"), fixed));
+        assertNull(cache.getPrepared(literal, null));
+    }
+
+    @Test
+    public void testFiltersAndFunctions() throws Exception {
+        Geometry fixed = buildFixed();
+        Expression literal = ff.literal(fixed);
+        for (Geometry target : buildTargets()) {
+            Expression other = ff.literal(target);
+            // distance filters, the literal being prepared on either side
+            for (double d : new double[] {0, 1}) {
+                boolean within = fixed.isWithinDistance(target, d);
+                assertEquals(within, ff.dwithin(literal, other, d, "m").evaluate(null));
+                assertEquals(within, ff.dwithin(other, literal, d, "m").evaluate(null));
+                assertEquals(!within, ff.beyond(literal, other, d, "m").evaluate(null));
+                assertEquals(
+                        within,
+                        ff.function("isWithinDistance", other, literal, ff.literal(d))
+                                .evaluate(null));
+            }
+            assertEquals(
+                    fixed.distance(target),
+                    ff.function("distance", other, literal).evaluate(null, Double.class),
+                    1e-9);
+            // predicates
+            assertFunction(fixed.intersects(target), "intersects", other, literal);
+            assertFunction(fixed.intersects(target), "intersects", literal, other);
+            assertFunction(fixed.disjoint(target), "disjoint", other, literal);
+            assertFunction(fixed.contains(target), "contains", literal, other);
+            assertFunction(target.within(fixed), "within", other, literal);
+            Filter touches = ff.touches(other, literal);
+            assertEquals(target.touches(fixed), touches.evaluate(null));
+        }
+    }
+
+    void assertFunction(boolean expected, String name, Expression e1, Expression e2) {
+        assertEquals(name, expected, ff.function(name, e1, e2).evaluate(null, Boolean.class));
+    }
+}
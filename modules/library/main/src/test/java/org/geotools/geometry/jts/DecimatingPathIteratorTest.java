@@ -0,0 +1,186 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.referencing.operation.MathTransform;
+
+public class DecimatingPathIteratorTest {
+
+    static final String LINE = "LINESTRING(0 0, 0.1 0.1, 1 1, 1.05 1.1, 2 1, 3 3, 3.01 3.02, 4 0)";
+
+    static final String POLYGON =
+            "POLYGON((0 0, 10 0, 10 0.01, 10 10, 0 10, 0 0), (2 2, 2 3, 3 3, 3 2, 2 2))";
+
+    static final String MULTIPOLYGON =
+            "MULTIPOLYGON(((0 0, 1 0, 1 1, 0 1, 0 0)), ((5 5, 5 6, 6 6, 6 5, 5 5)))";
+
+    static final String MULTILINE = "MULTILINESTRING((0 0, 1 1, 2 2), EMPTY, (3 3, 4 3, 4 4, 3 3))";
+
+    WKTReader reader = new WKTReader(new GeometryFactory(new LiteCoordinateSequenceFactory()));
+
+    MathTransform xform = new AffineTransform2D(new AffineTransform(10, 0, 0, -10, 100, 200));
+
+    @Test
+    public void testSameAsEagerShape() throws Exception {
+        for (String wkt : new String[] {LINE, POLYGON, MULTIPOLYGON, MULTILINE}) {
+            Geometry geometry = reader.read(wkt);
+            for (Decimator decimator :
+                    new Decimator[] {
+                        null, new Decimator(-1, -1), new Decimator(0.5, 0.5), new Decimator(2, 2)
+                    }) {
+                LiteShape2 eager = new LiteShape2(geometry, xform, decimator, false, true);
+                LiteShape2 streaming = LiteShape2.createStreaming(geometry, xform, decimator);
+                assertNotNull(streaming);
+                assertTrue(streaming.isStreaming());
+                assertEquals(
+                        wkt,
+                        segments(eager.getPathIterator(null)),
+                        segments(streaming.getPathIterator(null)));
+                assertEquals(
+                        eager.getPathIterator(null).getWindingRule(),
+                        streaming.getPathIterator(null).getWindingRule());
+
+                // the lazily built geometry matches too
+                assertTrue(eager.getGeometry().equalsExact(streaming.getGeometry()));
+            }
+        }
+    }
+
+    @Test
+    public void testAdditionalTransform() throws Exception {
+        Geometry geometry = reader.read(POLYGON);
+        AffineTransform at = AffineTransform.getTranslateInstance(5, 7);
+        LiteShape2 eager = new LiteShape2(geometry, xform, null, false, true);
+        LiteShape2 streaming = LiteShape2.createStreaming(geometry, xform, null);
+        assertEquals(segments(eager.getPathIterator(at)), segments(streaming.getPathIterator(at)));
+    }
+
+    @Test
+    public void testSourceUntouched() throws Exception {
+        Geometry geometry = reader.read(LINE);
+        Geometry copy = geometry.copy();
+        LiteShape2 shape = LiteShape2.createStreaming(geometry, xform, new Decimator(2, 2));
+        segments(shape.getPathIterator(null));
+        shape.getGeometry();
+        assertTrue(copy.equalsExact(geometry));
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        Geometry geometry = reader.read(POLYGON);
+        LiteShape2 streaming = LiteShape2.createStreaming(geometry, xform, null);
+        Rectangle2D bounds = streaming.getBounds2D();
+        assertEquals(new Rectangle2D.Double(100, 100, 100, 100), bounds);
+        // the geometry has not been built to compute the bounds
+        assertEquals(new Rectangle(100, 100, 100, 100), streaming.getBounds());
+    }
+
+    @Test
+    public void testGeometryN() throws Exception {
+        Geometry geometry = reader.read(MULTIPOLYGON);
+        LiteShape2 streaming = LiteShape2.createStreaming(geometry, xform, null);
+        assertEquals(2, streaming.getNumGeometries());
+        LiteShape2 second = streaming.getGeometryN(1);
+        assertTrue(second.isStreaming());
+        LiteShape2 eager = new LiteShape2(geometry.getGeometryN(1), xform, null, false, true);
+        assertEquals(segments(eager.getPathIterator(null)), segments(second.getPathIterator(null)));
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        assertNull(LiteShape2.createStreaming(reader.read("POINT(1 1)"), xform, null));
+        assertNull(
+                LiteShape2.createStreaming(
+                        reader.read("GEOMETRYCOLLECTION(POINT(1 1), LINESTRING(0 0, 1 1))"),
+                        xform,
+                        null));
+        assertFalse(
+                DecimatingPathIterator.canIterate(
+                        new CurvedGeometryFactory(0.1).createCurvedGeometry(2, 0, 0, 1, 1, 2, 0),
+                        null));
+    }
+
+    @Test
+    public void testReuseBuffers() throws Exception {
+        Geometry geometry = reader.read(MULTIPOLYGON);
+        DecimatingPathIterator iterator = new DecimatingPathIterator();
+        // warm up, then check no more buffers get allocated
+        iterator.init(geometry, null, -1, -1);
+        segments(iterator);
+        CoordinateBufferPool pool = CoordinateBufferPool.get();
+        long allocations = pool.getAllocations();
+        for (int i = 0; i < 100; i++) {
+            iterator.init(geometry, null, -1, -1);
+            segments(iterator);
+        }
+        assertEquals(allocations, pool.getAllocations());
+    }
+
+    @Test
+    public void testPool() {
+        CoordinateBufferPool pool = new CoordinateBufferPool();
+        double[] small = pool.borrow(10);
+        assertEquals(CoordinateBufferPool.MIN_LENGTH, small.length);
+        double[] large = pool.borrow(1000);
+        assertEquals(1024, large.length);
+        pool.release(large);
+        pool.release(small);
+        assertSame(small, pool.borrow(100));
+        assertSame(large, pool.borrow(300));
+        assertEquals(2, pool.getAllocations());
+
+        // huge buffers are not retained
+        double[] huge = pool.borrow(CoordinateBufferPool.MAX_RETAINED_LENGTH + 1);
+        pool.release(huge);
+        double[] other = pool.borrow(CoordinateBufferPool.MAX_RETAINED_LENGTH + 1);
+        assertFalse(huge == other);
+    }
+
+    /** Collects the path segments as a list of strings, for easy comparison */
+    private List<String> segments(PathIterator pi) {
+        List<String> result = new ArrayList<>();
+        double[] coords = new double[6];
+        while (!pi.isDone()) {
+            int type = pi.currentSegment(coords);
+            if (type == PathIterator.SEG_CLOSE) {
+                result.add("CLOSE");
+            } else {
+                result.add(type + " " + coords[0] + " " + coords[1]);
+            }
+            pi.next();
+        }
+        return result;
+    }
+}
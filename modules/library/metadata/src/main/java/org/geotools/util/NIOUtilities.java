@@ -21,11 +21,14 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import org.apache.commons.lang3.JavaVersion;
 import org.apache.commons.lang3.SystemUtils;
@@ -63,6 +66,9 @@ public final class NIOUtilities {
     /** Wheter direct buffers usage is enabled, or not */
     private static boolean directBuffersEnabled = true;
 
+    /** Recognize the buffers whose mapping is shared and managed elsewhere */
+    private static final List<Predicate<ByteBuffer>> managedBuffers = new CopyOnWriteArrayList<>();
+
     static {
         String directBuffers = System.getProperty("geotools.nioutilities.direct", "true");
         directBuffersEnabled = "TRUE".equalsIgnoreCase(directBuffers);
@@ -163,6 +169,32 @@ public final class NIOUtilities {
         return result;
     }
 
+    /**
+     * Registers a predicate recognizing buffers whose mapping is shared with other readers and
+     * released by its owner once none of them uses it any longer. {@link #clean(ByteBuffer)} and
+     * {@link #clean(ByteBuffer, boolean)} leave such buffers alone, as unmapping them would pull
+     * the memory from under the other readers.
+     *
+     * @param managed returns true for the buffers managed by the caller
+     */
+    public static void addManagedBuffers(Predicate<ByteBuffer> managed) {
+        managedBuffers.add(managed);
+    }
+
+    /** Removes a predicate registered with {@link #addManagedBuffers(Predicate)} */
+    public static void removeManagedBuffers(Predicate<ByteBuffer> managed) {
+        managedBuffers.remove(managed);
+    }
+
+    private static boolean isManaged(ByteBuffer buffer) {
+        for (Predicate<ByteBuffer> managed : managedBuffers) {
+            if (managed.test(buffer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Depending on the type of buffer different cleanup action will be taken:
      *
@@ -170,13 +202,17 @@ public final class NIOUtilities {
      *   <li>if the buffer is memory mapped (as per the specified parameter) the effect is the same
      *       as {@link #clean(ByteBuffer)}
      *   <li>if the buffer is not memory mapped it will be returned to the buffer cache
+     *   <li>if the buffer is managed elsewhere, see {@link #addManagedBuffers(Predicate)}, nothing
+     *       is done
      * </ul>
      *
      * @param buffer
      * @return
      */
     public static boolean clean(final ByteBuffer buffer, boolean memoryMapped) {
-        if (memoryMapped) {
+        if (buffer != null && isManaged(buffer)) {
+            return true;
+        } else if (memoryMapped) {
             return clean(buffer);
         } else {
             if (returnToCache(buffer)) {
@@ -194,7 +230,8 @@ public final class NIOUtilities {
      * property "org.geotools.io.debugBuffer" to "true".
      *
      * <p>Starting from Java 9 the underlying Java runtime issue got fixed, so the method returns
-     * immediately in that case, without forcing any cleaning by reflection on a non exposed API
+     * immediately in that case, without forcing any cleaning by reflection on a non exposed API.
+     * Buffers managed elsewhere, see {@link #addManagedBuffers(Predicate)}, are never cleaned.
      *
      * @param buffer The buffer to close.
      * @return true if the operation was successful, false otherwise.
@@ -205,7 +242,8 @@ public final class NIOUtilities {
         // the minor version is annoying
         if (buffer == null
                 || !buffer.isDirect()
-                || SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_9)) {
+                || SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_9)
+                || isManaged(buffer)) {
             return true;
         }
 
@@ -0,0 +1,171 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.geotools.renderer.RenderMetrics.Phase;
+
+/**
+ * A {@link RenderMetricsListener} accumulating the metrics of all the maps rendered into a set of
+ * monotonic counters, that can be published as a JMX MBean via {@link #register(String)}. The
+ * counters can also be bound to other metrics systems, e.g., as function counters or timers reading
+ * {@link #getTime(Phase, TimeUnit)} and {@link #getMaps()}.
+ *
+ * <p>The same instance can be shared among renderers working concurrently.
+ *
+ * @author GeoTools
+ */
+public class CumulativeRenderMetrics
+        implements RenderMetricsListener, CumulativeRenderMetricsMBean {
+
+    final LongAdder[] times = new LongAdder[RenderMetrics.PHASES.length];
+
+    final LongAdder maps = new LongAdder();
+
+    final LongAdder layers = new LongAdder();
+
+    final LongAdder features = new LongAdder();
+
+    final LongAdder screenMapSkipped = new LongAdder();
+
+    public CumulativeRenderMetrics() {
+        for (int i = 0; i < times.length; i++) {
+            times[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void layerRendered(RenderMetrics layer) {
+        layers.increment();
+    }
+
+    @Override
+    public void mapRendered(RenderMetrics map) {
+        maps.increment();
+        for (Phase phase : RenderMetrics.PHASES) {
+            times[phase.ordinal()].add(map.getTime(phase));
+        }
+        features.add(map.getFeatures());
+        screenMapSkipped.add(map.getScreenMapSkipped());
+    }
+
+    /** Returns the total time spent in the specified phase, in the desired unit */
+    public long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(times[phase.ordinal()].sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getMaps() {
+        return maps.sum();
+    }
+
+    @Override
+    public long getLayers() {
+        return layers.sum();
+    }
+
+    @Override
+    public long getFeatures() {
+        return features.sum();
+    }
+
+    @Override
+    public long getScreenMapSkipped() {
+        return screenMapSkipped.sum();
+    }
+
+    @Override
+    public long getQueryTime() {
+        return getTime(Phase.QUERY, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getFetchTime() {
+        return getTime(Phase.FETCH, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getTransformTime() {
+        return getTime(Phase.TRANSFORM, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getDecimationTime() {
+        return getTime(Phase.DECIMATION, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getPaintTime() {
+        return getTime(Phase.PAINT, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getLabelTime() {
+        return getTime(Phase.LABEL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder time : times) {
+            time.reset();
+        }
+        maps.reset();
+        layers.reset();
+        features.reset();
+        screenMapSkipped.reset();
+    }
+
+    /**
+     * Registers this object in the platform MBean server, under the <code>
+     * org.geotools:type=RenderMetrics,name=&lt;name&gt;</code> object name
+     *
+     * @return The object name, to be used for unregistering
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName =
+                new ObjectName("org.geotools:type=RenderMetrics,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /** Removes the registration made by {@link #register(String)} */
+    public void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CumulativeRenderMetrics[maps=").append(getMaps());
+        sb.append(", layers=").append(getLayers());
+        for (Phase phase : RenderMetrics.PHASES) {
+            sb.append(", ")
+                    .append(phase.name().toLowerCase())
+                    .append('=')
+                    .append(getTime(phase, TimeUnit.MILLISECONDS))
+                    .append("ms");
+        }
+        sb.append(", features=").append(getFeatures());
+        sb.append(", screenMapSkipped=").append(getScreenMapSkipped());
+        return sb.append("]").toString();
+    }
+}
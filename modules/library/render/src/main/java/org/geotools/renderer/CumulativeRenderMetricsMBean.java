@@ -0,0 +1,59 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+/**
+ * JMX view of {@link CumulativeRenderMetrics}. All values are monotonic counters, times are
+ * expressed in milliseconds.
+ *
+ * @author GeoTools
+ */
+public interface CumulativeRenderMetricsMBean {
+
+    /** Number of maps rendered */
+    long getMaps();
+
+    /** Number of layers rendered */
+    long getLayers();
+
+    /** Number of features read from the data sources */
+    long getFeatures();
+
+    /** Number of features skipped because their area of the map was already painted */
+    long getScreenMapSkipped();
+
+    /** Time spent running the queries and reading coverages */
+    long getQueryTime();
+
+    /** Time spent fetching the features */
+    long getFetchTime();
+
+    /** Time spent transforming geometries and coverages */
+    long getTransformTime();
+
+    /** Time spent generalizing geometries */
+    long getDecimationTime();
+
+    /** Time spent painting */
+    long getPaintTime();
+
+    /** Time spent collecting and painting labels */
+    long getLabelTime();
+
+    /** Resets all the counters */
+    void reset();
+}
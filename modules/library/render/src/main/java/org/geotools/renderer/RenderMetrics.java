@@ -0,0 +1,163 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counters collected while rendering a map, organized as a tree: the map contains one
+ * node per layer, each layer contains one node per feature type style. Times are collected in
+ * nanoseconds, for each {@link Phase}, and the getters report the totals of the node and all its
+ * children.
+ *
+ * <p>The nodes can be updated concurrently, as the renderers load data and paint in different
+ * threads.
+ *
+ * @author GeoTools
+ * @see RenderMetricsListener
+ */
+public class RenderMetrics {
+
+    /** The rendering phases being timed */
+    public enum Phase {
+        /** Running the query, up to opening the feature iterator, or reading a coverage */
+        QUERY,
+        /** Fetching the features out of the iterator */
+        FETCH,
+        /** Transforming the geometries (or the coverages) to the map space */
+        TRANSFORM,
+        /** Generalizing the geometries */
+        DECIMATION,
+        /** Painting the shapes (or the images) */
+        PAINT,
+        /** Collecting and painting the labels */
+        LABEL
+    }
+
+    static final Phase[] PHASES = Phase.values();
+
+    final String name;
+
+    final LongAdder[] times = new LongAdder[PHASES.length];
+
+    final LongAdder features = new LongAdder();
+
+    final LongAdder screenMapSkipped = new LongAdder();
+
+    final List<RenderMetrics> children = new CopyOnWriteArrayList<>();
+
+    public RenderMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < times.length; i++) {
+            times[i] = new LongAdder();
+        }
+    }
+
+    /** The name of the map, layer or feature type style the metrics refer to */
+    public String getName() {
+        return name;
+    }
+
+    /** Creates a new child node, and attaches it to this one */
+    public RenderMetrics addChild(String name) {
+        RenderMetrics child = new RenderMetrics(name);
+        children.add(child);
+        return child;
+    }
+
+    /** The child nodes, in creation order */
+    public List<RenderMetrics> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /** Adds the specified amount of nanoseconds to the phase */
+    public void addTime(Phase phase, long nanos) {
+        times[phase.ordinal()].add(nanos);
+    }
+
+    /** Adds the time elapsed since <code>startNanos</code>, as per {@link System#nanoTime()} */
+    public void addTimeSince(Phase phase, long startNanos) {
+        times[phase.ordinal()].add(System.nanoTime() - startNanos);
+    }
+
+    /** Returns the time spent in the specified phase, in nanoseconds, children included */
+    public long getTime(Phase phase) {
+        long result = times[phase.ordinal()].sum();
+        for (RenderMetrics child : children) {
+            result += child.getTime(phase);
+        }
+        return result;
+    }
+
+    /** Returns the time spent in all phases, in nanoseconds, children included */
+    public long getTotalTime() {
+        long result = 0;
+        for (Phase phase : PHASES) {
+            result += getTime(phase);
+        }
+        return result;
+    }
+
+    /** Counts a feature read from the data source */
+    public void incrementFeatures() {
+        features.increment();
+    }
+
+    /** Returns the number of features read from the data source, children included */
+    public long getFeatures() {
+        long result = features.sum();
+        for (RenderMetrics child : children) {
+            result += child.getFeatures();
+        }
+        return result;
+    }
+
+    /** Counts a feature skipped because its area of the map was already painted */
+    public void incrementScreenMapSkipped() {
+        screenMapSkipped.increment();
+    }
+
+    /**
+     * Returns the number of features skipped because their area of the map was already painted,
+     * children included
+     */
+    public long getScreenMapSkipped() {
+        long result = screenMapSkipped.sum();
+        for (RenderMetrics child : children) {
+            result += child.getScreenMapSkipped();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RenderMetrics[").append(name);
+        for (Phase phase : PHASES) {
+            sb.append(", ")
+                    .append(phase.name().toLowerCase())
+                    .append('=')
+                    .append(getTime(phase) / 1000000d)
+                    .append("ms");
+        }
+        sb.append(", features=").append(getFeatures());
+        sb.append(", screenMapSkipped=").append(getScreenMapSkipped());
+        return sb.append("]").toString();
+    }
+}
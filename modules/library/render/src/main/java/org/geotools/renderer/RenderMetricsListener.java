@@ -0,0 +1,43 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+/**
+ * Receives the {@link RenderMetrics} collected by the renderers. Metrics are collected only when at
+ * least one listener is registered, and the listeners are called in the rendering threads, hence
+ * they should do <b>VERY LITTLE WORK</b>.
+ *
+ * @author GeoTools
+ * @see CumulativeRenderMetrics
+ */
+public interface RenderMetricsListener {
+
+    /**
+     * Reports that a layer has been rendered. Labels are painted at the end of the map, so their
+     * painting time is reported only in {@link #mapRendered(RenderMetrics)}.
+     *
+     * @param layer The metrics of the layer, with one child per feature type style
+     */
+    public void layerRendered(RenderMetrics layer);
+
+    /**
+     * Reports that the whole map has been rendered
+     *
+     * @param map The metrics of the map, with one child per layer
+     */
+    public void mapRendered(RenderMetrics map);
+}
@@ -32,11 +32,16 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -105,6 +110,18 @@ public class LabelCacheImpl implements LabelCache {
     public static boolean DISABLE_LETTER_LEVEL_CONFLICT =
             Boolean.getBoolean("org.geotools.labelcache.disableLetterLevelConflict");
 
+    /**
+     * Minimum number of labels triggering the parallel computation of the label representative
+     * locations (clipping and line merging) before the labels get placed, when an executor has been
+     * set with {@link #setExecutor(Executor)}. Use a non positive value to disable the parallel
+     * preparation
+     */
+    public static int PARALLEL_PREPARATION_THRESHOLD =
+            Integer.getInteger("org.geotools.labelcache.parallelPreparationThreshold", 1000);
+
+    /** Marks a prepared label that has no representative location in the display area */
+    static final Object NO_LOCATION = new Object();
+
     public enum LabelRenderingMode {
         /**
          * Always uses {@link Graphics2D#drawGlyphVector(java.awt.font.GlyphVector, float, float)}
@@ -187,6 +204,12 @@ public class LabelCacheImpl implements LabelCache {
     private BiFunction<Graphics2D, LabelRenderingMode, LabelPainter> constructPainter =
             LabelPainter::new;
 
+    /** The representative locations computed ahead of the label placement, by label item */
+    Map<LabelCacheItem, Object> preparedLocations = Collections.emptyMap();
+
+    /** The executor preparing the label locations in parallel, if any */
+    Executor executor;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -201,6 +224,15 @@ public class LabelCacheImpl implements LabelCache {
         this.labelRenderingMode = mode;
     }
 
+    /**
+     * Sets the executor computing the label representative locations in parallel, before the labels
+     * get placed (see {@link #PARALLEL_PREPARATION_THRESHOLD}). When null, the default, the
+     * locations are computed while placing the labels.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Change the method used to construct LabelPainters. Defaults to {@link
      * LabelPainter#LabelPainter}.
@@ -510,12 +542,26 @@ public class LabelCacheImpl implements LabelCache {
             items = getActiveLabels();
         }
         LabelPainter painter = constructPainter.apply(graphics, labelRenderingMode);
-        for (LabelCacheItem labelItem : items) {
-            if (stop) return;
-
-            paintedLineLabels =
-                    paintLabel(
-                            graphics, displayArea, glyphs, paintedLineLabels, painter, labelItem);
+        try {
+            if (executor != null
+                    && PARALLEL_PREPARATION_THRESHOLD > 0
+                    && items.size() >= PARALLEL_PREPARATION_THRESHOLD) {
+                prepareLocations(items, displayArea);
+            }
+            for (LabelCacheItem labelItem : items) {
+                if (stop) return;
+
+                paintedLineLabels =
+                        paintLabel(
+                                graphics,
+                                displayArea,
+                                glyphs,
+                                paintedLineLabels,
+                                painter,
+                                labelItem);
+            }
+        } finally {
+            preparedLocations = Collections.emptyMap();
         }
         // Output for line labels
         LOGGER.log(Level.FINE, "TOTAL LINE LABELS : {0}", items.size());
@@ -586,6 +632,154 @@ public class LabelCacheImpl implements LabelCache {
         return paintedLineLabels;
     }
 
+    /**
+     * Computes the representative locations of the labels in parallel, on the executor. The
+     * computation only depends on the label geometries, but it alters their cached envelopes, so
+     * the labels are first split in groups that do not share any geometry, and each group is
+     * handled by a single thread. The placement itself stays sequential, as it follows the label
+     * priorities
+     */
+    void prepareLocations(List<LabelCacheItem> items, Rectangle displayArea) {
+        // union-find over the labels sharing the same geometry objects
+        int[] parents = new int[items.size()];
+        Map<Geometry, Integer> owners = new IdentityHashMap<>();
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+            for (Geometry g : items.get(i).getGeoms()) {
+                Integer owner = owners.putIfAbsent(g, i);
+                if (owner != null) {
+                    parents[findRoot(parents, i)] = findRoot(parents, owner);
+                }
+            }
+        }
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < parents.length; i++) {
+            groups.computeIfAbsent(findRoot(parents, i), k -> new ArrayList<>()).add(i);
+        }
+
+        // a few batches per processor, each claimed either by an executor thread or by the caller
+        List<List<Integer>> batches = new ArrayList<>();
+        int batchCount = Runtime.getRuntime().availableProcessors() * 4;
+        int batchSize = parents.length / batchCount + 1;
+        List<Integer> batch = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            batch.addAll(group);
+            if (batch.size() >= batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        Object[] locations = new Object[parents.length];
+        CountDownLatch completed = new CountDownLatch(batches.size());
+        Runnable[] tasks = new Runnable[batches.size()];
+        for (int b = 0; b < tasks.length; b++) {
+            List<Integer> indexes = batches.get(b);
+            AtomicBoolean claimed = new AtomicBoolean();
+            tasks[b] =
+                    () -> {
+                        if (!claimed.compareAndSet(false, true)) {
+                            return;
+                        }
+                        try {
+                            for (Integer i : indexes) {
+                                if (stop) return;
+                                try {
+                                    Object location = computeLocation(items.get(i), displayArea);
+                                    locations[i] = location != null ? location : NO_LOCATION;
+                                } catch (Exception e) {
+                                    // leave it to paintLabel, that will report the failure
+                                    LOGGER.log(Level.FINE, "Failed to prepare label location", e);
+                                }
+                            }
+                        } finally {
+                            completed.countDown();
+                        }
+                    };
+        }
+        if (executor != null) {
+            for (Runnable task : tasks) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.log(Level.FINE, "Executor saturated, preparing the labels in turn", e);
+                    break;
+                }
+            }
+        }
+        // the batches not picked up yet are prepared by the calling thread
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        // the placement alters the label geometries, wait for all the batches to be done
+        boolean interrupted = false;
+        while (completed.getCount() > 0) {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<LabelCacheItem, Object> prepared = new IdentityHashMap<>();
+        for (int i = 0; i < locations.length; i++) {
+            if (locations[i] != null) {
+                prepared.put(items.get(i), locations[i]);
+            }
+        }
+        preparedLocations = prepared;
+    }
+
+    private static int findRoot(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Computes the representative location used by {@link #paintLabel}, a {@link Point}, a {@link
+     * Polygon} or a list of {@link LineString}, or returns null if the label has no representative
+     * location or is labelled in a way that does not use one
+     */
+    private Object computeLocation(LabelCacheItem labelItem, Rectangle displayArea) {
+        Geometry geom = labelItem.getGeometry();
+        if ((geom instanceof Point) || (geom instanceof MultiPoint)) {
+            return getPointSetRepresentativeLocation(
+                    labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+        } else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
+                || (geom instanceof MultiLineString)) {
+            return getLineSetRepresentativeLocation(
+                    labelItem.getGeoms(),
+                    displayArea,
+                    labelItem.removeGroupOverlaps(),
+                    labelItem.isPartialsEnabled());
+        } else if ((geom instanceof Polygon
+                        || geom instanceof MultiPolygon
+                        || geom instanceof LinearRing)
+                && labelItem.getTextStyle().isPointPlacement()
+                && !labelItem.isFollowLineEnabled()) {
+            return getPolySetRepresentativeLocation(
+                    labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the location prepared for the label, if any, or {@code null} if the label was not
+     * prepared (the caller should then compute it directly)
+     */
+    private Object getPreparedLocation(LabelCacheItem labelItem) {
+        return preparedLocations.isEmpty() ? null : preparedLocations.remove(labelItem);
+    }
+
     private Envelope toEnvelope(Rectangle2D bounds) {
         return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
     }
@@ -675,12 +869,7 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex paintedBounds)
             throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines =
-                getLineSetRepresentativeLocation(
-                        labelItem.getGeoms(),
-                        displayArea,
-                        labelItem.removeGroupOverlaps(),
-                        labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0) return false;
 
@@ -897,12 +1086,7 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex paintedBounds)
             throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines =
-                getLineSetRepresentativeLocation(
-                        labelItem.getGeoms(),
-                        displayArea,
-                        labelItem.removeGroupOverlaps(),
-                        labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0) return false;
 
@@ -1286,9 +1470,12 @@ public class LabelCacheImpl implements LabelCache {
             throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
         // get the point onto the shape has to be painted
+        Object prepared = getPreparedLocation(labelItem);
         Point point =
-                getPointSetRepresentativeLocation(
-                        labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+                prepared != null
+                        ? prepared == NO_LOCATION ? null : (Point) prepared
+                        : getPointSetRepresentativeLocation(
+                                labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
         if (point == null) return false;
 
         // prepare for the search loop
@@ -1522,9 +1709,12 @@ public class LabelCacheImpl implements LabelCache {
             LabelIndex glyphs)
             throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
+        Object prepared = getPreparedLocation(labelItem);
         Polygon geom =
-                getPolySetRepresentativeLocation(
-                        labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+                prepared != null
+                        ? prepared == NO_LOCATION ? null : (Polygon) prepared
+                        : getPolySetRepresentativeLocation(
+                                labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
         if (geom == null) {
             return false;
         }
@@ -1809,6 +1999,19 @@ public class LabelCacheImpl implements LabelCache {
         return merged;
     }
 
+    @SuppressWarnings("unchecked")
+    private List<LineString> getLineLocation(LabelCacheItem labelItem, Rectangle displayArea) {
+        Object prepared = getPreparedLocation(labelItem);
+        if (prepared != null) {
+            return prepared == NO_LOCATION ? null : (List<LineString>) prepared;
+        }
+        return getLineSetRepresentativeLocation(
+                labelItem.getGeoms(),
+                displayArea,
+                labelItem.removeGroupOverlaps(),
+                labelItem.isPartialsEnabled());
+    }
+
     private int accumulateLineStrings(Geometry g, List<LineString> lines) {
         if (!((g instanceof LineString)
                 || (g instanceof MultiLineString)
@@ -17,20 +17,39 @@
 package org.geotools.renderer.label;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.quadtree.Quadtree;
 
 /**
  * Stores label items and helps in finding the interferering ones, either by pure overlap or within
  * a certain distance from the specified bounds
  *
+ * <p>Labels are added one at a time and queried in between additions, so the index is organized as
+ * a small insertion buffer, scanned linearly, plus a set of packed R-trees whose sizes are
+ * increasing powers of two. When the buffer fills up it gets merged with all the smaller trees into
+ * a new packed tree, so each label is re-packed a logarithmic number of times. Boxes are kept in
+ * flat double arrays, and queries do not allocate.
+ *
  * @author Andrea Aime
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /** Number of children of each packed tree node */
+    static final int NODE_SIZE = 16;
+
+    /** Number of labels accumulated in the insertion buffer before packing them in a tree */
+    static final int BUFFER_SIZE = 64;
+
+    /** The boxes in the insertion buffer, as minx, miny, maxx, maxy sequences */
+    double[] buffer = new double[BUFFER_SIZE * 4];
+
+    /** The labels in the insertion buffer (keeping the item around helps in debugging) */
+    LabelCacheItem[] bufferItems = new LabelCacheItem[BUFFER_SIZE];
+
+    int bufferSize;
+
+    /** The packed trees, the tree at position i is either null or has BUFFER_SIZE * 2^i entries */
+    PackedTree[] trees = new PackedTree[0];
 
     /**
      * Returns true if there is any label in the index within the specified distance from the
@@ -41,17 +60,20 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
         if (distance < 0) return false;
 
-        Envelope e = toEnvelope(bounds);
-        e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0) return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext(); ) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
+        double minX = bounds.getMinX() - distance;
+        double minY = bounds.getMinY() - distance;
+        double maxX = bounds.getMaxX() + distance;
+        double maxY = bounds.getMaxY() + distance;
+        for (int i = 0, offset = 0; i < bufferSize; i++, offset += 4) {
+            if (intersects(buffer, offset, minX, minY, maxX, maxY)) {
+                return true;
+            }
+        }
+        for (PackedTree tree : trees) {
+            if (tree != null && tree.intersects(minX, minY, maxX, maxY)) {
                 return true;
             }
         }
@@ -65,48 +87,215 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
-        Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        if (bufferSize == BUFFER_SIZE) {
+            flush();
+        }
+        int offset = bufferSize * 4;
+        buffer[offset] = bounds.getMinX();
+        buffer[offset + 1] = bounds.getMinY();
+        buffer[offset + 2] = bounds.getMaxX();
+        buffer[offset + 3] = bounds.getMaxY();
+        bufferItems[bufferSize] = item;
+        bufferSize++;
     }
 
     /**
-     * Turns the specified Java2D rectangle into a JTS envelope
+     * Reserve the area indicated by these Geometry.
      *
-     * @param bounds
-     * @return
+     * @param reserved
      */
-    private Envelope toEnvelope(Rectangle2D bounds) {
-        return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
+    public void reserveArea(List<Rectangle2D> reserved) {
+        for (Rectangle2D area : reserved) {
+            addLabel(null, area);
+        }
+    }
+
+    /** Number of labels and reserved areas in the index */
+    int size() {
+        int size = bufferSize;
+        for (PackedTree tree : trees) {
+            if (tree != null) {
+                size += tree.size;
+            }
+        }
+        return size;
     }
 
     /**
-     * Simple structure stored into the quadtree (keeping the item around helps in debugging)
-     *
-     * @author Andrea Aime
+     * Packs the insertion buffer, along with the trees that are not bigger than it, into a new
+     * tree, in the first empty slot
      */
-    static class InterferenceItem {
-        Envelope env;
+    private void flush() {
+        int level = 0;
+        int size = bufferSize;
+        while (level < trees.length && trees[level] != null) {
+            size += trees[level].size;
+            level++;
+        }
+        double[] boxes = new double[size * 4];
+        LabelCacheItem[] items = new LabelCacheItem[size];
+        System.arraycopy(buffer, 0, boxes, 0, bufferSize * 4);
+        System.arraycopy(bufferItems, 0, items, 0, bufferSize);
+        int count = bufferSize;
+        for (int i = 0; i < level; i++) {
+            PackedTree tree = trees[i];
+            System.arraycopy(tree.boxes, 0, boxes, count * 4, tree.size * 4);
+            System.arraycopy(tree.items, 0, items, count, tree.size);
+            count += tree.size;
+            trees[i] = null;
+        }
+        if (level == trees.length) {
+            trees = Arrays.copyOf(trees, level + 1);
+        }
+        trees[level] = new PackedTree(boxes, items, size);
 
-        LabelCacheItem item;
+        Arrays.fill(bufferItems, null);
+        bufferSize = 0;
+    }
 
-        public InterferenceItem(Envelope env, LabelCacheItem item) {
-            super();
-            this.env = env;
-            this.item = item;
-        }
+    static boolean intersects(
+            double[] boxes, int offset, double minX, double minY, double maxX, double maxY) {
+        return boxes[offset] <= maxX
+                && boxes[offset + 2] >= minX
+                && boxes[offset + 1] <= maxY
+                && boxes[offset + 3] >= minY;
     }
 
     /**
-     * Reserve the area indicated by these Geometry.
-     *
-     * @param reserved
+     * A static R-tree packed in a flat array, with the entries sorted along a Hilbert curve and the
+     * nodes of each level grouping {@link LabelIndex#NODE_SIZE} consecutive nodes of the level
+     * below
      */
-    public void reserveArea(List<Rectangle2D> reserved) {
-        for (Rectangle2D area : reserved) {
-            Envelope env = toEnvelope(area);
+    static final class PackedTree {
+
+        /** Resolution of the Hilbert curve used to sort the entries, small enough to fit an int */
+        static final int HILBERT_ORDER = 15;
+
+        final int size;
+
+        /** Boxes of the entries first, followed by the ones of each upper level, up to the root */
+        final double[] boxes;
+
+        final LabelCacheItem[] items;
+
+        /** Start position, in boxes, of each level */
+        final int[] levelOffsets;
+
+        /** Number of boxes in each level */
+        final int[] levelSizes;
+
+        PackedTree(double[] entries, LabelCacheItem[] entryItems, int size) {
+            this.size = size;
+
+            // compute the number and size of the levels
+            int levels = 1;
+            for (int n = size; n > 1; n = (n + NODE_SIZE - 1) / NODE_SIZE) {
+                levels++;
+            }
+            levelOffsets = new int[levels];
+            levelSizes = new int[levels];
+            int total = 0;
+            for (int level = 0, n = size; level < levels; level++) {
+                levelOffsets[level] = total;
+                levelSizes[level] = n;
+                total += n;
+                n = (n + NODE_SIZE - 1) / NODE_SIZE;
+            }
+            boxes = new double[total * 4];
+            items = new LabelCacheItem[size];
 
-            InterferenceItem item = new InterferenceItem(env, null);
-            index.insert(env, item);
+            // sort the entries along the Hilbert curve of their centers
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size * 4; i += 4) {
+                double cx = (entries[i] + entries[i + 2]) / 2;
+                double cy = (entries[i + 1] + entries[i + 3]) / 2;
+                minX = Math.min(minX, cx);
+                minY = Math.min(minY, cy);
+                maxX = Math.max(maxX, cx);
+                maxY = Math.max(maxY, cy);
+            }
+            double max = (1 << HILBERT_ORDER) - 1;
+            double scaleX = maxX > minX ? max / (maxX - minX) : 0;
+            double scaleY = maxY > minY ? max / (maxY - minY) : 0;
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                double cx = (entries[i * 4] + entries[i * 4 + 2]) / 2;
+                double cy = (entries[i * 4 + 1] + entries[i * 4 + 3]) / 2;
+                int x = (int) ((cx - minX) * scaleX);
+                int y = (int) ((cy - minY) * scaleY);
+                keys[i] = ((long) hilbert(x, y) << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                int source = (int) keys[i];
+                System.arraycopy(entries, source * 4, boxes, i * 4, 4);
+                items[i] = entryItems[source];
+            }
+
+            // build the upper levels bottom up
+            for (int level = 1; level < levels; level++) {
+                int childOffset = levelOffsets[level - 1];
+                int childCount = levelSizes[level - 1];
+                for (int node = 0; node < levelSizes[level]; node++) {
+                    int offset = (levelOffsets[level] + node) * 4;
+                    boxes[offset] = Double.POSITIVE_INFINITY;
+                    boxes[offset + 1] = Double.POSITIVE_INFINITY;
+                    boxes[offset + 2] = Double.NEGATIVE_INFINITY;
+                    boxes[offset + 3] = Double.NEGATIVE_INFINITY;
+                    int end = Math.min((node + 1) * NODE_SIZE, childCount);
+                    for (int child = node * NODE_SIZE; child < end; child++) {
+                        int co = (childOffset + child) * 4;
+                        boxes[offset] = Math.min(boxes[offset], boxes[co]);
+                        boxes[offset + 1] = Math.min(boxes[offset + 1], boxes[co + 1]);
+                        boxes[offset + 2] = Math.max(boxes[offset + 2], boxes[co + 2]);
+                        boxes[offset + 3] = Math.max(boxes[offset + 3], boxes[co + 3]);
+                    }
+                }
+            }
+        }
+
+        /** Returns true if any entry intersects the specified box */
+        boolean intersects(double minX, double minY, double maxX, double maxY) {
+            int root = levelOffsets.length - 1;
+            return LabelIndex.intersects(boxes, levelOffsets[root] * 4, minX, minY, maxX, maxY)
+                    && (root == 0 || intersects(root, 0, minX, minY, maxX, maxY));
+        }
+
+        private boolean intersects(
+                int level, int node, double minX, double minY, double maxX, double maxY) {
+            int childLevel = level - 1;
+            int childOffset = levelOffsets[childLevel];
+            int end = Math.min((node + 1) * NODE_SIZE, levelSizes[childLevel]);
+            for (int child = node * NODE_SIZE; child < end; child++) {
+                if (LabelIndex.intersects(boxes, (childOffset + child) * 4, minX, minY, maxX, maxY)
+                        && (childLevel == 0
+                                || intersects(childLevel, child, minX, minY, maxX, maxY))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Position of the specified cell along the Hilbert curve */
+        static int hilbert(int x, int y) {
+            int d = 0;
+            for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+                int rx = (x & s) > 0 ? 1 : 0;
+                int ry = (y & s) > 0 ? 1 : 0;
+                d += s * s * ((3 * rx) ^ ry);
+                // rotate the quadrant
+                if (ry == 0) {
+                    if (rx == 1) {
+                        x = s - 1 - x;
+                        y = s - 1 - y;
+                    }
+                    int t = x;
+                    x = y;
+                    y = t;
+                }
+            }
+            return d;
         }
     }
 }
@@ -510,7 +510,7 @@ public class LabelPainter {
     private void drawGlyphVector(LineComponent component) {
         LineMetrics metrics = computeLineMetricsIfNeeded(component);
         GlyphVector gv = component.getGlyphVector();
-        java.awt.Shape outline = gv.getOutline();
+        java.awt.Shape outline = component.getOutline();
         if (labelItem.getTextStyle().getHaloFill() != null) {
             configureHalo();
             graphics.draw(outline);
@@ -686,7 +686,7 @@ public class LabelPainter {
                 final Font font = component.getGlyphVector().getFont();
                 Number tracking = (Number) font.getAttributes().get(TextAttribute.TRACKING);
                 for (int i = 0; i < numGlyphs; i++) {
-                    outlines[i] = glyphVector.getGlyphOutline(i);
+                    outlines[i] = component.getGlyphOutline(i);
                     Point2D p = glyphVector.getGlyphPosition(i);
                     float advance = nextAdvance;
                     if (tracking != null) {
@@ -19,13 +19,11 @@ package org.geotools.renderer.label;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.font.FontRenderContext;
-import java.awt.font.GlyphVector;
 import java.awt.font.LineBreakMeasurer;
 import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
-import java.text.Bidi;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +33,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 import org.geotools.renderer.label.LineInfo.LineComponent;
+import org.geotools.renderer.style.GlyphVectorCache;
+import org.geotools.renderer.style.GlyphVectorCache.Glyphs;
 
 /**
  * Helper class splitting a LabelCacheItem text over multiple lines (if necessary due to newlines or
@@ -51,6 +51,8 @@ class LabelSplitter {
     /** Splits a string on spaces between words, keeping the spaces attached to the */
     private static final Pattern WORD_SPLITTER = Pattern.compile("(?<=\\s)(?=\\S)");
 
+    GlyphVectorCache glyphCache = GlyphVectorCache.getDefaultInstance();
+
     public List<LineInfo> layout(LabelCacheItem labelItem, Graphics2D graphics) {
         String text = labelItem.getLabel();
         Font[] fonts = labelItem.getTextStyle().getFonts();
@@ -62,7 +64,7 @@ class LabelSplitter {
                         || textLength == fonts[0].canDisplayUpTo(text.toCharArray(), 0, textLength);
         if (!(text.contains("\n") || labelItem.getAutoWrap() > 0) && singleFont) {
             FontRenderContext frc = graphics.getFontRenderContext();
-            TextLayout layout = new TextLayout(text, fonts[0], frc);
+            TextLayout layout = glyphCache.getGlyphs(text, fonts[0], frc).getTextLayout();
             LineInfo lineInfo = new LineInfo();
             List<LineComponent> components =
                     buildLineComponents(text, fonts[0], labelItem, graphics, layout);
@@ -84,7 +86,8 @@ class LabelSplitter {
                 for (FontRange range : ranges) {
                     graphics.setFont(range.font);
                     FontRenderContext frc = graphics.getFontRenderContext();
-                    TextLayout layout = new TextLayout(range.text, range.font, frc);
+                    TextLayout layout =
+                            glyphCache.getGlyphs(range.text, range.font, frc).getTextLayout();
                     List<LineComponent> components =
                             buildLineComponents(
                                     range.text, range.font, labelItem, graphics, layout);
@@ -211,17 +214,11 @@ class LabelSplitter {
                     Font spacerFont =
                             font.deriveFont(
                                     Collections.singletonMap(TextAttribute.TRACKING, tracking));
-                    TextLayout spacerLayout =
-                            new TextLayout(
-                                    SINGLE_CHAR_STRING,
-                                    spacerFont,
-                                    graphics.getFontRenderContext());
+                    Glyphs spacerGlyphs =
+                            layoutSentence(SINGLE_CHAR_STRING, labelItem, graphics, spacerFont);
                     LineComponent spacer =
                             new LineComponent(
-                                    SINGLE_CHAR_STRING,
-                                    layoutSentence(
-                                            SINGLE_CHAR_STRING, labelItem, graphics, spacerFont),
-                                    spacerLayout);
+                                    SINGLE_CHAR_STRING, spacerGlyphs, spacerGlyphs.getTextLayout());
                     result.add(spacer);
                 }
             }
@@ -283,43 +280,15 @@ class LabelSplitter {
     }
 
     /**
-     * Turns a string into the corresponding {@link GlyphVector}
+     * Turns a string into the corresponding laid out glyphs, eventually reusing the ones already
+     * computed for the same text, font and rendering context
      *
      * @param label
      * @param item
      * @return
      */
-    GlyphVector layoutSentence(String label, LabelCacheItem item, Graphics2D graphics, Font font) {
-        final char[] chars = label.toCharArray();
-        final int length = label.length();
-        if (Bidi.requiresBidi(chars, 0, length)) {
-            Bidi bidi = new Bidi(label, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT);
-            if (bidi.isRightToLeft()) {
-                return font.layoutGlyphVector(
-                        graphics.getFontRenderContext(),
-                        chars,
-                        0,
-                        length,
-                        Font.LAYOUT_RIGHT_TO_LEFT);
-            } else if (bidi.isMixed()) {
-                String r = "";
-                for (int i = 0; i < bidi.getRunCount(); i++) {
-                    String s1 = label.substring(bidi.getRunStart(i), bidi.getRunLimit(i));
-                    if (bidi.getRunLevel(i) % 2 == 0) {
-                        s1 = new StringBuffer(s1).reverse().toString();
-                    }
-                    r = r + s1;
-                }
-                char[] chars2 = r.toCharArray();
-                return font.layoutGlyphVector(
-                        graphics.getFontRenderContext(),
-                        chars2,
-                        0,
-                        length,
-                        Font.LAYOUT_RIGHT_TO_LEFT);
-            }
-        }
-        return font.layoutGlyphVector(graphics.getFontRenderContext(), chars, 0, chars.length, 0);
+    Glyphs layoutSentence(String label, LabelCacheItem item, Graphics2D graphics, Font font) {
+        return glyphCache.getGlyphs(label, font, graphics.getFontRenderContext());
     }
 
     List<FontRange> buildFontRanges(String text, Font[] fonts) {
@@ -17,6 +17,7 @@
 
 package org.geotools.renderer.label;
 
+import java.awt.Shape;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.awt.font.LineMetrics;
@@ -24,6 +25,7 @@ import java.awt.font.TextLayout;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
+import org.geotools.renderer.style.GlyphVectorCache.Glyphs;
 
 /** Core information needed to draw out a line of text */
 class LineInfo {
@@ -42,23 +44,23 @@ class LineInfo {
         // the text to be drawn
         private String text;
 
-        // the text represented as a glyph vector
-        private GlyphVector gv;
+        // the text represented as a glyph vector, possibly shared with other labels
+        private Glyphs glyphs;
 
         // the text layout
         private TextLayout layout;
 
         Rectangle2D visualBounds;
 
-        LineComponent(String text, GlyphVector gv, TextLayout layout) {
+        LineComponent(String text, Glyphs glyphs, TextLayout layout) {
             this.text = text;
-            this.gv = gv;
+            this.glyphs = glyphs;
             this.layout = layout;
         }
 
         Rectangle2D getVisualBounds() {
             if (visualBounds == null) {
-                visualBounds = gv.getVisualBounds();
+                visualBounds = glyphs.getGlyphVector().getVisualBounds();
             }
             return visualBounds;
         }
@@ -76,7 +78,17 @@ class LineInfo {
         }
 
         GlyphVector getGlyphVector() {
-            return gv;
+            return glyphs.getGlyphVector();
+        }
+
+        /** The outline of the whole glyph vector (shared, must not be modified) */
+        Shape getOutline() {
+            return glyphs.getOutline();
+        }
+
+        /** The outline of the specified glyph (shared, must not be modified) */
+        Shape getGlyphOutline(int glyphIndex) {
+            return glyphs.getGlyphOutline(glyphIndex);
         }
 
         TextLayout getLayout() {
@@ -89,7 +101,7 @@ class LineInfo {
          * context is provided.
          */
         LineMetrics computeLineMetrics(FontRenderContext fontRenderContext) {
-            return gv.getFont().getLineMetrics(text, fontRenderContext);
+            return glyphs.getGlyphVector().getFont().getLineMetrics(text, fontRenderContext);
         }
     }
 
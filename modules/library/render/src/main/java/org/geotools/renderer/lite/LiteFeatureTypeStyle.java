@@ -20,9 +20,15 @@ import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.util.List;
 import org.geotools.data.util.ScreenMap;
+import org.geotools.filter.FilterCompiler;
 import org.geotools.map.Layer;
+import org.geotools.renderer.RenderMetrics;
 import org.geotools.renderer.crs.ProjectionHandler;
 import org.geotools.styling.Rule;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.filter.Filter;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.sort.SortBy;
 
@@ -71,6 +77,18 @@ final class LiteFeatureTypeStyle {
     /** The bit map used to decide whether to skip geometries that have been already drawn */
     ScreenMap screenMap;
 
+    /**
+     * The painter dedicated to this feature type style back buffer, if parallel feature type style
+     * rendering is enabled, null otherwise
+     */
+    StreamingRenderer.FeatureTypeStylePainter ftsPainter;
+
+    /**
+     * The painter used by the main painter thread for this feature type style, null to use the
+     * renderer default one
+     */
+    StyledShapePainter painter;
+
     /**
      * Whether the feature should be generalized in memory, or not (in this case, the store did it
      * for us). True by default
@@ -86,6 +104,15 @@ final class LiteFeatureTypeStyle {
     /** The meta buffer for the current layer */
     int metaBuffer;
 
+    /** The metrics collected for this feature type style, if any */
+    RenderMetrics metrics;
+
+    /** The filters of the rules, compiled against the type of the first feature rendered */
+    private Filter[] ruleFilters;
+
+    /** Finds the rules a feature might match, null if the rules cannot be indexed */
+    private RuleDispatcher ruleDispatcher;
+
     /**
      * use this for only the 1st FTS. We don't actually create an image for it -- we just use the
      * graphics. WATCH OUT FOR THIS. NOTE: image=null in this case
@@ -107,4 +134,38 @@ final class LiteFeatureTypeStyle {
         this.elseRules = (Rule[]) elseRuleList.toArray(new Rule[elseRuleList.size()]);
         this.transformation = transformation;
     }
+
+    /**
+     * Returns the filters of the {@link #ruleList}, in the same order. The filters are compiled
+     * against the type of the first feature, when simple, so that the following features sharing
+     * the same type can be evaluated faster, and the expressions used by more than one rule are
+     * evaluated only once per feature.
+     */
+    Filter[] getRuleFilters(Feature feature) {
+        if (ruleFilters == null) {
+            Filter[] filters = new Filter[ruleList.length];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = ruleList[i].getFilter();
+            }
+            FeatureType schema = feature.getType();
+            if (schema instanceof SimpleFeatureType) {
+                ruleDispatcher = RuleDispatcher.build(filters, (SimpleFeatureType) schema);
+                filters = FilterCompiler.compile(filters, (SimpleFeatureType) schema);
+            }
+            ruleFilters = filters;
+        }
+        return ruleFilters;
+    }
+
+    /**
+     * Returns the indexes of the rules in {@link #ruleList} that might apply to the feature, in
+     * ascending order, or null if all rules should be tested. To be called after {@link
+     * #getRuleFilters(Feature)}.
+     */
+    int[] getRuleCandidates(Feature feature) {
+        if (ruleDispatcher == null) {
+            return null;
+        }
+        return ruleDispatcher.getCandidates(feature);
+    }
 }
@@ -0,0 +1,512 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.geotools.filter.visitor.SimplifyingFilterVisitor;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Quickly finds the rules that might apply to a feature, in styles with many rules testing the same
+ * attribute against different values or ranges, as generated by classifications. Equality rules
+ * (including lists of values, <code>a = 1 OR a = 2 OR ...</code>) are indexed in a hash map, range
+ * rules in a sorted array of interval boundaries, so that each feature is tested only against the
+ * rules it might match, plus the ones that could not be indexed.
+ *
+ * <p>The returned candidates are a superset of the matching rules, in the original order: their
+ * filters still need to be evaluated, the dispatcher only skips the ones that cannot match.
+ *
+ * @author GeoTools
+ */
+final class RuleDispatcher {
+
+    /** Below this number of rules, the linear scan is just as fast */
+    static final int MIN_RULES = 8;
+
+    /** The attribute types whose values can be safely hashed and sorted */
+    static final List<Class<?>> SUPPORTED_BINDINGS =
+            Arrays.asList(
+                    String.class,
+                    Integer.class,
+                    Long.class,
+                    Short.class,
+                    Byte.class,
+                    Double.class,
+                    Float.class,
+                    Boolean.class,
+                    java.util.Date.class,
+                    java.sql.Date.class,
+                    java.sql.Timestamp.class);
+
+    /** A range of values, with inclusive bounds, a null bound meaning unbounded */
+    static class Range {
+        @SuppressWarnings("rawtypes")
+        final Comparable low, high;
+
+        @SuppressWarnings("rawtypes")
+        Range(Comparable low, Comparable high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @SuppressWarnings("unchecked")
+        Range intersect(Range other) {
+            return new Range(
+                    low == null || (other.low != null && other.low.compareTo(low) > 0)
+                            ? other.low
+                            : low,
+                    high == null || (other.high != null && other.high.compareTo(high) < 0)
+                            ? other.high
+                            : high);
+        }
+    }
+
+    final SimpleFeatureType schema;
+
+    final int index;
+
+    final Class<?> binding;
+
+    /** All the rules, returned when the feature value cannot be dispatched */
+    final int[] all;
+
+    /** The candidates for each value matched by an equality rule */
+    final Map<Object, int[]> equalities;
+
+    /** The sorted range boundaries */
+    @SuppressWarnings("rawtypes")
+    final Comparable[] points;
+
+    /**
+     * The candidates for each boundary and each interval between them: slot 2 * i + 1 is the
+     * boundary i, slot 2 * i the interval before it
+     */
+    final int[][] slots;
+
+    private RuleDispatcher(
+            SimpleFeatureType schema,
+            int index,
+            int ruleCount,
+            Map<Object, int[]> equalities,
+            Comparable<?>[] points,
+            int[][] slots) {
+        this.schema = schema;
+        this.index = index;
+        this.binding = schema.getDescriptor(index).getType().getBinding();
+        this.all = new int[ruleCount];
+        for (int i = 0; i < ruleCount; i++) {
+            all[i] = i;
+        }
+        this.equalities = equalities;
+        this.points = points;
+        this.slots = slots;
+    }
+
+    /**
+     * Builds a dispatcher for the specified rule filters, or returns null if the rules are too few,
+     * or not enough of them can be indexed, to make it worthwhile
+     */
+    static RuleDispatcher build(Filter[] filters, SimpleFeatureType schema) {
+        if (filters.length < MIN_RULES || schema == null) {
+            return null;
+        }
+
+        // normalize the filters, e.g. combining ranges
+        Filter[] simplified = new Filter[filters.length];
+        SimplifyingFilterVisitor simplifier = new SimplifyingFilterVisitor();
+        simplifier.setFeatureType(schema);
+        simplifier.setRangeSimplicationEnabled(true);
+        Map<String, Integer> properties = new LinkedHashMap<>();
+        for (int i = 0; i < filters.length; i++) {
+            if (filters[i] != null) {
+                simplified[i] = (Filter) filters[i].accept(simplifier, null);
+                String property = getMainProperty(simplified[i]);
+                if (property != null) {
+                    properties.merge(property, 1, Integer::sum);
+                }
+            }
+        }
+
+        // pick the attribute used by most rules
+        String property = null;
+        int max = 0;
+        for (Map.Entry<String, Integer> entry : properties.entrySet()) {
+            if (entry.getValue() > max) {
+                property = entry.getKey();
+                max = entry.getValue();
+            }
+        }
+        if (property == null || max * 2 < filters.length) {
+            return null;
+        }
+        int index = schema.indexOf(property);
+        if (index < 0) {
+            return null;
+        }
+        Class<?> binding = schema.getDescriptor(index).getType().getBinding();
+        if (!SUPPORTED_BINDINGS.contains(binding)) {
+            return null;
+        }
+
+        // collect the constraints of each rule, null meaning the rule is always a candidate
+        List<List<Object>> constraints = new ArrayList<>();
+        int indexed = 0;
+        for (Filter filter : simplified) {
+            List<Object> ruleConstraints =
+                    filter == null ? null : getConstraints(filter, property, binding);
+            constraints.add(ruleConstraints);
+            if (ruleConstraints != null) {
+                indexed++;
+            }
+        }
+        if (indexed * 2 < filters.length) {
+            return null;
+        }
+
+        return build(schema, index, constraints);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RuleDispatcher build(
+            SimpleFeatureType schema, int index, List<List<Object>> constraints) {
+        // the boundaries of all ranges, and the rules always to be tested
+        BitSet always = new BitSet();
+        TreeSet<Comparable> boundaries = new TreeSet<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            List<Object> ruleConstraints = constraints.get(i);
+            if (ruleConstraints == null) {
+                always.set(i);
+                continue;
+            }
+            for (Object constraint : ruleConstraints) {
+                if (constraint instanceof Range) {
+                    Range range = (Range) constraint;
+                    if (range.low != null) boundaries.add(range.low);
+                    if (range.high != null) boundaries.add(range.high);
+                }
+            }
+        }
+        Comparable[] points = boundaries.toArray(new Comparable[boundaries.size()]);
+
+        // the candidates of each slot: the always tested rules, and the ranges covering it
+        BitSet[] slotRules = new BitSet[points.length * 2 + 1];
+        for (int s = 0; s < slotRules.length; s++) {
+            slotRules[s] = (BitSet) always.clone();
+        }
+        for (int i = 0; i < constraints.size(); i++) {
+            List<Object> ruleConstraints = constraints.get(i);
+            if (ruleConstraints == null) {
+                continue;
+            }
+            for (Object constraint : ruleConstraints) {
+                if (constraint instanceof Range) {
+                    Range range = (Range) constraint;
+                    int first = range.low == null ? 0 : getSlot(points, range.low);
+                    int last =
+                            range.high == null ? slotRules.length - 1 : getSlot(points, range.high);
+                    for (int s = first; s <= last; s++) {
+                        slotRules[s].set(i);
+                    }
+                }
+            }
+        }
+
+        // the candidates of each value, the ranges containing it included
+        Map<Object, BitSet> valueRules = new HashMap<>();
+        for (int i = 0; i < constraints.size(); i++) {
+            List<Object> ruleConstraints = constraints.get(i);
+            if (ruleConstraints == null) {
+                continue;
+            }
+            for (Object constraint : ruleConstraints) {
+                if (!(constraint instanceof Range)) {
+                    BitSet rules = valueRules.get(constraint);
+                    if (rules == null) {
+                        Comparable<?> key = toRangeKey(constraint);
+                        int slot = key == null ? 0 : getSlot(points, key);
+                        rules = (BitSet) slotRules[slot].clone();
+                        valueRules.put(constraint, rules);
+                    }
+                    rules.set(i);
+                }
+            }
+        }
+
+        int[][] slots = new int[slotRules.length][];
+        for (int s = 0; s < slots.length; s++) {
+            slots[s] = slotRules[s].stream().toArray();
+        }
+        Map<Object, int[]> equalities = new HashMap<>();
+        for (Map.Entry<Object, BitSet> entry : valueRules.entrySet()) {
+            equalities.put(entry.getKey(), entry.getValue().stream().toArray());
+        }
+        return new RuleDispatcher(schema, index, constraints.size(), equalities, points, slots);
+    }
+
+    /**
+     * Returns the indexes of the rules that might apply to the feature, in ascending order. The
+     * returned array should not be modified.
+     */
+    int[] getCandidates(Object feature) {
+        if (!(feature instanceof SimpleFeature) || ((SimpleFeature) feature).getType() != schema) {
+            return all;
+        }
+        Object value = ((SimpleFeature) feature).getAttribute(index);
+        if (value == null || value.getClass() != binding) {
+            // nulls, multiple values and other types depend on the filter conversion rules
+            return all;
+        }
+        value = normalize(value);
+        if (value == null) {
+            return all;
+        }
+        int[] candidates = equalities.get(value);
+        if (candidates == null) {
+            Comparable<?> key = toRangeKey(value);
+            candidates = key == null ? slots[0] : slots[getSlot(points, key)];
+        }
+        return candidates;
+    }
+
+    /** Returns the slot of a value among the boundaries */
+    @SuppressWarnings("unchecked")
+    static int getSlot(Comparable[] points, Comparable<?> value) {
+        int position = Arrays.binarySearch(points, value);
+        return position >= 0 ? position * 2 + 1 : (-position - 1) * 2;
+    }
+
+    /**
+     * Returns the attribute tested against literals by the filter, or null if the filter is not
+     * such a test
+     */
+    static String getMainProperty(Filter filter) {
+        if (filter instanceof And || filter instanceof Or) {
+            List<Filter> children =
+                    filter instanceof And
+                            ? ((And) filter).getChildren()
+                            : ((Or) filter).getChildren();
+            return children.isEmpty() ? null : getMainProperty(children.get(0));
+        } else if (filter instanceof PropertyIsBetween) {
+            return getPropertyName(((PropertyIsBetween) filter).getExpression());
+        } else if (filter instanceof BinaryComparisonOperator) {
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            String name = getPropertyName(comparison.getExpression1());
+            return name != null ? name : getPropertyName(comparison.getExpression2());
+        }
+        return null;
+    }
+
+    static String getPropertyName(Expression expression) {
+        if (expression instanceof PropertyName) {
+            String name = ((PropertyName) expression).getPropertyName();
+            if (name != null && !name.isEmpty() && name.indexOf(':') < 0 && name.indexOf('/') < 0) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the values (equalities) and {@link Range}s a value must match to possibly satisfy the
+     * filter, or null if they cannot be determined
+     */
+    static List<Object> getConstraints(Filter filter, String property, Class<?> binding) {
+        if (filter instanceof Or) {
+            List<Object> result = new ArrayList<>();
+            for (Filter child : ((Or) filter).getChildren()) {
+                List<Object> constraints = getConstraints(child, property, binding);
+                if (constraints == null) {
+                    return null;
+                }
+                result.addAll(constraints);
+            }
+            return result;
+        } else if (filter instanceof And) {
+            // any child constrains the whole filter, ranges can also be intersected
+            List<Object> first = null;
+            Range range = null;
+            boolean allRanges = true;
+            for (Filter child : ((And) filter).getChildren()) {
+                List<Object> constraints = getConstraints(child, property, binding);
+                if (constraints == null) {
+                    continue;
+                }
+                if (first == null) {
+                    first = constraints;
+                }
+                if (constraints.size() == 1 && constraints.get(0) instanceof Range) {
+                    Range childRange = (Range) constraints.get(0);
+                    range = range == null ? childRange : range.intersect(childRange);
+                } else {
+                    allRanges = false;
+                }
+            }
+            if (allRanges && range != null) {
+                return Collections.singletonList(range);
+            }
+            return first;
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            if (!property.equals(getPropertyName(between.getExpression()))) {
+                return null;
+            }
+            Comparable<?> low = toRangeKey(getValue(between.getLowerBoundary(), binding));
+            Comparable<?> high = toRangeKey(getValue(between.getUpperBoundary(), binding));
+            if (low == null || high == null) {
+                return null;
+            }
+            return Collections.singletonList(new Range(low, high));
+        } else if (filter instanceof BinaryComparisonOperator) {
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            if (!comparison.isMatchingCase() && binding == String.class) {
+                return null;
+            }
+            Expression literal;
+            boolean propertyFirst;
+            if (property.equals(getPropertyName(comparison.getExpression1()))) {
+                literal = comparison.getExpression2();
+                propertyFirst = true;
+            } else if (property.equals(getPropertyName(comparison.getExpression2()))) {
+                literal = comparison.getExpression1();
+                propertyFirst = false;
+            } else {
+                return null;
+            }
+            Object value = getValue(literal, binding);
+            if (value == null) {
+                return null;
+            } else if (filter instanceof PropertyIsEqualTo) {
+                return Collections.singletonList(value);
+            }
+            // bounds are inclusive, the exact comparison is left to the filter
+            Comparable<?> bound = toRangeKey(value);
+            if (bound == null) {
+                return null;
+            } else if (filter instanceof PropertyIsLessThan
+                    || filter instanceof PropertyIsLessThanOrEqualTo) {
+                return Collections.singletonList(
+                        propertyFirst ? new Range(null, bound) : new Range(bound, null));
+            } else if (filter instanceof PropertyIsGreaterThan
+                    || filter instanceof PropertyIsGreaterThanOrEqualTo) {
+                return Collections.singletonList(
+                        propertyFirst ? new Range(bound, null) : new Range(null, bound));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of a literal, converted to the attribute binding, or null if not a literal
+     * or if the conversion is lossy
+     */
+    static Object getValue(Expression expression, Class<?> binding) {
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+        Object value = ((Literal) expression).getValue();
+        if (value == null) {
+            return null;
+        }
+        Object converted = value;
+        if (value.getClass() != binding) {
+            converted = convert(value, binding);
+            if (converted == null || converted.getClass() != binding) {
+                return null;
+            }
+        }
+        return normalize(converted);
+    }
+
+    /** Converts a literal value the same way the filters would, returns null if not possible */
+    static Object convert(Object value, Class<?> binding) {
+        if (Number.class.isAssignableFrom(binding)) {
+            // the filters compare numbers and strings parsing the latter as doubles
+            if (value instanceof String) {
+                try {
+                    value = Double.valueOf(Double.parseDouble((String) value));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            } else if (!(value instanceof Number)) {
+                return null;
+            }
+            // the conversion must not lose information
+            Object converted = Converters.convert(value, binding);
+            if (converted == null
+                    || !value.equals(Converters.convert(converted, value.getClass()))) {
+                return null;
+            }
+            return converted;
+        } else if (binding == String.class) {
+            // the filters would parse numeric attribute values, when compared to numbers
+            return null;
+        }
+        return Converters.convert(value, binding);
+    }
+
+    /**
+     * Returns the key used to sort a value among the range boundaries, consistent with the filter
+     * comparisons: numbers are compared as doubles, while strings are not sorted at all, as the
+     * filters compare them as numbers whenever they can be parsed as such
+     */
+    static Comparable<?> toRangeKey(Object value) {
+        if (value instanceof Number) {
+            return Double.valueOf(((Number) value).doubleValue() + 0d);
+        } else if (value instanceof String || !(value instanceof Comparable)) {
+            return null;
+        }
+        return (Comparable<?>) value;
+    }
+
+    /**
+     * Normalizes floating point values, so that the negative and positive zeros fall in the same
+     * place. Returns null for NaN, which the filters compare in peculiar ways
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return Double.isNaN(d) ? null : Double.valueOf(d + 0d);
+        } else if (value instanceof Float) {
+            float f = (Float) value;
+            return Float.isNaN(f) ? null : Float.valueOf(f + 0f);
+        }
+        return value;
+    }
+}
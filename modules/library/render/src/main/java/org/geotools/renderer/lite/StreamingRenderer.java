@@ -42,12 +42,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -66,12 +72,14 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.Query;
 import org.geotools.data.QueryCapabilities;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.util.HierarchicalScreenMap;
 import org.geotools.data.util.ScreenMap;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.SchemaException;
+import org.geotools.filter.FilterCompiler;
 import org.geotools.filter.IllegalFilterException;
 import org.geotools.filter.function.EnvFunction;
 import org.geotools.filter.function.GeometryTransformationVisitor;
@@ -102,6 +110,9 @@ import org.geotools.referencing.operation.transform.ProjectiveTransform;
 import org.geotools.referencing.operation.transform.WarpBuilder;
 import org.geotools.renderer.GTRenderer;
 import org.geotools.renderer.RenderListener;
+import org.geotools.renderer.RenderMetrics;
+import org.geotools.renderer.RenderMetrics.Phase;
+import org.geotools.renderer.RenderMetricsListener;
 import org.geotools.renderer.crs.ProjectionHandler;
 import org.geotools.renderer.crs.ProjectionHandlerFinder;
 import org.geotools.renderer.crs.WrappingProjectionHandler;
@@ -154,6 +165,7 @@ import org.opengis.referencing.datum.PixelInCell;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.TransformException;
+import org.opengis.style.Fill;
 import org.opengis.style.LineSymbolizer;
 import org.opengis.style.PolygonSymbolizer;
 
@@ -283,6 +295,15 @@ public class StreamingRenderer implements GTRenderer {
 
     private List<RenderListener> renderListeners = new CopyOnWriteArrayList<RenderListener>();
 
+    private List<RenderMetricsListener> metricsListeners =
+            new CopyOnWriteArrayList<RenderMetricsListener>();
+
+    /** The metrics of the map being rendered, if any metrics listener is registered */
+    private RenderMetrics mapMetrics;
+
+    /** The metrics of the layer being rendered, if any metrics listener is registered */
+    private RenderMetrics layerMetrics;
+
     private RenderingHints java2dHints;
 
     private int renderingBufferDEFAULT = 0;
@@ -343,6 +364,38 @@ public class StreamingRenderer implements GTRenderer {
      */
     public static final String OPTIMIZE_FTS_RENDERING_KEY = "optimizeFTSRendering";
 
+    /**
+     * Boolean flag, disabled by default. When enabled along with {@link
+     * #OPTIMIZE_FTS_RENDERING_KEY}, each feature type style painting into its own memory back
+     * buffer gets a dedicated painter task, so that styles with many feature type styles (e.g.,
+     * road casings and fills) can use more than one core. The back buffers are still composited in
+     * feature type style order once the layer has been fully scanned.
+     *
+     * <p>The painter tasks run on the thread pool set with {@link #setThreadPool(ExecutorService)},
+     * or on a shared pool bounded to the number of processors. The back buffers no pool thread
+     * picked up in time are painted by the rendering threads instead.
+     */
+    public static final String PARALLEL_FTS_RENDERING_KEY = "parallelFTSRendering";
+
+    /**
+     * Boolean flag, disabled by default. When enabled, and the label cache is a {@link
+     * LabelCacheImpl}, the representative locations of large label sets (see {@link
+     * LabelCacheImpl#PARALLEL_PREPARATION_THRESHOLD}) are computed in parallel before placing the
+     * labels, on the thread pool set with {@link #setThreadPool(ExecutorService)}, or on the same
+     * shared pool used by {@link #PARALLEL_FTS_RENDERING_KEY}.
+     */
+    public static final String PARALLEL_LABEL_PREPARATION_KEY = "parallelLabelPreparation";
+
+    /**
+     * Boolean flag, disabled by default. When enabled, feature type styles made only of polygon
+     * symbolizers with an opaque fill use a {@link HierarchicalScreenMap}, which allows the data
+     * stores and the renderer to skip also the features larger than a pixel that fall in an area
+     * already fully painted by the features preceding them. Dense polygon layers at mid scales
+     * (e.g., parcels) will load and paint far fewer features, at the cost of losing the colors and
+     * outlines of the skipped features.
+     */
+    public static final String ADAPTIVE_SCREENMAP_KEY = "adaptiveScreenMap";
+
     /**
      * Enables advanced reprojection handling. Geometries will be sliced to fit into the area of
      * definition of the rendering projection.
@@ -420,8 +473,22 @@ public class StreamingRenderer implements GTRenderer {
     /** The thread pool used to submit the painter workers. */
     private ExecutorService threadPool;
 
+    /**
+     * The pool painting the feature type style back buffers and preparing the labels when no thread
+     * pool has been set, see {@link #PARALLEL_FTS_RENDERING_KEY} and {@link
+     * #PARALLEL_LABEL_PREPARATION_KEY}
+     */
+    static final ThreadPoolExecutor FTS_PAINTERS_POOL = createFTSPaintersPool();
+
     private PainterThread painterThread;
 
+    /**
+     * The label cache receiving the label obstacles during the current paint. When parallel feature
+     * type style rendering is enabled obstacles are reserved from several painter threads, so all
+     * painters share the same synchronized wrapper, see {@link LiteFeatureTypeStyle#painter}
+     */
+    private LabelCache obstacleCache;
+
     private static int MAX_PIXELS_DENSIFY =
             Integer.valueOf(System.getProperty("ADVANCED_PROJECTION_DENSIFY_MAX_PIXELS", "5"));
 
@@ -485,6 +552,43 @@ public class StreamingRenderer implements GTRenderer {
         renderListeners.remove(listener);
     }
 
+    /**
+     * Adds a listener receiving the timings of each rendering phase, per layer and per feature type
+     * style. Metrics are collected only if at least one listener is registered.
+     *
+     * <p>The geometries transformed and generalized on the fly while painting (the common case,
+     * when no advanced projection handling is involved) have their transformation time accounted
+     * for in the {@link RenderMetrics.Phase#PAINT} phase.
+     *
+     * @see RenderMetricsListener
+     * @param listener the listener to add.
+     */
+    public void addMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.add(listener);
+    }
+
+    /**
+     * Removes a metrics listener.
+     *
+     * @see RenderMetricsListener
+     * @param listener the listener to remove.
+     */
+    public void removeMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.remove(listener);
+    }
+
+    private void fireLayerRenderedEvent(RenderMetrics metrics) {
+        for (RenderMetricsListener listener : metricsListeners) {
+            listener.layerRendered(metrics);
+        }
+    }
+
+    private void fireMapRenderedEvent(RenderMetrics metrics) {
+        for (RenderMetricsListener listener : metricsListeners) {
+            listener.mapRendered(metrics);
+        }
+    }
+
     private void fireFeatureRenderedEvent(Object feature) {
         if (!(feature instanceof SimpleFeature)) {
             if (feature instanceof Feature) {
@@ -808,6 +912,10 @@ public class StreamingRenderer implements GTRenderer {
                             mapExtent.getCoordinateReferenceSystem());
         }
 
+        // collect metrics only if someone is interested in them
+        mapMetrics = metricsListeners.isEmpty() ? null : new RenderMetrics("map");
+        layerMetrics = null;
+
         // Setup the secondary painting thread
         requests = getRequestsQueue();
         painterThread = new PainterThread(requests);
@@ -819,6 +927,11 @@ public class StreamingRenderer implements GTRenderer {
         }
         Future painterFuture = localThreadPool.submit(painterThread);
         List<CompositingGroup> compositingGroups = null;
+        if (isParallelFTSRenderingEnabled()) {
+            obstacleCache = new SynchronizedLabelCache(labelCache);
+        } else {
+            obstacleCache = labelCache;
+        }
         try {
             if (mapContent == null) {
                 throw new IllegalStateException(
@@ -846,9 +959,13 @@ public class StreamingRenderer implements GTRenderer {
                 // ////////////////////////////////////////////////////////////////////
                 labelCache.start();
                 if (labelCache instanceof LabelCacheImpl) {
-                    ((LabelCacheImpl) labelCache)
-                            .setLabelRenderingMode(
-                                    LabelRenderingMode.valueOf(getTextRenderingMethod()));
+                    LabelCacheImpl cacheImpl = (LabelCacheImpl) labelCache;
+                    cacheImpl.setLabelRenderingMode(
+                            LabelRenderingMode.valueOf(getTextRenderingMethod()));
+                    cacheImpl.setExecutor(
+                            isParallelLabelPreparationEnabled()
+                                    ? (threadPool != null ? threadPool : FTS_PAINTERS_POOL)
+                                    : null);
                 }
 
                 for (Layer layer : currentMapContent.layers()) {
@@ -863,6 +980,11 @@ public class StreamingRenderer implements GTRenderer {
                         return;
                     }
 
+                    if (mapMetrics != null) {
+                        layerMetrics =
+                                mapMetrics.addChild(
+                                        layer.getTitle() != null ? layer.getTitle() : layerId);
+                    }
                     labelCache.startLayer(layerId);
                     if (layer instanceof DirectLayer) {
                         RenderingRequest request =
@@ -890,7 +1012,17 @@ public class StreamingRenderer implements GTRenderer {
                         }
                     }
 
+                    long start = layerMetrics != null ? System.nanoTime() : 0;
                     labelCache.endLayer(layerId, graphics, screenSize);
+                    if (layerMetrics != null) {
+                        layerMetrics.addTimeSince(Phase.LABEL, start);
+                        try {
+                            requests.put(new LayerRenderedRequest(layerMetrics));
+                        } catch (InterruptedException e) {
+                            fireErrorEvent(e);
+                        }
+                        layerMetrics = null;
+                    }
                 }
 
                 // have we been painting on a back buffer? If so, merge on the main graphic
@@ -934,10 +1066,16 @@ public class StreamingRenderer implements GTRenderer {
         }
 
         if (!renderingStopRequested) {
+            long start = mapMetrics != null ? System.nanoTime() : 0;
             labelCache.end(graphics, paintArea);
+            if (mapMetrics != null) {
+                mapMetrics.addTimeSince(Phase.LABEL, start);
+                fireMapRenderedEvent(mapMetrics);
+            }
         } else {
             labelCache.clear();
         }
+        mapMetrics = null;
 
         if (LOGGER.isLoggable(Level.FINE))
             LOGGER.fine(
@@ -1058,7 +1196,11 @@ public class StreamingRenderer implements GTRenderer {
                 // expand the screenmaps by the meta buffer, otherwise we'll throw away geomtries
                 // that sit outside of the map, but whose symbolizer may contribute to it
                 for (LiteFeatureTypeStyle lfts : styleList) {
-                    if (lfts.screenMap != null) {
+                    if (lfts.screenMap instanceof HierarchicalScreenMap) {
+                        lfts.screenMap =
+                                new HierarchicalScreenMap(
+                                        (HierarchicalScreenMap) lfts.screenMap, metaBuffer);
+                    } else if (lfts.screenMap != null) {
                         lfts.screenMap = new ScreenMap(lfts.screenMap, metaBuffer);
                     }
                 }
@@ -1601,6 +1743,39 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if parallel feature type style rendering is enabled, or not. See {@link
+     * #PARALLEL_FTS_RENDERING_KEY} description for a full explanation.
+     */
+    private boolean isParallelFTSRenderingEnabled() {
+        if (rendererHints == null) return false;
+        Object result = rendererHints.get(PARALLEL_FTS_RENDERING_KEY);
+        if (result == null) return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if parallel label preparation is enabled, or not. See {@link
+     * #PARALLEL_LABEL_PREPARATION_KEY} description for a full explanation.
+     */
+    private boolean isParallelLabelPreparationEnabled() {
+        if (rendererHints == null) return false;
+        Object result = rendererHints.get(PARALLEL_LABEL_PREPARATION_KEY);
+        if (result == null) return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if the adaptive screen map is enabled, or not. See {@link #ADAPTIVE_SCREENMAP_KEY}
+     * description for a full explanation.
+     */
+    private boolean isAdaptiveScreenMapEnabled() {
+        if (rendererHints == null) return false;
+        Object result = rendererHints.get(ADAPTIVE_SCREENMAP_KEY);
+        if (result == null) return false;
+        return Boolean.TRUE.equals(result);
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      *
@@ -1894,6 +2069,11 @@ public class StreamingRenderer implements GTRenderer {
                             + NumberFormat.getNumberInstance().format(scaleDenominator));
         ArrayList<LiteFeatureTypeStyle> result = new ArrayList<LiteFeatureTypeStyle>();
 
+        // with parallel feature type style rendering the obstacles go through the shared wrapper
+        StyledShapePainter obstaclePainter =
+                obstacleCache != null && obstacleCache != labelCache
+                        ? new StyledShapePainter(obstacleCache)
+                        : null;
         LiteFeatureTypeStyle lfts;
         boolean foundComposite = false;
         for (FeatureTypeStyle fts : layer.getStyle().featureTypeStyles()) {
@@ -1932,6 +2112,7 @@ public class StreamingRenderer implements GTRenderer {
                                     fts.getTransformation());
                 }
                 lfts.composite = composite;
+                lfts.painter = obstaclePainter;
                 if (FeatureTypeStyle.VALUE_EVALUATION_MODE_FIRST.equals(
                         fts.getOptions().get(FeatureTypeStyle.KEY_EVALUATION_MODE))) {
                     lfts.matchFirst = true;
@@ -1943,12 +2124,27 @@ public class StreamingRenderer implements GTRenderer {
 
                 if (screenMapEnabled(lfts)) {
                     int renderingBuffer = getRenderingBuffer();
-                    lfts.screenMap =
-                            new ScreenMap(
-                                    screenSize.x - renderingBuffer,
-                                    screenSize.y - renderingBuffer,
-                                    screenSize.width + renderingBuffer * 2,
-                                    screenSize.height + renderingBuffer * 2);
+                    if (isAdaptiveScreenMapEnabled() && hasOnlyPolygonFills(lfts)) {
+                        lfts.screenMap =
+                                new HierarchicalScreenMap(
+                                        screenSize.x - renderingBuffer,
+                                        screenSize.y - renderingBuffer,
+                                        screenSize.width + renderingBuffer * 2,
+                                        screenSize.height + renderingBuffer * 2);
+                    } else {
+                        lfts.screenMap =
+                                new ScreenMap(
+                                        screenSize.x - renderingBuffer,
+                                        screenSize.y - renderingBuffer,
+                                        screenSize.width + renderingBuffer * 2,
+                                        screenSize.height + renderingBuffer * 2);
+                    }
+                }
+
+                if (layerMetrics != null) {
+                    lfts.metrics =
+                            layerMetrics.addChild(
+                                    fts.getName() != null ? fts.getName() : "fts" + result.size());
                 }
 
                 result.add(lfts);
@@ -1993,6 +2189,28 @@ public class StreamingRenderer implements GTRenderer {
         return !finder.hasOpacity;
     }
 
+    /**
+     * Returns true if the feature type style paints only polygon fills, so that the features
+     * falling in an area already fully painted can be skipped (opacity is checked separately, see
+     * {@link #screenMapEnabled(LiteFeatureTypeStyle)})
+     */
+    boolean hasOnlyPolygonFills(LiteFeatureTypeStyle lfts) {
+        List<Rule> rules = new ArrayList<>(Arrays.asList(lfts.ruleList));
+        rules.addAll(Arrays.asList(lfts.elseRules));
+        for (Rule r : rules) {
+            for (Symbolizer symbolizer : r.symbolizers()) {
+                if (!(symbolizer instanceof PolygonSymbolizer)) {
+                    return false;
+                }
+                Fill fill = ((PolygonSymbolizer) symbolizer).getFill();
+                if (fill == null || fill.getColor() == null || fill.getGraphicFill() != null) {
+                    return false;
+                }
+            }
+        }
+        return !rules.isEmpty();
+    }
+
     private boolean isFeatureTypeStyleActive(FeatureType ftype, FeatureTypeStyle fts) {
         // TODO: find a complex feature equivalent for this check
         return fts.featureTypeNames().isEmpty()
@@ -2149,7 +2367,11 @@ public class StreamingRenderer implements GTRenderer {
 
         // render groups by uniform transformation
         for (List<LiteFeatureTypeStyle> uniform : txClassified) {
+            long start = layerMetrics != null ? System.nanoTime() : 0;
             FeatureCollection features = getFeatures(layer, schema, uniform);
+            if (layerMetrics != null) {
+                layerMetrics.addTimeSince(Phase.QUERY, start);
+            }
             if (features == null) {
                 continue;
             }
@@ -2571,8 +2793,13 @@ public class StreamingRenderer implements GTRenderer {
 
         // for each lite feature type style, scan the whole collection and draw
         for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
+            final RenderMetrics metrics = liteFeatureTypeStyle.metrics;
+            long start = metrics != null ? System.nanoTime() : 0;
             try (FeatureIterator<?> featureIterator =
                     ((FeatureCollection<?, ?>) features).features()) {
+                if (metrics != null) {
+                    metrics.addTimeSince(Phase.QUERY, start);
+                }
                 if (featureIterator == null) {
                     return; // nothing to do
                 }
@@ -2585,8 +2812,21 @@ public class StreamingRenderer implements GTRenderer {
                 // one is there to make sure a single feature error does not ruin the rendering
                 // (best effort) whilst an exception in hasNext() + ignoring catch results in
                 // an infinite loop
-                while (featureIterator.hasNext() && !renderingStopRequested) {
+                while (true) {
+                    if (metrics != null) {
+                        start = System.nanoTime();
+                    }
+                    if (!featureIterator.hasNext() || renderingStopRequested) {
+                        if (metrics != null) {
+                            metrics.addTimeSince(Phase.FETCH, start);
+                        }
+                        break;
+                    }
                     rf.setFeature(featureIterator.next());
+                    if (metrics != null) {
+                        metrics.addTimeSince(Phase.FETCH, start);
+                        metrics.incrementFeatures();
+                    }
                     processFeature(rf, liteFeatureTypeStyle);
                 }
             }
@@ -2626,7 +2866,34 @@ public class StreamingRenderer implements GTRenderer {
             FeatureCollection features,
             final List<LiteFeatureTypeStyle> lfts) {
 
+        List<FeatureTypeStylePainter> ftsPainters = Collections.emptyList();
+        if (isParallelFTSRenderingEnabled()) {
+            ftsPainters = new ArrayList<>();
+            for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
+                if (liteFeatureTypeStyle.graphics instanceof DelayedBackbufferGraphic
+                        && liteFeatureTypeStyle.graphics != graphics) {
+                    FeatureTypeStylePainter ftsPainter = new FeatureTypeStylePainter(obstacleCache);
+                    liteFeatureTypeStyle.ftsPainter = ftsPainter;
+                    ftsPainters.add(ftsPainter);
+                }
+            }
+            ExecutorService executor = threadPool != null ? threadPool : FTS_PAINTERS_POOL;
+            for (FeatureTypeStylePainter ftsPainter : ftsPainters) {
+                try {
+                    ftsPainter.future = executor.submit(ftsPainter::runIfUnclaimed);
+                } catch (RejectedExecutionException e) {
+                    // the painter will run in this thread
+                    LOGGER.log(Level.FINE, "Feature type style painter rejected", e);
+                }
+            }
+        }
+
+        final RenderMetrics metrics = layerMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
         try (FeatureIterator<?> iterator = features.features()) {
+            if (metrics != null) {
+                metrics.addTimeSince(Phase.QUERY, start);
+            }
             if (iterator == null) return; // nothing to do
 
             boolean cloningRequired = isCloningRequired(lfts);
@@ -2636,20 +2903,131 @@ public class StreamingRenderer implements GTRenderer {
             // one is there to make sure a single feature error does not ruin the rendering
             // (best effort) whilst an exception in hasNext() + ignoring catch results in
             // an infinite loop
-            while (iterator.hasNext() && !renderingStopRequested) {
+            while (true) {
+                if (metrics != null) {
+                    start = System.nanoTime();
+                }
+                if (!iterator.hasNext() || renderingStopRequested) {
+                    if (metrics != null) {
+                        metrics.addTimeSince(Phase.FETCH, start);
+                    }
+                    break;
+                }
                 rf.setFeature(iterator.next());
+                if (metrics != null) {
+                    metrics.addTimeSince(Phase.FETCH, start);
+                    metrics.incrementFeatures();
+                }
                 // draw the feature on the main graphics and on the eventual extra image buffers
                 for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
                     processFeature(rf, liteFeatureTypeStyle);
                 }
             }
-            // submit the merge request
+            // wait for the back buffers to be fully painted, then submit the merge request
+            waitForFeatureTypeStylePainters(ftsPainters);
             requests.put(new MergeLayersRequest(graphics, lfts));
         } catch (InterruptedException e) {
             fireErrorEvent(e);
+        } finally {
+            for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
+                liteFeatureTypeStyle.ftsPainter = null;
+            }
+            // make sure no painter is left waiting for requests (early exit or errors)
+            for (FeatureTypeStylePainter ftsPainter : ftsPainters) {
+                if (ftsPainter.claimed.compareAndSet(false, true) || ftsPainter.isDone()) {
+                    // never started, or already completed
+                    continue;
+                } else if (renderingStopRequested) {
+                    ftsPainter.future.cancel(true);
+                } else {
+                    try {
+                        ftsPainter.requests.put(new EndRequest());
+                    } catch (InterruptedException e) {
+                        fireErrorEvent(e);
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * Signals the end of the requests to the feature type style painters and waits for them to
+     * complete
+     */
+    private void waitForFeatureTypeStylePainters(List<FeatureTypeStylePainter> ftsPainters)
+            throws InterruptedException {
+        for (FeatureTypeStylePainter ftsPainter : ftsPainters) {
+            if (ftsPainter.handedOver) {
+                // painted by the main painter thread
+                continue;
+            } else if (renderingStopRequested) {
+                if (ftsPainter.future != null) {
+                    ftsPainter.future.cancel(true);
+                }
+                continue;
+            }
+            ftsPainter.requests.put(new EndRequest());
+            if (ftsPainter.claimed.compareAndSet(false, true)) {
+                // no pool thread picked it up, paint the back buffer here
+                ftsPainter.painterThread.run();
+                ftsPainter.done = true;
+                continue;
+            }
+            try {
+                ftsPainter.future.get();
+            } catch (ExecutionException e) {
+                fireErrorEvent(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Queues a request painting on the back buffer of the given feature type style. When the
+     * painter queue is full and no pool thread picked the painter up yet the requests are handed
+     * over to the main painter thread, rather than waiting for a busy pool
+     */
+    private void putRequest(LiteFeatureTypeStyle fts, RenderingRequest request)
+            throws InterruptedException {
+        FeatureTypeStylePainter ftsPainter = fts.ftsPainter;
+        if (ftsPainter == null) {
+            requests.put(request);
+        } else if (!ftsPainter.requests.offer(request)) {
+            if (ftsPainter.claimed.compareAndSet(false, true)) {
+                ftsPainter.handedOver = true;
+                fts.ftsPainter = null;
+                List<RenderingRequest> pending = new ArrayList<>();
+                ftsPainter.requests.drainTo(pending);
+                for (RenderingRequest r : pending) {
+                    requests.put(r);
+                }
+                requests.put(request);
+            } else {
+                ftsPainter.requests.put(request);
+            }
+        }
+    }
+
+    /** Creates the daemon thread pool backing {@link #FTS_PAINTERS_POOL} */
+    private static ThreadPoolExecutor createFTSPaintersPool() {
+        int size = Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool =
+                new ThreadPoolExecutor(
+                        size,
+                        size,
+                        60,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(size * 16),
+                        r -> {
+                            Thread thread =
+                                    new Thread(r, "fts-painter-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     /** Tells if geometry cloning is required or not */
     private boolean isCloningRequired(List<LiteFeatureTypeStyle> lfts) {
         // check if the features are detached, we can thus modify the geometries in place
@@ -2743,25 +3121,35 @@ public class StreamingRenderer implements GTRenderer {
             boolean doElse = true;
             Rule[] elseRuleList = fts.elseRules;
             Rule[] ruleList = fts.ruleList;
+            Filter[] ruleFilters = fts.getRuleFilters(rf.feature);
+            // the rules that might apply, when they can be looked up by attribute value
+            int[] candidates = fts.getRuleCandidates(rf.feature);
             Rule r;
             Filter filter;
             Graphics2D graphics = fts.graphics;
             // applicable rules
-            final int length = ruleList.length;
+            final int length = candidates != null ? candidates.length : ruleList.length;
             int paintCommands = 0;
-            for (int t = 0; t < length; t++) {
-                r = ruleList[t];
-                filter = r.getFilter();
+            // the expressions shared by the rule filters are evaluated once for this feature
+            FilterCompiler.beginEvaluation(ruleFilters);
+            try {
+                for (int c = 0; c < length; c++) {
+                    int t = candidates != null ? candidates[c] : c;
+                    r = ruleList[t];
+                    filter = ruleFilters[t];
 
-                if (filter == null || filter.evaluate(rf.feature)) {
-                    doElse = false;
-                    paintCommands += processSymbolizers(graphics, rf, r.symbolizers());
+                    if (filter == null || filter.evaluate(rf.feature)) {
+                        doElse = false;
+                        paintCommands += processSymbolizers(fts, graphics, rf, r.symbolizers());
 
-                    // bail out if we are in match first mode
-                    if (fts.matchFirst) {
-                        break;
+                        // bail out if we are in match first mode
+                        if (fts.matchFirst) {
+                            break;
+                        }
                     }
                 }
+            } finally {
+                FilterCompiler.endEvaluation(ruleFilters);
             }
 
             if (doElse) {
@@ -2769,7 +3157,7 @@ public class StreamingRenderer implements GTRenderer {
                 for (int tt = 0; tt < elseLength; tt++) {
                     r = elseRuleList[tt];
 
-                    paintCommands += processSymbolizers(graphics, rf, r.symbolizers());
+                    paintCommands += processSymbolizers(fts, graphics, rf, r.symbolizers());
                 }
             }
 
@@ -2802,6 +3190,7 @@ public class StreamingRenderer implements GTRenderer {
      * @throws FactoryException
      */
     private int processSymbolizers(
+            final LiteFeatureTypeStyle fts,
             final Graphics2D graphics,
             final RenderableFeature drawMe,
             final List<Symbolizer> symbolizers)
@@ -2830,14 +3219,16 @@ public class StreamingRenderer implements GTRenderer {
                         coverage = (GridCoverage2D) grid;
                         if (coverage != null) {
                             disposeCoverage = grid instanceof DisposableGridCoverage;
-                            requests.put(
+                            RenderRasterRequest request =
                                     new RenderRasterRequest(
                                             graphics,
                                             coverage,
                                             disposeCoverage,
                                             (RasterSymbolizer) symbolizer,
                                             destinationCrs,
-                                            worldToScreenTransform));
+                                            worldToScreenTransform);
+                            request.metrics = fts.metrics;
+                            putRequest(fts, request);
                             paintCommands++;
                         }
                     } else if (grid instanceof GridCoverage2DReader) {
@@ -2845,7 +3236,7 @@ public class StreamingRenderer implements GTRenderer {
                                 (GeneralParameterValue[])
                                         paramsPropertyName.evaluate(drawMe.feature);
                         GridCoverage2DReader reader = (GridCoverage2DReader) grid;
-                        requests.put(
+                        RenderCoverageReaderRequest request =
                                 new RenderCoverageReaderRequest(
                                         graphics,
                                         reader,
@@ -2853,7 +3244,9 @@ public class StreamingRenderer implements GTRenderer {
                                         (RasterSymbolizer) symbolizer,
                                         destinationCrs,
                                         worldToScreenTransform,
-                                        getRenderingInterpolation(drawMe.layer)));
+                                        getRenderingInterpolation(drawMe.layer));
+                        request.metrics = fts.metrics;
+                        putRequest(fts, request);
                     }
                 } catch (IllegalArgumentException e) {
                     LOGGER.log(Level.WARNING, e.getLocalizedMessage(), e);
@@ -2866,18 +3259,23 @@ public class StreamingRenderer implements GTRenderer {
                 // FEATURE
                 //
                 // /////////////////////////////////////////////////////////////////
+                drawMe.metrics = fts.metrics;
                 LiteShape2 shape = drawMe.getShape(symbolizer, worldToScreenTransform);
                 if (shape == null) {
                     continue;
                 }
 
                 if (symbolizer instanceof TextSymbolizer && drawMe.feature instanceof Feature) {
+                    long start = fts.metrics != null ? System.nanoTime() : 0;
                     labelCache.put(
                             drawMe.layerId,
                             (TextSymbolizer) symbolizer,
                             drawMe.feature,
                             shape,
                             null);
+                    if (fts.metrics != null) {
+                        fts.metrics.addTimeSince(Phase.LABEL, start);
+                    }
                     paintCommands++;
                 } else {
                     Style2D style = styleFactory.createStyle(drawMe.feature, symbolizer);
@@ -2895,63 +3293,33 @@ public class StreamingRenderer implements GTRenderer {
                                     screenSize.getMinY(),
                                     screenSize.getMaxY());
                     env.expandBy(clipBuffer);
-                    final GeometryClipper clipper = new GeometryClipper(env);
-                    Geometry source = shape.getGeometry();
-                    // we need to preserve the topology if we end up applying buffer for perp.
-                    // offset
-                    boolean preserveTopology =
-                            style instanceof LineStyle2D
-                                    && ((LineStyle2D) style).getPerpendicularOffset() != 0
-                                    && (source instanceof Polygon
-                                            || source instanceof MultiPolygon);
-
-                    Geometry g = clipper.clipSafe(shape.getGeometry(), preserveTopology, 1);
-
-                    // handle perpendincular offset as needed
-                    if (style instanceof LineStyle2D
-                            && ((LineStyle2D) style).getPerpendicularOffset() != 0
-                            && g != null
-                            && !g.isEmpty()) {
-                        LineStyle2D ls = (LineStyle2D) style;
-                        double offset = ls.getPerpendicularOffset();
-                        // people applying an offset on a polygon really expect a buffer instead,
-                        // do so... however buffering is damn expensive, so let's apply some
-                        // heuristics
-                        // to still run the offset curve builder for the simplest cases
-                        if ((source instanceof Polygon || source instanceof MultiPolygon)
-                                && abs(offset) > 3) {
-                            // buffering is expensive, we can be a bit off with the
-                            // result, do simplify the geometry first
-                            Geometry simplified =
-                                    TopologyPreservingSimplifier.simplify(
-                                            source, Math.max(abs(offset) / 10, 1));
-                            try {
-                                g = simplified.buffer(offset);
-                            } catch (Exception e) {
-                                LOGGER.log(
-                                        Level.FINE,
-                                        "Failed to apply JTS buffer to the geometry, falling back on the offset curve builder",
-                                        e);
-                                OffsetCurveBuilder offseter = new OffsetCurveBuilder(offset);
-                                g = offseter.offset(g);
-                            }
-                        } else {
-                            OffsetCurveBuilder offseter = new OffsetCurveBuilder(offset);
-                            g = offseter.offset(g);
+                    // shapes fully inside the clipping area can be painted as they are, saving
+                    // the clipping work and the copy of their coordinates
+                    Rectangle2D bounds = shape.getBounds2D();
+                    if ((style instanceof LineStyle2D
+                                    && ((LineStyle2D) style).getPerpendicularOffset() != 0)
+                            || bounds.getMinX() < env.getMinX()
+                            || bounds.getMinY() < env.getMinY()
+                            || bounds.getMaxX() > env.getMaxX()
+                            || bounds.getMaxY() > env.getMaxY()) {
+                        shape = clipShape(shape, style, env);
+                        if (shape == null) {
+                            continue;
                         }
                     }
-                    if (g == null) {
-                        continue;
-                    } else {
-                        shape = new LiteShape2(g, null, null, false);
-                    }
 
                     PaintShapeRequest paintShapeRequest =
                             new PaintShapeRequest(graphics, shape, style, scaleDenominator);
                     if (symbolizer.hasOption("labelObstacle")) {
                         paintShapeRequest.setLabelObstacle(true);
                     }
-                    requests.put(paintShapeRequest);
+                    if (fts.ftsPainter != null) {
+                        paintShapeRequest.painter = fts.ftsPainter.painter;
+                    } else if (fts.painter != null) {
+                        paintShapeRequest.painter = fts.painter;
+                    }
+                    paintShapeRequest.metrics = fts.metrics;
+                    putRequest(fts, paintShapeRequest);
                     paintCommands++;
                 }
             }
@@ -2960,6 +3328,65 @@ public class StreamingRenderer implements GTRenderer {
         return paintCommands;
     }
 
+    /**
+     * Clips the shape to the specified envelope, applying the style perpendicular offset if
+     * necessary, returns null if nothing is left to paint
+     */
+    private LiteShape2 clipShape(LiteShape2 shape, Style2D style, Envelope env)
+            throws TransformException, FactoryException {
+        final GeometryClipper clipper = new GeometryClipper(env);
+        Geometry source = shape.getGeometry();
+        // we need to preserve the topology if we end up applying buffer for perp.
+        // offset
+        boolean preserveTopology =
+                style instanceof LineStyle2D
+                        && ((LineStyle2D) style).getPerpendicularOffset() != 0
+                        && (source instanceof Polygon || source instanceof MultiPolygon);
+
+        Geometry g = clipper.clipSafe(shape.getGeometry(), preserveTopology, 1);
+
+        // handle perpendincular offset as needed
+        if (style instanceof LineStyle2D
+                && ((LineStyle2D) style).getPerpendicularOffset() != 0
+                && g != null
+                && !g.isEmpty()) {
+            LineStyle2D ls = (LineStyle2D) style;
+            double offset = ls.getPerpendicularOffset();
+            // people applying an offset on a polygon really expect a buffer instead,
+            // do so... however buffering is damn expensive, so let's apply some
+            // heuristics
+            // to still run the offset curve builder for the simplest cases
+            if ((source instanceof Polygon || source instanceof MultiPolygon) && abs(offset) > 3) {
+                // buffering is expensive, we can be a bit off with the
+                // result, do simplify the geometry first
+                Geometry simplified =
+                        TopologyPreservingSimplifier.simplify(
+                                source, Math.max(abs(offset) / 10, 1));
+                try {
+                    g = simplified.buffer(offset);
+                } catch (Exception e) {
+                    LOGGER.log(
+                            Level.FINE,
+                            "Failed to apply JTS buffer to the geometry, falling back on the offset curve builder",
+                            e);
+                    OffsetCurveBuilder offseter = new OffsetCurveBuilder(offset);
+                    g = offseter.offset(g);
+                }
+            } else {
+                OffsetCurveBuilder offseter = new OffsetCurveBuilder(offset);
+                g = offseter.offset(g);
+            }
+        }
+        if (g == null) {
+            return null;
+        } else if (g == source) {
+            // nothing was clipped away
+            return shape;
+        } else {
+            return new LiteShape2(g, null, null, false, false);
+        }
+    }
+
     /**
      * Builds a raster grid geometry that will be used for reading, taking into account the original
      * map extent and target paint area, and expanding the target raster area by {@link
@@ -3254,6 +3681,9 @@ public class StreamingRenderer implements GTRenderer {
         private IdentityHashMap decimators = new IdentityHashMap();
         private ScreenMap screenMap;
         private String layerId;
+        RenderMetrics metrics;
+        /** Decimation time accumulated while transforming the current geometry */
+        private long decimationTime;
 
         public RenderableFeature(String layerId, boolean clone) {
             this.layerId = layerId;
@@ -3286,19 +3716,33 @@ public class StreamingRenderer implements GTRenderer {
                         && !(g instanceof Point)
                         && getGeometryIndex(g) == -1) {
                     Envelope env = g.getEnvelopeInternal();
-                    if (screenMap.canSimplify(env))
-                        if (screenMap.checkAndSet(env)) {
+                    if (!screenMap.canSimplify(env)) {
+                        // larger features can be skipped too if their area is already painted
+                        if (screenMap.isCovered(env)) {
+                            if (metrics != null) {
+                                metrics.incrementScreenMapSkipped();
+                            }
                             return null;
-                        } else {
-                            g =
-                                    screenMap.getSimplifiedShape(
-                                            env.getMinX(),
-                                            env.getMinY(),
-                                            env.getMaxX(),
-                                            env.getMaxY(),
-                                            g.getFactory(),
-                                            g.getClass());
+                        } else if (screenMap instanceof HierarchicalScreenMap) {
+                            // the feature is going to be painted with an opaque fill, whatever
+                            // falls fully inside it later can be skipped
+                            ((HierarchicalScreenMap) screenMap).setCovered(g);
+                        }
+                    } else if (screenMap.checkAndSet(env)) {
+                        if (metrics != null) {
+                            metrics.incrementScreenMapSkipped();
                         }
+                        return null;
+                    } else {
+                        g =
+                                screenMap.getSimplifiedShape(
+                                        env.getMinX(),
+                                        env.getMinY(),
+                                        env.getMaxX(),
+                                        env.getMaxY(),
+                                        g.getFactory(),
+                                        g.getClass());
+                    }
                 }
 
                 SymbolizerAssociation sa =
@@ -3355,6 +3799,10 @@ public class StreamingRenderer implements GTRenderer {
                                 Geometry tx =
                                         JTS.transform(first.getGeometry(), sa.xform.inverse());
                                 return getTransformedShape(RendererUtilities.getCentroid(tx), sa);
+                            } else if (first.isStreaming()) {
+                                // streaming shapes leave the geometry untouched, the centroid is
+                                // in world coordinates and still needs to be transformed
+                                return getTransformedShape(RendererUtilities.getCentroid(g), sa);
                             } else {
                                 return getTransformedShape(RendererUtilities.getCentroid(g), null);
                             }
@@ -3393,6 +3841,49 @@ public class StreamingRenderer implements GTRenderer {
             if (idx != -1) {
                 return (LiteShape2) shapes.get(idx);
             }
+            if (metrics == null) {
+                return transformShape(originalGeom, sa);
+            }
+
+            long start = System.nanoTime();
+            decimationTime = 0;
+            try {
+                return transformShape(originalGeom, sa);
+            } finally {
+                metrics.addTime(Phase.TRANSFORM, System.nanoTime() - start - decimationTime);
+                metrics.addTime(Phase.DECIMATION, decimationTime);
+            }
+        }
+
+        /** Decimates and transforms the geometry, keeping track of the time spent if necessary */
+        private Geometry decimateTransformGeneralize(
+                Decimator decimator, Geometry geom, MathTransform transform)
+                throws TransformException {
+            if (metrics == null) {
+                return decimator.decimateTransformGeneralize(geom, transform);
+            }
+            long start = System.nanoTime();
+            try {
+                return decimator.decimateTransformGeneralize(geom, transform);
+            } finally {
+                decimationTime += System.nanoTime() - start;
+            }
+        }
+
+        private LiteShape2 transformShape(Geometry originalGeom, SymbolizerAssociation sa)
+                throws TransformException, FactoryException {
+            LiteShape2 shape;
+            if (projectionHandler == null) {
+                // linear and polygonal geometries under an affine transformation can be decimated
+                // and transformed on the fly while painting, without copying them
+                MathTransform xform = sa != null ? sa.xform : null;
+                shape = LiteShape2.createStreaming(originalGeom, xform, getDecimator(xform));
+                if (shape != null) {
+                    geometries.add(originalGeom);
+                    shapes.add(shape);
+                    return shape;
+                }
+            }
 
             // we need to clone if the clone flag is high or if the coordinate sequence is not the
             // one we asked for
@@ -3404,7 +3895,6 @@ public class StreamingRenderer implements GTRenderer {
                 geom = LiteCoordinateSequence.cloneGeometry(geom, dim);
             }
 
-            LiteShape2 shape;
             if (projectionHandler != null && sa != null) {
                 // first generalize and transform the geometry into the rendering CRS
                 geom = projectionHandler.preProcess(geom);
@@ -3413,7 +3903,7 @@ public class StreamingRenderer implements GTRenderer {
                 } else {
                     // first generalize and transform the geometry into the rendering CRS
                     Decimator d = getDecimator(sa.xform);
-                    geom = d.decimateTransformGeneralize(geom, sa.rxform);
+                    geom = decimateTransformGeneralize(d, geom, sa.rxform);
                     geom.geometryChanged();
                     // then post process it (provide reverse transform if available)
                     MathTransform reverse = null;
@@ -3442,7 +3932,7 @@ public class StreamingRenderer implements GTRenderer {
                     } else {
                         // apply the affine transform turning the coordinates into pixels
                         d = new Decimator(-1, -1);
-                        geom = d.decimateTransformGeneralize(geom, sa.axform);
+                        geom = decimateTransformGeneralize(d, geom, sa.axform);
 
                         // wrap into a lite shape
                         geom.geometryChanged();
@@ -3513,6 +4003,10 @@ public class StreamingRenderer implements GTRenderer {
 
         boolean labelObstacle = false;
 
+        StyledShapePainter painter = StreamingRenderer.this.painter;
+
+        RenderMetrics metrics;
+
         public PaintShapeRequest(
                 Graphics2D graphic, LiteShape2 shape, Style2D style, double scale) {
             this.graphic = graphic;
@@ -3531,11 +4025,15 @@ public class StreamingRenderer implements GTRenderer {
                 ((DelayedBackbufferGraphic) graphic).init();
             }
 
+            long start = metrics != null ? System.nanoTime() : 0;
             try {
                 painter.paint(graphic, shape, style, scale, labelObstacle);
             } catch (Throwable t) {
                 fireErrorEvent(t);
             }
+            if (metrics != null) {
+                metrics.addTimeSince(Phase.PAINT, start);
+            }
         }
     }
 
@@ -3557,6 +4055,20 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /** A request notifying the metrics listeners that a layer has been fully painted */
+    protected class LayerRenderedRequest extends RenderingRequest {
+        RenderMetrics metrics;
+
+        public LayerRenderedRequest(RenderMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        void execute() {
+            fireLayerRenderedEvent(metrics);
+        }
+    }
+
     /**
      * A request to merge multiple back buffers to the main graphics
      *
@@ -3651,6 +4163,7 @@ public class StreamingRenderer implements GTRenderer {
         private RasterSymbolizer symbolizer;
         private CoordinateReferenceSystem destinationCRS;
         private AffineTransform worldToScreen;
+        RenderMetrics metrics;
 
         public RenderRasterRequest(
                 Graphics2D graphics,
@@ -3693,6 +4206,7 @@ public class StreamingRenderer implements GTRenderer {
                                 worldToScreen,
                                 java2dHints);
 
+                gcr.setRenderMetrics(metrics);
                 try {
                     gcr.paint(graphics, coverage, symbolizer);
                 } finally {
@@ -3739,6 +4253,8 @@ public class StreamingRenderer implements GTRenderer {
 
         private Interpolation interpolation;
 
+        RenderMetrics metrics;
+
         public RenderCoverageReaderRequest(
                 Graphics2D graphics,
                 GridCoverage2DReader reader,
@@ -3786,6 +4302,7 @@ public class StreamingRenderer implements GTRenderer {
                 // Checks on the Reprojection parameters
                 gcr.setAdvancedProjectionHandlingEnabled(isAdvancedProjectionHandlingEnabled());
                 gcr.setWrapEnabled(isMapWrappingEnabled());
+                gcr.setRenderMetrics(metrics);
                 gcr.paint(graphics, reader, readParams, symbolizer, interpolation, null);
 
                 if (LOGGER.isLoggable(Level.FINE)) {
@@ -3844,6 +4361,44 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Paints the requests targeting the back buffer of a single feature type style, in its own
+     * thread, see {@link StreamingRenderer#PARALLEL_FTS_RENDERING_KEY}
+     */
+    class FeatureTypeStylePainter {
+        final BlockingQueue<RenderingRequest> requests = getRequestsQueue();
+
+        final PainterThread painterThread = new PainterThread(requests);
+
+        final StyledShapePainter painter;
+
+        /** Set by the first of the pool thread and the rendering thread running the painter */
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        /** The requests have been handed over to the main painter thread */
+        volatile boolean handedOver;
+
+        /** The painter has been run by the rendering thread */
+        volatile boolean done;
+
+        Future<?> future;
+
+        FeatureTypeStylePainter(LabelCache labelCache) {
+            this.painter = new StyledShapePainter(labelCache);
+        }
+
+        /** The task submitted to the pool, paints unless the rendering thread took over */
+        void runIfUnclaimed() {
+            if (claimed.compareAndSet(false, true)) {
+                painterThread.run();
+            }
+        }
+
+        boolean isDone() {
+            return done || handedOver || (future != null && future.isDone());
+        }
+    }
+
     /**
      * The secondary thread that actually issues the paint requests against the graphic object
      *
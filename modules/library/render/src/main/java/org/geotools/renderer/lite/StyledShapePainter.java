@@ -46,12 +46,13 @@ import org.geotools.renderer.style.LineStyle2D;
 import org.geotools.renderer.style.MarkStyle2D;
 import org.geotools.renderer.style.PointStyle2D;
 import org.geotools.renderer.style.PolygonStyle2D;
+import org.geotools.renderer.style.SpriteCache;
+import org.geotools.renderer.style.SpriteCache.Sprite;
 import org.geotools.renderer.style.Style2D;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.MultiPolygon;
-import org.locationtech.jts.geom.Polygon;
 import org.opengis.filter.expression.Literal;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.operation.TransformException;
@@ -87,11 +88,20 @@ public class StyledShapePainter {
                     System.getProperty(
                             "org.geotools.renderer.lite.optimizeVectorHatchFills", "true"));
 
+    /**
+     * Whether marks and icons repeated across points should be painted as pre-rendered sprites (off
+     * by default, as rotations and positions are rounded, see {@link SpriteCache})
+     */
+    public static boolean SPRITE_CACHE_ENABLED =
+            Boolean.getBoolean("org.geotools.renderer.lite.spriteCache");
+
     /**
      * the label cache, used to populate the label cache with reserved areas for labeling obstacles
      */
     LabelCache labelCache;
 
+    SpriteCache spriteCache = SpriteCache.getDefaultInstance();
+
     public StyledShapePainter() {
         // nothing do do, just needs to exist
     }
@@ -143,7 +153,6 @@ public class StyledShapePainter {
             try {
                 IconStyle2D icoStyle = (IconStyle2D) style;
                 Icon icon = icoStyle.getIcon();
-                graphics.setComposite(icoStyle.getComposite());
 
                 // the displacement to be applied to all points, centers the icon and applies the
                 // Graphic displacement as well
@@ -156,6 +165,24 @@ public class StyledShapePainter {
                 AffineTransform at = new AffineTransform(temp);
                 while (!(citer.isDone())) {
                     if (citer.currentSegment(coords) != PathIterator.SEG_MOVETO) {
+                        Sprite sprite =
+                                SPRITE_CACHE_ENABLED
+                                        ? spriteCache.getSprite(
+                                                icoStyle, coords[0], coords[1], graphics)
+                                        : null;
+                        if (sprite != null) {
+                            sprite.paint(graphics, coords[0], coords[1]);
+                            if (isLabelObstacle) {
+                                labelCache.put(
+                                        new Rectangle2D.Double(
+                                                coords[0] + dx,
+                                                coords[1] + dy,
+                                                icon.getIconWidth(),
+                                                icon.getIconHeight()));
+                            }
+                            citer.next();
+                            continue;
+                        }
                         at.setTransform(temp);
 
                         double x = coords[0] + dx;
@@ -166,8 +193,10 @@ public class StyledShapePainter {
                                 -(icon.getIconWidth() * icoStyle.getAnchorPointX()),
                                 (icon.getIconHeight() * (icoStyle.getAnchorPointY() - 1)));
                         graphics.setTransform(at);
+                        graphics.setComposite(icoStyle.getComposite());
 
                         icon.paintIcon(null, graphics, 0, 0);
+                        graphics.setTransform(temp);
 
                         if (isLabelObstacle) {
                             // TODO: rotation?
@@ -191,6 +220,18 @@ public class StyledShapePainter {
             Shape transformedShape;
             while (!(citer.isDone())) {
                 if (citer.currentSegment(coords) != PathIterator.SEG_MOVETO) {
+                    Sprite sprite =
+                            SPRITE_CACHE_ENABLED
+                                    ? spriteCache.getSprite(ms2d, coords[0], coords[1], graphics)
+                                    : null;
+                    if (sprite != null) {
+                        sprite.paint(graphics, coords[0], coords[1]);
+                        if (isLabelObstacle) {
+                            labelCache.put(sprite.getBounds(coords[0], coords[1]));
+                        }
+                        citer.next();
+                        continue;
+                    }
                     transformedShape = ms2d.getTransformedShape(coords[0], coords[1]);
                     if (transformedShape != null) {
                         if (ms2d.getFill() != null) {
@@ -831,13 +872,12 @@ public class StyledShapePainter {
      * @param shape
      */
     void fillLiteShape(Graphics2D g, LiteShape2 shape) {
-        if (shape.getGeometry() instanceof MultiPolygon
-                && shape.getGeometry().getNumGeometries() > 1) {
-            MultiPolygon mp = (MultiPolygon) shape.getGeometry();
-            for (int i = 0; i < mp.getNumGeometries(); i++) {
-                Polygon p = (Polygon) mp.getGeometryN(i);
+        // avoid getGeometry(), streaming shapes would have to build the transformed geometry
+        if (MultiPolygon.class.isAssignableFrom(shape.getGeometryClass())
+                && shape.getNumGeometries() > 1) {
+            for (int i = 0; i < shape.getNumGeometries(); i++) {
                 try {
-                    g.fill(new LiteShape2(p, null, null, false, false));
+                    g.fill(shape.getGeometryN(i));
                 } catch (Exception e) {
                     // should not really happen, but anyways
                     throw new RuntimeException(
@@ -0,0 +1,232 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * A {@link LabelCache} used by the renderers painting a single sub-tile in a {@link
+ * TiledStreamingRenderer}. It moves the labels and obstacles from the tile space into the full map
+ * space, and forwards them to a label cache shared by all tiles, so that label conflicts are
+ * resolved once over the whole map and labels crossing tile seams are painted only once.
+ *
+ * <p>Features spanning more than one tile are loaded by all of the tiles they touch, the cache
+ * keeps track of how many labels each tile produced for a given feature, layer and symbolizer, and
+ * only forwards the ones that have not been already contributed by another tile.
+ *
+ * <p>The lifecycle methods ({@link #start()}, {@link #end(Graphics2D, Rectangle)} and so on) are
+ * ignored, the shared cache lifecycle is driven by the {@link TiledStreamingRenderer} itself.
+ */
+class TileLabelCache implements LabelCache {
+
+    static final Logger LOGGER = Logging.getLogger(TileLabelCache.class);
+
+    /** The key identifying a label contribution */
+    static final class LabelKey {
+        final String layerId;
+
+        final FeatureId id;
+
+        final TextSymbolizer symbolizer;
+
+        LabelKey(String layerId, FeatureId id, TextSymbolizer symbolizer) {
+            this.layerId = layerId;
+            this.id = id;
+            this.symbolizer = symbolizer;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            LabelKey other = (LabelKey) o;
+            return Objects.equals(layerId, other.layerId)
+                    && Objects.equals(id, other.id)
+                    && Objects.equals(symbolizer, other.symbolizer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(layerId, id, symbolizer);
+        }
+    }
+
+    /** The state shared among the tiles of a single map */
+    static final class Shared {
+        final LabelCache cache;
+
+        /** Number of labels forwarded so far for a given key, by any tile */
+        final Map<LabelKey, Integer> contributions = new HashMap<>();
+
+        /**
+         * The identifiers of the layers started by any tile, as assigned by the tile renderers
+         * after splitting the map content in z-groups and compositing groups
+         */
+        final Set<String> layerIds = new LinkedHashSet<>();
+
+        Shared(LabelCache cache) {
+            this.cache = cache;
+        }
+    }
+
+    final Shared shared;
+
+    final MathTransform toMapSpace;
+
+    final int dx;
+
+    final int dy;
+
+    /** Number of labels produced by this tile for a given key */
+    final Map<LabelKey, Integer> local = new HashMap<>();
+
+    /**
+     * Builds a new tile label cache
+     *
+     * @param shared The state shared among all tiles
+     * @param dx The tile horizontal offset in the map
+     * @param dy The tile vertical offset in the map
+     */
+    TileLabelCache(Shared shared, int dx, int dy) {
+        this.shared = shared;
+        this.dx = dx;
+        this.dy = dy;
+        this.toMapSpace = ProjectiveTransform.create(AffineTransform.getTranslateInstance(dx, dy));
+    }
+
+    @Override
+    public void start() {
+        // driven by the tiled renderer
+    }
+
+    @Override
+    public void startLayer(String layerId) {
+        synchronized (shared) {
+            shared.layerIds.add(layerId);
+            shared.cache.startLayer(layerId);
+        }
+    }
+
+    @Override
+    public void put(
+            String layerId,
+            TextSymbolizer symbolizer,
+            Feature feature,
+            LiteShape2 shape,
+            NumberRange<Double> scaleRange) {
+        FeatureId id = feature != null ? feature.getIdentifier() : null;
+        LabelKey key = null;
+        int count = 0;
+        if (id != null) {
+            key = new LabelKey(layerId, id, symbolizer);
+            count = local.merge(key, 1, Integer::sum);
+        }
+        try {
+            LiteShape2 mapShape = new LiteShape2(shape.getGeometry(), toMapSpace, null, false);
+            synchronized (shared) {
+                if (key != null) {
+                    Integer contributed = shared.contributions.get(key);
+                    if (contributed != null && contributed >= count) {
+                        // another tile already provided this label
+                        return;
+                    }
+                    shared.contributions.put(key, count);
+                }
+                shared.cache.put(layerId, symbolizer, feature, mapShape, scaleRange);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to move label shape into the map space", e);
+        }
+    }
+
+    @Override
+    public void put(Rectangle2D area) {
+        Rectangle2D mapArea =
+                new Rectangle2D.Double(
+                        area.getX() + dx, area.getY() + dy, area.getWidth(), area.getHeight());
+        synchronized (shared) {
+            shared.cache.put(mapArea);
+        }
+    }
+
+    @Override
+    public void endLayer(String layerId, Graphics2D graphics, Rectangle displayArea) {
+        // driven by the tiled renderer, other tiles might still be working on the layer
+    }
+
+    @Override
+    public void end(Graphics2D graphics, Rectangle displayArea) {
+        // labels are painted once, by the tiled renderer
+    }
+
+    @Override
+    public void stop() {
+        synchronized (shared) {
+            shared.cache.stop();
+        }
+    }
+
+    @Override
+    public void clear() {
+        // driven by the tiled renderer
+    }
+
+    @Override
+    public void clear(String layerId) {
+        // driven by the tiled renderer
+    }
+
+    @Override
+    public void disableLayer(String layerId) {
+        synchronized (shared) {
+            shared.cache.disableLayer(layerId);
+        }
+    }
+
+    @Override
+    public void enableLayer(String layerId) {
+        synchronized (shared) {
+            shared.cache.enableLayer(layerId);
+        }
+    }
+
+    @Override
+    public List orderedLabels() {
+        synchronized (shared) {
+            return shared.cache.orderedLabels();
+        }
+    }
+}
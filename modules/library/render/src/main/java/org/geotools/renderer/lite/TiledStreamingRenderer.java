@@ -0,0 +1,430 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.operation.matrix.XAffineTransform;
+import org.geotools.renderer.GTRenderer;
+import org.geotools.renderer.RenderListener;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.renderer.label.LabelCacheImpl.LabelRenderingMode;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * A renderer that splits the map in sub-tiles and paints them concurrently, each one with its own
+ * {@link StreamingRenderer}, and then stitches them back into the destination graphics. Each
+ * sub-tile is painted in a separate {@link BufferedImage}, with its own screen map and painter
+ * thread, so that the time needed to paint a large map (e.g., a 2048x2048 meta-tile) scales with
+ * the number of available cores, instead of being bound to the single painter thread used by {@link
+ * StreamingRenderer}.
+ *
+ * <p>Labels are not painted by the sub-tile renderers, they are instead collected in a single label
+ * cache, moved from the tile space to the map space, and painted once over the full map after the
+ * tiles are stitched, this way label conflict resolution works exactly as if the map was painted in
+ * one go and labels crossing the tile seams are neither cut nor duplicated.
+ *
+ * <p>Maps smaller than a single tile, or painted with a rotated world to screen transform, are
+ * painted directly by a single {@link StreamingRenderer}.
+ *
+ * <p>The {@link RenderListener} instances registered will be called concurrently by the tile
+ * renderers, and must be thread safe.
+ */
+public class TiledStreamingRenderer implements GTRenderer {
+
+    static final Logger LOGGER = Logging.getLogger(TiledStreamingRenderer.class);
+
+    /** The default sub-tile size */
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    private MapContent mapContent;
+
+    private RenderingHints java2dHints;
+
+    private Map<Object, Object> rendererHints;
+
+    private List<RenderListener> renderListeners = new CopyOnWriteArrayList<>();
+
+    private List<GTRenderer> activeRenderers = new CopyOnWriteArrayList<>();
+
+    private ExecutorService threadPool;
+
+    private int tileWidth = DEFAULT_TILE_SIZE;
+
+    private int tileHeight = DEFAULT_TILE_SIZE;
+
+    private volatile boolean renderingStopRequested;
+
+    /**
+     * Sets the thread pool used to paint the sub-tiles. If not set, a pool with as many threads as
+     * the available processors will be created and disposed at each paint.
+     *
+     * <p>The pool must not be shared with the {@link
+     * StreamingRenderer#setThreadPool(ExecutorService)}, as each tile renderer needs a painter
+     * thread of its own while the tile is being painted.
+     */
+    public void setThreadPool(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Sets the size of the sub-tiles the map will be split into
+     *
+     * @param tileWidth The tile width, in pixels
+     * @param tileHeight The tile height, in pixels
+     */
+    public void setTileSize(int tileWidth, int tileHeight) {
+        if (tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException(
+                    "Tile size must be positive, but was " + tileWidth + "x" + tileHeight);
+        }
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /** The sub-tile width */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    /** The sub-tile height */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public void stopRendering() {
+        renderingStopRequested = true;
+        for (GTRenderer renderer : activeRenderers) {
+            renderer.stopRendering();
+        }
+    }
+
+    @Override
+    public void addRenderListener(RenderListener listener) {
+        renderListeners.add(listener);
+    }
+
+    @Override
+    public void removeRenderListener(RenderListener listener) {
+        renderListeners.remove(listener);
+    }
+
+    @Override
+    public void setJava2DHints(RenderingHints hints) {
+        this.java2dHints = hints;
+    }
+
+    @Override
+    public RenderingHints getJava2DHints() {
+        return java2dHints;
+    }
+
+    @Override
+    public void setRendererHints(Map<Object, Object> hints) {
+        this.rendererHints = hints;
+    }
+
+    @Override
+    public Map<Object, Object> getRendererHints() {
+        return rendererHints;
+    }
+
+    @Override
+    public void setMapContent(MapContent mapContent) {
+        this.mapContent = mapContent;
+    }
+
+    @Override
+    public MapContent getMapContent() {
+        return mapContent;
+    }
+
+    @Override
+    public void paint(Graphics2D graphics, Rectangle paintArea, AffineTransform worldToScreen) {
+        if (worldToScreen == null || paintArea == null) {
+            LOGGER.info("renderer passed null arguments");
+            return;
+        }
+        try {
+            Envelope mapArea = RendererUtilities.createMapEnvelope(paintArea, worldToScreen);
+            paint(graphics, paintArea, mapArea, worldToScreen);
+        } catch (NoninvertibleTransformException e) {
+            fireErrorEvent(e);
+        }
+    }
+
+    @Override
+    public void paint(Graphics2D graphics, Rectangle paintArea, Envelope mapArea) {
+        paint(
+                graphics,
+                paintArea,
+                new ReferencedEnvelope(mapArea, getMapContentCRS()),
+                (AffineTransform) null);
+    }
+
+    @Override
+    public void paint(Graphics2D graphics, Rectangle paintArea, ReferencedEnvelope mapArea) {
+        paint(graphics, paintArea, mapArea, (AffineTransform) null);
+    }
+
+    @Override
+    public void paint(
+            Graphics2D graphics,
+            Rectangle paintArea,
+            Envelope mapArea,
+            AffineTransform worldToScreen) {
+        paint(
+                graphics,
+                paintArea,
+                new ReferencedEnvelope(mapArea, getMapContentCRS()),
+                worldToScreen);
+    }
+
+    private CoordinateReferenceSystem getMapContentCRS() {
+        if (mapContent == null) {
+            throw new IllegalStateException(
+                    "Cannot call paint, you did not set a MapContent in this renderer");
+        }
+        return mapContent.getCoordinateReferenceSystem();
+    }
+
+    @Override
+    public void paint(
+            Graphics2D graphics,
+            Rectangle paintArea,
+            ReferencedEnvelope mapArea,
+            AffineTransform worldToScreen) {
+        if (graphics == null || paintArea == null || mapArea == null) {
+            throw new NullPointerException("renderer requires graphics, paintArea and mapArea");
+        }
+        if (mapContent == null) {
+            throw new IllegalStateException(
+                    "Cannot call paint, you did not set a MapContent in this renderer");
+        }
+        if (worldToScreen == null) {
+            worldToScreen = RendererUtilities.worldToScreenTransform(mapArea, paintArea);
+            if (worldToScreen == null) return;
+        }
+        renderingStopRequested = false;
+
+        // small maps and rotated ones are not worth/possible to split
+        if ((paintArea.width <= tileWidth && paintArea.height <= tileHeight)
+                || XAffineTransform.getRotation(worldToScreen) != 0.0) {
+            StreamingRenderer renderer = buildRenderer(rendererHints);
+            activeRenderers.add(renderer);
+            try {
+                renderer.paint(graphics, paintArea, mapArea, worldToScreen);
+            } finally {
+                activeRenderers.remove(renderer);
+            }
+            return;
+        }
+
+        // the label cache shared by all tiles
+        LabelCache labelCache = getLabelCache();
+        labelCache.start();
+        TileLabelCache.Shared shared = new TileLabelCache.Shared(labelCache);
+
+        ExecutorService localThreadPool = threadPool;
+        boolean localPool = false;
+        if (localThreadPool == null) {
+            localThreadPool =
+                    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            localPool = true;
+        }
+        List<Rectangle> tiles = getTiles(paintArea);
+        List<Future<BufferedImage>> futures = new ArrayList<>(tiles.size());
+        try {
+            for (Rectangle tile : tiles) {
+                ReferencedEnvelope tileArea =
+                        new ReferencedEnvelope(
+                                RendererUtilities.createMapEnvelope(tile, worldToScreen),
+                                mapArea.getCoordinateReferenceSystem());
+                AffineTransform tileWorldToScreen =
+                        AffineTransform.getTranslateInstance(-tile.x, -tile.y);
+                tileWorldToScreen.concatenate(worldToScreen);
+                TileLabelCache tileCache = new TileLabelCache(shared, tile.x, tile.y);
+                futures.add(
+                        localThreadPool.submit(
+                                () ->
+                                        paintTile(
+                                                graphics,
+                                                tile,
+                                                tileArea,
+                                                tileWorldToScreen,
+                                                tileCache)));
+            }
+
+            // stitch the tiles back in the destination graphics, in order
+            for (int i = 0; i < tiles.size(); i++) {
+                BufferedImage image = futures.get(i).get();
+                if (image != null && !renderingStopRequested) {
+                    Rectangle tile = tiles.get(i);
+                    graphics.drawImage(image, tile.x, tile.y, null);
+                }
+            }
+        } catch (NoninvertibleTransformException | ExecutionException e) {
+            fireErrorEvent(e);
+            renderingStopRequested = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fireErrorEvent(e);
+            renderingStopRequested = true;
+        } finally {
+            if (renderingStopRequested) {
+                for (Future<BufferedImage> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            if (localPool) {
+                localThreadPool.shutdown();
+            }
+        }
+
+        // finally paint all labels at once, over the full map
+        if (!renderingStopRequested) {
+            List<String> layerIds;
+            synchronized (shared) {
+                layerIds = new ArrayList<>(shared.layerIds);
+            }
+            for (String layerId : layerIds) {
+                labelCache.endLayer(layerId, graphics, paintArea);
+            }
+            Rectangle clip = graphics.getClipBounds();
+            graphics.setClip(paintArea);
+            labelCache.end(graphics, paintArea);
+            graphics.setClip(clip);
+        } else {
+            labelCache.stop();
+            labelCache.clear();
+        }
+    }
+
+    /** Paints a single tile in its own image, using a dedicated {@link StreamingRenderer} */
+    private BufferedImage paintTile(
+            Graphics2D graphics,
+            Rectangle tile,
+            ReferencedEnvelope tileArea,
+            AffineTransform tileWorldToScreen,
+            TileLabelCache tileCache) {
+        if (renderingStopRequested) {
+            return null;
+        }
+        Map<Object, Object> hints = new HashMap<>();
+        if (rendererHints != null) {
+            hints.putAll(rendererHints);
+        }
+        hints.put(StreamingRenderer.LABEL_CACHE_KEY, tileCache);
+        StreamingRenderer renderer = buildRenderer(hints);
+
+        BufferedImage image =
+                graphics.getDeviceConfiguration()
+                        .createCompatibleImage(tile.width, tile.height, Transparency.TRANSLUCENT);
+        Graphics2D tileGraphics = image.createGraphics();
+        activeRenderers.add(renderer);
+        try {
+            tileGraphics.setRenderingHints(graphics.getRenderingHints());
+            renderer.paint(
+                    tileGraphics,
+                    new Rectangle(0, 0, tile.width, tile.height),
+                    tileArea,
+                    tileWorldToScreen);
+        } finally {
+            activeRenderers.remove(renderer);
+            tileGraphics.dispose();
+        }
+        return image;
+    }
+
+    private StreamingRenderer buildRenderer(Map<Object, Object> hints) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mapContent);
+        renderer.setJava2DHints(java2dHints);
+        renderer.setRendererHints(hints);
+        for (RenderListener listener : renderListeners) {
+            renderer.addRenderListener(listener);
+        }
+        return renderer;
+    }
+
+    /** Returns the label cache the labels will be collected into */
+    private LabelCache getLabelCache() {
+        LabelCache cache = null;
+        if (rendererHints != null) {
+            cache = (LabelCache) rendererHints.get(StreamingRenderer.LABEL_CACHE_KEY);
+        }
+        if (cache == null) {
+            cache = new LabelCacheImpl();
+        }
+        if (cache instanceof LabelCacheImpl) {
+            LabelCacheImpl impl = (LabelCacheImpl) cache;
+            String mode = null;
+            if (rendererHints != null) {
+                mode = (String) rendererHints.get(StreamingRenderer.TEXT_RENDERING_KEY);
+            }
+            if (mode != null) {
+                impl.setLabelRenderingMode(LabelRenderingMode.valueOf(mode));
+            }
+            for (RenderListener listener : renderListeners) {
+                impl.addRenderListener(listener);
+            }
+        }
+        return cache;
+    }
+
+    /** Splits the paint area in tiles */
+    List<Rectangle> getTiles(Rectangle paintArea) {
+        List<Rectangle> result = new ArrayList<>();
+        for (int y = paintArea.y; y < paintArea.y + paintArea.height; y += tileHeight) {
+            int height = Math.min(tileHeight, paintArea.y + paintArea.height - y);
+            for (int x = paintArea.x; x < paintArea.x + paintArea.width; x += tileWidth) {
+                int width = Math.min(tileWidth, paintArea.x + paintArea.width - x);
+                result.add(new Rectangle(x, y, width, height));
+            }
+        }
+        return result;
+    }
+
+    private void fireErrorEvent(Throwable t) {
+        LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
+        Exception e = t instanceof Exception ? (Exception) t : new Exception(t);
+        for (RenderListener listener : renderListeners) {
+            listener.errorOccurred(e);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -75,6 +76,9 @@ import org.geotools.referencing.CRS;
 import org.geotools.referencing.operation.builder.GridToEnvelopeMapper;
 import org.geotools.referencing.operation.matrix.XAffineTransform;
 import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.renderer.RenderMetrics;
+import org.geotools.renderer.RenderMetrics.Phase;
+import org.geotools.renderer.RenderMetricsListener;
 import org.geotools.renderer.composite.BlendComposite;
 import org.geotools.renderer.composite.BlendComposite.BlendingMode;
 import org.geotools.renderer.crs.ProjectionHandler;
@@ -171,6 +175,10 @@ public final class GridCoverageRenderer {
 
     private boolean advancedProjectionHandlingEnabled = true;
 
+    private RenderMetrics metrics;
+
+    private List<RenderMetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+
     public static final String PARENT_COVERAGE_PROPERTY = "ParentCoverage";
 
     /** Hint's KEY specifying a custom padding */
@@ -212,6 +220,60 @@ public final class GridCoverageRenderer {
         return this.advancedProjectionHandlingEnabled;
     }
 
+    /**
+     * Sets the metrics collecting the time spent reading ({@link RenderMetrics.Phase#QUERY}),
+     * reprojecting ({@link RenderMetrics.Phase#TRANSFORM}) and painting ({@link
+     * RenderMetrics.Phase#PAINT}) the coverages. Most image operations are deferred, so the actual
+     * pixel computation often happens, and is accounted for, while painting.
+     */
+    public void setRenderMetrics(RenderMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Returns the metrics being collected, if any */
+    public RenderMetrics getRenderMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds a listener that will be notified with the metrics of each paint call, using {@link
+     * RenderMetricsListener#layerRendered(RenderMetrics)}. Used only if no metrics have been
+     * provided via {@link #setRenderMetrics(RenderMetrics)}, as in that case the caller is the one
+     * in charge of reporting them.
+     */
+    public void addMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.add(listener);
+    }
+
+    /** Removes a metrics listener */
+    public void removeMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.remove(listener);
+    }
+
+    /**
+     * Sets up the metrics for a paint call, returns true if they have been created on purpose and
+     * need to be notified to the listeners
+     */
+    private boolean startMetrics(Object source) {
+        if (metrics == null && !metricsListeners.isEmpty()) {
+            metrics = new RenderMetrics(String.valueOf(source));
+            return true;
+        }
+        return false;
+    }
+
+    private void endMetrics(boolean notify) {
+        if (notify) {
+            try {
+                for (RenderMetricsListener listener : metricsListeners) {
+                    listener.layerRendered(metrics);
+                }
+            } finally {
+                metrics = null;
+            }
+        }
+    }
+
     /**
      * Creates a new {@link GridCoverageRenderer} object.
      *
@@ -501,6 +563,7 @@ public final class GridCoverageRenderer {
             GridCoverage2D preResample, boolean doReprojection, double[] bkgValues)
             throws FactoryException {
         GridCoverage2D afterReprojection = null;
+        long start = metrics != null ? System.nanoTime() : 0;
         try {
             if (doReprojection) {
                 // always have a ROI to account for pixels outside the image
@@ -520,6 +583,9 @@ public final class GridCoverageRenderer {
             }
             return afterReprojection;
         } finally {
+            if (metrics != null) {
+                metrics.addTimeSince(Phase.TRANSFORM, start);
+            }
             if (DEBUG) {
                 if (afterReprojection != null) {
                     writeRenderedImage(afterReprojection.getRenderedImage(), "afterReprojection");
@@ -862,6 +928,7 @@ public final class GridCoverageRenderer {
         // are we dealing with a remote service wrapped in a reader, one that can handle
         // reprojection
         // by itself?
+        long start = metrics != null ? System.nanoTime() : 0;
         if (GridCoverageReaderHelper.isReprojectingReader(reader)) {
             GridCoverage2D coverage = rh.readCoverage(readParams);
             coverages = new ArrayList<>();
@@ -879,6 +946,9 @@ public final class GridCoverageRenderer {
             }
             coverages = rh.readCoverages(readParams, handler, gridCoverageFactory);
         }
+        if (metrics != null) {
+            metrics.addTimeSince(Phase.QUERY, start);
+        }
 
         // check if we have to reproject
         boolean reprojectionNeeded = false;
@@ -1185,9 +1255,18 @@ public final class GridCoverageRenderer {
                             .append(gridCoverage.toString())
                             .toString());
 
-        // Build the final image and the transformation
-        RenderedImage finalImage = renderImage(gridCoverage, symbolizer, bkgValues);
-        paintImage(graphics, finalImage, symbolizer);
+        boolean notifyMetrics = startMetrics(gridCoverage.getName());
+        try {
+            // Build the final image and the transformation
+            RenderedImage finalImage = renderImage(gridCoverage, symbolizer, bkgValues);
+            long start = metrics != null ? System.nanoTime() : 0;
+            paintImage(graphics, finalImage, symbolizer);
+            if (metrics != null) {
+                metrics.addTimeSince(Phase.PAINT, start);
+            }
+        } finally {
+            endMetrics(notifyMetrics);
+        }
     }
 
     /**
@@ -1229,17 +1308,27 @@ public final class GridCoverageRenderer {
 
         setupInterpolationHints(interpolation);
 
-        // Build the final image and the transformation
-        RenderedImage finalImage =
-                renderImage(gridCoverageReader, readParams, symbolizer, interpolation, background);
-        if (finalImage != null) {
-            try {
-                paintImage(graphics, finalImage, symbolizer);
-            } finally {
-                if (finalImage instanceof PlanarImage) {
-                    ImageUtilities.disposePlanarImageChain((PlanarImage) finalImage);
+        boolean notifyMetrics = startMetrics(gridCoverageReader);
+        try {
+            // Build the final image and the transformation
+            RenderedImage finalImage =
+                    renderImage(
+                            gridCoverageReader, readParams, symbolizer, interpolation, background);
+            if (finalImage != null) {
+                try {
+                    long start = metrics != null ? System.nanoTime() : 0;
+                    paintImage(graphics, finalImage, symbolizer);
+                    if (metrics != null) {
+                        metrics.addTimeSince(Phase.PAINT, start);
+                    }
+                } finally {
+                    if (finalImage instanceof PlanarImage) {
+                        ImageUtilities.disposePlanarImageChain((PlanarImage) finalImage);
+                    }
                 }
             }
+        } finally {
+            endMetrics(notifyMetrics);
         }
     }
 
@@ -0,0 +1,377 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.style;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.text.Bidi;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches laid out glyph vectors, along with their outlines and text layouts, so that labels whose
+ * text repeats across features and maps (e.g., street names in tiled maps) are laid out once.
+ * Entries are keyed on the text, the font (which includes its size and transform) and the font
+ * render context (which includes the graphics transform and the antialiasing and fractional
+ * metrics hints).
+ *
+ * <p>The cache is bounded, once the maximum size is exceeded the entries that have not been used
+ * since the last eviction round are dropped. The maximum size defaults to {@value
+ * #DEFAULT_MAX_SIZE} and can be changed using the {@code org.geotools.render.glyphCacheSize} system
+ * property, or {@link #setMaxSize(int)}; zero disables the cache. Hit, miss and eviction counts are
+ * tracked to help tuning its size.
+ *
+ * <p>The JDK glyph vectors compute their outlines, metrics and bounds lazily, without any
+ * synchronization, so they cannot be safely shared among threads. Entries are thus private to the
+ * thread that looked them up, the key includes the thread identifier: labels repeating in the maps
+ * and tiles painted by the same thread hit the cache, while the maximum size and the eviction are
+ * shared by all threads. The returned glyph vectors and shapes must not be modified.
+ */
+public class GlyphVectorCache {
+
+    /** The logger for the rendering module. */
+    private static final Logger LOGGER =
+            org.geotools.util.logging.Logging.getLogger(GlyphVectorCache.class);
+
+    /** The default maximum number of cached glyph vectors */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    static volatile GlyphVectorCache defaultInstance;
+
+    final ConcurrentHashMap<Key, Glyphs> cache = new ConcurrentHashMap<>();
+
+    volatile int maxSize;
+
+    final LongAdder hits = new LongAdder();
+
+    final LongAdder misses = new LongAdder();
+
+    final LongAdder evictions = new LongAdder();
+
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** Returns the default, system wide glyph vector cache */
+    public static GlyphVectorCache getDefaultInstance() {
+        if (defaultInstance == null) {
+            synchronized (GlyphVectorCache.class) {
+                if (defaultInstance == null) {
+                    defaultInstance =
+                            new GlyphVectorCache(
+                                    Integer.getInteger(
+                                            "org.geotools.render.glyphCacheSize",
+                                            DEFAULT_MAX_SIZE));
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    /** Builds a new cache holding at most the specified number of glyph vectors */
+    public GlyphVectorCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the laid out glyphs for the specified text, font and render context, eventually
+     * laying them out and caching them. The glyphs must be used only by the calling thread.
+     */
+    public Glyphs getGlyphs(String text, Font font, FontRenderContext frc) {
+        if (maxSize <= 0) {
+            misses.increment();
+            return new Glyphs(text, font, frc);
+        }
+
+        Key key = new Key(text, font, frc);
+        Glyphs glyphs = cache.get(key);
+        if (glyphs != null) {
+            glyphs.used = true;
+            hits.increment();
+            return glyphs;
+        }
+
+        misses.increment();
+        glyphs = new Glyphs(text, font, frc);
+        Glyphs previous = cache.putIfAbsent(key, glyphs);
+        if (previous != null) {
+            return previous;
+        }
+        if (cache.size() > maxSize) {
+            evict();
+        }
+        return glyphs;
+    }
+
+    /**
+     * Drops the entries that have not been used since the last eviction round, marking the
+     * surviving ones as unused, until the cache is back to seven eights of its maximum size. A
+     * second round happens if the first one did not free enough space. Only one thread evicts at a
+     * time, the others just go on.
+     */
+    void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxSize - maxSize / 8;
+            for (int round = 0; round < 2 && cache.size() > target; round++) {
+                for (Iterator<Glyphs> it = cache.values().iterator();
+                        it.hasNext() && cache.size() > target; ) {
+                    Glyphs glyphs = it.next();
+                    if (glyphs.used) {
+                        glyphs.used = false;
+                    } else {
+                        it.remove();
+                        evictions.increment();
+                    }
+                }
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Glyph vector cache evicted entries, " + this);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** The maximum number of cached glyph vectors */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Sets the maximum number of cached glyph vectors, zero disables caching */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size cannot be negative");
+        }
+        this.maxSize = maxSize;
+        if (maxSize == 0) {
+            cache.clear();
+        } else if (cache.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /** The number of cached glyph vectors */
+    public int size() {
+        return cache.size();
+    }
+
+    /** Number of lookups that found the glyphs in the cache */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Number of lookups that had to lay out the glyphs */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Number of entries dropped to respect the maximum size */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** The ratio of lookups that found the glyphs in the cache, or zero if no lookup happened */
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** Resets the hit, miss and eviction counters */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /** Removes all the cached entries */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "GlyphVectorCache [size="
+                + size()
+                + ", maxSize="
+                + maxSize
+                + ", hits="
+                + getHits()
+                + ", misses="
+                + getMisses()
+                + ", evictions="
+                + getEvictions()
+                + "]";
+    }
+
+    /**
+     * The glyphs of a text laid out with a given font and render context. The glyph vector is
+     * computed up front, the text layout and the outlines only when first requested.
+     */
+    public static final class Glyphs {
+
+        final String text;
+
+        final Font font;
+
+        final FontRenderContext frc;
+
+        final GlyphVector glyphVector;
+
+        volatile TextLayout textLayout;
+
+        volatile Shape outline;
+
+        volatile Shape[] glyphOutlines;
+
+        /** Marks the entry as recently used, for eviction purposes */
+        volatile boolean used;
+
+        Glyphs(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.glyphVector = layout(text, font, frc);
+        }
+
+        /**
+         * Lays out the text, taking into account right to left and mixed direction scripts, such as
+         * arabic and hebrew
+         */
+        static GlyphVector layout(String label, Font font, FontRenderContext frc) {
+            final char[] chars = label.toCharArray();
+            final int length = label.length();
+            if (Bidi.requiresBidi(chars, 0, length)) {
+                Bidi bidi = new Bidi(label, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT);
+                if (bidi.isRightToLeft()) {
+                    return font.layoutGlyphVector(frc, chars, 0, length, Font.LAYOUT_RIGHT_TO_LEFT);
+                } else if (bidi.isMixed()) {
+                    String r = "";
+                    for (int i = 0; i < bidi.getRunCount(); i++) {
+                        String s1 = label.substring(bidi.getRunStart(i), bidi.getRunLimit(i));
+                        if (bidi.getRunLevel(i) % 2 == 0) {
+                            s1 = new StringBuffer(s1).reverse().toString();
+                        }
+                        r = r + s1;
+                    }
+                    char[] chars2 = r.toCharArray();
+                    return font.layoutGlyphVector(
+                            frc, chars2, 0, length, Font.LAYOUT_RIGHT_TO_LEFT);
+                }
+            }
+            return font.layoutGlyphVector(frc, chars, 0, chars.length, 0);
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public Font getFont() {
+            return font;
+        }
+
+        /** The laid out glyph vector */
+        public GlyphVector getGlyphVector() {
+            return glyphVector;
+        }
+
+        /** The text layout of the text, used to get the line metrics */
+        public TextLayout getTextLayout() {
+            TextLayout result = textLayout;
+            if (result == null) {
+                result = new TextLayout(text, font, frc);
+                textLayout = result;
+            }
+            return result;
+        }
+
+        /** The outline of the whole glyph vector */
+        public Shape getOutline() {
+            Shape result = outline;
+            if (result == null) {
+                result = glyphVector.getOutline();
+                outline = result;
+            }
+            return result;
+        }
+
+        /** The outline of the specified glyph */
+        public Shape getGlyphOutline(int glyphIndex) {
+            Shape[] outlines = glyphOutlines;
+            if (outlines == null) {
+                outlines = new Shape[glyphVector.getNumGlyphs()];
+                for (int i = 0; i < outlines.length; i++) {
+                    outlines[i] = glyphVector.getGlyphOutline(i);
+                }
+                glyphOutlines = outlines;
+            }
+            return outlines[glyphIndex];
+        }
+    }
+
+    /** The cache key, entries are private to the thread that created them */
+    static final class Key {
+        final String text;
+
+        final Font font;
+
+        final FontRenderContext frc;
+
+        final long threadId;
+
+        final int hashCode;
+
+        Key(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.threadId = Thread.currentThread().getId();
+            this.hashCode =
+                    31 * (31 * (31 * text.hashCode() + font.hashCode()) + frc.hashCode())
+                            + Long.hashCode(threadId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode
+                    && threadId == other.threadId
+                    && text.equals(other.text)
+                    && font.equals(other.font)
+                    && frc.equals(other.frc);
+        }
+    }
+}
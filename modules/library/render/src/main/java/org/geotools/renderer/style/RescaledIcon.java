@@ -72,4 +72,21 @@ class RescaledIcon implements Icon {
             g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
         }
     }
+
+    @Override
+    public int hashCode() {
+        return 31 * icon.hashCode() + Double.hashCode(scale);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RescaledIcon)) {
+            return false;
+        }
+        RescaledIcon other = (RescaledIcon) obj;
+        return scale == other.scale && icon.equals(other.icon);
+    }
 }
@@ -0,0 +1,583 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.style;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.Icon;
+
+/**
+ * Caches pre-rendered images ("sprites") of marks and icons, so that point layers can blit them
+ * instead of painting their vector outlines at each point. Sprites are keyed on the evaluated style
+ * (shape or icon, size, fill, stroke, opacity, displacement and anchor), on the rotation, rounded
+ * to {@link #ROTATION_STEPS} steps per turn, on the position within the target pixel, rounded to
+ * {@link #SUBPIXEL_STEPS} steps per axis, and on the antialiasing, stroke control and interpolation
+ * hints of the target graphics.
+ *
+ * <p>Only styles that can be rendered exactly this way are handled, that is, solid colors with
+ * source over compositing, basic strokes, sprites no larger than {@link #MAX_SPRITE_SIZE} pixels,
+ * painted on a graphics whose transform is at most an integer translation. In all other cases, and
+ * the first time a given key is seen, the sprite methods return null and the caller is expected to
+ * paint the vectors, this way styles that are used only once (e.g., sizes computed from the feature
+ * attributes) do not pay the sprite preparation cost.
+ *
+ * <p>The cache is bounded, once the maximum size is exceeded the entries that have not been used
+ * since the last eviction round are dropped. The maximum size defaults to {@value
+ * #DEFAULT_MAX_SIZE} and can be changed using the {@code org.geotools.render.spriteCacheSize}
+ * system property, or {@link #setMaxSize(int)}; zero disables the cache.
+ *
+ * <p>The returned sprites are shared, and must not be modified.
+ */
+public class SpriteCache {
+
+    /** The logger for the rendering module. */
+    private static final Logger LOGGER =
+            org.geotools.util.logging.Logging.getLogger(SpriteCache.class);
+
+    /** The default maximum number of cached sprites */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /** The largest sprite width or height, in pixels */
+    public static final int MAX_SPRITE_SIZE = 64;
+
+    /** Number of rotation buckets in a full turn */
+    public static final int ROTATION_STEPS = 360;
+
+    /** Number of position buckets within a pixel, along each axis */
+    public static final int SUBPIXEL_STEPS = 4;
+
+    /** Marks keys that have been seen once, but have no sprite yet */
+    static final Object PENDING = new Object();
+
+    static volatile SpriteCache defaultInstance;
+
+    final ConcurrentHashMap<Key, Object> cache = new ConcurrentHashMap<>();
+
+    volatile int maxSize;
+
+    final LongAdder hits = new LongAdder();
+
+    final LongAdder misses = new LongAdder();
+
+    final LongAdder evictions = new LongAdder();
+
+    final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** Returns the default, system wide sprite cache */
+    public static SpriteCache getDefaultInstance() {
+        if (defaultInstance == null) {
+            synchronized (SpriteCache.class) {
+                if (defaultInstance == null) {
+                    defaultInstance =
+                            new SpriteCache(
+                                    Integer.getInteger(
+                                            "org.geotools.render.spriteCacheSize",
+                                            DEFAULT_MAX_SIZE));
+                }
+            }
+        }
+        return defaultInstance;
+    }
+
+    /** Builds a new cache holding at most the specified number of sprites */
+    public SpriteCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the sprite for the mark painted at the specified position, or null if the mark cannot
+     * be, or should not yet be, painted as a sprite
+     *
+     * @param style The mark style
+     * @param x The x coordinate of the point, in the graphics space
+     * @param y The y coordinate of the point, in the graphics space
+     * @param graphics The target graphics
+     */
+    public Sprite getSprite(MarkStyle2D style, double x, double y, Graphics2D graphics) {
+        if (maxSize <= 0
+                || style.getShape() == null
+                || style.getSize() <= 0
+                || style.getSize() > MAX_SPRITE_SIZE
+                || !isSolid(style.getFill(), style.getFillComposite())
+                || !isSolid(style.getContour(), style.getContourComposite())
+                || !(style.getStroke() == null || style.getStroke() instanceof BasicStroke)
+                || !isIntegerTranslation(graphics.getTransform())) {
+            return null;
+        }
+
+        int rotation = toRotationStep(style.getRotation());
+        long qx = Math.round(x * SUBPIXEL_STEPS);
+        long qy = Math.round(y * SUBPIXEL_STEPS);
+        Key key =
+                new Key(
+                        (int) Math.floorMod(qx, SUBPIXEL_STEPS),
+                        (int) Math.floorMod(qy, SUBPIXEL_STEPS),
+                        style.getShape(),
+                        style.getSize(),
+                        style.getDisplacementX(),
+                        style.getDisplacementY(),
+                        style.getAnchorPointX(),
+                        style.getAnchorPointY(),
+                        style.getFill(),
+                        style.getFillComposite(),
+                        style.getContour(),
+                        style.getContourComposite(),
+                        style.getStroke(),
+                        rotation,
+                        graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+                        graphics.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL),
+                        graphics.getRenderingHint(RenderingHints.KEY_INTERPOLATION));
+        Object value = lookup(key);
+        if (value == null) {
+            return null;
+        }
+        Sprite sprite;
+        if (value == PENDING) {
+            sprite = renderMark(style, rotation, key, graphics);
+            store(key, sprite);
+        } else {
+            sprite = (Sprite) value;
+        }
+        return sprite == Sprite.NONE ? null : sprite;
+    }
+
+    /**
+     * Returns the sprite for the icon painted at the specified position, or null if the icon cannot
+     * be, or should not yet be, painted as a sprite. Icons are keyed on their identity, or on their
+     * equality when they implement it, so this helps only when the graphic factories reuse them.
+     *
+     * @param style The icon style
+     * @param x The x coordinate of the point, in the graphics space
+     * @param y The y coordinate of the point, in the graphics space
+     * @param graphics The target graphics
+     */
+    public Sprite getSprite(IconStyle2D style, double x, double y, Graphics2D graphics) {
+        Icon icon = style.getIcon();
+        if (maxSize <= 0
+                || icon == null
+                || icon.getIconWidth() <= 0
+                || icon.getIconHeight() <= 0
+                || icon.getIconWidth() > MAX_SPRITE_SIZE
+                || icon.getIconHeight() > MAX_SPRITE_SIZE
+                || !isSourceOver(style.getComposite())
+                || !isIntegerTranslation(graphics.getTransform())) {
+            return null;
+        }
+
+        int rotation = toRotationStep(style.getRotation());
+        long qx = Math.round(x * SUBPIXEL_STEPS);
+        long qy = Math.round(y * SUBPIXEL_STEPS);
+        Key key =
+                new Key(
+                        (int) Math.floorMod(qx, SUBPIXEL_STEPS),
+                        (int) Math.floorMod(qy, SUBPIXEL_STEPS),
+                        icon,
+                        icon.getIconWidth(),
+                        icon.getIconHeight(),
+                        style.getDisplacementX(),
+                        style.getDisplacementY(),
+                        style.getAnchorPointX(),
+                        style.getAnchorPointY(),
+                        style.getComposite(),
+                        rotation,
+                        graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+                        graphics.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL),
+                        graphics.getRenderingHint(RenderingHints.KEY_INTERPOLATION));
+        Object value = lookup(key);
+        if (value == null) {
+            return null;
+        }
+        Sprite sprite;
+        if (value == PENDING) {
+            sprite = renderIcon(style, rotation, key, graphics);
+            store(key, sprite);
+        } else {
+            sprite = (Sprite) value;
+        }
+        return sprite == Sprite.NONE ? null : sprite;
+    }
+
+    /**
+     * Returns the cached sprite, {@link #PENDING} if the key was seen before and the sprite has to
+     * be built, or null if this is the first time the key is seen
+     */
+    Object lookup(Key key) {
+        Object value = cache.get(key);
+        if (value instanceof Sprite) {
+            Sprite sprite = (Sprite) value;
+            sprite.used = true;
+            hits.increment();
+            return sprite;
+        }
+        misses.increment();
+        if (value == null && cache.putIfAbsent(key, PENDING) == null) {
+            if (cache.size() > maxSize) {
+                evict();
+            }
+            return null;
+        }
+        return PENDING;
+    }
+
+    void store(Key key, Sprite sprite) {
+        cache.put(key, sprite);
+        if (cache.size() > maxSize) {
+            evict();
+        }
+    }
+
+    Sprite renderMark(MarkStyle2D style, int rotation, Key key, Graphics2D graphics) {
+        double rotationRadians = rotation * 2 * Math.PI / ROTATION_STEPS;
+        Shape shape =
+                style.getTransformedShape(
+                        key.subX / (float) SUBPIXEL_STEPS,
+                        key.subY / (float) SUBPIXEL_STEPS,
+                        0,
+                        (float) rotationRadians);
+        Rectangle2D shapeBounds = shape.getBounds2D();
+        Rectangle2D bounds = shapeBounds;
+        if (style.getContour() != null && style.getStroke() != null) {
+            bounds = style.getStroke().createStrokedShape(shape).getBounds2D();
+            bounds.add(shapeBounds);
+        }
+        BufferedImage image = createImage(bounds);
+        if (image == null) {
+            return Sprite.NONE;
+        }
+
+        // one pixel of margin to account for antialiasing
+        int originX = (int) Math.floor(bounds.getMinX()) - 1;
+        int originY = (int) Math.floor(bounds.getMinY()) - 1;
+        Graphics2D g = image.createGraphics();
+        try {
+            setupGraphics(g, graphics);
+            g.translate(-originX, -originY);
+            if (style.getFill() != null) {
+                g.setPaint(style.getFill());
+                g.setComposite(style.getFillComposite());
+                g.fill(shape);
+            }
+            if (style.getContour() != null) {
+                g.setPaint(style.getContour());
+                g.setStroke(style.getStroke());
+                g.setComposite(style.getContourComposite());
+                g.draw(shape);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        return new Sprite(image, originX, originY, shapeBounds);
+    }
+
+    Sprite renderIcon(IconStyle2D style, int rotation, Key key, Graphics2D graphics) {
+        Icon icon = style.getIcon();
+        AffineTransform at = new AffineTransform();
+        at.translate(
+                key.subX / (double) SUBPIXEL_STEPS + style.getDisplacementX(),
+                key.subY / (double) SUBPIXEL_STEPS + style.getDisplacementY());
+        at.rotate(rotation * 2 * Math.PI / ROTATION_STEPS);
+        at.translate(
+                -(icon.getIconWidth() * style.getAnchorPointX()),
+                (icon.getIconHeight() * (style.getAnchorPointY() - 1)));
+        Rectangle2D bounds =
+                at.createTransformedShape(
+                                new Rectangle2D.Double(
+                                        0, 0, icon.getIconWidth(), icon.getIconHeight()))
+                        .getBounds2D();
+        BufferedImage image = createImage(bounds);
+        if (image == null) {
+            return Sprite.NONE;
+        }
+
+        int originX = (int) Math.floor(bounds.getMinX()) - 1;
+        int originY = (int) Math.floor(bounds.getMinY()) - 1;
+        Graphics2D g = image.createGraphics();
+        try {
+            setupGraphics(g, graphics);
+            g.translate(-originX, -originY);
+            g.transform(at);
+            g.setComposite(style.getComposite());
+            icon.paintIcon(null, g, 0, 0);
+        } finally {
+            g.dispose();
+        }
+
+        return new Sprite(image, originX, originY, bounds);
+    }
+
+    /** Creates an image large enough for the bounds, or returns null if it would be too large */
+    BufferedImage createImage(Rectangle2D bounds) {
+        int width = (int) Math.ceil(bounds.getMaxX()) - (int) Math.floor(bounds.getMinX()) + 2;
+        int height = (int) Math.ceil(bounds.getMaxY()) - (int) Math.floor(bounds.getMinY()) + 2;
+        if (width > MAX_SPRITE_SIZE + 2
+                || height > MAX_SPRITE_SIZE + 2
+                || width <= 0
+                || height <= 0) {
+            return null;
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /** Copies the hints that are part of the key into the sprite graphics */
+    void setupGraphics(Graphics2D sprite, Graphics2D target) {
+        copyHint(RenderingHints.KEY_ANTIALIASING, sprite, target);
+        copyHint(RenderingHints.KEY_STROKE_CONTROL, sprite, target);
+        copyHint(RenderingHints.KEY_INTERPOLATION, sprite, target);
+    }
+
+    private void copyHint(RenderingHints.Key key, Graphics2D sprite, Graphics2D target) {
+        Object value = target.getRenderingHint(key);
+        if (value != null) {
+            sprite.setRenderingHint(key, value);
+        }
+    }
+
+    /** A paint and composite pair that gives the same results painted directly or via a sprite */
+    static boolean isSolid(Paint paint, Composite composite) {
+        return paint == null || (paint instanceof Color && isSourceOver(composite));
+    }
+
+    /** Source over compositing is associative, so it can be applied while building the sprite */
+    static boolean isSourceOver(Composite composite) {
+        return composite instanceof AlphaComposite
+                && ((AlphaComposite) composite).getRule() == AlphaComposite.SRC_OVER;
+    }
+
+    static boolean isIntegerTranslation(AffineTransform at) {
+        return (at.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+                && at.getTranslateX() == Math.rint(at.getTranslateX())
+                && at.getTranslateY() == Math.rint(at.getTranslateY());
+    }
+
+    static int toRotationStep(double radians) {
+        long step = Math.round(radians / (2 * Math.PI) * ROTATION_STEPS);
+        return (int) Math.floorMod(step, ROTATION_STEPS);
+    }
+
+    /**
+     * Drops the entries that have not been used since the last eviction round, marking the
+     * surviving ones as unused, until the cache is back to seven eights of its maximum size. Keys
+     * that were seen only once are dropped first. Only one thread evicts at a time, the others just
+     * go on.
+     */
+    void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxSize - maxSize / 8;
+            cache.values().removeIf(v -> v == PENDING && cache.size() > target);
+            for (int round = 0; round < 2 && cache.size() > target; round++) {
+                for (Iterator<Object> it = cache.values().iterator();
+                        it.hasNext() && cache.size() > target; ) {
+                    Object value = it.next();
+                    if (value instanceof Sprite && ((Sprite) value).used) {
+                        ((Sprite) value).used = false;
+                    } else {
+                        it.remove();
+                        evictions.increment();
+                    }
+                }
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Sprite cache evicted entries, " + this);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** The maximum number of cached sprites */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** Sets the maximum number of cached sprites, zero disables caching */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size cannot be negative");
+        }
+        this.maxSize = maxSize;
+        if (maxSize == 0) {
+            cache.clear();
+        } else if (cache.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /** The number of cached entries, including the keys seen only once */
+    public int size() {
+        return cache.size();
+    }
+
+    /** Number of lookups that found a sprite in the cache */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Number of lookups that did not find a sprite in the cache */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Number of entries dropped to respect the maximum size */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** Resets the hit, miss and eviction counters */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /** Removes all the cached entries */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SpriteCache [size="
+                + size()
+                + ", maxSize="
+                + maxSize
+                + ", hits="
+                + getHits()
+                + ", misses="
+                + getMisses()
+                + ", evictions="
+                + getEvictions()
+                + "]";
+    }
+
+    /** A pre-rendered mark or icon */
+    public static final class Sprite {
+
+        /** Marks a key whose sprite has to be built, or could not be built */
+        static final Sprite NONE = new Sprite(null, 0, 0, null);
+
+        final BufferedImage image;
+
+        final int originX;
+
+        final int originY;
+
+        final Rectangle2D bounds;
+
+        /** Marks the entry as recently used, for eviction purposes */
+        volatile boolean used;
+
+        Sprite(BufferedImage image, int originX, int originY, Rectangle2D bounds) {
+            this.image = image;
+            this.originX = originX;
+            this.originY = originY;
+            this.bounds = bounds;
+        }
+
+        /** The pre-rendered image */
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        /**
+         * Paints the sprite at the specified point, which should be the same used to look it up (or
+         * at least fall in the same sub-pixel position). The sprite is painted with source over
+         * compositing, as the style composites are already applied in the image.
+         */
+        public void paint(Graphics2D graphics, double x, double y) {
+            graphics.setComposite(AlphaComposite.SrcOver);
+            graphics.drawImage(image, toPixel(x) + originX, toPixel(y) + originY, null);
+        }
+
+        /**
+         * The bounds of the mark or icon, without the stroke, painted at the specified point.
+         * Suitable to mark it as a label obstacle.
+         */
+        public Rectangle2D getBounds(double x, double y) {
+            return new Rectangle2D.Double(
+                    toPixel(x) + bounds.getMinX(),
+                    toPixel(y) + bounds.getMinY(),
+                    bounds.getWidth(),
+                    bounds.getHeight());
+        }
+
+        /** The integer pixel the sprite offsets are relative to */
+        static int toPixel(double ordinate) {
+            return (int) Math.floorDiv(Math.round(ordinate * SUBPIXEL_STEPS), SUBPIXEL_STEPS);
+        }
+    }
+
+    /**
+     * The cache key, made of the sub-pixel position and the style values. The shape or icon are
+     * compared with equals, which often means identity.
+     */
+    static final class Key {
+        final int subX;
+
+        final int subY;
+
+        final Object[] values;
+
+        final int hashCode;
+
+        Key(int subX, int subY, Object... values) {
+            this.subX = subX;
+            this.subY = subY;
+            this.values = values;
+            this.hashCode = 31 * (31 * subX + subY) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode
+                    && subX == other.subX
+                    && subY == other.subY
+                    && Arrays.equals(values, other.values);
+        }
+    }
+}
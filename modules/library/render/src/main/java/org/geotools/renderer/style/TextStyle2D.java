@@ -27,7 +27,6 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.font.GlyphVector;
 import java.awt.image.BufferedImage;
-import java.text.Bidi;
 import javax.swing.Icon;
 import org.geotools.util.Classes;
 
@@ -160,35 +159,29 @@ public class TextStyle2D extends Style2D {
         return rotation;
     }
 
-    /** Gets the glyph vector for the main font */
+    /**
+     * Gets the glyph vector for the main font. Glyph vectors are shared via the {@link
+     * GlyphVectorCache} and must not be modified
+     */
     public GlyphVector getTextGlyphVector(Graphics2D graphics) {
-        // arabic and hebrew are scripted and right to left, they do require full layout
-        // whilst western chars are easier to deal with. Find out which case we're dealing with,
-        // and create the glyph vector with the appropriate call
-        final char[] chars = label.toCharArray();
-        final int length = label.length();
-        if (Bidi.requiresBidi(chars, 0, length)
-                && new Bidi(label, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT).isRightToLeft()) {
-            textGlyphVector =
-                    getFont()
-                            .layoutGlyphVector(
-                                    graphics.getFontRenderContext(),
-                                    chars,
-                                    0,
-                                    length,
-                                    Font.LAYOUT_RIGHT_TO_LEFT);
-        } else {
-            textGlyphVector = getFont().createGlyphVector(graphics.getFontRenderContext(), chars);
-        }
+        // arabic and hebrew are scripted and right to left, they do require full layout, the cache
+        // takes care of that
+        textGlyphVector =
+                GlyphVectorCache.getDefaultInstance()
+                        .getGlyphs(label, getFont(), graphics.getFontRenderContext())
+                        .getGlyphVector();
         return textGlyphVector;
     }
 
     /** */
     public Shape getHaloShape(Graphics2D graphics) {
-        GlyphVector gv = getTextGlyphVector(graphics);
+        GlyphVectorCache.Glyphs glyphs =
+                GlyphVectorCache.getDefaultInstance()
+                        .getGlyphs(label, getFont(), graphics.getFontRenderContext());
+        textGlyphVector = glyphs.getGlyphVector();
         haloShape =
                 new BasicStroke(2f * haloRadius, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND)
-                        .createStrokedShape(gv.getOutline());
+                        .createStrokedShape(glyphs.getOutline());
         return haloShape;
     }
 
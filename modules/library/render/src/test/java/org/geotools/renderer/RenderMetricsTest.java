@@ -0,0 +1,108 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.geotools.renderer.RenderMetrics.Phase;
+import org.junit.Test;
+
+public class RenderMetricsTest {
+
+    RenderMetrics buildMap() {
+        RenderMetrics map = new RenderMetrics("map");
+        map.addTime(Phase.LABEL, 5_000_000);
+        RenderMetrics roads = map.addChild("roads");
+        roads.addTime(Phase.QUERY, 1_000_000);
+        RenderMetrics fts1 = roads.addChild("fts0");
+        fts1.addTime(Phase.PAINT, 2_000_000);
+        fts1.incrementScreenMapSkipped();
+        RenderMetrics fts2 = roads.addChild("fts1");
+        fts2.addTime(Phase.PAINT, 3_000_000);
+        fts2.addTime(Phase.TRANSFORM, 4_000_000);
+        RenderMetrics rivers = map.addChild("rivers");
+        rivers.addTime(Phase.FETCH, 6_000_000);
+        rivers.incrementFeatures();
+        rivers.incrementFeatures();
+        return map;
+    }
+
+    @Test
+    public void testAggregation() {
+        RenderMetrics map = buildMap();
+        assertEquals(2, map.getChildren().size());
+        RenderMetrics roads = map.getChildren().get(0);
+        assertEquals("roads", roads.getName());
+        assertEquals(5_000_000, roads.getTime(Phase.PAINT));
+        assertEquals(1_000_000, roads.getTime(Phase.QUERY));
+        assertEquals(10_000_000, roads.getTotalTime());
+        assertEquals(1, roads.getScreenMapSkipped());
+        assertEquals(0, roads.getFeatures());
+
+        assertEquals(5_000_000, map.getTime(Phase.LABEL));
+        assertEquals(21_000_000, map.getTotalTime());
+        assertEquals(2, map.getFeatures());
+        assertEquals(1, map.getScreenMapSkipped());
+    }
+
+    @Test
+    public void testCumulative() {
+        CumulativeRenderMetrics cumulative = new CumulativeRenderMetrics();
+        for (int i = 0; i < 2; i++) {
+            RenderMetrics map = buildMap();
+            for (RenderMetrics layer : map.getChildren()) {
+                cumulative.layerRendered(layer);
+            }
+            cumulative.mapRendered(map);
+        }
+        assertEquals(2, cumulative.getMaps());
+        assertEquals(4, cumulative.getLayers());
+        assertEquals(4, cumulative.getFeatures());
+        assertEquals(2, cumulative.getScreenMapSkipped());
+        assertEquals(2, cumulative.getQueryTime());
+        assertEquals(12, cumulative.getFetchTime());
+        assertEquals(8, cumulative.getTransformTime());
+        assertEquals(0, cumulative.getDecimationTime());
+        assertEquals(10, cumulative.getPaintTime());
+        assertEquals(10, cumulative.getLabelTime());
+        assertEquals(10_000, cumulative.getTime(Phase.PAINT, TimeUnit.MICROSECONDS));
+
+        cumulative.reset();
+        assertEquals(0, cumulative.getMaps());
+        assertEquals(0, cumulative.getPaintTime());
+    }
+
+    @Test
+    public void testJMX() throws Exception {
+        CumulativeRenderMetrics cumulative = new CumulativeRenderMetrics();
+        cumulative.mapRendered(buildMap());
+        ObjectName name = cumulative.register("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "Maps"));
+            assertEquals(5L, server.getAttribute(name, "PaintTime"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Maps"));
+        } finally {
+            cumulative.unregister(name);
+        }
+    }
+}
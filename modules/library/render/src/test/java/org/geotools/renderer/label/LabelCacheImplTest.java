@@ -12,9 +12,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.GeometryClipper;
 import org.geotools.geometry.jts.LiteShape2;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.renderer.RenderListener;
@@ -26,7 +28,9 @@ import org.geotools.test.TestGraphics;
 import org.geotools.util.NumberRange;
 import org.junit.Before;
 import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKTReader;
 import org.mockito.Mockito;
@@ -303,6 +307,94 @@ public class LabelCacheImplTest {
         assertNull(exception.get());
     }
 
+    @Test
+    public void testPrepareLocations() throws Exception {
+        TextSymbolizer ts1 = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        TextSymbolizer ts2 = sb.createTextSymbolizer(Color.YELLOW, (Font) null, "name");
+        SimpleFeature f1 = createFeature("label1", L1);
+        SimpleFeature f2 = createFeature("label2", geometry("POINT(5 5)"));
+        SimpleFeature f3 = createFeature("label3", geometry("POINT(500 500)"));
+        // the first two labels share the same geometry
+        Geometry g1 = (Geometry) f1.getDefaultGeometry();
+        cache.put(LAYER_ID, ts1, f1, new LiteShape2(g1, null, null, false), ALL_SCALES);
+        cache.put(LAYER_ID, ts2, f1, new LiteShape2(g1, null, null, false), ALL_SCALES);
+        for (SimpleFeature f : Arrays.asList(f2, f3)) {
+            Geometry g = (Geometry) f.getDefaultGeometry();
+            cache.put(LAYER_ID, ts1, f, new LiteShape2(g, null, null, false), ALL_SCALES);
+        }
+        cache.endLayer(LAYER_ID, null, null);
+
+        List<LabelCacheItem> items = cache.getActiveLabels();
+        assertEquals(4, items.size());
+        Rectangle displayArea = new Rectangle(0, 0, 255, 255);
+        cache.clipper = new GeometryClipper(new Envelope(0, 255, 0, 255));
+        cache.prepareLocations(items, displayArea);
+
+        assertEquals(4, cache.preparedLocations.size());
+        assertTrue(cache.preparedLocations.get(items.get(0)) instanceof List);
+        assertTrue(cache.preparedLocations.get(items.get(1)) instanceof List);
+        assertTrue(cache.preparedLocations.get(items.get(2)) instanceof Point);
+        // outside of the display area
+        assertSame(LabelCacheImpl.NO_LOCATION, cache.preparedLocations.get(items.get(3)));
+    }
+
+    @Test
+    public void testPaintPreparedLabels() throws Exception {
+        int threshold = LabelCacheImpl.PARALLEL_PREPARATION_THRESHOLD;
+        try {
+            LabelCacheImpl.PARALLEL_PREPARATION_THRESHOLD = 1;
+            // no parallel preparation unless an executor is provided
+            assertNull(cache.executor);
+            AtomicInteger executed = new AtomicInteger();
+            cache.setExecutor(
+                    r -> {
+                        executed.incrementAndGet();
+                        r.run();
+                    });
+            TextSymbolizer ts = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+            List<Geometry> geometries =
+                    Arrays.asList(L1, geometry("POINT(50 50)"), geometry("POINT(500 500)"));
+            for (int i = 0; i < geometries.size(); i++) {
+                SimpleFeature f = createFeature("label" + i, geometries.get(i));
+                Geometry g = (Geometry) f.getDefaultGeometry();
+                cache.put(LAYER_ID, ts, f, new LiteShape2(g, null, null, false), ALL_SCALES);
+            }
+            cache.endLayer(LAYER_ID, null, null);
+            cache.enableLayer(LAYER_ID);
+
+            AtomicReference<Exception> exception = new AtomicReference<Exception>(null);
+            cache.addRenderListener(
+                    new RenderListener() {
+
+                        @Override
+                        public void featureRenderer(SimpleFeature feature) {}
+
+                        @Override
+                        public void errorOccurred(Exception e) {
+                            exception.set(e);
+                        }
+                    });
+            BufferedImage bi = new BufferedImage(256, 256, BufferedImage.TYPE_4BYTE_ABGR);
+            Graphics2D graphics = bi.createGraphics();
+            cache.end(graphics, new Rectangle(0, 0, 256, 256));
+            graphics.dispose();
+            assertNull(exception.get());
+            assertTrue(executed.get() > 0);
+            // the prepared locations have all been consumed or discarded
+            assertTrue(cache.preparedLocations.isEmpty());
+            // something has been painted
+            boolean painted = false;
+            for (int x = 0; x < bi.getWidth() && !painted; x++) {
+                for (int y = 0; y < bi.getHeight() && !painted; y++) {
+                    painted = (bi.getRGB(x, y) >>> 24) != 0;
+                }
+            }
+            assertTrue(painted);
+        } finally {
+            LabelCacheImpl.PARALLEL_PREPARATION_THRESHOLD = threshold;
+        }
+    }
+
     private SimpleFeature createFeature(String label, Geometry geom) {
         fb.add(label);
         fb.add(geom);
@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testEmpty() {
+        LabelIndex index = new LabelIndex();
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(0, 0, 10, 10), 0));
+    }
+
+    @Test
+    public void testDistance() {
+        LabelIndex index = new LabelIndex();
+        index.addLabel(null, new Rectangle2D.Double(0, 0, 10, 10));
+        Rectangle2D query = new Rectangle2D.Double(15, 0, 10, 10);
+        assertFalse(index.labelsWithinDistance(query, 0));
+        assertFalse(index.labelsWithinDistance(query, 4));
+        assertTrue(index.labelsWithinDistance(query, 5));
+        // negative distance disables the check
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(0, 0, 10, 10), -1));
+    }
+
+    @Test
+    public void testReserveArea() {
+        LabelIndex index = new LabelIndex();
+        index.reserveArea(
+                Arrays.asList(
+                        new Rectangle2D.Double(0, 0, 10, 10),
+                        new Rectangle2D.Double(100, 100, 10, 10)));
+        assertEquals(2, index.size());
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(105, 105, 1, 1), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(50, 50, 1, 1), 0));
+    }
+
+    @Test
+    public void testCompareBruteForce() {
+        Random random = new Random(42);
+        LabelIndex index = new LabelIndex();
+        List<Rectangle2D> labels = new ArrayList<>();
+        // enough labels to go through several packed trees, with queries in between
+        for (int i = 0; i < 3000; i++) {
+            Rectangle2D query = randomBox(random);
+            double distance = random.nextInt(3);
+            assertEquals(
+                    bruteForce(labels, query, distance),
+                    index.labelsWithinDistance(query, distance));
+            if (!index.labelsWithinDistance(query, distance)) {
+                index.addLabel(null, query);
+                labels.add(query);
+            }
+            // some labels added regardless of conflicts, like obstacles
+            if (i % 3 == 0) {
+                Rectangle2D obstacle = randomBox(random);
+                index.addLabel(null, obstacle);
+                labels.add(obstacle);
+            }
+        }
+        assertEquals(labels.size(), index.size());
+        for (int i = 0; i < 1000; i++) {
+            Rectangle2D query = randomBox(random);
+            assertEquals(bruteForce(labels, query, 0), index.labelsWithinDistance(query, 0));
+        }
+    }
+
+    private Rectangle2D randomBox(Random random) {
+        return new Rectangle2D.Double(
+                random.nextDouble() * 2000,
+                random.nextDouble() * 2000,
+                1 + random.nextDouble() * 40,
+                1 + random.nextDouble() * 10);
+    }
+
+    private boolean bruteForce(List<Rectangle2D> labels, Rectangle2D query, double distance) {
+        Rectangle2D expanded =
+                new Rectangle2D.Double(
+                        query.getMinX() - distance,
+                        query.getMinY() - distance,
+                        query.getWidth() + distance * 2,
+                        query.getHeight() + distance * 2);
+        for (Rectangle2D label : labels) {
+            if (label.getMinX() <= expanded.getMaxX()
+                    && label.getMaxX() >= expanded.getMinX()
+                    && label.getMinY() <= expanded.getMaxY()
+                    && label.getMaxY() >= expanded.getMinY()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
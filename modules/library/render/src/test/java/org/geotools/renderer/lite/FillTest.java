@@ -19,6 +19,7 @@ package org.geotools.renderer.lite;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static org.junit.Assert.assertSame;
 
 import java.awt.Color;
 import java.awt.Font;
@@ -27,6 +28,9 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.geotools.data.property.PropertyDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.factory.CommonFactoryFinder;
@@ -218,6 +222,66 @@ public class FillTest {
         RendererBaseTest.showRender("FTS composition", renderer, TIME, bounds);
     }
 
+    @Test
+    public void testParallelFTSRendering() throws Exception {
+        Style bgStyle = RendererBaseTest.loadStyle(this, "fillSolid.sld");
+        Style fgStyle = RendererBaseTest.loadStyle(this, "fillSolidFTS.sld");
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(bfs, bgStyle));
+        mc.addLayer(new FeatureLayer(fs, fgStyle));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setJava2DHints(new RenderingHints(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON));
+        renderer.setMapContent(mc);
+        BufferedImage expected = RendererBaseTest.renderImage(renderer, bounds, null);
+
+        // same output, but with the back buffers painted concurrently
+        renderer = new StreamingRenderer();
+        renderer.setJava2DHints(new RenderingHints(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON));
+        renderer.setRendererHints(
+                Collections.singletonMap(StreamingRenderer.PARALLEL_FTS_RENDERING_KEY, true));
+        renderer.setMapContent(mc);
+        BufferedImage actual = RendererBaseTest.renderImage(renderer, bounds, null);
+
+        ImageAssert.assertEquals(expected, actual, 0);
+        mc.dispose();
+    }
+
+    @Test
+    public void testParallelFTSRenderingBusyPool() throws Exception {
+        Style bgStyle = RendererBaseTest.loadStyle(this, "fillSolid.sld");
+        Style fgStyle = RendererBaseTest.loadStyle(this, "fillSolidFTS.sld");
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(bfs, bgStyle));
+        mc.addLayer(new FeatureLayer(fs, fgStyle));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setJava2DHints(new RenderingHints(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON));
+        renderer.setMapContent(mc);
+        BufferedImage expected = RendererBaseTest.renderImage(renderer, bounds, null);
+
+        // a single thread, taken by the main painter, the back buffers get painted anyways
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            renderer = new StreamingRenderer();
+            renderer.setJava2DHints(new RenderingHints(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON));
+            renderer.setRendererHints(
+                    Collections.singletonMap(StreamingRenderer.PARALLEL_FTS_RENDERING_KEY, true));
+            renderer.setThreadPool(pool);
+            renderer.setMapContent(mc);
+            StyledShapePainter painter = renderer.painter;
+            BufferedImage actual = RendererBaseTest.renderImage(renderer, bounds, null);
+
+            ImageAssert.assertEquals(expected, actual, 0);
+            assertSame(painter, renderer.painter);
+        } finally {
+            pool.shutdown();
+            mc.dispose();
+        }
+    }
+
     @Test
     public void testGEOT3111() throws Exception {
         FilterFactory2 ff2 = CommonFactoryFinder.getFilterFactory2(null);
@@ -0,0 +1,165 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class RuleDispatcherTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    SimpleFeatureType schema;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setup() throws Exception {
+        schema =
+                DataUtilities.createType(
+                        "roads", "type:String,lanes:java.lang.Integer,speed:java.lang.Double");
+        features = new ArrayList<>();
+        double[] speeds = {-0d, 0d, Double.NaN, 30, 49.9, 50, 50.1, 90, 130, 1e6};
+        for (int i = 0; i < 60; i++) {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+            fb.add(i % 13 == 12 ? null : "t" + (i % 25));
+            fb.add(i % 11 == 10 ? null : i % 8);
+            fb.add(i % 9 == 8 ? null : speeds[i % speeds.length]);
+            features.add(fb.buildFeature("r" + i));
+        }
+    }
+
+    void assertSuperset(Filter[] filters, RuleDispatcher dispatcher) {
+        for (SimpleFeature feature : features) {
+            int[] candidates = dispatcher.getCandidates(feature);
+            for (int i = 1; i < candidates.length; i++) {
+                assertTrue(candidates[i - 1] < candidates[i]);
+            }
+            for (int i = 0; i < filters.length; i++) {
+                if (filters[i] == null || filters[i].evaluate(feature)) {
+                    assertTrue(
+                            filters[i] + " on " + feature, Arrays.binarySearch(candidates, i) >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEqualities() {
+        Filter[] filters = new Filter[20];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = ff.equals(ff.property("type"), ff.literal("t" + i));
+        }
+        // a list of values, and rules that cannot be indexed
+        filters[3] =
+                ff.or(
+                        Arrays.asList(
+                                ff.equals(ff.property("type"), ff.literal("t3")),
+                                ff.equals(ff.property("type"), ff.literal("t21")),
+                                ff.equals(ff.literal("t22"), ff.property("type"))));
+        filters[5] = ff.like(ff.property("type"), "t2*");
+        filters[6] = null;
+        filters[7] = ff.equal(ff.property("type"), ff.literal("T7"), false);
+        filters[8] =
+                ff.and(
+                        ff.equals(ff.property("type"), ff.literal("t8")),
+                        ff.greater(ff.property("lanes"), ff.literal(2)));
+
+        RuleDispatcher dispatcher = RuleDispatcher.build(filters, schema);
+        assertNotNull(dispatcher);
+        assertSuperset(filters, dispatcher);
+
+        // only the matching rule, and the ones that could not be indexed
+        SimpleFeature feature = features.get(10);
+        assertEquals("t10", feature.getAttribute("type"));
+        assertArrayEquals(new int[] {5, 6, 7, 10}, dispatcher.getCandidates(feature));
+        feature = features.get(24);
+        assertEquals("t24", feature.getAttribute("type"));
+        assertArrayEquals(new int[] {5, 6, 7}, dispatcher.getCandidates(feature));
+    }
+
+    @Test
+    public void testRanges() {
+        Filter[] filters = new Filter[12];
+        for (int i = 0; i < 8; i++) {
+            filters[i] =
+                    ff.and(
+                            ff.greaterOrEqual(ff.property("speed"), ff.literal(i * 20)),
+                            ff.less(ff.property("speed"), ff.literal((i + 1) * 20)));
+        }
+        filters[8] = ff.between(ff.property("speed"), ff.literal("0"), ff.literal(50));
+        filters[9] = ff.greater(ff.literal(0), ff.property("speed"));
+        filters[10] = ff.greater(ff.property("speed"), ff.literal(160));
+        filters[11] = ff.equals(ff.property("speed"), ff.literal(50));
+
+        RuleDispatcher dispatcher = RuleDispatcher.build(filters, schema);
+        assertNotNull(dispatcher);
+        assertSuperset(filters, dispatcher);
+
+        SimpleFeature feature = features.get(7);
+        assertEquals(90d, feature.getAttribute("speed"));
+        assertArrayEquals(new int[] {4}, dispatcher.getCandidates(feature));
+        feature = features.get(5);
+        assertEquals(50d, feature.getAttribute("speed"));
+        assertArrayEquals(new int[] {2, 8, 11}, dispatcher.getCandidates(feature));
+    }
+
+    @Test
+    public void testIntegerLiterals() {
+        // literals of other types, converted to the attribute binding when lossless
+        Filter[] filters = new Filter[10];
+        for (int i = 0; i < filters.length; i++) {
+            Object literal = i % 2 == 0 ? Long.valueOf(i) : String.valueOf(i);
+            filters[i] = ff.equals(ff.property("lanes"), ff.literal(literal));
+        }
+        filters[9] = ff.equals(ff.property("lanes"), ff.literal(2.5));
+        RuleDispatcher dispatcher = RuleDispatcher.build(filters, schema);
+        assertNotNull(dispatcher);
+        assertSuperset(filters, dispatcher);
+    }
+
+    @Test
+    public void testNotWorthwhile() {
+        Filter[] filters = new Filter[4];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = ff.equals(ff.property("type"), ff.literal("t" + i));
+        }
+        assertNull(RuleDispatcher.build(filters, schema));
+
+        filters = new Filter[10];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = ff.like(ff.property("type"), "t" + i + "*");
+        }
+        assertNull(RuleDispatcher.build(filters, schema));
+    }
+}
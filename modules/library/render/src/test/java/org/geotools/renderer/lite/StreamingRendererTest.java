@@ -28,6 +28,7 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
@@ -36,10 +37,12 @@ import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -63,6 +66,7 @@ import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.GeneralEnvelope;
 import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
 import org.geotools.geometry.jts.LiteShape2;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.map.DirectLayer;
@@ -74,8 +78,12 @@ import org.geotools.map.MapViewport;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.renderer.RenderListener;
+import org.geotools.renderer.RenderMetrics;
+import org.geotools.renderer.RenderMetricsListener;
 import org.geotools.renderer.lite.StreamingRenderer.RenderingRequest;
 import org.geotools.styling.DescriptionImpl;
+import org.geotools.styling.Graphic;
+import org.geotools.styling.Mark;
 import org.geotools.styling.Rule;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyleBuilder;
@@ -83,6 +91,7 @@ import org.geotools.styling.StyleFactoryImpl;
 import org.geotools.styling.StyleImpl;
 import org.geotools.styling.Symbolizer;
 import org.geotools.test.TestData;
+import org.geotools.util.factory.Hints;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -91,6 +100,7 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.opengis.feature.simple.SimpleFeature;
@@ -674,6 +684,66 @@ public class StreamingRendererTest {
         graphics.dispose();
     }
 
+    @Test
+    public void testRenderMetrics() {
+        // two zig-zag lines in the same pixel, the second one gets skipped by the screenmap
+        LiteCoordinateSequence cs =
+                new LiteCoordinateSequence(new double[] {0, 0, 1, 1, 2, 0, 3, 1, 4, 0});
+        DefaultFeatureCollection fc = new DefaultFeatureCollection();
+        fc.add(
+                SimpleFeatureBuilder.build(
+                        testLineFeatureType, new Object[] {gf.createLineString(cs)}, "zz1"));
+        fc.add(
+                SimpleFeatureBuilder.build(
+                        testLineFeatureType, new Object[] {gf.createLineString(cs)}, "zz2"));
+        MapContent mc = new MapContent();
+        StyleBuilder sb = new StyleBuilder();
+        FeatureLayer layer =
+                new FeatureLayer(
+                        new CollectionFeatureSource(fc), sb.createStyle(sb.createLineSymbolizer()));
+        layer.setTitle("zigzag");
+        mc.addLayer(layer);
+        StreamingRenderer sr = new StreamingRenderer();
+        sr.setMapContent(mc);
+
+        final List<RenderMetrics> layers = new ArrayList<>();
+        final List<RenderMetrics> maps = new ArrayList<>();
+        sr.addMetricsListener(
+                new RenderMetricsListener() {
+                    @Override
+                    public void layerRendered(RenderMetrics layer) {
+                        layers.add(layer);
+                    }
+
+                    @Override
+                    public void mapRendered(RenderMetrics map) {
+                        maps.add(map);
+                    }
+                });
+        BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = bi.createGraphics();
+        sr.paint(
+                graphics,
+                new Rectangle(0, 0, 1, 1),
+                new ReferencedEnvelope(0, 8, 0, 8, DefaultGeographicCRS.WGS84));
+        graphics.dispose();
+        mc.dispose();
+
+        assertEquals(1, layers.size());
+        assertEquals(1, maps.size());
+        RenderMetrics map = maps.get(0);
+        assertEquals(1, map.getChildren().size());
+        RenderMetrics layerMetrics = map.getChildren().get(0);
+        assertSame(layers.get(0), layerMetrics);
+        assertEquals("zigzag", layerMetrics.getName());
+        assertEquals(1, layerMetrics.getChildren().size());
+        assertEquals(2, map.getFeatures());
+        assertEquals(1, map.getScreenMapSkipped());
+        assertTrue(map.getTime(RenderMetrics.Phase.QUERY) > 0);
+        assertTrue(map.getTime(RenderMetrics.Phase.FETCH) > 0);
+        assertTrue(map.getTime(RenderMetrics.Phase.PAINT) > 0);
+    }
+
     /**
      * Test that we don't have the geometry added twice by StreamingRenderer#findStyleAttributes
      * when geofence is filtering a layer.
@@ -885,4 +955,52 @@ public class StreamingRendererTest {
         assertEquals(0, green);
         assertEquals(0, blue);
     }
+
+    @Test
+    public void testPointSymbolizerOnPolygonCentroid() throws Exception {
+        // detached features built with the lite coordinate sequence factory, the renderer is thus
+        // allowed to work on the geometries directly
+        GeometryFactory liteFactory = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        Polygon polygon =
+                liteFactory.createPolygon(
+                        new Coordinate[] {
+                            new Coordinate(10, 10),
+                            new Coordinate(30, 10),
+                            new Coordinate(30, 30),
+                            new Coordinate(10, 30),
+                            new Coordinate(10, 10)
+                        });
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("Polygons");
+        builder.add("geom", Polygon.class, DefaultGeographicCRS.WGS84);
+        DefaultFeatureCollection fc = new DefaultFeatureCollection();
+        SimpleFeatureType type = builder.buildFeatureType();
+        fc.add(SimpleFeatureBuilder.build(type, new Object[] {polygon}, null));
+        SimpleFeatureSource source =
+                new CollectionFeatureSource(fc) {
+                    @Override
+                    public synchronized Set<RenderingHints.Key> getSupportedHints() {
+                        return Collections.singleton(Hints.FEATURE_DETACHED);
+                    }
+                };
+
+        StyleBuilder sb = new StyleBuilder();
+        Mark square = sb.createMark("square", Color.RED);
+        Graphic graphic = sb.createGraphic(null, square, null, 1, 6, 0);
+        Style style = sb.createStyle(sb.createPointSymbolizer(graphic));
+        MapContent map = new MapContent();
+        map.addLayer(new FeatureLayer(source, style));
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        StreamingRenderer sr = new StreamingRenderer();
+        sr.setMapContent(map);
+        sr.paint(
+                image.createGraphics(),
+                new Rectangle(100, 100),
+                new ReferencedEnvelope(0, 100, 0, 100, DefaultGeographicCRS.WGS84));
+        map.dispose();
+
+        // the centroid (20, 20) lands at (20, 80) in screen space
+        assertEquals(Color.RED.getRGB(), image.getRGB(20, 80));
+        assertEquals(0, image.getRGB(20, 20));
+    }
 }
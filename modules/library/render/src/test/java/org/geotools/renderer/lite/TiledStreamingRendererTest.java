@@ -0,0 +1,197 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Style;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.test.TestData;
+import org.geotools.util.NumberRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.Feature;
+import org.opengis.filter.identity.FeatureId;
+
+public class TiledStreamingRendererTest {
+
+    SimpleFeatureSource lines;
+
+    SimpleFeatureSource squares;
+
+    ReferencedEnvelope bounds;
+
+    MapContent mc;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        lines = ds.getFeatureSource("diaglines");
+        squares = ds.getFeatureSource("square");
+        bounds =
+                new ReferencedEnvelope(
+                        0, 10, 0, 10, lines.getBounds().getCoordinateReferenceSystem());
+        mc = new MapContent();
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+    }
+
+    @Test
+    public void testTiles() {
+        TiledStreamingRenderer renderer = new TiledStreamingRenderer();
+        renderer.setTileSize(100, 80);
+        List<Rectangle> tiles = renderer.getTiles(new Rectangle(0, 0, 250, 160));
+        assertEquals(6, tiles.size());
+        assertEquals(new Rectangle(0, 0, 100, 80), tiles.get(0));
+        assertEquals(new Rectangle(200, 0, 50, 80), tiles.get(2));
+        assertEquals(new Rectangle(200, 80, 50, 80), tiles.get(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTileSize() {
+        new TiledStreamingRenderer().setTileSize(0, 256);
+    }
+
+    @Test
+    public void testSameAsStreamingRenderer() throws Exception {
+        mc.addLayer(new FeatureLayer(squares, RendererBaseTest.loadStyle(this, "fillCross.sld")));
+        mc.addLayer(new FeatureLayer(lines, RendererBaseTest.loadStyle(this, "lineThick.sld")));
+
+        StreamingRenderer reference = new StreamingRenderer();
+        reference.setMapContent(mc);
+        BufferedImage expected = RendererBaseTest.renderImage(reference, bounds, null, 300, 300);
+
+        TiledStreamingRenderer tiled = new TiledStreamingRenderer();
+        tiled.setTileSize(64, 64);
+        tiled.setMapContent(mc);
+        BufferedImage actual = RendererBaseTest.renderImage(tiled, bounds, null, 300, 300);
+
+        ImageAssert.assertEquals(expected, actual, 50);
+    }
+
+    @Test
+    public void testLabelsAcrossSeams() throws Exception {
+        Style style = RendererBaseTest.loadStyle(this, "labelStyle.sld");
+        mc.addLayer(new FeatureLayer(lines, style));
+
+        List<FeatureId> expectedLabels = new ArrayList<>();
+        StreamingRenderer reference = new StreamingRenderer();
+        reference.setMapContent(mc);
+        reference.setRendererHints(labelCacheHints(expectedLabels));
+        BufferedImage expected = RendererBaseTest.renderImage(reference, bounds, null, 300, 300);
+
+        List<FeatureId> actualLabels = new ArrayList<>();
+        TiledStreamingRenderer tiled = new TiledStreamingRenderer();
+        tiled.setTileSize(64, 64);
+        tiled.setMapContent(mc);
+        tiled.setRendererHints(labelCacheHints(actualLabels));
+        BufferedImage actual = RendererBaseTest.renderImage(tiled, bounds, null, 300, 300);
+
+        // each line spans several tiles, but gets labelled only once
+        assertEquals(expectedLabels.size(), actualLabels.size());
+        ImageAssert.assertEquals(expected, actual, 200);
+    }
+
+    @Test
+    public void testLayerIdsWithZGroups() throws Exception {
+        // a single map layer, split in three by the z-group in the middle
+        Style style = RendererBaseTest.loadStyle(this, "labelStyle.sld");
+        FeatureTypeStyle grouped =
+                RendererBaseTest.loadStyle(this, "lineThick.sld").featureTypeStyles().get(0);
+        grouped.getOptions().put(FeatureTypeStyle.SORT_BY_GROUP, "lines");
+        grouped.getOptions().put(FeatureTypeStyle.SORT_BY, "name");
+        style.featureTypeStyles().add(grouped);
+        style.featureTypeStyles()
+                .add(RendererBaseTest.loadStyle(this, "labelStyle.sld").featureTypeStyles().get(0));
+        mc.addLayer(new FeatureLayer(lines, style));
+
+        Set<String> started = Collections.synchronizedSet(new HashSet<>());
+        Set<String> ended = Collections.synchronizedSet(new HashSet<>());
+        LabelCacheImpl labelCache =
+                new LabelCacheImpl() {
+                    @Override
+                    public void startLayer(String layerId) {
+                        started.add(layerId);
+                        super.startLayer(layerId);
+                    }
+
+                    @Override
+                    public void endLayer(
+                            String layerId, Graphics2D graphics, Rectangle displayArea) {
+                        ended.add(layerId);
+                        super.endLayer(layerId, graphics, displayArea);
+                    }
+                };
+        Map<Object, Object> hints = new HashMap<>();
+        hints.put(StreamingRenderer.LABEL_CACHE_KEY, labelCache);
+        TiledStreamingRenderer tiled = new TiledStreamingRenderer();
+        tiled.setTileSize(64, 64);
+        tiled.setMapContent(mc);
+        tiled.setRendererHints(hints);
+        RendererBaseTest.renderImage(tiled, bounds, null, 300, 300);
+
+        // all the layers the tile renderers started, and only those, have been ended
+        assertEquals(new HashSet<>(Arrays.asList("1", "2", "3")), started);
+        assertEquals(started, ended);
+    }
+
+    /** Builds renderer hints with a label cache tracking the labelled features */
+    private Map<Object, Object> labelCacheHints(List<FeatureId> labelled) {
+        LabelCacheImpl labelCache =
+                new LabelCacheImpl() {
+                    @Override
+                    public void put(
+                            String layerId,
+                            TextSymbolizer symbolizer,
+                            Feature feature,
+                            LiteShape2 shape,
+                            NumberRange scaleRange) {
+                        labelled.add(feature.getIdentifier());
+                        super.put(layerId, symbolizer, feature, shape, scaleRange);
+                    }
+                };
+        Map<Object, Object> hints = new HashMap<>();
+        hints.put(StreamingRenderer.LABEL_CACHE_KEY, labelCache);
+        return hints;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.style;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.geotools.renderer.style.GlyphVectorCache.Glyphs;
+import org.junit.Test;
+
+public class GlyphVectorCacheTest {
+
+    static final Font FONT = new Font("Serif", Font.PLAIN, 12);
+
+    static final FontRenderContext FRC = new FontRenderContext(new AffineTransform(), true, true);
+
+    @Test
+    public void testHitsAndMisses() {
+        GlyphVectorCache cache = new GlyphVectorCache(10);
+        Glyphs first = cache.getGlyphs("Main Street", FONT, FRC);
+        Glyphs second = cache.getGlyphs("Main Street", FONT, FRC);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio(), 0d);
+        assertEquals(1, cache.size());
+
+        // outlines and layouts are computed once
+        assertSame(first.getOutline(), second.getOutline());
+        assertSame(first.getTextLayout(), second.getTextLayout());
+        assertSame(first.getGlyphOutline(0), second.getGlyphOutline(0));
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testKey() {
+        GlyphVectorCache cache = new GlyphVectorCache(10);
+        Glyphs reference = cache.getGlyphs("Main Street", FONT, FRC);
+        // different size
+        assertNotSame(reference, cache.getGlyphs("Main Street", FONT.deriveFont(14f), FRC));
+        // different hints
+        FontRenderContext noAntialiasing =
+                new FontRenderContext(new AffineTransform(), false, true);
+        assertNotSame(reference, cache.getGlyphs("Main Street", FONT, noAntialiasing));
+        // different text
+        assertNotSame(reference, cache.getGlyphs("Main Road", FONT, FRC));
+        // equal, but not the same, objects
+        assertSame(
+                reference,
+                cache.getGlyphs(
+                        new String("Main Street"),
+                        new Font("Serif", Font.PLAIN, 12),
+                        new FontRenderContext(new AffineTransform(), true, true)));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        GlyphVectorCache cache = new GlyphVectorCache(16);
+        for (int i = 0; i < 100; i++) {
+            cache.getGlyphs("Label " + i, FONT, FRC);
+            // keep using the first label, it should not be evicted
+            cache.getGlyphs("Label 0", FONT, FRC);
+        }
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictions() > 0);
+        long misses = cache.getMisses();
+        cache.getGlyphs("Label 0", FONT, FRC);
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    public void testDisabled() {
+        GlyphVectorCache cache = new GlyphVectorCache(0);
+        Glyphs first = cache.getGlyphs("Main Street", FONT, FRC);
+        Glyphs second = cache.getGlyphs("Main Street", FONT, FRC);
+        assertNotSame(first, second);
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSize() {
+        new GlyphVectorCache(-1);
+    }
+
+    @Test
+    public void testRightToLeft() {
+        GlyphVectorCache cache = new GlyphVectorCache(10);
+        String hebrew = "שלום";
+        Glyphs glyphs = cache.getGlyphs(hebrew, FONT, FRC);
+        assertEquals(hebrew.length(), glyphs.getGlyphVector().getNumGlyphs());
+    }
+
+    @Test
+    public void testEntriesPrivateToThread() throws Exception {
+        GlyphVectorCache cache = new GlyphVectorCache(10);
+        Glyphs reference = cache.getGlyphs("Main Street", FONT, FRC);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Glyphs other = executor.submit(() -> cache.getGlyphs("Main Street", FONT, FRC)).get();
+            // glyph vectors are not thread safe, each thread gets its own
+            assertNotSame(reference, other);
+            assertSame(
+                    other,
+                    executor.submit(() -> cache.getGlyphs("Main Street", FONT, FRC)).get());
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(reference, cache.getGlyphs("Main Street", FONT, FRC));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        GlyphVectorCache cache = new GlyphVectorCache(32);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 500; i++) {
+                                        Glyphs glyphs =
+                                                cache.getGlyphs("Label " + (i % 64), FONT, FRC);
+                                        glyphs.getOutline();
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= 32 + 4);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.style;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import org.geotools.renderer.style.SpriteCache.Sprite;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpriteCacheTest {
+
+    BufferedImage image;
+
+    Graphics2D graphics;
+
+    @Before
+    public void setup() {
+        image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(
+                RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    @After
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    MarkStyle2D buildMark() {
+        MarkStyle2D mark = new MarkStyle2D();
+        mark.setShape(WellKnownMarkFactory.triangle);
+        mark.setSize(16);
+        mark.setFill(Color.RED);
+        mark.setFillComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        mark.setContour(Color.BLACK);
+        mark.setContourComposite(AlphaComposite.SrcOver);
+        mark.setStroke(new BasicStroke(2));
+        return mark;
+    }
+
+    @Test
+    public void testAdmission() {
+        SpriteCache cache = new SpriteCache(10);
+        MarkStyle2D mark = buildMark();
+        // seen once, not worth a sprite yet
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        Sprite sprite = cache.getSprite(mark, 10, 10, graphics);
+        assertNotNull(sprite);
+        // same sub-pixel position, different pixel
+        assertSame(sprite, cache.getSprite(mark, 50, 30, graphics));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testKey() {
+        SpriteCache cache = new SpriteCache(100);
+        MarkStyle2D mark = buildMark();
+        cache.getSprite(mark, 10, 10, graphics);
+        Sprite reference = cache.getSprite(mark, 10, 10, graphics);
+
+        // another sub-pixel position
+        cache.getSprite(mark, 10.5, 10, graphics);
+        assertNotSame(reference, cache.getSprite(mark, 10.5, 10, graphics));
+
+        // the rotation is bucketed
+        mark.setRotation(0.0001f);
+        assertSame(reference, cache.getSprite(mark, 10, 10, graphics));
+        mark.setRotation((float) Math.PI / 4);
+        cache.getSprite(mark, 10, 10, graphics);
+        assertNotSame(reference, cache.getSprite(mark, 10, 10, graphics));
+        mark.setRotation(0);
+
+        // another fill
+        mark.setFill(Color.BLUE);
+        cache.getSprite(mark, 10, 10, graphics);
+        assertNotSame(reference, cache.getSprite(mark, 10, 10, graphics));
+
+        // an equal but different style
+        assertSame(reference, cache.getSprite(buildMark(), 10, 10, graphics));
+
+        // other antialiasing
+        graphics.setRenderingHint(
+                RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        assertNull(cache.getSprite(buildMark(), 10, 10, graphics));
+    }
+
+    @Test
+    public void testNotEligible() {
+        SpriteCache cache = new SpriteCache(10);
+        MarkStyle2D mark = buildMark();
+        mark.setFill(new GradientPaint(0, 0, Color.RED, 10, 10, Color.BLUE));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+
+        mark = buildMark();
+        mark.setSize(SpriteCache.MAX_SPRITE_SIZE + 1);
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+
+        mark = buildMark();
+        mark.setContourComposite(AlphaComposite.Xor);
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+
+        // scaled graphics
+        mark = buildMark();
+        graphics.scale(2, 2);
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSameAsVectors() {
+        SpriteCache cache = new SpriteCache(10);
+        MarkStyle2D mark = buildMark();
+        mark.setRotation((float) Math.toRadians(30));
+        double x = 40.25, y = 30.75;
+
+        // paint the vectors
+        Shape shape = mark.getTransformedShape((float) x, (float) y);
+        graphics.setPaint(mark.getFill());
+        graphics.setComposite(mark.getFillComposite());
+        graphics.fill(shape);
+        graphics.setPaint(mark.getContour());
+        graphics.setStroke(mark.getStroke());
+        graphics.setComposite(mark.getContourComposite());
+        graphics.draw(shape);
+
+        // paint the sprite
+        BufferedImage spriteImage = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D spriteGraphics = spriteImage.createGraphics();
+        spriteGraphics.setRenderingHint(
+                RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        cache.getSprite(mark, x, y, spriteGraphics);
+        Sprite sprite = cache.getSprite(mark, x, y, spriteGraphics);
+        sprite.paint(spriteGraphics, x, y);
+        spriteGraphics.dispose();
+
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                int expected = image.getRGB(i, j);
+                int actual = spriteImage.getRGB(i, j);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int difference =
+                            Math.abs(((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF));
+                    assertTrue("Difference at " + i + "," + j, difference <= 2);
+                }
+            }
+        }
+
+        Rectangle2D bounds = sprite.getBounds(x, y);
+        Rectangle2D expected = shape.getBounds2D();
+        assertEquals(expected.getMinX(), bounds.getMinX(), 1e-3);
+        assertEquals(expected.getMaxY(), bounds.getMaxY(), 1e-3);
+    }
+
+    @Test
+    public void testBounded() {
+        SpriteCache cache = new SpriteCache(16);
+        MarkStyle2D mark = buildMark();
+        for (int i = 0; i < 100; i++) {
+            mark.setSize(1 + i % 50);
+            cache.getSprite(mark, 10, 10, graphics);
+            cache.getSprite(mark, 10, 10, graphics);
+        }
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    public void testDisabled() {
+        SpriteCache cache = new SpriteCache(0);
+        MarkStyle2D mark = buildMark();
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertNull(cache.getSprite(mark, 10, 10, graphics));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.util.Arrays;
+import java.util.List;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.filter.function.InFunction;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Uses an {@link AttributeIndex} to find the candidate records for a filter. Equality, "in"
+ * functions and their disjunctions are supported on all indexed columns, ranges only on the numeric
+ * ones, and conjunctions are answered by intersecting the candidates of the supported parts.
+ *
+ * <p>The candidates are a superset of the matching records, the filter still has to be evaluated on
+ * them.
+ *
+ * @author GeoTools
+ */
+class AttributeIndexSearch {
+
+    final AttributeIndex index;
+
+    final SimpleFeatureType schema;
+
+    AttributeIndexSearch(AttributeIndex index, SimpleFeatureType schema) {
+        this.index = index;
+        this.schema = schema;
+    }
+
+    /**
+     * Returns the sorted one based numbers of the records possibly matching the filter, or null if
+     * the index cannot be used for it
+     */
+    int[] search(Filter filter) {
+        if (filter == Filter.EXCLUDE) {
+            return new int[0];
+        } else if (filter instanceof And) {
+            int[] result = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                int[] records = search(child);
+                if (records != null) {
+                    result = result == null ? records : intersect(result, records);
+                }
+            }
+            return result;
+        } else if (filter instanceof Or) {
+            int[] result = new int[0];
+            for (Filter child : ((Or) filter).getChildren()) {
+                int[] records = search(child);
+                if (records == null) {
+                    return null;
+                }
+                result = union(result, records);
+            }
+            return result;
+        } else if (filter instanceof PropertyIsEqualTo) {
+            return searchEqual((PropertyIsEqualTo) filter);
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            return searchRange(
+                    between.getExpression(),
+                    between.getLowerBoundary(),
+                    between.getUpperBoundary());
+        } else if (filter instanceof PropertyIsLessThan
+                || filter instanceof PropertyIsLessThanOrEqualTo) {
+            // the bounds are always inclusive, keys might be less precise than the values
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            int[] records =
+                    searchRange(comparison.getExpression1(), null, comparison.getExpression2());
+            if (records == null) {
+                records =
+                        searchRange(comparison.getExpression2(), comparison.getExpression1(), null);
+            }
+            return records;
+        } else if (filter instanceof PropertyIsGreaterThan
+                || filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+            int[] records =
+                    searchRange(comparison.getExpression1(), comparison.getExpression2(), null);
+            if (records == null) {
+                records =
+                        searchRange(comparison.getExpression2(), null, comparison.getExpression1());
+            }
+            return records;
+        }
+        return null;
+    }
+
+    private int[] searchEqual(PropertyIsEqualTo equal) {
+        Expression e1 = equal.getExpression1();
+        Expression e2 = equal.getExpression2();
+        if (e1 instanceof Literal && !(e2 instanceof Literal)) {
+            Expression tmp = e1;
+            e1 = e2;
+            e2 = tmp;
+        }
+        if (!(e2 instanceof Literal)) {
+            return null;
+        }
+        Object value = ((Literal) e2).getValue();
+        if (InFunction.isInFunction(e1)) {
+            // in(attribute, v1, v2, ...) = true
+            if (!Boolean.TRUE.equals(Converters.convert(value, Boolean.class))) {
+                return null;
+            }
+            List<Expression> parameters = ((Function) e1).getParameters();
+            int field = getField(parameters.get(0));
+            int[] result = new int[0];
+            for (Expression parameter : parameters.subList(1, parameters.size())) {
+                if (!(parameter instanceof Literal)) {
+                    return null;
+                }
+                int[] records = searchEqual(field, ((Literal) parameter).getValue(), true);
+                if (records == null) {
+                    return null;
+                }
+                result = union(result, records);
+            }
+            return result;
+        }
+        return searchEqual(getField(e1), value, equal.isMatchingCase());
+    }
+
+    private int[] searchEqual(int field, Object value, boolean matchCase) {
+        if (field < 0 || !index.isIndexed(field)) {
+            return null;
+        }
+        if (index.isNumeric(field)) {
+            Double number = toDouble(value);
+            return number != null ? index.searchEqual(field, number) : null;
+        } else if (value instanceof String && matchCase) {
+            return index.searchEqual(field, (String) value);
+        }
+        return null;
+    }
+
+    private int[] searchRange(Expression expression, Expression lower, Expression upper) {
+        int field = getField(expression);
+        if (field < 0 || !index.isNumeric(field)) {
+            return null;
+        }
+        double min = Double.NEGATIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+        if (lower != null) {
+            Double value = lower instanceof Literal ? toDouble(((Literal) lower).getValue()) : null;
+            if (value == null) {
+                return null;
+            }
+            min = value;
+        }
+        if (upper != null) {
+            Double value = upper instanceof Literal ? toDouble(((Literal) upper).getValue()) : null;
+            if (value == null) {
+                return null;
+            }
+            max = value;
+        }
+        return index.searchRange(field, min, max);
+    }
+
+    /** Returns the .dbf field index of a property, or -1 if not a .dbf column */
+    private int getField(Expression expression) {
+        if (!(expression instanceof PropertyName)) {
+            return -1;
+        }
+        Object descriptor = expression.evaluate(schema);
+        if (!(descriptor instanceof AttributeDescriptor)) {
+            return -1;
+        }
+        // the geometry comes first, then the .dbf fields in order
+        int position = schema.indexOf(((AttributeDescriptor) descriptor).getName());
+        return position > 0 ? position - 1 : -1;
+    }
+
+    private Double toDouble(Object value) {
+        if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            return Double.isNaN(d) ? null : d;
+        } else if (value instanceof String) {
+            Double d = Converters.convert(value, Double.class);
+            return d != null && !d.isNaN() ? d : null;
+        }
+        return null;
+    }
+
+    /** Intersects two sorted arrays */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+    /** Merges two sorted arrays, removing duplicates */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            int value;
+            if (j == b.length || (i < a.length && a[i] <= b[j])) {
+                value = a[i++];
+            } else {
+                value = b[j++];
+            }
+            if (k == 0 || result[k - 1] != value) {
+                result[k++] = value;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+}
@@ -16,7 +16,9 @@
  */
 package org.geotools.data.shapefile;
 
+import static org.geotools.data.shapefile.files.ShpFileType.AIX;
 import static org.geotools.data.shapefile.files.ShpFileType.FIX;
+import static org.geotools.data.shapefile.files.ShpFileType.HRT;
 import static org.geotools.data.shapefile.files.ShpFileType.QIX;
 import static org.geotools.data.shapefile.files.ShpFileType.SHP;
 import static org.geotools.data.shapefile.files.ShpFileType.SHX;
@@ -26,8 +28,15 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geotools.data.CloseableIterator;
@@ -41,6 +50,8 @@ import org.geotools.data.shapefile.index.CachedQuadTree;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTree;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
@@ -49,6 +60,8 @@ import org.geotools.data.util.NullProgressListener;
 import org.geotools.util.URLs;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
 import org.opengis.filter.Id;
 import org.opengis.filter.identity.Identifier;
 
@@ -69,8 +82,29 @@ class IndexManager {
 
     CachedQuadTree cachedTree;
 
+    /** The memory mapped Hilbert R-tree, if the .hrt file is available */
+    volatile HilbertRTree hilbertTree;
+
+    /** The last modification time of the .hrt file {@link #hilbertTree} has been opened from */
+    long hilbertTreeLastModified;
+
+    /** The memory mapped attribute index, if the .aix file is available */
+    volatile AttributeIndex attributeIndex;
+
+    /** The last modification time of the .aix file {@link #attributeIndex} has been opened from */
+    long attributeIndexLastModified;
+
+    /** The configured attributes that could not be indexed, so that they are not tried again */
+    Set<String> unindexableAttributes = new HashSet<>();
+
     ShapefileDataStore store;
 
+    /**
+     * Guards the memory mapped indexes, searched holding the read lock and released holding the
+     * write one, so that no search reads from an unmapped buffer
+     */
+    final ReadWriteLock mappedIndexLock = new ReentrantReadWriteLock();
+
     /** Used to lock the files when doing accesses to check indexes and the like */
     FileWriter writer =
             new FileWriter() {
@@ -124,6 +158,55 @@ class IndexManager {
         return false;
     }
 
+    /**
+     * Creates the packed Hilbert R-tree spatial index, the .hrt file, which is then used instead of
+     * the .qix one.
+     *
+     * @param force Forces the index re-creation even if the index seems to be up to date
+     * @return true if the spatial index has been created/updated
+     */
+    public boolean createHilbertIndex(boolean force) {
+        try {
+            if (shpFiles.isLocal() && (isIndexStale(HRT) || force)) {
+                ShapefileDataStoreFactory.LOGGER.fine(
+                        "Creating Hilbert R-tree spatial index for " + shpFiles.get(SHP));
+
+                ShapeFileIndexer indexer = new ShapeFileIndexer();
+                indexer.setShapeFileName(shpFiles);
+                indexer.indexHilbert(new NullProgressListener());
+
+                return true;
+            }
+        } catch (Throwable t) {
+            ShapefileDataStoreFactory.LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
+        }
+        return false;
+    }
+
+    /**
+     * Creates the attribute index, the .aix file, for the specified .dbf columns
+     *
+     * @return true if the attribute index has been created
+     */
+    public boolean createAttributeIndex(Collection<String> attributes) {
+        try {
+            if (shpFiles.isLocal()) {
+                ShapefileDataStoreFactory.LOGGER.fine(
+                        "Creating attribute index on " + attributes + " for " + shpFiles.get(SHP));
+
+                ShapeFileIndexer indexer = new ShapeFileIndexer();
+                indexer.setShapeFileName(shpFiles);
+                indexer.setCharset(store.getCharset());
+                indexer.indexAttributes(attributes.toArray(new String[attributes.size()]));
+
+                return true;
+            }
+        } catch (Throwable t) {
+            ShapefileDataStoreFactory.LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
+        }
+        return false;
+    }
+
     /**
      * If the fid index can be used and it is missing this method will try to create it
      *
@@ -191,7 +274,7 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && (shpFiles.exists(QIX) || shpFiles.exists(HRT));
     }
 
     /**
@@ -315,6 +398,34 @@ class IndexManager {
             throws DataSourceException, IOException, TreeException {
         CloseableIterator<Data> tmp = null;
 
+        // the Hilbert R-tree is only there if explicitly built, and preferred if so
+        HilbertRTree hilbert;
+        while ((hilbert = getHilbertTree()) != null) {
+            if (bbox.contains(hilbert.getBounds())) {
+                return null;
+            }
+            HilbertRTree.SearchResult result;
+            mappedIndexLock.readLock().lock();
+            try {
+                if (hilbert != hilbertTree) {
+                    // released meanwhile, because the .hrt file changed
+                    continue;
+                }
+                result = hilbert.search(bbox);
+            } finally {
+                mappedIndexLock.readLock().unlock();
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(
+                        "Hilbert R-tree search found "
+                                + result.size()
+                                + " records visiting "
+                                + result.getNodesVisited()
+                                + " nodes");
+            }
+            return result;
+        }
+
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
@@ -367,6 +478,246 @@ class IndexManager {
         return tmp;
     }
 
+    /**
+     * Returns the Hilbert R-tree index, opening it or rebuilding it if the shapefile changed, or
+     * null if there is no .hrt file
+     */
+    synchronized HilbertRTree getHilbertTree() {
+        if (!shpFiles.isLocal() || !shpFiles.exists(HRT)) {
+            closeHilbertTree();
+            return null;
+        }
+        if (isIndexStale(HRT)) {
+            closeHilbertTree();
+            if (!createHilbertIndex(true)) {
+                return null;
+            }
+        }
+        URL treeURL = shpFiles.acquireRead(HRT, writer);
+        try {
+            File treeFile = URLs.urlToFile(treeURL);
+            long lastModified = treeFile.lastModified();
+            if (hilbertTree == null || lastModified != hilbertTreeLastModified) {
+                closeHilbertTree();
+                hilbertTree = HilbertRTree.open(shpFiles, writer);
+                hilbertTreeLastModified = lastModified;
+            }
+            return hilbertTree;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not open the Hilbert R-tree index " + treeURL, e);
+            return null;
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
+    /** Releases the Hilbert R-tree, waiting for the searches running on it to complete */
+    private void closeHilbertTree() {
+        if (hilbertTree != null) {
+            mappedIndexLock.writeLock().lock();
+            try {
+                hilbertTree.close();
+                hilbertTree = null;
+            } finally {
+                mappedIndexLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Releases the attribute index, waiting for the searches running on it to complete */
+    private void closeAttributeIndex() {
+        if (attributeIndex != null) {
+            mappedIndexLock.writeLock().lock();
+            try {
+                attributeIndex.close();
+                attributeIndex = null;
+            } finally {
+                mappedIndexLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases the memory mapped indexes, to be called before the index files are written or
+     * deleted, as mapped files cannot be modified on some platforms. The indexes are mapped again
+     * on the next search.
+     */
+    synchronized void cleanFileCache() {
+        closeHilbertTree();
+        closeAttributeIndex();
+    }
+
+    /**
+     * Returns the attribute index, or null if there is no usable .aix file. If index creation is
+     * enabled the index is built, or rebuilt, when it is missing some of the configured attributes
+     * or the shapefile changed
+     */
+    synchronized AttributeIndex getAttributeIndex() throws IOException {
+        if (!shpFiles.isLocal()) {
+            return null;
+        }
+        Set<String> attributes = new LinkedHashSet<>(Arrays.asList(store.getIndexedAttributes()));
+        AttributeIndex index = null;
+        if (shpFiles.exists(AIX)) {
+            index = openAttributeIndex();
+            if (index != null
+                    && (isIndexStale(AIX)
+                            || !store.getCharset().name().equals(index.getCharset()))) {
+                // rebuild it with the same columns
+                attributes.addAll(getFieldNames(index));
+                index = null;
+            }
+        }
+
+        Set<String> missing = new LinkedHashSet<>(attributes);
+        if (index != null) {
+            missing.removeAll(getFieldNames(index));
+        }
+        missing.removeAll(unindexableAttributes);
+        if (!missing.isEmpty() && store.isIndexCreationEnabled()) {
+            Set<String> indexed = new LinkedHashSet<>(missing);
+            if (index != null) {
+                indexed.addAll(getFieldNames(index));
+            }
+            closeAttributeIndex();
+            index = createAttributeIndex(indexed) ? openAttributeIndex() : null;
+            if (index != null) {
+                missing.removeAll(getFieldNames(index));
+            }
+            unindexableAttributes.addAll(missing);
+        }
+        return index;
+    }
+
+    private Set<String> getFieldNames(AttributeIndex index) {
+        Set<String> names = new HashSet<>();
+        for (int field : index.getFields()) {
+            names.add(index.getFieldName(field));
+        }
+        return names;
+    }
+
+    private AttributeIndex openAttributeIndex() {
+        URL indexURL = shpFiles.acquireRead(AIX, writer);
+        try {
+            File indexFile = URLs.urlToFile(indexURL);
+            long lastModified = indexFile.lastModified();
+            if (attributeIndex == null || lastModified != attributeIndexLastModified) {
+                closeAttributeIndex();
+                attributeIndex = AttributeIndex.open(shpFiles, writer);
+                attributeIndexLastModified = lastModified;
+            }
+            return attributeIndex;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not open the attribute index " + indexURL, e);
+            return null;
+        } finally {
+            shpFiles.unlockRead(indexURL, writer);
+        }
+    }
+
+    /**
+     * Searches the attribute index for the records possibly matching the filter
+     *
+     * @return The sorted one based record numbers, or null if the attribute index is not available
+     *     or cannot be used for the filter
+     */
+    int[] searchAttributeIndex(Filter filter) throws IOException {
+        if (filter == null || filter == Filter.INCLUDE) {
+            return null;
+        }
+        AttributeIndex index;
+        while ((index = getAttributeIndex()) != null) {
+            SimpleFeatureType schema = store.getSchema();
+            int[] records;
+            mappedIndexLock.readLock().lock();
+            try {
+                if (index != attributeIndex) {
+                    // released meanwhile, because the .aix file changed
+                    continue;
+                }
+                records = new AttributeIndexSearch(index, schema).search(filter);
+            } finally {
+                mappedIndexLock.readLock().unlock();
+            }
+            if (records != null && LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(
+                        "Attribute index search found " + records.length + " candidate records");
+            }
+            return records;
+        }
+        return null;
+    }
+
+    /**
+     * Turns the records found by the attribute index in index {@link Data}, keeping only those
+     * found by the spatial index too, if any
+     *
+     * @param records The sorted one based record numbers
+     * @param spatial The spatial index search results, or null, closed by this method
+     * @return The records sorted by position in the .shp file, or the spatial index results if the
+     *     .shx file is not available
+     */
+    CloseableIterator<Data> queryAttributeIndex(int[] records, CloseableIterator<Data> spatial)
+            throws IOException {
+        // the .shx file maps the record numbers to the .shp offsets
+        IndexFile shx = store.shpManager.openIndexFile();
+        if (shx == null) {
+            return spatial;
+        }
+
+        List<Data> result = new ArrayList<>();
+        try {
+            long[] spatialOffsets = null;
+            if (spatial != null) {
+                try {
+                    spatialOffsets = new long[16];
+                    int size = 0;
+                    while (spatial.hasNext()) {
+                        if (size == spatialOffsets.length) {
+                            spatialOffsets = Arrays.copyOf(spatialOffsets, size * 2);
+                        }
+                        spatialOffsets[size++] = ((Long) spatial.next().getValue(1)).longValue();
+                    }
+                    spatialOffsets = Arrays.copyOf(spatialOffsets, size);
+                    Arrays.sort(spatialOffsets);
+                } finally {
+                    spatial.close();
+                }
+            }
+
+            // sort by .shp offset, packing the record number in the lower bits
+            long[] found = new long[records.length];
+            int size = 0;
+            for (int recno : records) {
+                if (recno > shx.getRecordCount()) {
+                    // the .dbf has more records than the .shp
+                    continue;
+                }
+                long offset = shx.getOffsetInBytes(recno - 1);
+                if (spatialOffsets == null || Arrays.binarySearch(spatialOffsets, offset) >= 0) {
+                    found[size++] = offset << 32 | recno;
+                }
+            }
+            Arrays.sort(found, 0, size);
+
+            DataDefinition def = new DataDefinition("US-ASCII");
+            def.addField(Integer.class);
+            def.addField(Long.class);
+            for (int i = 0; i < size; i++) {
+                Data data = new Data(def);
+                data.addValue(Integer.valueOf((int) found[i]));
+                data.addValue(Long.valueOf(found[i] >>> 32));
+                result.add(data);
+            }
+        } catch (TreeException e) {
+            throw new IOException("Error building the attribute index results", e);
+        } finally {
+            shx.close();
+        }
+        return new CloseableIteratorWrapper<>(result.iterator());
+    }
+
     /**
      * Convenience method for opening a QuadTree index.
      *
@@ -398,5 +749,6 @@ class IndexManager {
 
     public void dispose() {
         this.cachedTree = null;
+        cleanFileCache();
     }
 }
@@ -109,7 +109,10 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
                     FidIndexer.generate(shpFiles);
                 }
 
+                indexes.cleanFileCache();
                 deleteFile(ShpFileType.QIX);
+                deleteFile(ShpFileType.HRT);
+                deleteFile(ShpFileType.AIX);
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
@@ -0,0 +1,395 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.FeatureReader;
+import org.geotools.util.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A feature reader decoding the records of a shapefile in parallel. The records of the .shx file
+ * are split in ranges, each one read by its own {@link RangeShapefileFeatureReader} on a pool of
+ * threads, and the features are handed over in blocks through bounded queues, so that only a few
+ * blocks per range being read are kept in memory.
+ *
+ * <p>In ordered mode each range has its own queue, and the queues are drained in turn, returning
+ * the features in the same order as a sequential read. In unordered mode the ranges share a single
+ * queue, and the features are returned as soon as they are decoded.
+ *
+ * <p>The ranges are decoded by a process wide pool, bounded to {@link #POOL_SIZE_KEY} threads, or
+ * by the executor provided with the {@link Hints#EXECUTOR_SERVICE} query hint. The ranges no pool
+ * thread picked up yet, because the pool is busy or rejected them, are read by the thread
+ * consuming the features, so the read never waits on the pool and falls back to a sequential one
+ * when the pool is saturated.
+ *
+ * @author GeoTools
+ */
+class ParallelShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    static final Logger LOGGER = Logging.getLogger(ParallelShapefileFeatureReader.class);
+
+    /**
+     * System property setting the number of threads of the shared pool, defaults to the number of
+     * processors
+     */
+    static final String POOL_SIZE_KEY = "org.geotools.shapefile.parallelReadPoolSize";
+
+    /** The minimum number of records for a parallel read to be worthwhile */
+    static final int MIN_SIZE = 20000;
+
+    /** The minimum number of records in a range */
+    static final int MIN_RANGE_SIZE = 5000;
+
+    /** The number of features handed over at once */
+    static final int BLOCK_SIZE = 256;
+
+    /** The number of blocks buffered for each range (ordered) or thread (unordered) */
+    static final int QUEUE_BLOCKS = 4;
+
+    /** The number of ranges the shared pool queues for each of its threads */
+    static final int QUEUE_RANGES = 16;
+
+    static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /** The pool used when the query does not provide an executor */
+    static final ThreadPoolExecutor SHARED_EXECUTOR;
+
+    static {
+        int size = Runtime.getRuntime().availableProcessors();
+        String value = System.getProperty(POOL_SIZE_KEY);
+        if (value != null) {
+            try {
+                size = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Invalid value for " + POOL_SIZE_KEY + ": " + value);
+            }
+        }
+        size = Math.max(1, size);
+        SHARED_EXECUTOR =
+                new ThreadPoolExecutor(
+                        size,
+                        size,
+                        60,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(size * QUEUE_RANGES),
+                        r -> {
+                            Thread thread =
+                                    new Thread(
+                                            r,
+                                            "shapefile-reader-" + THREAD_COUNTER.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        SHARED_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /** A block of features, or the failure of a range read */
+    static final class Block {
+        /** Marks the end of a range */
+        static final Block END = new Block(Collections.emptyList(), null);
+
+        final List<SimpleFeature> features;
+
+        final Throwable error;
+
+        Block(List<SimpleFeature> features, Throwable error) {
+            this.features = features;
+            this.error = error;
+        }
+    }
+
+    /** A range of records, read by the first of a pool thread and the consumer claiming it */
+    static final class Range {
+        final int start;
+
+        final int end;
+
+        final BlockingQueue<Block> queue;
+
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Range(int start, int end, BlockingQueue<Block> queue) {
+            this.start = start;
+            this.end = end;
+            this.queue = queue;
+        }
+    }
+
+    final ShapefileRangeAccess access;
+
+    final SimpleFeatureType schema;
+
+    final boolean ordered;
+
+    final List<Range> ranges = new ArrayList<>();
+
+    /** The pool threads reading, or about to claim, a range */
+    final AtomicInteger running = new AtomicInteger();
+
+    /** The range being drained, in ordered mode, or the number of ranges read otherwise */
+    int completed;
+
+    /** The range read by the consumer thread, because no pool thread picked it up */
+    FeatureReader<SimpleFeatureType, SimpleFeature> local;
+
+    Iterator<SimpleFeature> block = Collections.emptyIterator();
+
+    volatile boolean closed;
+
+    ParallelShapefileFeatureReader(
+            ShapefileRangeAccess access, int threads, boolean ordered, ExecutorService executor) {
+        this.access = access;
+        this.schema = access.getFeatureType();
+        this.ordered = ordered;
+
+        int size = access.getRangeSize();
+        int rangeSize = Math.max(MIN_RANGE_SIZE, size / (threads * 4) + 1);
+        int count = (size + rangeSize - 1) / rangeSize;
+        BlockingQueue<Block> shared =
+                ordered ? null : new ArrayBlockingQueue<>(threads * QUEUE_BLOCKS);
+        for (int i = 0; i < count; i++) {
+            int start = i * rangeSize;
+            int end = Math.min(size, start + rangeSize);
+            BlockingQueue<Block> queue = ordered ? new ArrayBlockingQueue<>(QUEUE_BLOCKS) : shared;
+            ranges.add(new Range(start, end, queue));
+        }
+        // ranges are submitted in order, the ones not picked up are read by the consumer
+        for (Range range : ranges) {
+            try {
+                executor.execute(() -> read(range));
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.FINE, "Executor saturated, reading the other ranges in turn", e);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the executor provided with the {@link Hints#EXECUTOR_SERVICE} hint, or the shared
+     * one, or null if the executor is saturated, all its threads being busy with more tasks
+     * waiting, or shut down
+     */
+    static ExecutorService getExecutor(Hints hints) {
+        ExecutorService executor = SHARED_EXECUTOR;
+        if (hints != null && hints.get(Hints.EXECUTOR_SERVICE) instanceof ExecutorService) {
+            executor = (ExecutorService) hints.get(Hints.EXECUTOR_SERVICE);
+        }
+        if (executor.isShutdown()) {
+            return null;
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            if (pool.getActiveCount() >= pool.getMaximumPoolSize() && !pool.getQueue().isEmpty()) {
+                return null;
+            }
+        }
+        return executor;
+    }
+
+    /** Reads a range of records, runs in the pool threads */
+    void read(Range range) {
+        // counted before claiming, so that close() cannot miss a range being started
+        running.incrementAndGet();
+        try {
+            if (closed || !range.claimed.compareAndSet(false, true)) {
+                return;
+            }
+            BlockingQueue<Block> queue = range.queue;
+            Block last = Block.END;
+            try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                    access.reader(range.start, range.end)) {
+                List<SimpleFeature> features = new ArrayList<>(BLOCK_SIZE);
+                while (!closed && reader.hasNext()) {
+                    features.add(reader.next());
+                    if (features.size() == BLOCK_SIZE) {
+                        if (!put(queue, new Block(features, null))) {
+                            return;
+                        }
+                        features = new ArrayList<>(BLOCK_SIZE);
+                    }
+                }
+                if (!features.isEmpty() && !put(queue, new Block(features, null))) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                // report anything, the consumer would otherwise wait forever
+                last = new Block(null, t);
+            }
+            try {
+                put(queue, last);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    /**
+     * Hands over a block, waiting for room in the queue, unless the reader gets closed
+     *
+     * @return false if the reader has been closed
+     */
+    private boolean put(BlockingQueue<Block> queue, Block block) throws InterruptedException {
+        while (!closed) {
+            if (queue.offer(block, 10, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return schema;
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException, NoSuchElementException {
+        if (hasNext()) {
+            return block.next();
+        } else {
+            throw new NoSuchElementException("hasNext() returned false");
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (!block.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (local != null) {
+                block = readLocal();
+                continue;
+            }
+            if (completed == ranges.size()) {
+                return false;
+            }
+            BlockingQueue<Block> queue = ranges.get(ordered ? completed : 0).queue;
+            Block next = queue.poll();
+            if (next == null) {
+                // read the range ourselves rather than waiting for a busy pool
+                Range unclaimed = claim();
+                if (unclaimed != null) {
+                    local = access.reader(unclaimed.start, unclaimed.end);
+                    continue;
+                }
+                next = take(queue);
+            }
+            if (next == Block.END) {
+                completed++;
+            } else if (next.error != null) {
+                throw new IOException("Failed to read the shapefile records", next.error);
+            } else {
+                block = next.features.iterator();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claims the range to be drained next, in ordered mode, or any range not picked up yet
+     * otherwise, returns null if the ranges are already being read by the pool
+     */
+    private Range claim() {
+        if (ordered) {
+            Range range = ranges.get(completed);
+            return range.claimed.compareAndSet(false, true) ? range : null;
+        }
+        for (Range range : ranges) {
+            if (range.claimed.compareAndSet(false, true)) {
+                return range;
+            }
+        }
+        return null;
+    }
+
+    /** Reads the next block of the range claimed by the consumer */
+    private Iterator<SimpleFeature> readLocal() throws IOException {
+        List<SimpleFeature> features = new ArrayList<>(BLOCK_SIZE);
+        while (features.size() < BLOCK_SIZE && local.hasNext()) {
+            features.add(local.next());
+        }
+        if (features.isEmpty()) {
+            local.close();
+            local = null;
+            completed++;
+        }
+        return features.iterator();
+    }
+
+    private Block take(BlockingQueue<Block> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the shapefile records");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        block = Collections.emptyIterator();
+        // no range can be started anymore
+        ranges.forEach(r -> r.claimed.set(true));
+        try {
+            if (local != null) {
+                local.close();
+                local = null;
+            }
+        } finally {
+            // keep the queues empty so that the range readers stop, and release the files
+            while (running.get() > 0) {
+                ranges.forEach(r -> r.queue.clear());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            ranges.forEach(r -> r.queue.clear());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
+import org.geotools.data.shapefile.fid.IndexedFidReader;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A shapefile feature reader limited to the records in a range of positions of the .shx file, used
+ * to read a shapefile in independent partitions
+ *
+ * @author GeoTools
+ */
+class RangeShapefileFeatureReader extends ShapefileFeatureReader {
+
+    /**
+     * Create the reader
+     *
+     * @param schema - the schema that we are going to read.
+     * @param shp - the shape reader, required, with the .shx file enabled
+     * @param dbf - the dbf file reader. May be null, in this case no attributes will be read from
+     *     the dbf file
+     * @param start - the index of the first record, inclusive
+     * @param end - the index of the last record, exclusive
+     */
+    public RangeShapefileFeatureReader(
+            SimpleFeatureType schema,
+            ShapefileReader shp,
+            IndexedDbaseFileReader dbf,
+            IndexedFidReader fidReader,
+            int start,
+            int end)
+            throws IOException {
+        super(schema, shp, dbf, fidReader);
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid record range [" + start + ", " + end + ")");
+        }
+        this.recordsLeft = end - start;
+        if (end > start) {
+            try {
+                shp.goToRecord(start);
+                if (dbf != null) {
+                    // dbf record numbers are one based
+                    dbf.goTo(start + 1);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+    }
+}
@@ -19,19 +19,28 @@ package org.geotools.data.shapefile;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.files.FileWriter;
 import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.index.LockTimeoutException;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.attribute.AttributeIndexBuilder;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTreeBuilder;
 import org.geotools.data.shapefile.index.quadtree.Node;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
@@ -61,6 +70,7 @@ class ShapeFileIndexer implements FileWriter {
 
     private String byteOrder;
     private ShpFiles shpFiles;
+    private Charset charset = (Charset) ShapefileDataStoreFactory.DBFCHARSET.getDefaultValue();
 
     public static void main(String[] args) throws IOException {
         if ((args.length < 1) || (((args.length - 1) % 2) != 0)) {
@@ -70,18 +80,21 @@ class ShapeFileIndexer implements FileWriter {
         long start = System.currentTimeMillis();
 
         ShapeFileIndexer idx = new ShapeFileIndexer();
+        boolean hilbert = false;
+        String[] attributes = null;
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                // QIX, or older index types, kept for backwards compatibility
+                hilbert = "HILBERT".equalsIgnoreCase(args[++i]);
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
                 idx.setLeafSize(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-b")) {
                 idx.setByteOrder(args[++i]);
+            } else if (args[i].equals("-a")) {
+                attributes = args[++i].split(",");
             } else {
                 if (!args[i].toLowerCase().endsWith(".shp")) {
                     System.out.println("File extension must be '.shp'");
@@ -95,7 +108,14 @@ class ShapeFileIndexer implements FileWriter {
         try {
             System.out.print("Indexing ");
 
-            int cnt = idx.index(true, new NullProgressListener());
+            int cnt;
+            if (attributes != null) {
+                cnt = idx.indexAttributes(attributes);
+            } else if (hilbert) {
+                cnt = idx.indexHilbert(new NullProgressListener());
+            } else {
+                cnt = idx.index(true, new NullProgressListener());
+            }
             System.out.println();
             System.out.print(cnt + " features indexed ");
             System.out.println("in " + (System.currentTimeMillis() - start) + "ms.");
@@ -110,18 +130,20 @@ class ShapeFileIndexer implements FileWriter {
     private static void usage() {
         System.out.println(
                 "Usage: ShapeFileIndexer "
-                        + "-t <QIX> "
+                        + "[-t <QIX | HILBERT>] "
                         + "[-M <max tree depth>] "
                         + "[-b <byte order NL | NM>] "
+                        + "[-a <attribute,attribute...>] "
                         + "<shape file>"
                         + "[-s <max number of items in a leaf>]");
 
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (default) or HILBERT");
+        System.out.println("\t-a Builds the attribute index of the listed columns instead");
         System.out.println();
-        System.out.println("Following options apllies only to QUADTREE:");
+        System.out.println("Following options apllies only to QIX:");
         System.out.println("\t-b byte order to use: NL = LSB; " + "NM = MSB (default)");
 
         System.exit(1);
@@ -188,6 +210,94 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
 
+    /**
+     * Builds a packed Hilbert R-tree index of the shapefile denoted by setShapeFileName(String
+     * fileName), the .hrt file
+     *
+     * @return The number of indexed records, records with a null shape are not indexed
+     * @throws IOException
+     */
+    public int indexHilbert(ProgressListener listener) throws IOException {
+        if (this.shpFiles == null) {
+            throw new IOException("You have to set a shape file name!");
+        }
+
+        StorageFile storage = shpFiles.getStorageFile(ShpFileType.HRT);
+        int cnt;
+        ShapefileReader reader = null;
+        IndexFile shpIndex = null;
+        try {
+            reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+            shpIndex = new IndexFile(shpFiles, false);
+            LOGGER.fine("Building Hilbert R-tree spatial index for file " + storage.getFile());
+            HilbertRTreeBuilder builder = new HilbertRTreeBuilder();
+            builder.setNodeSize(Math.max(2, leafSize));
+            cnt = builder.build(reader, shpIndex, storage.getFile());
+        } finally {
+            if (shpIndex != null) shpIndex.close();
+            if (reader != null) reader.close();
+        }
+
+        // Final index file
+        storage.replaceOriginal();
+
+        return cnt;
+    }
+
+    /**
+     * Builds the attribute index of the shapefile denoted by setShapeFileName(String fileName), the
+     * .aix file, for the specified .dbf columns. Columns that are missing, or that are neither
+     * numeric nor character ones, are skipped.
+     *
+     * @param attributes The names of the .dbf columns to index
+     * @return The number of indexed records
+     * @throws IOException
+     */
+    public int indexAttributes(String... attributes) throws IOException {
+        if (this.shpFiles == null) {
+            throw new IOException("You have to set a shape file name!");
+        }
+
+        StorageFile storage = shpFiles.getStorageFile(ShpFileType.AIX);
+        int cnt;
+        DbaseFileReader dbf = new DbaseFileReader(shpFiles, false, charset, TimeZone.getDefault());
+        try {
+            DbaseFileHeader header = dbf.getHeader();
+            Set<Integer> fields = new LinkedHashSet<>();
+            for (String attribute : attributes) {
+                int field = -1;
+                for (int i = 0; i < header.getNumFields() && field == -1; i++) {
+                    if (header.getFieldName(i).equals(attribute)) {
+                        field = i;
+                    }
+                }
+                if (field == -1 || !AttributeIndexBuilder.isIndexable(header, field)) {
+                    LOGGER.warning("Skipping " + attribute + ", not a numeric or character column");
+                } else {
+                    fields.add(field);
+                }
+            }
+            if (fields.isEmpty()) {
+                throw new IOException("None of " + Arrays.toString(attributes) + " can be indexed");
+            }
+            LOGGER.fine("Building attribute index for file " + storage.getFile());
+            cnt =
+                    new AttributeIndexBuilder()
+                            .build(
+                                    dbf,
+                                    fields.stream().mapToInt(Integer::intValue).toArray(),
+                                    charset,
+                                    storage.getFile());
+        } finally {
+            dbf.close();
+        }
+
+        // Final index file
+        storage.replaceOriginal();
+
+        return cnt;
+    }
+
     private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
             throws IOException, StoreException {
         LOGGER.fine(
@@ -398,6 +508,11 @@ class ShapeFileIndexer implements FileWriter {
         this.byteOrder = byteOrder;
     }
 
+    /** @param charset The charset used to decode the .dbf strings, when indexing attributes */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
     public String id() {
         return getClass().getName();
     }
@@ -109,6 +109,12 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     boolean fidIndexed = true;
 
+    int parallelReadThreads = 1;
+
+    boolean parallelReadOrdered = true;
+
+    String[] indexedAttributes = new String[0];
+
     IndexManager indexManager;
 
     ShapefileSetManager shpManager;
@@ -176,14 +182,29 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     public void setMemoryMapped(boolean memoryMapped) {
         this.memoryMapped = memoryMapped;
+        updateMemoryMapCache();
     }
 
     public boolean isBufferCachingEnabled() {
         return bufferCachingEnabled;
     }
 
+    /**
+     * When set to true, and the store is memory mapped, the mapped files are shared among the
+     * readers and cached within the budget of the {@link
+     * org.geotools.data.shapefile.files.MappedRegionManager}
+     *
+     * @param bufferCachingEnabled
+     */
     public void setBufferCachingEnabled(boolean bufferCachingEnabled) {
         this.bufferCachingEnabled = bufferCachingEnabled;
+        updateMemoryMapCache();
+    }
+
+    private void updateMemoryMapCache() {
+        if (shpFiles != null) {
+            shpFiles.setMemoryMapCacheEnabled(memoryMapped && bufferCachingEnabled);
+        }
     }
 
     public boolean isIndexed() {
@@ -200,6 +221,56 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.indexed = indexed;
     }
 
+    public int getParallelReadThreads() {
+        return parallelReadThreads;
+    }
+
+    /**
+     * Sets the number of threads used to decode the records of large shapefiles, splitting the
+     * records in ranges using the .shx file. Parallel reads are used only when the spatial and fid
+     * indexes are not, values lower than 2 disable them (the default).
+     *
+     * <p>The threads are taken from a process wide bounded pool, sized with the <code>
+     * org.geotools.shapefile.parallelReadPoolSize</code> system property, or from the executor
+     * provided with the {@link org.geotools.util.factory.Hints#EXECUTOR_SERVICE} query hint. When
+     * the executor is saturated the records are read sequentially.
+     *
+     * @param parallelReadThreads
+     */
+    public void setParallelReadThreads(int parallelReadThreads) {
+        this.parallelReadThreads = parallelReadThreads;
+    }
+
+    public boolean isParallelReadOrdered() {
+        return parallelReadOrdered;
+    }
+
+    /**
+     * When set to true (the default), parallel reads return the features in the same order as
+     * sequential ones, otherwise they are returned as soon as they are decoded
+     *
+     * @param parallelReadOrdered
+     */
+    public void setParallelReadOrdered(boolean parallelReadOrdered) {
+        this.parallelReadOrdered = parallelReadOrdered;
+    }
+
+    public String[] getIndexedAttributes() {
+        return indexedAttributes.clone();
+    }
+
+    /**
+     * Sets the .dbf columns to be indexed in the .aix attribute index, which is then built on first
+     * use, if index creation is enabled. Only numeric and character columns can be indexed. An
+     * existing .aix file is used regardless, for the columns it contains
+     *
+     * @param indexedAttributes
+     */
+    public void setIndexedAttributes(String... indexedAttributes) {
+        this.indexedAttributes =
+                indexedAttributes != null ? indexedAttributes.clone() : new String[0];
+    }
+
     /**
      * The current max shapefile size
      *
@@ -446,6 +517,7 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     @Override
     public void dispose() {
         super.dispose();
+        indexManager.dispose();
         if (shpFiles != null) {
             shpFiles.dispose();
             shpFiles = null;
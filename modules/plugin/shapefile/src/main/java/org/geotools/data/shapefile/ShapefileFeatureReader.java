@@ -17,9 +17,14 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geotools.data.FeatureReader;
@@ -31,7 +36,12 @@ import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
 import org.geotools.data.util.ScreenMap;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.BatchFilter;
+import org.geotools.filter.FeatureBatch;
+import org.geotools.filter.FilterAttributeExtractor;
+import org.geotools.filter.FilterCompiler;
 import org.geotools.geometry.jts.LiteCoordinateSequence;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Envelope;
@@ -42,6 +52,7 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
 import org.opengis.referencing.operation.TransformException;
 
@@ -84,6 +95,39 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     Filter filter;
 
+    /** Number of dbf rows read and filtered in a block, when filtering on the attributes */
+    static final int BATCH_SIZE = 512;
+
+    /**
+     * The part of the filter working only on the dbf attributes, evaluated on blocks of dbf rows
+     * before reading the geometries. Set up on the first read, if possible.
+     */
+    BatchFilter batchFilter;
+
+    /** The part of the filter that needs the whole feature, used along with the batch filter */
+    Filter residualFilter;
+
+    boolean batchFilterChecked;
+
+    FeatureBatch batch;
+
+    BitSet selected;
+
+    int batchRow;
+
+    /** Flags the attributes used by the batch filter, decoded for all the rows of a block */
+    boolean[] filterAttributes;
+
+    /**
+     * The raw dbf records of the current block, the attributes not used by the batch filter are
+     * decoded out of them only for the selected rows. Null if all attributes are used by the
+     * filter.
+     */
+    byte[][] records;
+
+    /** Number of records left to read, when reading a range of records, or -1 otherwise */
+    int recordsLeft = -1;
+
     public ShapefileFeatureReader(
             SimpleFeatureType schema,
             ShapefileReader shp,
@@ -136,6 +180,11 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+            // copy out of the records only the bytes of the fields actually read
+            int[] fields = Arrays.stream(dbfindexes).filter(i -> i != -1).toArray();
+            if (fields.length < head.getNumFields()) {
+                dbf.setProjection(fields);
+            }
         }
     }
 
@@ -163,7 +212,9 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
      * @throws IOException
      */
     boolean filesHaveMore() throws IOException {
-        if (dbf == null) {
+        if (recordsLeft == 0) {
+            return false;
+        } else if (dbf == null) {
             return shp.hasNext();
         } else {
             boolean dbfHasNext = dbf.hasNext();
@@ -180,8 +231,14 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     @Override
     public boolean hasNext() throws IOException {
+        if (!batchFilterChecked) {
+            setupBatchFilter();
+        }
+        if (batchFilter != null) {
+            return hasNextInBatch();
+        }
         while (nextFeature == null && filesHaveMore()) {
-            Record record = shp.nextRecord();
+            Record record = nextRecord();
 
             Geometry geometry = getGeometry(record);
             if (geometry != SKIP) {
@@ -207,6 +264,159 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         return nextFeature != null;
     }
 
+    /**
+     * Splits the filter in a part that can be evaluated on blocks of dbf attributes, and a residual
+     * one that needs the geometry or the whole feature
+     */
+    void setupBatchFilter() {
+        batchFilterChecked = true;
+        if (filter == null || dbf == null) {
+            return;
+        }
+        List<Filter> children =
+                filter instanceof And
+                        ? ((And) filter).getChildren()
+                        : Collections.singletonList(filter);
+        List<Filter> attributeFilters = new ArrayList<>();
+        List<Filter> residualFilters = new ArrayList<>();
+        for (Filter child : children) {
+            if (!usesGeometry(child) && FilterCompiler.compileBatch(child, schema).isVectorized()) {
+                attributeFilters.add(child);
+            } else {
+                residualFilters.add(child);
+            }
+        }
+        if (attributeFilters.isEmpty()) {
+            return;
+        }
+
+        Filter attributeFilter = and(attributeFilters);
+        batchFilter = FilterCompiler.compileBatch(attributeFilter, schema);
+        residualFilter = residualFilters.isEmpty() ? null : and(residualFilters);
+        batch = new FeatureBatch(schema, BATCH_SIZE);
+        setupLazyAttributes(attributeFilter);
+    }
+
+    /**
+     * Sets up the decoding of the attributes not used by the batch filter only for the rows it
+     * selects
+     */
+    private void setupLazyAttributes(Filter attributeFilter) {
+        FilterAttributeExtractor extractor = new FilterAttributeExtractor(schema);
+        attributeFilter.accept(extractor, null);
+        filterAttributes = new boolean[dbfindexes.length];
+        for (String name : extractor.getAttributeNameSet()) {
+            int index = schema.indexOf(name);
+            if (index == -1) {
+                // cannot tell for sure which attributes are used, decode them all
+                filterAttributes = null;
+                return;
+            }
+            filterAttributes[index] = true;
+        }
+        for (int i = 0; i < dbfindexes.length; i++) {
+            if (dbfindexes[i] != -1 && !filterAttributes[i]) {
+                records = new byte[BATCH_SIZE][];
+                return;
+            }
+        }
+    }
+
+    private boolean usesGeometry(Filter filter) {
+        GeometryDescriptor gd = schema.getGeometryDescriptor();
+        if (gd == null) {
+            return false;
+        }
+        FilterAttributeExtractor extractor = new FilterAttributeExtractor(schema);
+        filter.accept(extractor, null);
+        Set<String> names = extractor.getAttributeNameSet();
+        return names.contains(gd.getLocalName()) || names.contains("");
+    }
+
+    private Filter and(List<Filter> filters) {
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        return CommonFactoryFinder.getFilterFactory2(null).and(filters);
+    }
+
+    /**
+     * Reads the dbf in blocks, filters them, and then reads the geometries and builds the features
+     * only for the selected rows
+     */
+    boolean hasNextInBatch() throws IOException {
+        while (nextFeature == null) {
+            if (batchRow >= batch.getSize() && !readBatch()) {
+                return false;
+            }
+            int row = batchRow++;
+            if (!shp.hasNext()) {
+                throw new IOException("Dbf has extra record");
+            }
+            Record record = nextRecord();
+            if (!selected.get(row)) {
+                continue;
+            }
+            Geometry geometry = getGeometry(record);
+            if (geometry != SKIP) {
+                for (int i = 0; i < dbfindexes.length; i++) {
+                    if (dbfindexes[i] == -1) {
+                        builder.add(geometry);
+                    } else if (records == null || filterAttributes[i]) {
+                        builder.add(batch.getValue(row, i));
+                    } else {
+                        builder.add(dbf.readField(records[row], dbfindexes[i]));
+                    }
+                }
+                nextFeature = buildFeature(record.number, record.envelope(), residualFilter);
+            }
+        }
+
+        return true;
+    }
+
+    /** Reads the next block of dbf rows, and filters it */
+    private boolean readBatch() throws IOException {
+        batch.clear();
+        batchRow = 0;
+        BitSet candidates = new BitSet(BATCH_SIZE);
+        int size = recordsLeft < 0 ? BATCH_SIZE : Math.min(BATCH_SIZE, recordsLeft);
+        while (batch.getSize() < size && dbf.hasNext()) {
+            Row dbfRow = dbf.readRow();
+            int row = batch.addRow();
+            if (!dbfRow.isDeleted()) {
+                candidates.set(row);
+                for (int i = 0; i < dbfindexes.length; i++) {
+                    if (dbfindexes[i] != -1 && (records == null || filterAttributes[i])) {
+                        batch.setValue(row, i, dbfRow.read(dbfindexes[i]));
+                    }
+                }
+                if (records != null) {
+                    if (records[row] == null) {
+                        records[row] = new byte[dbf.getHeader().getRecordLength() - 1];
+                    }
+                    dbf.copyRecord(records[row]);
+                }
+            }
+        }
+        if (batch.getSize() == 0) {
+            if (recordsLeft < 0 && shp.hasNext()) {
+                throw new IOException("Shp has extra record");
+            }
+            return false;
+        }
+        selected = batchFilter.evaluate(batch, candidates);
+        return true;
+    }
+
+    /** Reads the next shp record, keeping track of the records left in the range, if any */
+    Record nextRecord() throws IOException {
+        if (recordsLeft > 0) {
+            recordsLeft--;
+        }
+        return shp.nextRecord();
+    }
+
     /**
      * Reads the geometry, it will return {@link #SKIP} if the records is to be skipped because of
      * the screenmap or because it does not match the target bbox
@@ -241,6 +451,9 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                 } catch (Exception e) {
                     geometry = (Geometry) record.getSimplifiedShape();
                 }
+                // ... if the geometry falls in an area of the map already painted, skip it
+            } else if (screenMap != null && isCovered(envelope)) {
+                geometry = SKIP;
                 // ... otherwise business as usual
             } else {
                 geometry = (Geometry) record.shape();
@@ -249,6 +462,17 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         return geometry;
     }
 
+    private boolean isCovered(Envelope envelope) {
+        try {
+            return screenMap.isCovered(envelope);
+        } catch (TransformException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Failed to check screenmap coverage", e);
+            }
+            return false;
+        }
+    }
+
     SimpleFeature buildFeature(int number, Geometry geometry, Row row, Envelope envelope)
             throws IOException {
         if (dbfindexes != null) {
@@ -262,12 +486,21 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         } else if (geometry != null) {
             builder.add(geometry);
         }
+        return buildFeature(number, envelope, filter);
+    }
+
+    /**
+     * Builds the feature out of the values added to the builder, and checks it against the filter,
+     * returning null if it does not match
+     */
+    SimpleFeature buildFeature(int number, Envelope envelope, Filter featureFilter)
+            throws IOException {
         // build the feature id
         String featureId = buildFeatureId(number);
         SimpleFeature feature = builder.buildFeature(featureId);
-        if (filter != null) {
+        if (featureFilter != null) {
             // if we should not return the feature, just drop it and continue reading
-            if (!filter.evaluate(feature)) {
+            if (!featureFilter.evaluate(feature)) {
                 return null;
             }
         }
@@ -378,5 +611,7 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     public void setFilter(Filter filter) {
         this.filter = filter;
+        this.batchFilterChecked = false;
+        this.batchFilter = null;
     }
 }
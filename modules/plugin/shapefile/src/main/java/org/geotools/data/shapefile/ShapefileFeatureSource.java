@@ -28,6 +28,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.geotools.data.CloseableIterator;
@@ -38,8 +39,10 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
 import org.geotools.data.shapefile.files.FileReader;
 import org.geotools.data.shapefile.files.ShpFileType;
@@ -57,6 +60,8 @@ import org.geotools.feature.AttributeTypeBuilder;
 import org.geotools.feature.FeatureTypes;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.BasicFeatureTypes;
+import org.geotools.feature.visitor.ParallelVisitorDriver;
+import org.geotools.feature.visitor.SplittableFeatureCalc;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
@@ -198,6 +203,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         hints.add(Hints.JTS_COORDINATE_SEQUENCE_FACTORY);
         hints.add(Hints.GEOMETRY_DISTANCE);
         hints.add(Hints.SCREENMAP);
+        hints.add(Hints.EXECUTOR_SERVICE);
         this.hints = Collections.unmodifiableSet(hints);
     }
 
@@ -308,18 +314,31 @@ class ShapefileFeatureSource extends ContentFeatureSource {
     @Override
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getReaderInternal(Query q)
             throws IOException {
+        // read large files in parallel, if enabled, unless the screenmap needs sequential reads
+        ShapefileDataStore ds = getDataStore();
+        int threads = ds.getParallelReadThreads();
+        if (threads > 1 && (q.getHints() == null || q.getHints().get(Hints.SCREENMAP) == null)) {
+            // a saturated executor would not speed up the read
+            ExecutorService executor = ParallelShapefileFeatureReader.getExecutor(q.getHints());
+            ShapefileRangeAccess access = executor != null ? getRangeAccess(q) : null;
+            if (access != null
+                    && access.getRangeSize() >= ParallelShapefileFeatureReader.MIN_SIZE) {
+                return new ParallelShapefileFeatureReader(
+                        access, threads, ds.isParallelReadOrdered(), executor);
+            }
+        }
+        return getSequentialReader(q);
+    }
+
+    /** Returns a reader going through the files sequentially, or driven by the indexes */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getSequentialReader(Query q)
+            throws IOException {
         SimpleFeatureType resultSchema = getResultSchema(q);
         SimpleFeatureType readSchema = getReadSchema(q);
         GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q != null && q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-            if (bbox == null) {
-                bbox = new ReferencedEnvelope();
-            }
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -349,6 +368,13 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 throw new IOException("Error querying index: " + e.getMessage());
             }
         }
+        // narrow down the candidates with the attribute index, if available and usable
+        if (getDataStore().isIndexed() && !(filter instanceof Id)) {
+            int[] records = indexManager.searchAttributeIndex(filter);
+            if (records != null) {
+                goodRecs = indexManager.queryAttributeIndex(records, goodRecs);
+            }
+        }
         // do we have anything to read at all? If not don't bother opening all the files
         if (goodRecs != null && !goodRecs.hasNext()) {
             LOGGER.log(
@@ -361,20 +387,13 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         }
 
         // get the .fix file reader, if we have a .fix file
-        IndexedFidReader fidReader = null;
-        if (getDataStore().isFidIndexed() && indexManager.hasFidIndex(false)) {
-            fidReader = new IndexedFidReader(shpFiles);
-        }
+        IndexedFidReader fidReader = openFidReader();
 
         // setup the feature readers
         ShapefileSetManager shpManager = getDataStore().shpManager;
         ShapefileReader shapeReader = shpManager.openShapeReader(geometryFactory, goodRecs != null);
         DbaseFileReader dbfReader = null;
-        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
-        if (attributes.size() < 1
-                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null)) {
-            LOGGER.fine("The DBF file won't be opened since no attributes will be read from it");
-        } else {
+        if (needsDbf(readSchema)) {
             dbfReader = shpManager.openDbfReader(goodRecs != null);
         }
         ShapefileFeatureReader reader;
@@ -385,6 +404,103 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         } else {
             reader = new ShapefileFeatureReader(readSchema, shapeReader, dbfReader, fidReader);
         }
+        return setupReader(reader, q, bbox, resultSchema);
+    }
+
+    /**
+     * Returns a reader for the records in the <code>[start, end)</code> range of the .shx file,
+     * ignoring the spatial and fid indexes
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getRangeReader(Query q, int start, int end)
+            throws IOException {
+        SimpleFeatureType readSchema = getReadSchema(q);
+        IndexedFidReader fidReader = openFidReader();
+        ShapefileSetManager shpManager = getDataStore().shpManager;
+        ShapefileReader shapeReader = shpManager.openShapeReader(getGeometryFactory(q), false);
+        IndexedDbaseFileReader dbfReader = null;
+        if (needsDbf(readSchema)) {
+            dbfReader = (IndexedDbaseFileReader) shpManager.openDbfReader(true);
+        }
+        ShapefileFeatureReader reader =
+                new RangeShapefileFeatureReader(
+                        readSchema, shapeReader, dbfReader, fidReader, start, end);
+        return setupReader(reader, q, getTargetBBox(q), getResultSchema(q));
+    }
+
+    /**
+     * Returns access to the features matching the query by ranges of .shx records, or null if the
+     * query is better served by the spatial, fid or attribute indexes, or the .shx file is not
+     * available
+     */
+    ShapefileRangeAccess getRangeAccess(Query q) throws IOException {
+        if (!shpFiles.isLocal() || isIndexQuery(q.getFilter(), getTargetBBox(q))) {
+            return null;
+        }
+        IndexFile shx = getDataStore().shpManager.openIndexFile();
+        if (shx == null) {
+            return null;
+        }
+        try {
+            return new ShapefileRangeAccess(this, q, shx.getRecordCount());
+        } finally {
+            shx.close();
+        }
+    }
+
+    /** Returns true if the spatial, fid or attribute indexes would be used to answer the query */
+    boolean isIndexQuery(Filter filter, Envelope bbox) throws IOException {
+        ShapefileDataStore ds = getDataStore();
+        if (ds.isFidIndexed() && filter instanceof Id && ds.indexManager.hasFidIndex(false)) {
+            return true;
+        }
+        if (!ds.isIndexed()) {
+            return false;
+        }
+        return (!bbox.isNull()
+                        && !Double.isInfinite(bbox.getWidth())
+                        && !Double.isInfinite(bbox.getHeight())
+                        && (ds.indexManager.isSpatialIndexAvailable()
+                                || ds.isIndexCreationEnabled()))
+                || ds.indexManager.searchAttributeIndex(filter) != null;
+    }
+
+    /** Grabs the target bbox out of the query filter, if any */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q != null && q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+            if (bbox == null) {
+                bbox = new ReferencedEnvelope();
+            }
+        }
+        return bbox;
+    }
+
+    /** Opens the .fix file reader, if we have a .fix file */
+    IndexedFidReader openFidReader() throws IOException {
+        if (getDataStore().isFidIndexed() && getDataStore().indexManager.hasFidIndex(false)) {
+            return new IndexedFidReader(shpFiles);
+        }
+        return null;
+    }
+
+    boolean needsDbf(SimpleFeatureType readSchema) {
+        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
+        if (attributes.size() < 1
+                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null)) {
+            LOGGER.fine("The DBF file won't be opened since no attributes will be read from it");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets up the filter, the target bbox and the generalization hints on the reader, and retypes
+     * it to the result schema
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> setupReader(
+            ShapefileFeatureReader reader, Query q, Envelope bbox, SimpleFeatureType resultSchema) {
+        Filter filter = q != null ? q.getFilter() : null;
         if (filter != null && !Filter.INCLUDE.equals(filter)) {
             reader.setFilter(filter);
         }
@@ -404,13 +520,13 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 reader.setScreenMap((ScreenMap) hints.get(Hints.SCREENMAP));
 
                 if (Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D))) {
-                    shapeReader.setFlatGeometry(true);
+                    reader.shp.setFlatGeometry(true);
                 }
             }
         }
 
         // do the retyping
-        if (!FeatureTypes.equals(readSchema, resultSchema)) {
+        if (!FeatureTypes.equals(reader.getFeatureType(), resultSchema)) {
             return new ReTypeFeatureReader(reader, resultSchema);
         } else {
             return reader;
@@ -602,6 +718,34 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        // visit large files in parallel, if enabled, when the query can be answered by the
+        // native readers
+        int threads = getDataStore().getParallelReadThreads();
+        if (threads > 1 && visitor instanceof SplittableFeatureCalc && isNativeQuery(query)) {
+            // a saturated executor would not speed up the visit
+            ExecutorService executor = ParallelShapefileFeatureReader.getExecutor(query.getHints());
+            ShapefileRangeAccess access = executor != null ? getRangeAccess(query) : null;
+            if (access != null
+                    && ParallelVisitorDriver.visitRanges(
+                            access, (SplittableFeatureCalc) visitor, null, executor, threads)) {
+                return true;
+            }
+        }
         return super.handleVisitor(query, visitor);
     }
+
+    /**
+     * Returns true if the native readers return the same features as {@link #getReader(Query)},
+     * without any post processing wrapper (transactions, sorting, paging, reprojection)
+     */
+    boolean isNativeQuery(Query query) {
+        Transaction transaction = getTransaction();
+        return (transaction == null || transaction == Transaction.AUTO_COMMIT)
+                && (query.getSortBy() == null || query.getSortBy().length == 0)
+                && query.isMaxFeaturesUnlimited()
+                && (query.getStartIndex() == null || query.getStartIndex() == 0)
+                && query.getJoins().isEmpty()
+                && query.getCoordinateSystem() == null
+                && query.getCoordinateSystemReproject() == null;
+    }
 }
@@ -61,7 +61,7 @@ class ShapefileFeatureStore extends ContentFeatureStore {
         }
 
         ShapefileFeatureReader reader =
-                (ShapefileFeatureReader) delegate.getReaderInternal(Query.ALL);
+                (ShapefileFeatureReader) delegate.getSequentialReader(Query.ALL);
         ShapefileFeatureWriter writer;
         ShapefileDataStore ds = getDataStore();
         if (ds.indexManager.hasFidIndex(false)
@@ -0,0 +1,112 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.RangeFeatureAccess;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Accesses the features of a shapefile matching a query by ranges of records of the .shx file, each
+ * range being read with its own set of file readers
+ *
+ * @author GeoTools
+ */
+class ShapefileRangeAccess implements RangeFeatureAccess {
+
+    final ShapefileFeatureSource source;
+
+    final Query query;
+
+    final int size;
+
+    ShapefileRangeAccess(ShapefileFeatureSource source, Query query, int size) {
+        this.source = source;
+        this.query = query;
+        this.size = size;
+    }
+
+    @Override
+    public int getRangeSize() {
+        return size;
+    }
+
+    @Override
+    public SimpleFeatureIterator features(int start, int end) throws IOException {
+        return new RangeIterator(reader(start, end));
+    }
+
+    /** Returns a reader for the features in the <code>[start, end)</code> range of records */
+    FeatureReader<SimpleFeatureType, SimpleFeature> reader(int start, int end) throws IOException {
+        return source.getRangeReader(query, start, end);
+    }
+
+    /** Returns the type of the features read */
+    SimpleFeatureType getFeatureType() {
+        return source.getResultSchema(query);
+    }
+
+    /** Iterates over a range reader, reporting read failures instead of swallowing them */
+    static class RangeIterator implements SimpleFeatureIterator {
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+
+        RangeIterator(FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return reader != null && reader.hasNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public SimpleFeature next() throws NoSuchElementException {
+            if (reader == null) {
+                throw new NoSuchElementException("Iterator has been closed");
+            }
+            try {
+                return reader.next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    reader = null;
+                }
+            }
+        }
+    }
+}
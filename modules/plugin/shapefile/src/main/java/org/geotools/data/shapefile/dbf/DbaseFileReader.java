@@ -19,9 +19,6 @@
  */
 package org.geotools.data.shapefile.dbf;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -29,6 +26,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -71,13 +69,17 @@ public class DbaseFileReader implements FileReader {
         boolean deleted;
 
         public Object read(final int column) throws IOException {
+            checkProjected(column);
             final int offset = fieldOffsets[column];
-            return readObject(offset, column);
+            return readObject(bytes, offset, column);
         }
 
         public String toString() {
             final StringBuffer ret = new StringBuffer("DBF Row - ");
             for (int i = 0; i < header.getNumFields(); i++) {
+                if (projection != null && !projection[i]) {
+                    continue;
+                }
                 ret.append(header.getFieldName(i)).append(": \"");
                 try {
                     ret.append(this.read(i));
@@ -108,6 +110,17 @@ public class DbaseFileReader implements FileReader {
 
     int[] fieldOffsets;
 
+    Class[] fieldClasses;
+
+    /** The fields read by {@link #read()}, or null if all of them are read */
+    boolean[] projection;
+
+    /** Offsets of the runs of contiguous bytes copied from each record, when using a projection */
+    int[] runOffsets;
+
+    /** Lengths of the runs of contiguous bytes copied from each record, when using a projection */
+    int[] runLengths;
+
     int cnt = 1;
 
     Row row;
@@ -127,6 +140,15 @@ public class DbaseFileReader implements FileReader {
 
     private final long MILLISECS_PER_DAY = 24 * 60 * 60 * 1000;
 
+    /** Marks a number that could not be parsed straight from the bytes */
+    static final long NOT_PARSED = Long.MIN_VALUE;
+
+    /** The powers of ten that can be represented exactly as doubles */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     /**
      * Creates a new instance of DBaseFileReader
      *
@@ -221,9 +243,11 @@ public class DbaseFileReader implements FileReader {
         fieldTypes = new char[header.getNumFields()];
         fieldLengths = new int[header.getNumFields()];
         fieldOffsets = new int[header.getNumFields()];
+        fieldClasses = new Class[header.getNumFields()];
         for (int i = 0, ii = header.getNumFields(); i < ii; i++) {
             fieldTypes[i] = header.getFieldType(i);
             fieldLengths[i] = header.getFieldLength(i);
+            fieldClasses[i] = header.getFieldClass(i);
             if (i > 0) fieldOffsets[i] = fieldOffsets[i - 1] + header.getFieldLength(i - 1);
         }
         bytes = new byte[header.getRecordLength() - 1];
@@ -385,7 +409,9 @@ public class DbaseFileReader implements FileReader {
         final int numFields = header.getNumFields();
 
         for (int j = 0; j < numFields; j++) {
-            entry[j + offset] = readObject(fieldOffsets[j], j);
+            if (projection == null || projection[j]) {
+                entry[j + offset] = readObject(bytes, fieldOffsets[j], j);
+            }
         }
 
         return entry;
@@ -401,7 +427,83 @@ public class DbaseFileReader implements FileReader {
      * @return The value of the field
      */
     public Object readField(final int fieldNum) throws IOException {
-        return readObject(fieldOffsets[fieldNum], fieldNum);
+        checkProjected(fieldNum);
+        return readObject(bytes, fieldOffsets[fieldNum], fieldNum);
+    }
+
+    /**
+     * Reads a single field from a record previously saved with {@link #copyRecord(byte[])},
+     * allowing to decode the fields of a record only when they are actually needed
+     *
+     * @param record The record bytes
+     * @param fieldNum The field number to be read (zero based)
+     * @throws IOException If an error occurs.
+     * @return The value of the field
+     */
+    public Object readField(final byte[] record, final int fieldNum) throws IOException {
+        checkProjected(fieldNum);
+        return readObject(record, fieldOffsets[fieldNum], fieldNum);
+    }
+
+    /**
+     * Copies the raw bytes of the current record, as read by {@link #read()}, into the target
+     * array, which must be at least {@link DbaseFileHeader#getRecordLength()} - 1 bytes long. When
+     * using a projection only the bytes of the projected fields are meaningful.
+     *
+     * @param target The array to copy into
+     */
+    public void copyRecord(final byte[] target) {
+        System.arraycopy(bytes, 0, target, 0, bytes.length);
+    }
+
+    /**
+     * Restricts the following reads to the specified fields: only their bytes are copied out of
+     * each record, and reading any other field will fail. Useful when reading a few fields out of a
+     * wide file.
+     *
+     * @param fields The indexes of the fields to read (zero based), or null to read all of them
+     */
+    public void setProjection(final int[] fields) {
+        if (fields == null) {
+            projection = null;
+            runOffsets = null;
+            runLengths = null;
+            return;
+        }
+
+        final int numFields = header.getNumFields();
+        final boolean[] selected = new boolean[numFields];
+        for (int field : fields) {
+            if (field < 0 || field >= numFields) {
+                throw new IllegalArgumentException("Invalid field index " + field);
+            }
+            selected[field] = true;
+        }
+        // merge adjacent fields, they are laid out in order in the record
+        final int[] offsets = new int[numFields];
+        final int[] lengths = new int[numFields];
+        int runs = 0;
+        for (int i = 0; i < numFields; i++) {
+            if (selected[i]) {
+                if (runs > 0 && offsets[runs - 1] + lengths[runs - 1] == fieldOffsets[i]) {
+                    lengths[runs - 1] += fieldLengths[i];
+                } else {
+                    offsets[runs] = fieldOffsets[i];
+                    lengths[runs] = fieldLengths[i];
+                    runs++;
+                }
+            }
+        }
+        projection = selected;
+        runOffsets = Arrays.copyOf(offsets, runs);
+        runLengths = Arrays.copyOf(lengths, runs);
+    }
+
+    private void checkProjected(final int fieldNum) {
+        if (projection != null && !projection[fieldNum]) {
+            throw new IllegalStateException(
+                    "Field " + header.getFieldName(fieldNum) + " is not part of the projection");
+        }
     }
 
     /** Transfer, by bytes, the next record to the writer. */
@@ -430,9 +532,19 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (runOffsets == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+            } else {
+                // copy only the bytes of the projected fields
+                final int start = buffer.position();
+                for (int i = 0; i < runOffsets.length; i++) {
+                    buffer.position(start + runOffsets[i]);
+                    buffer.get(bytes, runOffsets[i], runLengths[i]);
+                }
+                buffer.position(start + header.getRecordLength() - 1);
+            }
 
             foundRecord = true;
         }
@@ -451,7 +563,8 @@ public class DbaseFileReader implements FileReader {
         return readEntry(entry, 0);
     }
 
-    private Object readObject(final int fieldOffset, final int fieldNum) throws IOException {
+    private Object readObject(final byte[] bytes, final int fieldOffset, final int fieldNum)
+            throws IOException {
         final char type = fieldTypes[fieldNum];
         final int fieldLen = fieldLengths[fieldNum];
         Object object = null;
@@ -487,7 +600,16 @@ public class DbaseFileReader implements FileReader {
                     if (bytes[fieldOffset] != '\0') {
                         // remember we need to skip trailing and leading spaces
                         if (oneBytePerChar) {
-                            object = fastParse(bytes, fieldOffset, fieldLen).trim();
+                            // trim the bytes, so that a single string is created
+                            int start = fieldOffset;
+                            int end = fieldOffset + fieldLen;
+                            while (start < end && (bytes[start] & 0xFF) <= ' ') {
+                                start++;
+                            }
+                            while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+                                end--;
+                            }
+                            object = fastParse(bytes, start, end - start);
                         } else {
                             object =
                                     new String(bytes, fieldOffset, fieldLen, stringCharset.name())
@@ -501,6 +623,16 @@ public class DbaseFileReader implements FileReader {
                     // If the first 8 characters are '0', this is a null date
                     for (int i = 0; i < 8; i++) {
                         if (bytes[fieldOffset + i] != '0') {
+                            final int date = parseDigits(bytes, fieldOffset, 8);
+                            if (date >= 0) {
+                                calendar.clear();
+                                calendar.set(Calendar.YEAR, date / 10000);
+                                calendar.set(Calendar.MONTH, date / 100 % 100 - 1);
+                                calendar.set(Calendar.DAY_OF_MONTH, date % 100);
+                                object = calendar.getTime();
+                                break;
+                            }
+                            // not a plain sequence of digits, do the lenient parse
                             try {
                                 String tempString = fastParse(bytes, fieldOffset, 4);
                                 final int tempYear = Integer.parseInt(tempString);
@@ -522,35 +654,12 @@ public class DbaseFileReader implements FileReader {
                     break;
                     // (@) Timestamp (Date)
                 case '@':
-                    try {
-                        // TODO: Find a smarter way to do this.
-                        // timestampBytes = bytes[fieldOffset:fieldOffset+7]
-                        byte[] timestampBytes = {
-                            // Time in millis, after reverse.
-                            bytes[fieldOffset + 7], bytes[fieldOffset + 6], bytes[fieldOffset + 5],
-                                    bytes[fieldOffset + 4],
-                            // Days, after reverse.
-                            bytes[fieldOffset + 3], bytes[fieldOffset + 2], bytes[fieldOffset + 1],
-                                    bytes[fieldOffset]
-                        };
-
-                        ByteArrayInputStream i_bytes = new ByteArrayInputStream(timestampBytes);
-                        DataInputStream i_stream =
-                                new DataInputStream(new BufferedInputStream(i_bytes));
-
-                        int time = i_stream.readInt();
-                        int days = i_stream.readInt();
-
-                        calendar.setTimeInMillis(
-                                days * MILLISECS_PER_DAY
-                                        + DbaseFileHeader.MILLIS_SINCE_4713
-                                        + time);
-
-                        object = calendar.getTime();
-
-                    } catch (final NumberFormatException nfe) {
-                        // todo: use progresslistener, this isn't a grave error.
-                    }
+                    // days, followed by the time in millis, both little endian
+                    final int days = readInt(bytes, fieldOffset);
+                    final int time = readInt(bytes, fieldOffset + 4);
+                    calendar.setTimeInMillis(
+                            days * MILLISECS_PER_DAY + DbaseFileHeader.MILLIS_SINCE_4713 + time);
+                    object = calendar.getTime();
                     break;
                     // (N)umeric (Integer, Long or Fallthrough to Double)
                 case 'n':
@@ -559,8 +668,22 @@ public class DbaseFileReader implements FileReader {
                     if (bytes[fieldOffset] == '*') {
                         break;
                     } else {
+                        Class clazz = fieldClasses[fieldNum];
+                        if (clazz == Integer.class || clazz == Long.class) {
+                            final long value = parseLong(bytes, fieldOffset, fieldLen);
+                            if (value != NOT_PARSED) {
+                                if (clazz == Integer.class
+                                        && value >= Integer.MIN_VALUE
+                                        && value <= Integer.MAX_VALUE) {
+                                    object = Integer.valueOf((int) value);
+                                } else {
+                                    object = Long.valueOf(value);
+                                }
+                                break;
+                            }
+                        }
+                        // not a plain integer, do the lenient parse
                         final String string = fastParse(bytes, fieldOffset, fieldLen).trim();
-                        Class clazz = header.getFieldClass(fieldNum);
                         if (clazz == Integer.class) {
                             try {
                                 object = Integer.parseInt(string);
@@ -585,6 +708,12 @@ public class DbaseFileReader implements FileReader {
                 case 'f':
                 case 'F':
                     if (bytes[fieldOffset] != '*') {
+                        final double value = parseDouble(bytes, fieldOffset, fieldLen);
+                        if (!Double.isNaN(value)) {
+                            object = Double.valueOf(value);
+                            break;
+                        }
+                        // not a plain decimal number, do the lenient parse
                         try {
                             object = Double.parseDouble(fastParse(bytes, fieldOffset, fieldLen));
                         } catch (final NumberFormatException e) {
@@ -619,6 +748,124 @@ public class DbaseFileReader implements FileReader {
         return new String(chars);
     }
 
+    /**
+     * Parses a plain integer, optionally signed and surrounded by blanks, straight from the bytes
+     *
+     * @return The number, or {@link #NOT_PARSED} if the bytes do not contain a plain integer that
+     *     can be safely accumulated in a long
+     */
+    static long parseLong(final byte[] bytes, final int offset, final int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        // up to 18 digits always fit in a long
+        if (start == end || end - start > 18) {
+            return NOT_PARSED;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_PARSED;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a plain decimal number, optionally signed and surrounded by blanks, straight from the
+     * bytes. Only numbers whose significant digits and decimal places allow an exact computation
+     * are parsed, so that the result is the same as {@link Double#parseDouble(String)}.
+     *
+     * @return The number, or {@link Double#NaN} if it cannot be parsed this way
+     */
+    static double parseDouble(final byte[] bytes, final int offset, final int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (start < end && (bytes[start] == '-' || bytes[start] == '+')) {
+            negative = bytes[start] == '-';
+            start++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int decimals = 0;
+        boolean point = false;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == '.' && !point) {
+                point = true;
+                continue;
+            }
+            final int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                return Double.NaN;
+            }
+            digits = true;
+            if (point) {
+                decimals++;
+            }
+            if (mantissa == 0 && digit == 0) {
+                // leading zeros are not significant
+                continue;
+            }
+            // 15 digits always fit in the 53 bits of a double mantissa
+            if (++significant > 15) {
+                return Double.NaN;
+            }
+            mantissa = mantissa * 10 + digit;
+        }
+        if (!digits || decimals >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        // both operands are exact, so the division is correctly rounded
+        final double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a sequence of ASCII digits
+     *
+     * @return The number, or -1 if a byte is not a digit
+     */
+    static int parseDigits(final byte[] bytes, final int offset, final int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /** Reads a little endian integer */
+    private static int readInt(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFF)
+                | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
     @SuppressWarnings("PMD.SystemPrintln")
     public static void main(final String[] args) throws Exception {
         final DbaseFileReader reader =
@@ -145,6 +145,8 @@ public class IndexedDbaseFileReader extends DbaseFileReader {
         } else {
             throw new UnsupportedOperationException("Random access not enabled!");
         }
+        // keep hasNext() working after the jump
+        cnt = recno;
     }
 
     public boolean IsRandomAccessEnabled() {
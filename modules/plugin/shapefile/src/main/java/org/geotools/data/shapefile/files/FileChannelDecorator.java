@@ -24,6 +24,8 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A FileChannel that delegates all calls to the underlying FileChannel but for {@link
@@ -40,6 +42,9 @@ public class FileChannelDecorator extends FileChannel implements ReadableByteCha
     private final FileWriter writer;
     private boolean closed;
 
+    /** The cached buffers mapped by this channel, released when the channel is closed */
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+
     public FileChannelDecorator(
             FileChannel channel, ShpFiles shapefileFiles, URL url, FileReader requestor) {
         this.wrapped = channel;
@@ -59,6 +64,11 @@ public class FileChannelDecorator extends FileChannel implements ReadableByteCha
         reader = null;
     }
 
+    /** The decorated channel */
+    FileChannel getWrapped() {
+        return wrapped;
+    }
+
     public void force(boolean metaData) throws IOException {
         wrapped.force(metaData);
     }
@@ -69,7 +79,13 @@ public class FileChannelDecorator extends FileChannel implements ReadableByteCha
 
     public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
         //    	return wrapped.map(mode, position, size)
-        return shapefileFiles.map(wrapped, url, mode, position, size);
+        MappedByteBuffer buffer = shapefileFiles.map(wrapped, url, mode, position, size);
+        if (mode == MapMode.READ_ONLY && shapefileFiles.isMemoryMapCacheEnabled()) {
+            synchronized (mapped) {
+                mapped.add(buffer);
+            }
+        }
+        return buffer;
     }
 
     public long position() throws IOException {
@@ -133,6 +149,12 @@ public class FileChannelDecorator extends FileChannel implements ReadableByteCha
         } finally {
             if (!closed) {
                 closed = true;
+                synchronized (mapped) {
+                    for (MappedByteBuffer buffer : mapped) {
+                        shapefileFiles.release(buffer);
+                    }
+                    mapped.clear();
+                }
                 if (reader != null) {
                     shapefileFiles.unlockRead(url, reader);
                 } else {
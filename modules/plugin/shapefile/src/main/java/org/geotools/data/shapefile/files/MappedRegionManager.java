@@ -0,0 +1,400 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.util.NIOUtilities;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Process wide manager of the read only memory mapped regions of the shapefile files, shared by all
+ * the {@link ShpFiles} that have the memory map cache enabled.
+ *
+ * <p>Each region is mapped once and handed out to the readers as light copies, counting the readers
+ * using it. The mapped regions are kept within a byte budget, evicting the least recently used
+ * regions that are no longer referenced, and are unmapped as soon as they are evicted, instead of
+ * waiting for the garbage collector. The budget defaults to {@link #DEFAULT_BUDGET} and can be
+ * configured with the {@link #BUDGET_KEY} system property, or at runtime with {@link
+ * #setBudget(long)}. Regions still in use are never unmapped, so the budget can be exceeded while
+ * many readers are open.
+ *
+ * <p>The light copies handed out are registered as managed buffers in {@link NIOUtilities}, so
+ * that readers calling {@link NIOUtilities#clean(ByteBuffer)} on them cannot unmap a region other
+ * readers are still using, all the unmapping goes through the reference counting of this class.
+ *
+ * @author GeoTools
+ */
+public final class MappedRegionManager {
+
+    static final Logger LOGGER = Logging.getLogger(MappedRegionManager.class);
+
+    /** System property setting the budget of mapped bytes */
+    public static final String BUDGET_KEY = "org.geotools.shapefile.mappedRegionBudget";
+
+    /** The default budget of mapped bytes, 4GB */
+    public static final long DEFAULT_BUDGET = 4L * 1024 * 1024 * 1024;
+
+    private static final MappedRegionManager INSTANCE =
+            new MappedRegionManager(getBudgetProperty());
+
+    static {
+        NIOUtilities.addManagedBuffers(INSTANCE::isLeased);
+    }
+
+    /** Unmaps a buffer on Java 9+, where the cleaner cannot be reached by reflection */
+    private static final Method INVOKE_CLEANER;
+
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Exception e) {
+            // Java 8, NIOUtilities can clean the buffers
+            invokeCleaner = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    /** The mapped regions referenced by the cache, in least recently used order */
+    private final LinkedHashMap<RegionKey, Region> regions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** The regions used by the buffers handed out, by identity as buffers compare by content */
+    private final Map<ByteBuffer, Region> leases = new IdentityHashMap<>();
+
+    private long budget;
+
+    private long mappedBytes;
+
+    private int mappedRegions;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /** Returns the process wide manager */
+    public static MappedRegionManager getInstance() {
+        return INSTANCE;
+    }
+
+    static long getBudgetProperty() {
+        String value = System.getProperty(BUDGET_KEY);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("Invalid value for " + BUDGET_KEY + ": " + value);
+            }
+        }
+        return DEFAULT_BUDGET;
+    }
+
+    MappedRegionManager(long budget) {
+        setBudget(budget);
+    }
+
+    /**
+     * Maps a read only region of a file, or reuses the region already mapped, and returns a light
+     * copy of it. The buffer must be released with {@link #release(ByteBuffer)} once no longer
+     * used.
+     */
+    MappedByteBuffer acquire(FileChannel channel, File file, long position, long size)
+            throws IOException {
+        RegionKey key = new RegionKey(file, position, size);
+        synchronized (this) {
+            Region region = regions.get(key);
+            if (region != null) {
+                hits++;
+                return lease(region);
+            }
+            misses++;
+        }
+
+        // map outside of the lock, another thread might have mapped the same region meanwhile
+        MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, size);
+        MappedByteBuffer unused = null;
+        MappedByteBuffer result;
+        synchronized (this) {
+            Region region = regions.get(key);
+            if (region == null) {
+                region = new Region(key, buffer);
+                regions.put(key, region);
+                mappedBytes += size;
+                mappedRegions++;
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Mapped " + key);
+                }
+            } else {
+                unused = buffer;
+            }
+            result = lease(region);
+        }
+        if (unused != null) {
+            unmap(unused);
+        }
+        evict();
+        return result;
+    }
+
+    /** Hands out a light copy of the region, to be called while holding the lock */
+    private MappedByteBuffer lease(Region region) {
+        MappedByteBuffer buffer = region.duplicate();
+        leases.put(buffer, region);
+        region.references++;
+        return buffer;
+    }
+
+    /** Returns true if the buffer was handed out by {@link #acquire} and not yet released */
+    public synchronized boolean isLeased(ByteBuffer buffer) {
+        return leases.containsKey(buffer);
+    }
+
+    /**
+     * Releases a buffer returned by {@link #acquire}, unmapping its region if no longer used nor
+     * cached. The buffer must not be used afterwards.
+     */
+    void release(ByteBuffer buffer) {
+        Region region;
+        boolean unmap;
+        synchronized (this) {
+            region = leases.remove(buffer);
+            if (region == null) {
+                throw new IllegalStateException("The buffer was not acquired, or already released");
+            }
+            region.references--;
+            unmap = region.references == 0 && region.stale;
+            if (unmap) {
+                removeMapped(region);
+            }
+        }
+        if (unmap) {
+            unmap(region.buffer);
+        }
+        evict();
+    }
+
+    /**
+     * Removes all the regions of a file from the cache, they are unmapped as soon as they are not
+     * referenced any longer. Needs to be called when the file is about to be modified.
+     */
+    void invalidate(File file) {
+        List<Region> unmapped = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Region> it = regions.values().iterator(); it.hasNext(); ) {
+                Region region = it.next();
+                if (region.key.file.equals(file)) {
+                    it.remove();
+                    region.stale = true;
+                    if (region.references == 0) {
+                        removeMapped(region);
+                        unmapped.add(region);
+                    }
+                }
+            }
+        }
+        for (Region region : unmapped) {
+            unmap(region.buffer);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Removed mapping " + region.key);
+            }
+        }
+    }
+
+    /** Evicts the least recently used regions not in use, until the budget is met */
+    void evict() {
+        List<Region> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Region> it = regions.values().iterator();
+                    mappedBytes > budget && it.hasNext(); ) {
+                Region region = it.next();
+                if (region.references == 0) {
+                    it.remove();
+                    region.stale = true;
+                    removeMapped(region);
+                    evictions++;
+                    evicted.add(region);
+                }
+            }
+        }
+        for (Region region : evicted) {
+            unmap(region.buffer);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Evicted mapping " + region.key);
+            }
+        }
+    }
+
+    private void removeMapped(Region region) {
+        mappedBytes -= region.key.size;
+        mappedRegions--;
+    }
+
+    /** Unmaps a buffer right away, none of its copies must be used afterwards */
+    static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to unmap buffer, leaving it to the GC", e);
+            }
+        }
+        NIOUtilities.clean(buffer, true);
+    }
+
+    /** Returns the budget of mapped bytes */
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the budget of mapped bytes, evicting the least recently used regions not in use if
+     * exceeded
+     */
+    public void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("The budget must be positive: " + budget);
+        }
+        synchronized (this) {
+            this.budget = budget;
+        }
+        evict();
+    }
+
+    /** Returns the bytes currently mapped, including the regions in use and no longer cached */
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /** Returns the number of regions currently mapped */
+    public synchronized int getMappedRegions() {
+        return mappedRegions;
+    }
+
+    /** Returns the number of requests served with an already mapped region */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Returns the number of requests that had to map a new region */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Returns the number of regions unmapped to stay within the budget */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Returns the ratio of requests served with an already mapped region, 0 if none was made */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : hits / (double) requests;
+    }
+
+    /** Resets the hit, miss and eviction counters */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /** A mapped region of a file, with the number of readers using it */
+    static final class Region {
+
+        final RegionKey key;
+
+        final MappedByteBuffer buffer;
+
+        int references;
+
+        /** True if the region is not cached any longer, and will be unmapped once released */
+        boolean stale;
+
+        Region(RegionKey key, MappedByteBuffer buffer) {
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        /** Returns a light copy of the mapped buffer */
+        MappedByteBuffer duplicate() {
+            return (MappedByteBuffer) buffer.duplicate();
+        }
+    }
+
+    /** Identifies a region of a file */
+    static final class RegionKey {
+
+        final File file;
+
+        final long position;
+
+        final long size;
+
+        RegionKey(File file, long position, long size) {
+            this.file = file;
+            this.position = position;
+            this.size = size;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = file.hashCode();
+            result = prime * result + Long.hashCode(position);
+            result = prime * result + Long.hashCode(size);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof RegionKey)) return false;
+            RegionKey other = (RegionKey) obj;
+            return file.equals(other.file) && position == other.position && size == other.size;
+        }
+
+        @Override
+        public String toString() {
+            return file.getAbsolutePath() + " [" + position + ", " + (position + size) + ")";
+        }
+    }
+}
@@ -19,23 +19,28 @@ package org.geotools.data.shapefile.files;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.geotools.util.NIOUtilities;
-import org.geotools.util.SoftValueHashMap;
-import org.geotools.util.SoftValueHashMap.ValueCleaner;
 import org.geotools.util.URLs;
 import org.geotools.util.logging.Logging;
 
 /**
  * A cache for memory mapped buffers, used to avoid generating over and over read only memory mapped
  * buffers. Mapping a file is a synchronized operation, plus by generating light copies the same
- * buffer can be shared by various threads
+ * buffer can be shared by various threads.
+ *
+ * <p>The mapped regions are owned by the process wide {@link MappedRegionManager}, this class keeps
+ * track of the copies handed out to the readers of a {@link ShpFiles}, releasing the regions when
+ * the readers close their channels.
  *
  * @author Andrea Aime - OpenGeo
  */
@@ -43,8 +48,18 @@ class MemoryMapCache {
 
     static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
 
-    SoftValueHashMap<MappingKey, MappedByteBuffer> buffers =
-            new SoftValueHashMap<MappingKey, MappedByteBuffer>(0, new BufferCleaner());
+    final MappedRegionManager manager;
+
+    /** The buffers handed out, by identity as buffers compare by content */
+    final Set<ByteBuffer> leases = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    MemoryMapCache() {
+        this(MappedRegionManager.getInstance());
+    }
+
+    MemoryMapCache(MappedRegionManager manager) {
+        this.manager = manager;
+    }
 
     MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size)
             throws IOException {
@@ -53,31 +68,34 @@ class MemoryMapCache {
         }
 
         File file = URLs.urlToFile(url).getCanonicalFile();
-        MappingKey mk = new MappingKey(file, position, size);
-        MappedByteBuffer buffer = buffers.get(mk);
-        if (buffer == null) {
-            synchronized (this) {
-                buffer = buffers.get(mk);
-                if (buffer == null) {
-                    buffer = wrapped.map(mode, position, size);
-                    buffers.put(mk, buffer);
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
-                    }
-                }
-            }
-        } else {
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
-            }
+        MappedByteBuffer buffer = manager.acquire(wrapped, file, position, size);
+        synchronized (leases) {
+            leases.add(buffer);
         }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
+        }
+        return buffer;
+    }
 
-        return (MappedByteBuffer) buffer.duplicate();
+    /**
+     * Releases the region behind a buffer returned by {@link #map}, the buffer must not be used
+     * afterwards. Does nothing if the buffer was not returned by this cache.
+     */
+    void release(ByteBuffer buffer) {
+        boolean leased;
+        synchronized (leases) {
+            leased = leases.remove(buffer);
+        }
+        if (leased) {
+            manager.release(buffer);
+        }
     }
 
     /**
      * Cleans up all memory mapped regions for a specified file. It is necessary to call this method
-     * before any attempt to open a file for writing on Windows
+     * before any attempt to open a file for writing on Windows. The regions still in use are
+     * unmapped once released.
      *
      * @param file
      */
@@ -88,17 +106,7 @@ class MemoryMapCache {
                 // not a local file
                 return;
             }
-            File file = rawFile.getCanonicalFile();
-            List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-            for (MappingKey key : keys) {
-                if (key.file.equals(file)) {
-                    MappedByteBuffer buffer = buffers.remove(key);
-                    NIOUtilities.clean(buffer, true);
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, "Removed mapping for " + file.getAbsolutePath());
-                    }
-                }
-            }
+            manager.invalidate(rawFile.getCanonicalFile());
         } catch (Throwable t) {
             LOGGER.log(
                     Level.WARNING,
@@ -107,65 +115,18 @@ class MemoryMapCache {
         }
     }
 
+    /** Releases all the buffers handed out, to be called once all the readers are closed */
     void clean() {
-        List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-        for (MappingKey key : keys) {
-            MappedByteBuffer buffer = buffers.remove(key);
-            NIOUtilities.clean(buffer, true);
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.log(Level.FINE, "Removed mapping for " + key.file.getAbsolutePath());
-            }
-        }
-    }
-
-    /** Tracks a memory mapped region of a certain file */
-    static class MappingKey {
-        File file;
-        long position;
-        long size;
-
-        public MappingKey(File file, long position, long size) {
-            super();
-            this.file = file;
-            this.position = position;
-            this.size = size;
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((file == null) ? 0 : file.hashCode());
-            result = prime * result + (int) (position ^ (position >>> 32));
-            result = prime * result + (int) (size ^ (size >>> 32));
-            return result;
+        List<ByteBuffer> released;
+        synchronized (leases) {
+            released = new ArrayList<>(leases);
+            leases.clear();
         }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (obj == null) return false;
-            if (getClass() != obj.getClass()) return false;
-            MappingKey other = (MappingKey) obj;
-            if (file == null) {
-                if (other.file != null) return false;
-            } else if (!file.equals(other.file)) return false;
-            if (position != other.position) return false;
-            if (size != other.size) return false;
-            return true;
+        for (ByteBuffer buffer : released) {
+            manager.release(buffer);
         }
-    }
-
-    /**
-     * Cleans up the buffers before the soft reference gets deallocated
-     *
-     * @author Andrea Aime
-     */
-    public class BufferCleaner implements ValueCleaner {
-
-        public void clean(Object key, Object object) {
-            MappedByteBuffer buffer = (MappedByteBuffer) object;
-            NIOUtilities.clean(buffer, true);
+        if (LOGGER.isLoggable(Level.FINE) && !released.isEmpty()) {
+            LOGGER.log(Level.FINE, "Released " + released.size() + " mappings");
         }
     }
 }
@@ -45,7 +45,17 @@ public enum ShpFileType {
      */
     FIX("fix"),
     /** the .shp.xml file, it contains the metadata about the shapefile */
-    SHP_XML("shp.xml");
+    SHP_XML("shp.xml"),
+    /**
+     * the .hrt file, a packed Hilbert R-tree spatial index of the shapefile, memory mapped and
+     * searched in place
+     */
+    HRT("hrt"),
+    /**
+     * the .aix file, sorted key indexes of some of the .dbf columns, used to answer attribute
+     * filters without scanning the .dbf file
+     */
+    AIX("aix");
 
     public final String extension;
     public final String extensionWithPeriod;
@@ -32,6 +32,7 @@ import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
@@ -883,6 +884,46 @@ public class ShpFiles {
         }
     }
 
+    /**
+     * Internal method that the file channel decorators will call to release the memory mapped
+     * buffers obtained from {@link #map}, once closed
+     */
+    void release(ByteBuffer buffer) {
+        mapCache.release(buffer);
+    }
+
+    /**
+     * Memory maps a whole local file, read only, through the process wide {@link
+     * MappedRegionManager}, whether the memory map cache is enabled or not. Meant for the long
+     * lived readers, such as the indexes: the read lock is only held while mapping, and the buffer
+     * is kept until released with {@link #releaseReadOnly(ByteBuffer)}, or until this object is
+     * disposed. A writer acquiring the file unmaps it as soon as it is released.
+     *
+     * @param type the type of file to map.
+     * @param requestor the object requesting the buffer
+     */
+    public ByteBuffer mapReadOnly(ShpFileType type, FileReader requestor) throws IOException {
+        if (!isLocal()) {
+            throw new IllegalStateException("This method only applies if the files are local");
+        }
+        try (FileChannelDecorator channel =
+                (FileChannelDecorator) getReadChannel(type, requestor)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to be memory mapped: " + get(type));
+            }
+            return mapCache.map(channel.getWrapped(), urls.get(type), MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Releases a buffer returned by {@link #mapReadOnly(ShpFileType, FileReader)}, the buffer must
+     * not be used afterwards
+     */
+    public void releaseReadOnly(ByteBuffer buffer) {
+        mapCache.release(buffer);
+    }
+
     /**
      * Returns the status of the memory map cache. When enabled the memory mapped portions of the
      * files are cached and shared (giving each thread a clone of it)
@@ -895,15 +936,14 @@ public class ShpFiles {
 
     /**
      * Enables the memory map cache. When enabled the memory mapped portions of the files are cached
-     * and shared (giving each thread a clone of it)
+     * and shared (giving each thread a clone of it), within the budget of the process wide {@link
+     * MappedRegionManager}. Disabling the cache does not affect the readers already open, their
+     * buffers are released when they are closed.
      *
      * @param memoryMapCacheEnabled
      */
     public void setMemoryMapCacheEnabled(boolean memoryMapCacheEnabled) {
         this.memoryMapCacheEnabled = memoryMapCacheEnabled;
-        if (!memoryMapCacheEnabled) {
-            mapCache.clean();
-        }
     }
 
     /**
@@ -0,0 +1,292 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.geotools.data.shapefile.files.FileReader;
+import org.geotools.data.shapefile.files.MappedRegionManager;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.index.TreeException;
+
+/**
+ * A secondary index on some of the .dbf columns of a shapefile, memory mapped and searched in
+ * place.
+ *
+ * <p>Each indexed column holds the (key, record number) pairs of the records with a non null value,
+ * sorted by key. Numeric columns are keyed by their value, so they support both equality and range
+ * searches, character columns by a 64 bits hash of their value, so they only support equality
+ * searches. The searches return candidates, the records found might not match when keys collide, so
+ * the filter still has to be evaluated on them.
+ *
+ * <p>The file, little endian, is made of a {@link #HEADER_SIZE} bytes header (magic, version,
+ * number of columns, number of records, charset used to decode the strings), a directory of {@link
+ * #COLUMN_SIZE} bytes entries (field index, key type, number of entries, position, field name) and
+ * then the entries of each column, each one being a long key and an int record number. See {@link
+ * AttributeIndexBuilder} for building it.
+ *
+ * <p>Instances are thread safe, the mapped buffer is only accessed with absolute reads. The buffer
+ * is shared through the {@link MappedRegionManager}, and has to be released with {@link #close()}
+ * once no search is running anymore.
+ *
+ * @author GeoTools
+ */
+public class AttributeIndex {
+
+    static final int MAGIC = 0x58494147; // "GAIX" read as little endian
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    static final int CHARSET_SIZE = 48;
+
+    /** Field index, key type, number of entries, padding, position, name */
+    static final int COLUMN_SIZE = 48;
+
+    static final int NAME_SIZE = 24;
+
+    /** Key and record number */
+    static final int ENTRY_SIZE = 12;
+
+    static final int NUMERIC = 0;
+
+    static final int STRING = 1;
+
+    /** An indexed column */
+    static class Column {
+        final String name;
+
+        final int type;
+
+        final int count;
+
+        final int position;
+
+        Column(String name, int type, int count, int position) {
+            this.name = name;
+            this.type = type;
+            this.count = count;
+            this.position = position;
+        }
+    }
+
+    final ByteBuffer buffer;
+
+    /** The files the buffer has been mapped from, used to release it */
+    final ShpFiles shpFiles;
+
+    final int numRecords;
+
+    final String charset;
+
+    /** The columns by field index */
+    final Map<Integer, Column> columns = new LinkedHashMap<>();
+
+    AttributeIndex(ByteBuffer buffer, ShpFiles shpFiles) throws TreeException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.shpFiles = shpFiles;
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new TreeException("Not an attribute index, or unsupported version");
+        }
+        int numColumns = buffer.getInt(8);
+        this.numRecords = buffer.getInt(12);
+        this.charset = readString(16, CHARSET_SIZE);
+        if (numColumns < 0
+                || numRecords < 0
+                || HEADER_SIZE + (long) numColumns * COLUMN_SIZE > buffer.capacity()) {
+            throw new TreeException("Invalid attribute index header");
+        }
+        for (int i = 0; i < numColumns; i++) {
+            int p = HEADER_SIZE + i * COLUMN_SIZE;
+            int field = buffer.getInt(p);
+            int type = buffer.getInt(p + 4);
+            int count = buffer.getInt(p + 8);
+            long position = buffer.getLong(p + 16);
+            if ((type != NUMERIC && type != STRING)
+                    || count < 0
+                    || position + (long) count * ENTRY_SIZE > buffer.capacity()) {
+                throw new TreeException("Invalid attribute index column " + i);
+            }
+            columns.put(
+                    field, new Column(readString(p + 24, NAME_SIZE), type, count, (int) position));
+        }
+    }
+
+    /**
+     * Memory maps the .aix file of a shapefile
+     *
+     * @param shpFiles The shapefile files
+     * @param requestor The object reading the index, holding the read lock while mapping
+     */
+    public static AttributeIndex open(ShpFiles shpFiles, FileReader requestor) throws IOException {
+        ByteBuffer buffer = shpFiles.mapReadOnly(ShpFileType.AIX, requestor);
+        try {
+            return new AttributeIndex(buffer, shpFiles);
+        } catch (TreeException e) {
+            shpFiles.releaseReadOnly(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the mapped buffer, the index cannot be searched anymore. The caller must make sure
+     * that no search is running.
+     */
+    public void close() {
+        shpFiles.releaseReadOnly(buffer);
+    }
+
+    private String readString(int position, int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        int length = 0;
+        while (length < size && bytes[length] != 0) {
+            length++;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** The number of records of the .dbf file when the index was built */
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    /** The name of the charset used to decode the character columns */
+    public String getCharset() {
+        return charset;
+    }
+
+    /** The indexes of the indexed .dbf fields */
+    public int[] getFields() {
+        return columns.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** The name of an indexed .dbf field, or null if the field is not indexed */
+    public String getFieldName(int field) {
+        Column column = columns.get(field);
+        return column != null ? column.name : null;
+    }
+
+    /** Returns true if the field is indexed */
+    public boolean isIndexed(int field) {
+        return columns.containsKey(field);
+    }
+
+    /** Returns true if the field is indexed by value, supporting range searches */
+    public boolean isNumeric(int field) {
+        Column column = columns.get(field);
+        return column != null && column.type == NUMERIC;
+    }
+
+    /**
+     * Returns the one based numbers of the records whose numeric field value is between the
+     * specified bounds, inclusive, sorted, or null if the field is not indexed by value
+     */
+    public int[] searchRange(int field, double min, double max) {
+        Column column = columns.get(field);
+        if (column == null || column.type != NUMERIC || Double.isNaN(min) || Double.isNaN(max)) {
+            return null;
+        }
+        return search(column, numericKey(min), numericKey(max));
+    }
+
+    /**
+     * Returns the one based numbers of the records whose numeric field value is equal to the
+     * specified one, sorted, or null if the field is not indexed by value
+     */
+    public int[] searchEqual(int field, double value) {
+        return searchRange(field, value, value);
+    }
+
+    /**
+     * Returns the one based numbers of the records whose character field value might be equal to
+     * the specified one, sorted, or null if the field is not a character one
+     */
+    public int[] searchEqual(int field, String value) {
+        Column column = columns.get(field);
+        if (column == null || column.type != STRING) {
+            return null;
+        }
+        long key = stringKey(value);
+        return search(column, key, key);
+    }
+
+    private int[] search(Column column, long min, long max) {
+        if (min > max) {
+            return new int[0];
+        }
+        int start = lowerBound(column, min);
+        int end = start;
+        while (end < column.count && keyAt(column, end) <= max) {
+            end++;
+        }
+        int[] records = new int[end - start];
+        for (int i = start; i < end; i++) {
+            records[i - start] = buffer.getInt(column.position + i * ENTRY_SIZE + 8);
+        }
+        // entries with the same key are already sorted, ranges are not
+        Arrays.sort(records);
+        return records;
+    }
+
+    /** The position of the first entry whose key is greater or equal than the specified one */
+    private int lowerBound(Column column, long key) {
+        int low = 0;
+        int high = column.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(column, mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(Column column, int entry) {
+        return buffer.getLong(column.position + entry * ENTRY_SIZE);
+    }
+
+    /** Maps a double to a long, preserving the ordering */
+    static long numericKey(double value) {
+        // -0.0 and 0.0 have to share the same key
+        long bits = Double.doubleToLongBits(value + 0.0);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /** Hashes a string, FNV-1a over its characters */
+    static long stringKey(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
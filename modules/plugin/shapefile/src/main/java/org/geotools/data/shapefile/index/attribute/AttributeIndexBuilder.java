@@ -0,0 +1,231 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.CHARSET_SIZE;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.COLUMN_SIZE;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.ENTRY_SIZE;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.HEADER_SIZE;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.NAME_SIZE;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.NUMERIC;
+import static org.geotools.data.shapefile.index.attribute.AttributeIndex.STRING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+
+/**
+ * Builds an {@link AttributeIndex} file with a single pass over the .dbf file, reading only the
+ * indexed columns.
+ *
+ * @author GeoTools
+ */
+public class AttributeIndexBuilder {
+
+    /**
+     * Returns true if the field can be indexed, that is, it's a numeric (N, F) or character (C) one
+     */
+    public static boolean isIndexable(DbaseFileHeader header, int field) {
+        return getKeyType(header.getFieldType(field)) != -1;
+    }
+
+    static int getKeyType(char fieldType) {
+        switch (fieldType) {
+            case 'n':
+            case 'N':
+            case 'f':
+            case 'F':
+                return NUMERIC;
+            case 'c':
+            case 'C':
+                return STRING;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Builds the index
+     *
+     * @param dbf A reader on the .dbf file, positioned on the first record, which is consumed
+     * @param fields The indexes of the fields to index, all of them have to be indexable
+     * @param charset The charset the reader uses to decode the strings
+     * @param target The index file to write
+     * @return The number of records read
+     */
+    public int build(DbaseFileReader dbf, int[] fields, Charset charset, File target)
+            throws IOException {
+        DbaseFileHeader header = dbf.getHeader();
+        int[] types = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] < 0 || fields[i] >= header.getNumFields()) {
+                throw new IllegalArgumentException("Invalid field index " + fields[i]);
+            }
+            types[i] = getKeyType(header.getFieldType(fields[i]));
+            if (types[i] == -1) {
+                throw new IllegalArgumentException(
+                        "Field "
+                                + header.getFieldName(fields[i])
+                                + " of type "
+                                + header.getFieldType(fields[i])
+                                + " cannot be indexed");
+            }
+        }
+
+        int capacity = Math.max(16, header.getNumRecords());
+        long[][] keys = new long[fields.length][capacity];
+        int[][] records = new int[fields.length][capacity];
+        int[] counts = new int[fields.length];
+
+        // read only the indexed columns
+        dbf.setProjection(fields);
+        int record = 0;
+        while (dbf.hasNext()) {
+            DbaseFileReader.Row row = dbf.readRow();
+            record++;
+            for (int i = 0; i < fields.length; i++) {
+                Object value = row.read(fields[i]);
+                long key;
+                if (value instanceof Number && types[i] == NUMERIC) {
+                    double d = ((Number) value).doubleValue();
+                    if (Double.isNaN(d)) {
+                        continue;
+                    }
+                    key = AttributeIndex.numericKey(d);
+                } else if (value instanceof String && types[i] == STRING) {
+                    key = AttributeIndex.stringKey((String) value);
+                } else {
+                    // null values are not indexed, they never match a comparison
+                    continue;
+                }
+                if (counts[i] == keys[i].length) {
+                    keys[i] = Arrays.copyOf(keys[i], counts[i] * 2);
+                    records[i] = Arrays.copyOf(records[i], counts[i] * 2);
+                }
+                keys[i][counts[i]] = key;
+                records[i][counts[i]++] = record;
+            }
+        }
+
+        try (FileChannel channel =
+                FileChannel.open(
+                        target.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer directory =
+                    ByteBuffer.allocate(HEADER_SIZE + fields.length * COLUMN_SIZE)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+            directory.putInt(AttributeIndex.MAGIC);
+            directory.putInt(AttributeIndex.VERSION);
+            directory.putInt(fields.length);
+            directory.putInt(record);
+            putString(directory, 16, charset.name(), CHARSET_SIZE);
+
+            long position = directory.capacity();
+            ByteBuffer buffer =
+                    ByteBuffer.allocate(ENTRY_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < fields.length; i++) {
+                sort(keys[i], records[i], counts[i]);
+                int p = HEADER_SIZE + i * COLUMN_SIZE;
+                directory.putInt(p, fields[i]);
+                directory.putInt(p + 4, types[i]);
+                directory.putInt(p + 8, counts[i]);
+                directory.putLong(p + 16, position);
+                putString(directory, p + 24, header.getFieldName(fields[i]), NAME_SIZE);
+
+                for (int j = 0; j < counts[i]; j++) {
+                    if (buffer.remaining() < ENTRY_SIZE) {
+                        position += write(channel, buffer, position);
+                    }
+                    buffer.putLong(keys[i][j]);
+                    buffer.putInt(records[i][j]);
+                }
+                position += write(channel, buffer, position);
+                // release the memory as soon as possible
+                keys[i] = null;
+                records[i] = null;
+            }
+            // the directory is written last, once the positions are known
+            directory.position(directory.capacity());
+            write(channel, directory, 0);
+        }
+        return record;
+    }
+
+    private static void putString(ByteBuffer buffer, int position, String value, int size) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > size) {
+            throw new IllegalArgumentException("Name too long to be stored in the index: " + value);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(position + i, bytes[i]);
+        }
+    }
+
+    /** Writes the buffer contents at the specified position, returning the bytes written */
+    private static int write(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        buffer.flip();
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    /** Sorts the entries by key, stable, keeping the record numbers sorted on equal keys */
+    static void sort(long[] keys, int[] records, int size) {
+        long[] keyBuffer = new long[size];
+        int[] recordBuffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int start = 0; start < size; start += 2 * width) {
+                int mid = Math.min(start + width, size);
+                int end = Math.min(start + 2 * width, size);
+                int i = start, j = mid, k = start;
+                while (i < mid && j < end) {
+                    if (keys[j] < keys[i]) {
+                        keyBuffer[k] = keys[j];
+                        recordBuffer[k++] = records[j++];
+                    } else {
+                        keyBuffer[k] = keys[i];
+                        recordBuffer[k++] = records[i++];
+                    }
+                }
+                while (i < mid) {
+                    keyBuffer[k] = keys[i];
+                    recordBuffer[k++] = records[i++];
+                }
+                while (j < end) {
+                    keyBuffer[k] = keys[j];
+                    recordBuffer[k++] = records[j++];
+                }
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, size);
+            System.arraycopy(recordBuffer, 0, records, 0, size);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.files.FileReader;
+import org.geotools.data.shapefile.files.MappedRegionManager;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A static, packed Hilbert R-tree spatial index, memory mapped and searched in place, without
+ * loading or deserializing any node.
+ *
+ * <p>The file, little endian, is made of a {@link #HEADER_SIZE} bytes header (magic, version, node
+ * size, number of items, bounds), followed by the items sorted along the Hilbert curve of their
+ * envelope centers, each one being its envelope, record index and .shp offset, and then by the node
+ * levels, from the parents of the items up to the root, each node being the envelope of {@link
+ * #getNodeSize()} consecutive entries of the level below. The position of the children of a node is
+ * implied by its own position, so no pointers are stored. See {@link HilbertRTreeBuilder} for
+ * building it.
+ *
+ * <p>Instances are thread safe, the mapped buffer is only accessed with absolute reads. The buffer
+ * is shared through the {@link MappedRegionManager}, and has to be released with {@link #close()}
+ * once no search is running anymore.
+ *
+ * @author GeoTools
+ */
+public class HilbertRTree {
+
+    static final int MAGIC = 0x52484447; // "GDHR" read as little endian
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    /** Envelope (4 doubles), record index and .shp offset in bytes */
+    static final int ITEM_SIZE = 40;
+
+    /** Envelope (4 doubles) */
+    static final int NODE_SIZE = 32;
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    final ByteBuffer buffer;
+
+    /** The files the buffer has been mapped from, used to release it */
+    final ShpFiles shpFiles;
+
+    final int nodeSize;
+
+    final int numItems;
+
+    final Envelope bounds;
+
+    /** Number of entries in each level, the items being level 0 */
+    final int[] levelCounts;
+
+    /** Position in the file of each level */
+    final long[] levelOffsets;
+
+    HilbertRTree(ByteBuffer buffer, ShpFiles shpFiles) throws TreeException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.shpFiles = shpFiles;
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new TreeException("Not a Hilbert R-tree index, or unsupported version");
+        }
+        this.nodeSize = buffer.getInt(8);
+        this.numItems = buffer.getInt(12);
+        if (nodeSize < 2 || numItems < 0) {
+            throw new TreeException("Invalid Hilbert R-tree header");
+        }
+        if (numItems == 0) {
+            this.bounds = new Envelope();
+        } else {
+            this.bounds =
+                    new Envelope(
+                            buffer.getDouble(16),
+                            buffer.getDouble(32),
+                            buffer.getDouble(24),
+                            buffer.getDouble(40));
+        }
+
+        int levels = getLevelCount(numItems, nodeSize);
+        this.levelCounts = new int[levels];
+        this.levelOffsets = new long[levels];
+        long offset = HEADER_SIZE;
+        int count = numItems;
+        for (int level = 0; level < levels; level++) {
+            levelCounts[level] = count;
+            levelOffsets[level] = offset;
+            offset += (long) count * (level == 0 ? ITEM_SIZE : NODE_SIZE);
+            count = (count + nodeSize - 1) / nodeSize;
+        }
+        if (offset != buffer.capacity()) {
+            throw new TreeException(
+                    "Hilbert R-tree index size is " + buffer.capacity() + ", expected " + offset);
+        }
+    }
+
+    /**
+     * Memory maps the .hrt file of a shapefile
+     *
+     * @param shpFiles The shapefile files
+     * @param requestor The object reading the index, holding the read lock while mapping
+     */
+    public static HilbertRTree open(ShpFiles shpFiles, FileReader requestor) throws IOException {
+        ByteBuffer buffer = shpFiles.mapReadOnly(ShpFileType.HRT, requestor);
+        try {
+            return new HilbertRTree(buffer, shpFiles);
+        } catch (TreeException e) {
+            shpFiles.releaseReadOnly(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the mapped buffer, the tree cannot be searched anymore. The caller must make sure
+     * that no search is running.
+     */
+    public void close() {
+        shpFiles.releaseReadOnly(buffer);
+    }
+
+    /** Returns the number of levels, items included, of a tree */
+    static int getLevelCount(int numItems, int nodeSize) {
+        if (numItems == 0) {
+            return 0;
+        }
+        // the items, and then node levels up to a single root
+        int levels = 1;
+        int count = numItems;
+        do {
+            count = (count + nodeSize - 1) / nodeSize;
+            levels++;
+        } while (count > 1);
+        return levels;
+    }
+
+    /** The bounds of all the items */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /** The number of indexed records */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /** The maximum number of children of a node */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Returns the records whose envelope intersects the search bounds, sorted by their position in
+     * the .shp file
+     */
+    public SearchResult search(Envelope bbox) {
+        long[] found = new long[16];
+        int size = 0;
+        int visited = 0;
+
+        int top = levelCounts.length - 1;
+        if (top > 0) {
+            // depth first visit, with an explicit stack of (level, index) pairs
+            int[] levels = new int[top * nodeSize + 1];
+            int[] indexes = new int[levels.length];
+            int stack = 0;
+            levels[stack] = top;
+            indexes[stack++] = 0;
+            while (stack > 0) {
+                stack--;
+                int level = levels[stack];
+                int index = indexes[stack];
+                visited++;
+                if (!intersects(levelOffsets[level] + (long) index * NODE_SIZE, bbox)) {
+                    continue;
+                }
+                int start = index * nodeSize;
+                int end = Math.min(start + nodeSize, levelCounts[level - 1]);
+                if (level == 1) {
+                    // children are items, check them right away
+                    for (int i = start; i < end; i++) {
+                        long position = levelOffsets[0] + (long) i * ITEM_SIZE;
+                        if (intersects(position, bbox)) {
+                            if (size == found.length) {
+                                found = Arrays.copyOf(found, size * 2);
+                            }
+                            found[size++] = pack(position);
+                        }
+                    }
+                } else {
+                    // push in reverse, so that the visit follows the curve
+                    for (int i = end - 1; i >= start; i--) {
+                        levels[stack] = level - 1;
+                        indexes[stack++] = i;
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, size);
+        return new SearchResult(found, size, visited);
+    }
+
+    /** Packs the .shp offset and record index of an item, sorting by offset */
+    private long pack(long position) {
+        int index = buffer.getInt((int) position + 32);
+        int offset = buffer.getInt((int) position + 36);
+        return ((long) offset << 32) | index;
+    }
+
+    private boolean intersects(long position, Envelope bbox) {
+        int p = (int) position;
+        return buffer.getDouble(p) <= bbox.getMaxX()
+                && buffer.getDouble(p + 16) >= bbox.getMinX()
+                && buffer.getDouble(p + 8) <= bbox.getMaxY()
+                && buffer.getDouble(p + 24) >= bbox.getMinY();
+    }
+
+    /**
+     * The records found by a search, as {@link Data} holding the one based record number and the
+     * offset of the record in the .shp file
+     */
+    public static class SearchResult implements CloseableIterator<Data> {
+
+        final long[] found;
+
+        final int size;
+
+        final int nodesVisited;
+
+        int next;
+
+        SearchResult(long[] found, int size, int nodesVisited) {
+            this.found = found;
+            this.size = size;
+            this.nodesVisited = nodesVisited;
+        }
+
+        /** The number of records found */
+        public int size() {
+            return size;
+        }
+
+        /** The number of tree nodes visited to answer the query */
+        public int getNodesVisited() {
+            return nodesVisited;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Data next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long item = found[next++];
+            try {
+                Data data = new Data(DATA_DEFINITION);
+                data.addValue(Integer.valueOf((int) item + 1));
+                data.addValue(Long.valueOf(item >>> 32));
+                return data;
+            } catch (TreeException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            next = size;
+        }
+    }
+}
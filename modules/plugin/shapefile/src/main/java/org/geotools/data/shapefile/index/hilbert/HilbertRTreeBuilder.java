@@ -0,0 +1,461 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.hilbert;
+
+import static org.geotools.data.shapefile.index.hilbert.HilbertRTree.HEADER_SIZE;
+import static org.geotools.data.shapefile.index.hilbert.HilbertRTree.ITEM_SIZE;
+import static org.geotools.data.shapefile.index.hilbert.HilbertRTree.NODE_SIZE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileHeader;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Builds a {@link HilbertRTree} index file in a single pass over the shapefile records. The record
+ * envelopes are sorted along the Hilbert curve of their centers with an external merge sort, so
+ * that at most {@link #getSortChunkSize()} records are kept in memory, and the node levels are then
+ * computed bottom up, streaming over the level below.
+ *
+ * @author GeoTools
+ */
+public class HilbertRTreeBuilder {
+
+    static final Logger LOGGER = Logging.getLogger(HilbertRTreeBuilder.class);
+
+    /** The default maximum number of children of a node */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /** The default number of records sorted in memory */
+    public static final int DEFAULT_SORT_CHUNK_SIZE = 1 << 18;
+
+    /** The order of the Hilbert curve, the number of bits of each grid coordinate */
+    static final int HILBERT_ORDER = 15;
+
+    static final int HILBERT_MAX = (1 << HILBERT_ORDER) - 1;
+
+    int nodeSize = DEFAULT_NODE_SIZE;
+
+    int sortChunkSize = DEFAULT_SORT_CHUNK_SIZE;
+
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /** Sets the maximum number of children of a node, at least 2 */
+    public void setNodeSize(int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2");
+        }
+        this.nodeSize = nodeSize;
+    }
+
+    public int getSortChunkSize() {
+        return sortChunkSize;
+    }
+
+    /**
+     * Sets the number of records sorted in memory, larger files are sorted in chunks spilled to
+     * temporary files and then merged
+     */
+    public void setSortChunkSize(int sortChunkSize) {
+        if (sortChunkSize < 1) {
+            throw new IllegalArgumentException("The sort chunk size must be positive");
+        }
+        this.sortChunkSize = sortChunkSize;
+    }
+
+    /**
+     * Builds the index
+     *
+     * @param reader A reader on the .shp file, positioned on the first record, using the .shx file
+     * @param shx The .shx file, providing the record offsets
+     * @param target The index file to write
+     * @return The number of indexed records, records with a null shape are not indexed
+     */
+    public int build(ShapefileReader reader, IndexFile shx, File target) throws IOException {
+        ShapefileHeader header = reader.getHeader();
+        double minX = header.minX();
+        double minY = header.minY();
+        double width = header.maxX() - minX;
+        double height = header.maxY() - minY;
+
+        Chunk chunk = new Chunk(Math.min(sortChunkSize, Math.max(1, shx.getRecordCount())));
+        List<File> runs = new ArrayList<>();
+        try {
+            int index = 0;
+            while (reader.hasNext()) {
+                Record record = reader.nextRecord();
+                int recordIndex = index++;
+                if (record.type == ShapeType.NULL) {
+                    continue;
+                }
+                if (chunk.size == chunk.capacity) {
+                    runs.add(chunk.spill());
+                }
+                long hilbert =
+                        hilbert(
+                                scale((record.minX + record.maxX) / 2, minX, width),
+                                scale((record.minY + record.maxY) / 2, minY, height));
+                chunk.add(hilbert, recordIndex, shx.getOffsetInBytes(recordIndex), record);
+            }
+
+            try (FileChannel channel =
+                    FileChannel.open(
+                            target.toPath(),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                Output output = new Output(channel, HEADER_SIZE);
+                Envelope bounds = new Envelope();
+                int count;
+                if (runs.isEmpty()) {
+                    chunk.sort();
+                    count = chunk.write(output, bounds);
+                } else {
+                    if (chunk.size > 0) {
+                        runs.add(chunk.spill());
+                    }
+                    chunk = null;
+                    count = merge(runs, output, bounds);
+                }
+                writeLevels(channel, output, count);
+                writeHeader(channel, count, bounds);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(
+                            "Built Hilbert R-tree index with "
+                                    + count
+                                    + " records, sorted in "
+                                    + Math.max(1, runs.size())
+                                    + " chunks, for "
+                                    + target);
+                }
+                return count;
+            }
+        } finally {
+            for (File run : runs) {
+                if (!run.delete()) {
+                    run.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /** Maps a coordinate to the Hilbert grid */
+    static int scale(double value, double min, double extent) {
+        if (!(extent > 0) || Double.isNaN(value)) {
+            return 0;
+        }
+        double scaled = (value - min) / extent * HILBERT_MAX;
+        return (int) Math.max(0, Math.min(HILBERT_MAX, Math.floor(scaled)));
+    }
+
+    /** Returns the position of a grid cell along the Hilbert curve */
+    static long hilbert(int x, int y) {
+        long d = 0;
+        for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /** Merges the sorted runs, writing the items */
+    private int merge(List<File> files, Output output, Envelope bounds) throws IOException {
+        PriorityQueue<Run> queue =
+                new PriorityQueue<>(files.size(), Comparator.comparingLong(r -> r.key));
+        List<Run> runs = new ArrayList<>();
+        try {
+            for (File file : files) {
+                Run run = new Run(file);
+                runs.add(run);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+            int count = 0;
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                output.putItem(run.envelope, run.index, run.offset);
+                bounds.expandToInclude(run.envelope[0], run.envelope[1]);
+                bounds.expandToInclude(run.envelope[2], run.envelope[3]);
+                count++;
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+            output.flush();
+            return count;
+        } finally {
+            for (Run run : runs) {
+                run.in.close();
+            }
+        }
+    }
+
+    /** Computes and appends the node levels, from the parents of the items up to the root */
+    private void writeLevels(FileChannel channel, Output output, int numItems) throws IOException {
+        if (numItems == 0) {
+            return;
+        }
+        long levelStart = HEADER_SIZE;
+        int entrySize = ITEM_SIZE;
+        int count = numItems;
+        ByteBuffer read = ByteBuffer.allocate(entrySize * nodeSize).order(ByteOrder.LITTLE_ENDIAN);
+        double[] envelope = new double[4];
+        do {
+            long nextStart = output.position();
+            int parents = (count + nodeSize - 1) / nodeSize;
+            for (int parent = 0; parent < parents; parent++) {
+                int children = Math.min(nodeSize, count - parent * nodeSize);
+                read.clear();
+                read.limit(children * entrySize);
+                long position = levelStart + (long) parent * nodeSize * entrySize;
+                while (read.hasRemaining()) {
+                    if (channel.read(read, position + read.position()) < 0) {
+                        throw new EOFException("Unexpected end of the index file");
+                    }
+                }
+                envelope[0] = envelope[1] = Double.POSITIVE_INFINITY;
+                envelope[2] = envelope[3] = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < children; i++) {
+                    int p = i * entrySize;
+                    envelope[0] = Math.min(envelope[0], read.getDouble(p));
+                    envelope[1] = Math.min(envelope[1], read.getDouble(p + 8));
+                    envelope[2] = Math.max(envelope[2], read.getDouble(p + 16));
+                    envelope[3] = Math.max(envelope[3], read.getDouble(p + 24));
+                }
+                output.putNode(envelope);
+            }
+            // the level has to be on disk before being read back
+            output.flush();
+            levelStart = nextStart;
+            entrySize = NODE_SIZE;
+            count = parents;
+        } while (count > 1);
+    }
+
+    private void writeHeader(FileChannel channel, int count, Envelope bounds) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(HilbertRTree.MAGIC);
+        header.putInt(HilbertRTree.VERSION);
+        header.putInt(nodeSize);
+        header.putInt(count);
+        header.putDouble(bounds.isNull() ? 0 : bounds.getMinX());
+        header.putDouble(bounds.isNull() ? 0 : bounds.getMinY());
+        header.putDouble(bounds.isNull() ? 0 : bounds.getMaxX());
+        header.putDouble(bounds.isNull() ? 0 : bounds.getMaxY());
+        header.position(0);
+        header.limit(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /** A chunk of records, sorted in memory */
+    static class Chunk {
+        final int capacity;
+
+        /** The Hilbert value in the upper bits, the position in the chunk in the lower ones */
+        final long[] keys;
+
+        final int[] indexes;
+
+        final int[] offsets;
+
+        final double[] envelopes;
+
+        int size;
+
+        Chunk(int capacity) {
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.indexes = new int[capacity];
+            this.offsets = new int[capacity];
+            this.envelopes = new double[capacity * 4];
+        }
+
+        void add(long hilbert, int index, int offset, Record record) {
+            keys[size] = hilbert << 32 | size;
+            indexes[size] = index;
+            offsets[size] = offset;
+            envelopes[size * 4] = record.minX;
+            envelopes[size * 4 + 1] = record.minY;
+            envelopes[size * 4 + 2] = record.maxX;
+            envelopes[size * 4 + 3] = record.maxY;
+            size++;
+        }
+
+        void sort() {
+            Arrays.sort(keys, 0, size);
+        }
+
+        /** Sorts the chunk and writes it to a temporary file, leaving the chunk empty */
+        File spill() throws IOException {
+            sort();
+            File file = File.createTempFile("hilbert", ".run");
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+                for (int i = 0; i < size; i++) {
+                    int p = (int) keys[i];
+                    // records are added in order, so the merge can sort by index on ties
+                    out.writeLong((keys[i] >>> 32) << 32 | indexes[p]);
+                    out.writeInt(indexes[p]);
+                    out.writeInt(offsets[p]);
+                    for (int j = 0; j < 4; j++) {
+                        out.writeDouble(envelopes[p * 4 + j]);
+                    }
+                }
+            } catch (IOException e) {
+                file.delete();
+                throw e;
+            }
+            size = 0;
+            return file;
+        }
+
+        int write(Output output, Envelope bounds) throws IOException {
+            double[] envelope = new double[4];
+            for (int i = 0; i < size; i++) {
+                int p = (int) keys[i];
+                System.arraycopy(envelopes, p * 4, envelope, 0, 4);
+                output.putItem(envelope, indexes[p], offsets[p]);
+                bounds.expandToInclude(envelope[0], envelope[1]);
+                bounds.expandToInclude(envelope[2], envelope[3]);
+            }
+            output.flush();
+            return size;
+        }
+    }
+
+    /** A sorted run being merged */
+    static class Run {
+        final DataInputStream in;
+
+        final double[] envelope = new double[4];
+
+        long key;
+
+        int index;
+
+        int offset;
+
+        Run(File file) throws IOException {
+            this.in =
+                    new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            index = in.readInt();
+            offset = in.readInt();
+            for (int j = 0; j < 4; j++) {
+                envelope[j] = in.readDouble();
+            }
+            return true;
+        }
+    }
+
+    /** Appends little endian entries to the index file */
+    static class Output {
+        final FileChannel channel;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(65536).order(ByteOrder.LITTLE_ENDIAN);
+
+        long position;
+
+        Output(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void putItem(double[] envelope, int index, int offset) throws IOException {
+            if (buffer.remaining() < ITEM_SIZE) {
+                flush();
+            }
+            putEnvelope(envelope);
+            buffer.putInt(index);
+            buffer.putInt(offset);
+        }
+
+        void putNode(double[] envelope) throws IOException {
+            if (buffer.remaining() < NODE_SIZE) {
+                flush();
+            }
+            putEnvelope(envelope);
+        }
+
+        private void putEnvelope(double[] envelope) {
+            for (int j = 0; j < 4; j++) {
+                buffer.putDouble(envelope[j]);
+            }
+        }
+
+        /** The position of the next entry */
+        long position() {
+            return position + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
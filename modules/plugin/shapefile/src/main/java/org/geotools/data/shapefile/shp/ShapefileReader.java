@@ -695,6 +695,35 @@ public class ShapefileReader implements FileReader {
         throw new UnsupportedOperationException("Random Access not enabled");
     }
 
+    /**
+     * Moves the reader to the record at the specified position in the .shx file, the next call to
+     * {@link #nextRecord()} will return it. Unlike {@link #goTo(int)} the .shx file is still used
+     * afterwards, so sequential reads keep on working on sparse shapefiles.
+     *
+     * @param index The record index, from 0 to the number of records (the latter positioning the
+     *     reader past the last record)
+     * @throws IOException
+     * @throws UnsupportedOperationException thrown if the .shx file is not available, or random
+     *     access is not enabled
+     */
+    public void goToRecord(int index) throws IOException, UnsupportedOperationException {
+        if (!randomAccessEnabled || shxReader == null || currentShape == UNKNOWN) {
+            throw new UnsupportedOperationException(
+                    "Random access by record index needs a .shx file and random access");
+        }
+        if (index < 0 || index > shxReader.getRecordCount()) {
+            throw new IndexOutOfBoundsException(
+                    "Record index "
+                            + index
+                            + " out of range, the file has "
+                            + shxReader.getRecordCount()
+                            + " records");
+        }
+        currentShape = index;
+        // record numbers are one based, hasNext() checks the next one follows the current one
+        record.number = index;
+    }
+
     /**
      * Converts file offset to buffer offset
      *
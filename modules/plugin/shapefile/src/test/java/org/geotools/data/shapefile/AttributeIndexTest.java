@@ -0,0 +1,289 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DelegatingFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.files.MappedRegionManager;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.util.URLs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+public class AttributeIndexTest extends TestCaseSupport {
+
+    static final int SIZE = 3000;
+
+    ShapefileDataStore store;
+
+    String typeName;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setUp() throws Exception {
+        File file = getTempFile();
+        store = new ShapefileDataStore(file.toURI().toURL());
+        store.createSchema(
+                DataUtilities.createType(
+                        "codes", "the_geom:Point,id:Integer,code:String,value:Double,day:Date"));
+        GeometryFactory gf = new GeometryFactory();
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+            for (int i = 0; i < SIZE; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", gf.createPoint(new Coordinate(i % 100, i / 100)));
+                feature.setAttribute("id", i);
+                feature.setAttribute("code", i % 29 == 0 ? null : "c" + (i % 17));
+                feature.setAttribute("value", i % 31 == 0 ? null : (i % 50) / 10d - 2);
+                feature.setAttribute("day", new Date(0));
+                writer.write();
+            }
+        }
+        typeName = store.getTypeNames()[0];
+        features = read(new Query(typeName), false);
+    }
+
+    @After
+    public void disposeStore() {
+        store.dispose();
+    }
+
+    List<SimpleFeature> read(Query query, boolean indexed) throws Exception {
+        List<SimpleFeature> result = new ArrayList<>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                store.getFeatureReader(query, Transaction.AUTO_COMMIT)) {
+            FeatureReader<SimpleFeatureType, SimpleFeature> delegate = reader;
+            while (delegate instanceof DelegatingFeatureReader) {
+                delegate =
+                        ((DelegatingFeatureReader<SimpleFeatureType, SimpleFeature>) delegate)
+                                .getDelegate();
+            }
+            assertEquals(indexed, delegate instanceof IndexedShapefileFeatureReader);
+            while (reader.hasNext()) {
+                result.add(reader.next());
+            }
+        }
+        return result;
+    }
+
+    /** The one based record numbers of the features matching the filter */
+    int[] matching(Filter filter) {
+        return features.stream()
+                .filter(f -> filter.evaluate(f))
+                .mapToInt(f -> Integer.parseInt(f.getID().substring(typeName.length() + 1)))
+                .toArray();
+    }
+
+    void assertQuery(Filter filter) throws Exception {
+        List<SimpleFeature> result = read(new Query(typeName, filter), true);
+        int[] expected = matching(filter);
+        assertTrue(expected.length > 0);
+        assertEquals(expected.length, result.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(typeName + "." + expected[i], result.get(i).getID());
+        }
+    }
+
+    @Test
+    public void testIndexer() throws Exception {
+        ShapeFileIndexer indexer = new ShapeFileIndexer();
+        indexer.setShapeFileName(store.shpFiles);
+        // missing and date columns are skipped
+        assertEquals(SIZE, indexer.indexAttributes("id", "code", "value", "missing", "day"));
+
+        MappedRegionManager manager = MappedRegionManager.getInstance();
+        long mapped = manager.getMappedBytes();
+        AttributeIndex index = AttributeIndex.open(store.shpFiles, store.indexManager.writer);
+        try {
+            // mapped through the shared regions
+            File aix = URLs.urlToFile(new URL(store.shpFiles.get(ShpFileType.AIX)));
+            assertEquals(mapped + aix.length(), manager.getMappedBytes());
+            assertIndex(index);
+        } finally {
+            index.close();
+        }
+        // writing the file unmaps the released index
+        store.shpFiles.unlockWrite(
+                store.shpFiles.acquireWrite(ShpFileType.AIX, store.indexManager.writer),
+                store.indexManager.writer);
+        assertEquals(mapped, manager.getMappedBytes());
+    }
+
+    void assertIndex(AttributeIndex index) throws Exception {
+        assertEquals(SIZE, index.getNumRecords());
+        assertArrayEquals(new int[] {0, 1, 2}, index.getFields());
+        assertEquals("code", index.getFieldName(1));
+        assertTrue(index.isNumeric(0));
+        assertFalse(index.isNumeric(1));
+        assertFalse(index.isIndexed(3));
+
+        assertArrayEquals(new int[] {43}, index.searchEqual(0, 42));
+        assertArrayEquals(
+                matching(ff.equals(ff.property("code"), ff.literal("c5"))),
+                index.searchEqual(1, "c5"));
+        assertArrayEquals(
+                matching(ff.between(ff.property("value"), ff.literal(-0.5), ff.literal(0.5))),
+                index.searchRange(2, -0.5, 0.5));
+        assertEquals(0, index.searchEqual(1, "missing").length);
+        // character columns do not support ranges
+        assertNull(index.searchRange(1, 0, 1));
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        store.setIndexedAttributes("id", "code", "value");
+        assertFalse(store.shpFiles.exists(ShpFileType.AIX));
+
+        assertQuery(ff.equals(ff.property("code"), ff.literal("c3")));
+        // built on first use
+        assertTrue(store.shpFiles.exists(ShpFileType.AIX));
+        assertQuery(ff.equals(ff.literal(12), ff.property("id")));
+        assertQuery(ff.equals(ff.property("value"), ff.literal("0.5")));
+        assertQuery(ff.less(ff.property("value"), ff.literal(-1.5)));
+        assertQuery(ff.greaterOrEqual(ff.literal(-1), ff.property("value")));
+        assertQuery(ff.between(ff.property("id"), ff.literal(100), ff.literal(200)));
+        assertQuery(
+                ff.or(
+                        ff.equals(ff.property("code"), ff.literal("c3")),
+                        ff.equals(ff.property("code"), ff.literal("c7"))));
+        assertQuery(
+                ff.equals(
+                        ff.function(
+                                "in",
+                                ff.property("code"),
+                                ff.literal("c1"),
+                                ff.literal("c2"),
+                                ff.literal("nope")),
+                        ff.literal(true)));
+        // the day is not indexed, the other part of the and is
+        assertQuery(
+                ff.and(
+                        ff.equals(ff.property("code"), ff.literal("c3")),
+                        ff.not(ff.isNull(ff.property("day")))));
+
+        // not usable, full scans
+        Filter notIndexed = ff.not(ff.isNull(ff.property("day")));
+        assertEquals(
+                matching(notIndexed).length, read(new Query(typeName, notIndexed), false).size());
+        Filter noCase = ff.equal(ff.property("code"), ff.literal("C3"), false);
+        assertEquals(matching(noCase).length, read(new Query(typeName, noCase), false).size());
+        Filter or =
+                ff.or(
+                        ff.equals(ff.property("code"), ff.literal("c3")),
+                        ff.not(ff.isNull(ff.property("day"))));
+        assertEquals(matching(or).length, read(new Query(typeName, or), false).size());
+    }
+
+    @Test
+    public void testSpatialIntersection() throws Exception {
+        IndexManager indexManager = store.indexManager;
+        store.setIndexedAttributes("code");
+        assertTrue(indexManager.createHilbertIndex(true));
+
+        Filter filter = ff.equals(ff.property("code"), ff.literal("c3"));
+        int[] records = indexManager.searchAttributeIndex(filter);
+        assertArrayEquals(matching(filter), records);
+
+        Envelope bbox = new Envelope(10, 30, 5, 20);
+        List<Integer> expected = new ArrayList<>();
+        for (int recno : records) {
+            Point point = (Point) features.get(recno - 1).getDefaultGeometry();
+            if (bbox.contains(point.getCoordinate())) {
+                expected.add(recno);
+            }
+        }
+        assertFalse(expected.isEmpty());
+
+        List<Integer> found = new ArrayList<>();
+        long lastOffset = -1;
+        try (CloseableIterator<Data> it =
+                indexManager.queryAttributeIndex(records, indexManager.querySpatialIndex(bbox))) {
+            while (it.hasNext()) {
+                Data data = it.next();
+                found.add((Integer) data.getValue(0));
+                long offset = (Long) data.getValue(1);
+                assertTrue(offset > lastOffset);
+                lastOffset = offset;
+            }
+        }
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void testRebuildAndDrop() throws Exception {
+        IndexManager indexManager = store.indexManager;
+        long mapped = MappedRegionManager.getInstance().getMappedBytes();
+        store.setIndexedAttributes("code", "day");
+        AttributeIndex index = indexManager.getAttributeIndex();
+        assertNotNull(index);
+        assertArrayEquals(new int[] {1}, index.getFields());
+        // the date cannot be indexed, and is not tried again
+        assertEquals(Arrays.asList("day"), new ArrayList<>(indexManager.unindexableAttributes));
+        assertTrue(index == indexManager.getAttributeIndex());
+
+        // more attributes, the existing ones are kept
+        store.setIndexedAttributes("id");
+        index = indexManager.getAttributeIndex();
+        assertArrayEquals(new int[] {0, 1}, index.getFields());
+
+        // without index creation the index is used as is
+        store.setIndexCreationEnabled(false);
+        store.setIndexedAttributes("value");
+        assertArrayEquals(new int[] {0, 1}, indexManager.getAttributeIndex().getFields());
+
+        // writing drops the index
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+            SimpleFeature feature = writer.next();
+            feature.setAttribute("id", SIZE);
+            writer.write();
+        }
+        assertFalse(store.shpFiles.exists(ShpFileType.AIX));
+        assertNull(indexManager.getAttributeIndex());
+        // the index has been released and unmapped before deleting the file
+        assertEquals(mapped, MappedRegionManager.getInstance().getMappedBytes());
+    }
+}
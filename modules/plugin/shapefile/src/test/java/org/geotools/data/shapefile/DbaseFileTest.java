@@ -17,9 +17,11 @@
 package org.geotools.data.shapefile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -100,6 +102,36 @@ public class DbaseFileTest extends TestCaseSupport {
         dbf2.close();
     }
 
+    @Test
+    public void testProjection() throws Exception {
+        int[] fields = {0, 4, 5, 100, 251};
+        DbaseFileReader projected =
+                new DbaseFileReader(shpFiles, false, ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        projected.setProjection(fields);
+        byte[] record = new byte[dbf.getHeader().getRecordLength() - 1];
+        Object[] attrs = new Object[dbf.getHeader().getNumFields()];
+        try {
+            while (dbf.hasNext()) {
+                dbf.readEntry(attrs);
+                DbaseFileReader.Row row = projected.readRow();
+                projected.copyRecord(record);
+                for (int field : fields) {
+                    assertEquals(attrs[field], row.read(field));
+                    assertEquals(attrs[field], projected.readField(record, field));
+                }
+                try {
+                    row.read(1);
+                    fail("Field 1 is not part of the projection");
+                } catch (IllegalStateException e) {
+                    // fine
+                }
+            }
+            assertFalse(projected.hasNext());
+        } finally {
+            projected.close();
+        }
+    }
+
     @Test
     public void testHeader() throws Exception {
         DbaseFileHeader header = new DbaseFileHeader();
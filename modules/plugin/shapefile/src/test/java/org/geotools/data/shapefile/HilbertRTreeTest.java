@@ -0,0 +1,246 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.files.MappedRegionManager;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTree;
+import org.geotools.data.shapefile.index.hilbert.HilbertRTreeBuilder;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.geotools.util.URLs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class HilbertRTreeTest extends TestCaseSupport {
+
+    static final int SIZE = 5000;
+
+    ShapefileDataStore store;
+
+    File file;
+
+    /** The envelopes of the records, null for the null shapes */
+    List<Envelope> envelopes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        file = getTempFile();
+        store = new ShapefileDataStore(file.toURI().toURL());
+        store.createSchema(DataUtilities.createType("boxes", "the_geom:MultiPolygon,id:Integer"));
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(42);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+            for (int i = 0; i < SIZE; i++) {
+                SimpleFeature feature = writer.next();
+                if (i % 100 != 7) {
+                    double x = random.nextDouble() * 360 - 180;
+                    double y = random.nextDouble() * 180 - 90;
+                    double size = random.nextDouble() * 2;
+                    Envelope envelope = new Envelope(x, x + size, y, y + size);
+                    Polygon polygon = (Polygon) gf.toGeometry(envelope);
+                    feature.setAttribute(
+                            "the_geom", gf.createMultiPolygon(new Polygon[] {polygon}));
+                    envelopes.add(envelope);
+                } else {
+                    envelopes.add(null);
+                }
+                feature.setAttribute("id", i);
+                writer.write();
+            }
+        }
+    }
+
+    @After
+    public void disposeStore() {
+        store.dispose();
+    }
+
+    void build(File target, int nodeSize, int sortChunkSize) throws Exception {
+        ShapefileReader reader =
+                new ShapefileReader(store.shpFiles, true, false, new GeometryFactory());
+        IndexFile shx = new IndexFile(store.shpFiles, false);
+        try {
+            HilbertRTreeBuilder builder = new HilbertRTreeBuilder();
+            builder.setNodeSize(nodeSize);
+            builder.setSortChunkSize(sortChunkSize);
+            assertEquals(SIZE - SIZE / 100, builder.build(reader, shx, target));
+        } finally {
+            shx.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        File target = URLs.urlToFile(new URL(store.shpFiles.get(ShpFileType.HRT)));
+        // small chunks, to exercise the external merge
+        build(target, 4, 333);
+        MappedRegionManager manager = MappedRegionManager.getInstance();
+        long mapped = manager.getMappedBytes();
+        HilbertRTree tree = HilbertRTree.open(store.shpFiles, store.indexManager.writer);
+        try {
+            // mapped through the shared regions
+            assertEquals(mapped + target.length(), manager.getMappedBytes());
+            assertSearch(tree);
+        } finally {
+            tree.close();
+        }
+        // writing the file unmaps the released tree
+        store.shpFiles.unlockWrite(
+                store.shpFiles.acquireWrite(ShpFileType.HRT, store.indexManager.writer),
+                store.indexManager.writer);
+        assertEquals(mapped, manager.getMappedBytes());
+    }
+
+    void assertSearch(HilbertRTree tree) throws Exception {
+        assertEquals(SIZE - SIZE / 100, tree.getNumItems());
+        assertEquals(4, tree.getNodeSize());
+
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Envelope bbox = new Envelope(x, x + 10, y, y + 5);
+
+            Set<Integer> expected = new HashSet<>();
+            for (int j = 0; j < envelopes.size(); j++) {
+                if (envelopes.get(j) != null && envelopes.get(j).intersects(bbox)) {
+                    expected.add(j + 1);
+                }
+            }
+
+            HilbertRTree.SearchResult result = tree.search(bbox);
+            assertEquals(expected.size(), result.size());
+            Set<Integer> found = new HashSet<>();
+            long lastOffset = -1;
+            while (result.hasNext()) {
+                Data data = result.next();
+                found.add((Integer) data.getValue(0));
+                long offset = (Long) data.getValue(1);
+                // sorted by position in the .shp file
+                assertTrue(offset > lastOffset);
+                lastOffset = offset;
+            }
+            assertEquals(expected, found);
+            // only a fraction of the tree has been visited
+            assertTrue(result.getNodesVisited() < tree.getNumItems() / 4);
+        }
+
+        // the offsets point to the records
+        ShapefileReader reader =
+                new ShapefileReader(store.shpFiles, true, false, new GeometryFactory());
+        try {
+            HilbertRTree.SearchResult result = tree.search(new Envelope(0, 20, 0, 20));
+            assertTrue(result.hasNext());
+            while (result.hasNext()) {
+                Data data = result.next();
+                reader.goTo(((Long) data.getValue(1)).intValue());
+                Record record = reader.nextRecord();
+                assertEquals(((Integer) data.getValue(0)).intValue(), record.number);
+                assertTrue(record.type != ShapeType.NULL);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testExternalSortMatchesInMemory() throws Exception {
+        File external = File.createTempFile("hilbert", ".hrt");
+        external.deleteOnExit();
+        File memory = File.createTempFile("hilbert", ".hrt");
+        memory.deleteOnExit();
+        build(external, 16, 100);
+        build(memory, 16, SIZE);
+        assertArrayEquals(
+                Files.readAllBytes(memory.toPath()), Files.readAllBytes(external.toPath()));
+    }
+
+    @Test
+    public void testDataStoreQuery() throws Exception {
+        IndexManager indexManager = store.indexManager;
+        MappedRegionManager manager = MappedRegionManager.getInstance();
+        long mapped = manager.getMappedBytes();
+        assertTrue(indexManager.createHilbertIndex(true));
+        assertTrue(store.shpFiles.exists(ShpFileType.HRT));
+        assertTrue(indexManager.isSpatialIndexAvailable());
+
+        Envelope bbox = new Envelope(-20, 15, -10, 12);
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < envelopes.size(); i++) {
+            if (envelopes.get(i) != null && envelopes.get(i).intersects(bbox)) {
+                expected.add(i + 1);
+            }
+        }
+        Set<Integer> found = new HashSet<>();
+        try (CloseableIterator<Data> it = indexManager.querySpatialIndex(bbox)) {
+            assertTrue(it instanceof HilbertRTree.SearchResult);
+            while (it.hasNext()) {
+                found.add((Integer) it.next().getValue(0));
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+        assertNotNull(indexManager.getHilbertTree());
+        // the quad tree has not been needed
+        assertFalse(store.shpFiles.exists(ShpFileType.QIX));
+        // whole file queries do not use the index
+        assertNull(indexManager.querySpatialIndex(new Envelope(-200, 200, -100, 100)));
+
+        // modifying the shapefile drops the index
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+            SimpleFeature feature = writer.next();
+            feature.setAttribute("id", SIZE);
+            writer.write();
+        }
+        assertFalse(store.shpFiles.exists(ShpFileType.HRT));
+        assertNull(indexManager.getHilbertTree());
+        // the tree has been released and unmapped before deleting the file
+        assertEquals(mapped, manager.getMappedBytes());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.files.FileReader;
+import org.geotools.data.shapefile.files.MappedRegionManager;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.util.NIOUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class MappedRegionManagerTest extends TestCaseSupport {
+
+    MappedRegionManager manager = MappedRegionManager.getInstance();
+
+    long budget;
+
+    /** The bytes mapped by other tests, still in use */
+    long baseline;
+
+    ShpFiles files;
+
+    @Before
+    public void setUp() throws Exception {
+        budget = manager.getBudget();
+        // evict whatever other tests left behind
+        manager.setBudget(0);
+        manager.setBudget(Long.MAX_VALUE);
+        baseline = manager.getMappedBytes();
+        files = new ShpFiles(copyShapefiles(STATE_POP));
+        files.setMemoryMapCacheEnabled(true);
+    }
+
+    @After
+    public void restoreBudget() {
+        files.dispose();
+        manager.setBudget(budget);
+    }
+
+    int read(ShapefileReader reader) throws Exception {
+        int count = 0;
+        try {
+            while (reader.hasNext()) {
+                reader.nextRecord().shape();
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    ShapefileReader open() throws Exception {
+        return new ShapefileReader(files, true, true, new GeometryFactory());
+    }
+
+    @Test
+    public void testSharedRegions() throws Exception {
+        long hits = manager.getHits();
+        long misses = manager.getMisses();
+        ShapefileReader first = open();
+        long mapped = manager.getMappedBytes() - baseline;
+        assertTrue(mapped > 0);
+        assertTrue(manager.getMisses() > misses);
+
+        // the second reader uses the same regions
+        ShapefileReader second = open();
+        assertEquals(mapped, manager.getMappedBytes() - baseline);
+        assertTrue(manager.getHits() > hits);
+        assertTrue(manager.getHitRate() > 0);
+        assertEquals(49, read(first));
+        assertEquals(49, read(second));
+
+        // released regions stay cached within the budget
+        assertEquals(mapped, manager.getMappedBytes() - baseline);
+        long evictions = manager.getEvictions();
+        manager.setBudget(0);
+        assertEquals(baseline, manager.getMappedBytes());
+        assertTrue(manager.getEvictions() > evictions);
+    }
+
+    @Test
+    public void testRegionsInUseAreNotEvicted() throws Exception {
+        manager.setBudget(0);
+        ShapefileReader first = open();
+        ShapefileReader second = open();
+        assertTrue(manager.getMappedBytes() > baseline);
+        assertEquals(49, read(first));
+        // still used by the second reader
+        assertTrue(manager.getMappedBytes() > baseline);
+        assertEquals(49, read(second));
+        assertEquals(baseline, manager.getMappedBytes());
+    }
+
+    @Test
+    public void testDisposeReleases() throws Exception {
+        manager.setBudget(0);
+        open();
+        assertTrue(manager.getMappedBytes() > baseline);
+        // the reader was never closed, disposing the files releases its regions anyways
+        files.dispose();
+        assertEquals(baseline, manager.getMappedBytes());
+    }
+
+    @Test
+    public void testWriteInvalidatesRegions() throws Exception {
+        ShapefileDataStore store = new ShapefileDataStore(getTempFile().toURI().toURL());
+        try {
+            store.createSchema(DataUtilities.createType("points", "the_geom:Point,id:Integer"));
+            GeometryFactory gf = new GeometryFactory();
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                    store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+                for (int i = 0; i < 10; i++) {
+                    SimpleFeature feature = writer.next();
+                    feature.setAttribute("the_geom", gf.createPoint(new Coordinate(i, i)));
+                    feature.setAttribute("id", i);
+                    writer.write();
+                }
+            }
+            store.setMemoryMapped(true);
+            assertTrue(store.isBufferCachingEnabled());
+            Query query = new Query(store.getTypeNames()[0]);
+            assertEquals(10, count(store.getFeatureReader(query, Transaction.AUTO_COMMIT)));
+            assertTrue(manager.getMappedBytes() > baseline);
+
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                    store.getFeatureWriter(Transaction.AUTO_COMMIT)) {
+                writer.next();
+                writer.remove();
+            }
+            // the regions of the old files are gone, the new ones are mapped from scratch
+            assertEquals(baseline, manager.getMappedBytes());
+            assertEquals(9, count(store.getFeatureReader(query, Transaction.AUTO_COMMIT)));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void testCleanLeavesSharedRegions() throws Exception {
+        manager.setBudget(0);
+        FileReader requestor = () -> "test";
+        FileChannel first = (FileChannel) files.getReadChannel(ShpFileType.DBF, requestor);
+        FileChannel second = (FileChannel) files.getReadChannel(ShpFileType.DBF, requestor);
+        try {
+            ByteBuffer firstBuffer = first.map(MapMode.READ_ONLY, 0, first.size());
+            ByteBuffer secondBuffer = second.map(MapMode.READ_ONLY, 0, second.size());
+            assertTrue(manager.isLeased(secondBuffer));
+            long mapped = manager.getMappedBytes();
+
+            // a reader remapping its buffer cleans the old one, the region stays mapped
+            NIOUtilities.clean(secondBuffer);
+            NIOUtilities.clean(secondBuffer, true);
+            assertEquals(mapped, manager.getMappedBytes());
+            byte header = firstBuffer.get(0);
+            second.close();
+            assertFalse(manager.isLeased(secondBuffer));
+            assertEquals(mapped, manager.getMappedBytes());
+            assertEquals(header, firstBuffer.get(0));
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertEquals(baseline, manager.getMappedBytes());
+    }
+
+    @Test
+    public void testConcurrentReadersClosing() throws Exception {
+        manager.setBudget(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> reading =
+                    executor.submit(
+                            () -> {
+                                int count = 0;
+                                for (int i = 0; i < 20; i++) {
+                                    DbaseFileReader reader = openDbf();
+                                    try {
+                                        while (reader.hasNext()) {
+                                            reader.readEntry();
+                                            count++;
+                                        }
+                                    } finally {
+                                        reader.close();
+                                    }
+                                }
+                                return count;
+                            });
+            // open and close other readers of the same regions while the first one is reading
+            while (!reading.isDone()) {
+                DbaseFileReader reader = openDbf();
+                reader.readEntry();
+                reader.close();
+            }
+            assertEquals(20 * 49, (int) reading.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(baseline, manager.getMappedBytes());
+    }
+
+    DbaseFileReader openDbf() throws Exception {
+        return new DbaseFileReader(files, true, Charset.defaultCharset());
+    }
+
+    @Test
+    public void testCacheDisabled() throws Exception {
+        files.setMemoryMapCacheEnabled(false);
+        long misses = manager.getMisses();
+        assertEquals(49, read(open()));
+        assertEquals(misses, manager.getMisses());
+        assertEquals(baseline, manager.getMappedBytes());
+    }
+
+    int count(FeatureReader<SimpleFeatureType, SimpleFeature> reader) throws Exception {
+        int count = 0;
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.geotools.TestData;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DelegatingFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.util.factory.Hints;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+public class ParallelShapefileReadTest extends TestCaseSupport {
+
+    static final int SIZE = 60000;
+
+    ShapefileDataStore store;
+
+    String typeName;
+
+    Query all;
+
+    @Before
+    public void setUp() throws Exception {
+        File file = getTempFile();
+        store = new ShapefileDataStore(file.toURI().toURL());
+        store.createSchema(
+                DataUtilities.createType(
+                        "parcels", "the_geom:Point,id:Integer,name:String,value:Double"));
+        GeometryFactory gf = new GeometryFactory();
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer =
+                store.getFeatureWriterAppend(Transaction.AUTO_COMMIT)) {
+            for (int i = 0; i < SIZE; i++) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute("the_geom", gf.createPoint(new Coordinate(i % 360, i % 90)));
+                feature.setAttribute("id", i);
+                feature.setAttribute("name", "n" + (i % 13));
+                feature.setAttribute("value", (i % 1000) / 1000d);
+                writer.write();
+            }
+        }
+        typeName = store.getTypeNames()[0];
+        all = new Query(typeName);
+    }
+
+    @After
+    public void disposeStore() {
+        store.dispose();
+    }
+
+    ShapefileFeatureSource getSource() throws Exception {
+        return ((ShapefileFeatureStore) store.getFeatureSource()).delegate;
+    }
+
+    List<SimpleFeature> read(FeatureReader<SimpleFeatureType, SimpleFeature> reader)
+            throws Exception {
+        List<SimpleFeature> features = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                features.add(reader.next());
+            }
+        } finally {
+            reader.close();
+        }
+        return features;
+    }
+
+    List<SimpleFeature> readSequentially(Query query) throws Exception {
+        return read(getSource().getSequentialReader(query));
+    }
+
+    void assertSameFeatures(List<SimpleFeature> expected, List<SimpleFeature> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getID(), actual.get(i).getID());
+            assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+        }
+    }
+
+    @Test
+    public void testRanges() throws Exception {
+        ShapefileRangeAccess access = getSource().getRangeAccess(all);
+        assertEquals(SIZE, access.getRangeSize());
+
+        List<SimpleFeature> features = new ArrayList<>();
+        int[] bounds = {0, 1, 1000, 1000, 33333, SIZE};
+        for (int i = 1; i < bounds.length; i++) {
+            features.addAll(read(access.reader(bounds[i - 1], bounds[i])));
+        }
+        assertSameFeatures(readSequentially(all), features);
+
+        try (SimpleFeatureIterator it = access.features(SIZE - 10, SIZE)) {
+            int count = 0;
+            while (it.hasNext()) {
+                assertEquals(typeName + "." + (SIZE - 9 + count++), it.next().getID());
+            }
+            assertEquals(10, count);
+        }
+    }
+
+    @Test
+    public void testRangesFiltered() throws Exception {
+        Query query = new Query(typeName, ff.greater(ff.property("value"), ff.literal(0.99)));
+        query.setPropertyNames(new String[] {"id"});
+        ShapefileRangeAccess access = getSource().getRangeAccess(query);
+        List<SimpleFeature> features = new ArrayList<>();
+        features.addAll(read(access.reader(0, 12345)));
+        features.addAll(read(access.reader(12345, SIZE)));
+        assertEquals(SIZE / 1000 * 9, features.size());
+        assertSameFeatures(readSequentially(query), features);
+        assertEquals(1, features.get(0).getAttributeCount());
+
+        // spatial index queries are not split in ranges
+        Query bbox = new Query(typeName, ff.bbox("", 0, 0, 10, 10, null));
+        assertNull(getSource().getRangeAccess(bbox));
+    }
+
+    @Test
+    public void testParallelReaderOrdered() throws Exception {
+        store.setParallelReadThreads(3);
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                store.getFeatureReader(all, Transaction.AUTO_COMMIT);
+        assertTrue(unwrap(reader) instanceof ParallelShapefileFeatureReader);
+        assertSameFeatures(readSequentially(all), read(reader));
+        assertEquals(0, store.shpFiles.numberOfLocks());
+    }
+
+    @Test
+    public void testParallelReaderUnordered() throws Exception {
+        store.setParallelReadThreads(3);
+        store.setParallelReadOrdered(false);
+        Query query = new Query(typeName, ff.equals(ff.property("name"), ff.literal("n7")));
+        List<SimpleFeature> expected = readSequentially(query);
+        Set<String> expectedIds = new HashSet<>();
+        expected.forEach(f -> expectedIds.add(f.getID()));
+
+        List<SimpleFeature> features = read(store.getFeatureReader(query, Transaction.AUTO_COMMIT));
+        Set<String> ids = new HashSet<>();
+        features.forEach(f -> ids.add(f.getID()));
+        assertEquals(expected.size(), features.size());
+        assertEquals(expectedIds, ids);
+        assertEquals(0, store.shpFiles.numberOfLocks());
+    }
+
+    @Test
+    public void testParallelReaderEarlyClose() throws Exception {
+        store.setParallelReadThreads(4);
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                store.getFeatureReader(all, Transaction.AUTO_COMMIT);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(typeName + "." + (i + 1), reader.next().getID());
+        }
+        reader.close();
+        assertFalse(reader.hasNext());
+        // all range readers have released the files
+        assertEquals(0, store.shpFiles.numberOfLocks());
+    }
+
+    @Test
+    public void testInjectedExecutor() throws Exception {
+        store.setParallelReadThreads(3);
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor =
+                new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+                    @Override
+                    protected void beforeExecute(Thread t, Runnable r) {
+                        tasks.incrementAndGet();
+                    }
+                };
+        try {
+            Query query = new Query(all);
+            query.setHints(new Hints(Hints.EXECUTOR_SERVICE, executor));
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                    store.getFeatureReader(query, Transaction.AUTO_COMMIT);
+            assertTrue(unwrap(reader) instanceof ParallelShapefileFeatureReader);
+            assertSameFeatures(readSequentially(all), read(reader));
+            assertTrue(tasks.get() > 0);
+            assertEquals(0, store.shpFiles.numberOfLocks());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaturatedExecutor() throws Exception {
+        store.setParallelReadThreads(3);
+        // all threads busy and tasks waiting, read sequentially
+        ThreadPoolExecutor busy =
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            busy.execute(
+                    () -> {
+                        started.countDown();
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+            busy.execute(() -> {});
+            started.await();
+            Query query = new Query(all);
+            query.setHints(new Hints(Hints.EXECUTOR_SERVICE, busy));
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                    store.getFeatureReader(query, Transaction.AUTO_COMMIT);
+            assertFalse(unwrap(reader) instanceof ParallelShapefileFeatureReader);
+            assertEquals(SIZE, read(reader).size());
+        } finally {
+            latch.countDown();
+            busy.shutdown();
+        }
+
+        // rejected ranges are read by the consumer
+        ExecutorService rejecting =
+                new AbstractExecutorService() {
+                    @Override
+                    public void execute(Runnable command) {
+                        throw new RejectedExecutionException();
+                    }
+
+                    @Override
+                    public void shutdown() {}
+
+                    @Override
+                    public List<Runnable> shutdownNow() {
+                        return Collections.emptyList();
+                    }
+
+                    @Override
+                    public boolean isShutdown() {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean isTerminated() {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean awaitTermination(long timeout, TimeUnit unit) {
+                        return false;
+                    }
+                };
+        for (boolean ordered : new boolean[] {true, false}) {
+            store.setParallelReadOrdered(ordered);
+            Query query = new Query(all);
+            query.setHints(new Hints(Hints.EXECUTOR_SERVICE, rejecting));
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                    store.getFeatureReader(query, Transaction.AUTO_COMMIT);
+            assertTrue(unwrap(reader) instanceof ParallelShapefileFeatureReader);
+            assertSameFeatures(readSequentially(all), read(reader));
+            assertEquals(0, store.shpFiles.numberOfLocks());
+        }
+    }
+
+    @Test
+    public void testSmallFilesSequential() throws Exception {
+        store.setParallelReadThreads(4);
+        Query query = new Query(typeName, ff.less(ff.property("id"), ff.literal(10)));
+        // the filter is not used to estimate the size, so this is still read in parallel
+        assertEquals(10, read(store.getFeatureReader(query, Transaction.AUTO_COMMIT)).size());
+
+        ShapefileDataStore small = new ShapefileDataStore(TestData.url(STATE_POP));
+        small.setParallelReadThreads(4);
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                small.getFeatureReader(new Query("statepop"), Transaction.AUTO_COMMIT);
+        assertFalse(unwrap(reader) instanceof ParallelShapefileFeatureReader);
+        assertEquals(49, read(reader).size());
+        small.dispose();
+    }
+
+    @Test
+    public void testParallelVisit() throws Exception {
+        ShapefileFeatureSource source = getSource();
+        Query query = new Query(typeName, ff.less(ff.property("value"), ff.literal(0.5)));
+        // not enabled by default
+        assertFalse(source.handleVisitor(query, new CountVisitor()));
+
+        store.setParallelReadThreads(4);
+        SumVisitor sum = new SumVisitor("id", source.getSchema());
+        assertTrue(source.handleVisitor(query, sum));
+        long expected = 0;
+        for (SimpleFeature f : readSequentially(query)) {
+            expected += (Integer) f.getAttribute("id");
+        }
+        assertEquals(expected, sum.getResult().toLong());
+
+        CountVisitor count = new CountVisitor();
+        store.getFeatureSource().getFeatures(Filter.INCLUDE).accepts(count, null);
+        assertEquals(SIZE, count.getCount());
+
+        // paging needs the sequential path
+        Query paged = new Query(query);
+        paged.setMaxFeatures(10);
+        assertFalse(source.handleVisitor(paged, new CountVisitor()));
+    }
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> unwrap(
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+        while (reader instanceof DelegatingFeatureReader) {
+            reader =
+                    ((DelegatingFeatureReader<SimpleFeatureType, SimpleFeature>) reader)
+                            .getDelegate();
+        }
+        return reader;
+    }
+}
@@ -1046,6 +1046,54 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         assertEquals(21, count);
     }
 
+    @Test
+    public void testAttributeFilters() throws Exception {
+        ShapefileDataStore ds = new ShapefileDataStore(TestData.url(STATE_POP));
+        SimpleFeatureSource fs = ds.getFeatureSource();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        List<Filter> filters =
+                Arrays.asList(
+                        ff.greater(ff.property("PERSONS"), ff.literal(3000000)),
+                        ff.and(
+                                ff.like(ff.property("STATE_NAME"), "N*"),
+                                ff.lessOrEqual(ff.property("PERSONS"), ff.literal(2000000))),
+                        ff.and(
+                                ff.bbox("", -100, 30, -80, 45, null),
+                                ff.not(
+                                        ff.equals(
+                                                ff.property("SUB_REGION"), ff.literal("Pacific")))),
+                        ff.or(
+                                ff.id(ff.featureId("statepop.3")),
+                                ff.between(
+                                        ff.property("PERSONS"), ff.literal(1), ff.literal(1e6))));
+        List<SimpleFeature> all = DataUtilities.list(fs.getFeatures());
+        for (Filter filter : filters) {
+            Set<String> expected = new HashSet<>();
+            for (SimpleFeature f : all) {
+                if (filter.evaluate(f)) {
+                    expected.add(f.getID());
+                }
+            }
+            Set<String> actual = new HashSet<>();
+            try (SimpleFeatureIterator it = fs.getFeatures(filter).features()) {
+                while (it.hasNext()) {
+                    actual.add(it.next().getID());
+                }
+            }
+            assertFalse(expected.isEmpty());
+            assertEquals(filter.toString(), expected, actual);
+        }
+        ds.dispose();
+
+        // rows deleted in the dbf are skipped also when filtering on attributes
+        URL u = TestData.url(TestCaseSupport.class, "deleted/archsites.dbf");
+        ds = new ShapefileDataStore(u);
+        String attribute = ds.getSchema().getDescriptor(1).getLocalName();
+        Filter filter = ff.not(ff.isNull(ff.property(attribute)));
+        assertEquals(21, DataUtilities.list(ds.getFeatureSource().getFeatures(filter)).size());
+        ds.dispose();
+    }
+
     /**
      * Creates feature collection with all the stuff we care about from simple types, to Geometry
      * and date.
@@ -39,6 +39,7 @@ import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.data.util.HierarchicalScreenMap;
 import org.geotools.data.util.ScreenMap;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.DefaultFeatureCollection;
@@ -353,6 +354,50 @@ public class ShapefileTest extends TestCaseSupport {
         reader.close();
     }
 
+    @Test
+    public void testHierarchicalScreenMapCovered() throws Exception {
+        URL shpUrl = TestData.url(STATEPOP);
+        ShapefileDataStore ds = new ShapefileDataStore(shpUrl);
+
+        // a fully painted map
+        HierarchicalScreenMap screenMap = new HierarchicalScreenMap(-180, -90, 360, 180);
+        screenMap.setSpans(0.1, 0.1);
+        screenMap.setTransform(IdentityTransform.create(2));
+        for (int x = -180; x < 180; x++) {
+            for (int y = -90; y < 90; y++) {
+                screenMap.set(x, y, true);
+            }
+        }
+        assertEquals(0, countScreenMapFeatures(ds, screenMap));
+
+        // the flat screenmap does not skip features larger than a pixel
+        ScreenMap flatMap = new ScreenMap(-180, -90, 360, 180);
+        flatMap.setSpans(0.1, 0.1);
+        flatMap.setTransform(IdentityTransform.create(2));
+        for (int x = -180; x < 180; x++) {
+            for (int y = -90; y < 90; y++) {
+                flatMap.set(x, y, true);
+            }
+        }
+        assertEquals(49, countScreenMapFeatures(ds, flatMap));
+        ds.dispose();
+    }
+
+    private int countScreenMapFeatures(ShapefileDataStore ds, ScreenMap screenMap)
+            throws IOException {
+        int count = 0;
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                ds.getFeatureReader(new Query(ds.getTypeNames()[0]), Transaction.AUTO_COMMIT)) {
+            ((ShapefileFeatureReader) reader).setScreenMap(screenMap);
+            ((ShapefileFeatureReader) reader).setSimplificationDistance(0.1);
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
     @Test
     public void testScreenMapWithDeletedRow() throws Exception {
         // test screen map optimization without filterBeforeScreenMap enhancement
@@ -24,7 +24,9 @@ import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import org.junit.Test;
 
 public class DbaseFileReaderTest {
@@ -60,4 +62,66 @@ public class DbaseFileReaderTest {
         assertThat(records.get(98289L), nullValue());
         assertThat(records.get(98245L), nullValue()); // this fails with 0.0
     }
+
+    @Test
+    public void testParseNumbers() throws Exception {
+        String[] doubles = {
+            "5.210000000",
+            "  -0.000000",
+            "0.5",
+            "-.25",
+            "+12.",
+            "   143986.61",
+            "123456789012345",
+            "0.0000000000000000000001",
+            "90071992547.0993"
+        };
+        for (String value : doubles) {
+            assertThat(value, parseDouble(value), is(Double.parseDouble(value)));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            String value = String.format(Locale.US, "%20.6f", random.nextGaussian() * 1e6);
+            assertThat(value, parseDouble(value), is(Double.parseDouble(value)));
+        }
+        // left to the lenient parser
+        String[] others = {
+            "1e5",
+            "NaN",
+            "",
+            "   ",
+            "-",
+            ".",
+            "1.2.3",
+            "1,5",
+            "9007199254740.993",
+            "1.7976931348623157"
+        };
+        for (String value : others) {
+            assertThat(value, Double.isNaN(parseDouble(value)), is(true));
+        }
+
+        assertThat(parseLong("  98245"), is(98245L));
+        assertThat(parseLong("-2147483649 "), is(-2147483649L));
+        assertThat(parseLong("+7"), is(7L));
+        assertThat(parseLong("123456789012345678"), is(123456789012345678L));
+        assertThat(parseLong("1234567890123456789"), is(DbaseFileReader.NOT_PARSED));
+        assertThat(parseLong("12.0"), is(DbaseFileReader.NOT_PARSED));
+        assertThat(parseLong("   "), is(DbaseFileReader.NOT_PARSED));
+
+        assertThat(DbaseFileReader.parseDigits(bytes("20191017"), 0, 8), is(20191017));
+        assertThat(DbaseFileReader.parseDigits(bytes("2019 017"), 0, 8), is(-1));
+    }
+
+    private double parseDouble(String value) {
+        return DbaseFileReader.parseDouble(bytes(value), 0, value.length());
+    }
+
+    private long parseLong(String value) {
+        return DbaseFileReader.parseLong(bytes(value), 0, value.length());
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
 }
@@ -0,0 +1,287 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files in JSON format (as produced by {@code -rf json}) and flags the
+ * benchmarks whose throughput, time per operation or normalized allocation rate (as reported by the
+ * {@code gc} profiler) got worse by more than a given threshold.
+ *
+ * <p>Can be used stand alone:
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.geotools.benchmarks.BaselineComparison baseline.json current.json 0.1
+ * </pre>
+ *
+ * The process exits with a non zero status if any regression is found, so that it can be used in
+ * continuous integration jobs.
+ *
+ * @author GeoTools
+ */
+public class BaselineComparison {
+
+    /** The default regression threshold, 10% */
+    public static final double DEFAULT_THRESHOLD = 0.1;
+
+    /** The gc profiler metric reporting bytes allocated per operation */
+    static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    /**
+     * Allocation differences below this number of bytes per operation are considered noise (the gc
+     * profiler reports fractional values for allocation free code)
+     */
+    static final double ALLOCATION_SLACK = 16;
+
+    /** A single measured metric, for a given benchmark and parameter combination */
+    public static class Measure {
+        final String benchmark;
+
+        final String metric;
+
+        final String unit;
+
+        final double score;
+
+        final boolean higherIsBetter;
+
+        Measure(
+                String benchmark,
+                String metric,
+                String unit,
+                double score,
+                boolean higherIsBetter) {
+            this.benchmark = benchmark;
+            this.metric = metric;
+            this.unit = unit;
+            this.score = score;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        String getKey() {
+            return benchmark + " " + metric;
+        }
+
+        public String getBenchmark() {
+            return benchmark;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /** The comparison of a metric between baseline and current run */
+    public static class Comparison {
+        final Measure baseline;
+
+        final Measure current;
+
+        final boolean regression;
+
+        Comparison(Measure baseline, Measure current, boolean regression) {
+            this.baseline = baseline;
+            this.current = current;
+            this.regression = regression;
+        }
+
+        /** The relative change, positive values are improvements */
+        public double getChange() {
+            if (baseline.score == 0) {
+                return current.score == 0 ? 0 : (current.higherIsBetter ? 1 : -1);
+            }
+            double change = (current.score - baseline.score) / baseline.score;
+            return current.higherIsBetter ? change : -change;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+        public Measure getBaseline() {
+            return baseline;
+        }
+
+        public Measure getCurrent() {
+            return current;
+        }
+    }
+
+    final double threshold;
+
+    public BaselineComparison() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Builds a new comparison
+     *
+     * @param threshold The relative worsening above which a metric is flagged as a regression, e.g.
+     *     0.1 for 10%
+     */
+    public BaselineComparison(double threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    /** Reads the measures out of a JMH JSON result file */
+    public static List<Measure> read(File file) throws IOException {
+        return read(new ObjectMapper().readTree(file));
+    }
+
+    /** Reads the measures out of a JMH JSON result stream */
+    public static List<Measure> read(InputStream is) throws IOException {
+        return read(new ObjectMapper().readTree(is));
+    }
+
+    static List<Measure> read(JsonNode root) throws IOException {
+        if (root == null || !root.isArray()) {
+            throw new IOException("Not a JMH JSON result, expected a top level array");
+        }
+        List<Measure> result = new ArrayList<>();
+        for (JsonNode run : root) {
+            String benchmark = getBenchmarkId(run);
+            String mode = run.path("mode").asText();
+            JsonNode primary = run.path("primaryMetric");
+            // throughput is the only mode where higher scores are better
+            result.add(
+                    new Measure(
+                            benchmark,
+                            mode,
+                            primary.path("scoreUnit").asText(),
+                            primary.path("score").asDouble(),
+                            "thrpt".equals(mode)));
+
+            JsonNode secondary = run.path("secondaryMetrics");
+            for (Iterator<String> it = secondary.fieldNames(); it.hasNext(); ) {
+                String name = it.next();
+                // the gc profiler prefixes its metrics with a middle dot
+                if (name.endsWith(ALLOCATION_METRIC)) {
+                    JsonNode metric = secondary.get(name);
+                    result.add(
+                            new Measure(
+                                    benchmark,
+                                    ALLOCATION_METRIC,
+                                    metric.path("scoreUnit").asText(),
+                                    metric.path("score").asDouble(),
+                                    false));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Builds a benchmark identifier out of its name and sorted parameters */
+    static String getBenchmarkId(JsonNode run) {
+        StringBuilder sb = new StringBuilder(run.path("benchmark").asText());
+        JsonNode params = run.get("params");
+        if (params != null && params.size() > 0) {
+            Map<String, String> sorted = new TreeMap<>();
+            params.fields().forEachRemaining(e -> sorted.put(e.getKey(), e.getValue().asText()));
+            sb.append(sorted);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Compares the current measures against the baseline ones. Measures that are only available in
+     * one of the two runs are ignored.
+     */
+    public List<Comparison> compare(List<Measure> baseline, List<Measure> current) {
+        Map<String, Measure> baselineMap = new LinkedHashMap<>();
+        for (Measure m : baseline) {
+            baselineMap.put(m.getKey(), m);
+        }
+        List<Comparison> result = new ArrayList<>();
+        for (Measure c : current) {
+            Measure b = baselineMap.get(c.getKey());
+            if (b != null) {
+                result.add(new Comparison(b, c, isRegression(b, c)));
+            }
+        }
+        return result;
+    }
+
+    boolean isRegression(Measure baseline, Measure current) {
+        if (ALLOCATION_METRIC.equals(current.metric)
+                && Math.abs(current.score - baseline.score) < ALLOCATION_SLACK) {
+            return false;
+        }
+        if (current.higherIsBetter) {
+            return current.score < baseline.score * (1 - threshold);
+        } else {
+            return current.score > baseline.score * (1 + threshold);
+        }
+    }
+
+    /** Prints a human readable report, returns the number of regressions found */
+    public int report(List<Comparison> comparisons, PrintStream out) {
+        int regressions = 0;
+        List<Comparison> sorted = new ArrayList<>(comparisons);
+        Collections.sort(sorted, (c1, c2) -> Double.compare(c1.getChange(), c2.getChange()));
+        out.printf("Benchmark comparison, regression threshold %.1f%%%n", threshold * 100);
+        for (Comparison c : sorted) {
+            if (c.isRegression()) {
+                regressions++;
+            }
+            out.printf(
+                    "%s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+                    c.isRegression() ? "REGRESSION" : "ok        ",
+                    c.current.getKey(),
+                    c.baseline.score,
+                    c.current.score,
+                    c.current.unit,
+                    c.getChange() * 100);
+        }
+        out.printf("%d regressions out of %d metrics%n", regressions, comparisons.size());
+        return regressions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: BaselineComparison <baseline.json> <current.json> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        BaselineComparison comparison = new BaselineComparison(threshold);
+        List<Comparison> comparisons =
+                comparison.compare(read(new File(args[0])), read(new File(args[1])));
+        if (comparison.report(comparisons, System.out) > 0) {
+            System.exit(1);
+        }
+    }
+}
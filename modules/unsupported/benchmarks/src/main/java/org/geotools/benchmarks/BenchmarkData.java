@@ -0,0 +1,118 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.geotools.TestData;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.util.URLs;
+
+/**
+ * Locates the shapefiles shipped in the {@code gt-sample-data} module and copies them to a
+ * temporary directory, so that benchmarks can access them as plain files even when the sample data
+ * is packed inside a jar (as it is in the self contained {@code benchmarks.jar}).
+ *
+ * @author GeoTools
+ */
+public final class BenchmarkData {
+
+    /** Polygon layer, the US states */
+    public static final String STATES = "statepop";
+
+    /** Line layer, a stream network */
+    public static final String STREAMS = "streams";
+
+    /** Point layer, archeological sites */
+    public static final String SITES = "archsites";
+
+    static final String[] SHAPEFILE_EXTENSIONS = {"shp", "shx", "dbf", "prj"};
+
+    private BenchmarkData() {}
+
+    /**
+     * Copies the named sample shapefile (all of its sidecar files) in the target directory and
+     * returns the location of the copied {@code .shp} file.
+     *
+     * @param name The shapefile name, without extension
+     * @param directory The target directory
+     */
+    public static File copyShapefile(String name, File directory) throws IOException {
+        for (String extension : SHAPEFILE_EXTENSIONS) {
+            String path = "shapes/" + name + "." + extension;
+            URL url;
+            try {
+                url = TestData.url(path);
+            } catch (FileNotFoundException e) {
+                // not all shapefiles have a .prj
+                if ("prj".equals(extension)) {
+                    continue;
+                }
+                throw e;
+            }
+            try (InputStream is = url.openStream()) {
+                Files.copy(
+                        is,
+                        new File(directory, name + "." + extension).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return new File(directory, name + ".shp");
+    }
+
+    /**
+     * Copies the named sample shapefile in the target directory and opens a {@link
+     * ShapefileDataStore} on it.
+     *
+     * @param name The shapefile name, without extension
+     * @param directory The target directory
+     * @param memoryMapped Whether the store should use memory mapping
+     */
+    public static ShapefileDataStore openShapefile(
+            String name, File directory, boolean memoryMapped) throws IOException {
+        File shp = copyShapefile(name, directory);
+        ShapefileDataStore store = new ShapefileDataStore(URLs.fileToUrl(shp));
+        store.setMemoryMapped(memoryMapped);
+        return store;
+    }
+
+    /** Creates a temporary directory that will be removed on JVM exit */
+    public static File createTempDirectory(String prefix) throws IOException {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    /** Recursively removes a directory created by {@link #createTempDirectory(String)} */
+    public static void delete(File file) {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the GeoTools benchmarks with the {@link GCProfiler} enabled, saves the results in JSON
+ * format and, if a baseline is provided, compares the two using {@link BaselineComparison}.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.geotools.benchmarks.BenchmarkRunner
+ *      [-result result.json] [-baseline baseline.json] [-threshold 0.1] [benchmark regexp ...]
+ * </pre>
+ *
+ * The process exits with status 1 if regressions are found.
+ *
+ * @author GeoTools
+ */
+public class BenchmarkRunner {
+
+    static final String DEFAULT_INCLUDE = "org\\.geotools\\.benchmarks\\..*Benchmark.*";
+
+    public static void main(String[] args) throws Exception {
+        File result = new File("jmh-result.json");
+        File baseline = null;
+        double threshold = BaselineComparison.DEFAULT_THRESHOLD;
+        List<String> includes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("-result".equals(arg)) {
+                result = new File(args[++i]);
+            } else if ("-baseline".equals(arg)) {
+                baseline = new File(args[++i]);
+            } else if ("-threshold".equals(arg)) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                includes.add(arg);
+            }
+        }
+        if (includes.isEmpty()) {
+            includes.add(DEFAULT_INCLUDE);
+        }
+
+        ChainedOptionsBuilder builder =
+                new OptionsBuilder()
+                        .addProfiler(GCProfiler.class)
+                        .resultFormat(ResultFormatType.JSON)
+                        .result(result.getAbsolutePath());
+        for (String include : includes) {
+            builder.include(include);
+        }
+        new Runner(builder.build()).run();
+
+        if (baseline != null) {
+            BaselineComparison comparison = new BaselineComparison(threshold);
+            int regressions =
+                    comparison.report(
+                            comparison.compare(
+                                    BaselineComparison.read(baseline),
+                                    BaselineComparison.read(result)),
+                            System.out);
+            if (regressions > 0) {
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureImpl;
+import org.geotools.filter.text.ecql.ECQL;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Filter#evaluate(Object)} against in memory {@link SimpleFeatureImpl} instances,
+ * for the most common filter shapes found in styles and WFS/WMS requests.
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterEvaluationBenchmark {
+
+    static final int FEATURE_COUNT = 10000;
+
+    @Param({
+        "code = 'c42'",
+        "population > 5000",
+        "population BETWEEN 1000 AND 5000",
+        "name LIKE 'name1%'",
+        "code IN ('c1', 'c2', 'c3', 'c4', 'c5')",
+        "BBOX(geom, 10, 10, 20, 20)",
+        "INTERSECTS(geom, POLYGON((10 10, 20 10, 20 20, 10 20, 10 10)))",
+        "population > 5000 AND (code = 'c42' OR name LIKE '%7')",
+        "strToLowerCase(name) = 'name123'"
+    })
+    public String cql;
+
+    Filter filter;
+
+    SimpleFeature[] features;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        filter = ECQL.toFilter(cql);
+        features = buildFeatures(FEATURE_COUNT);
+    }
+
+    static SimpleFeature[] buildFeatures(int count) throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType(
+                        "bench", "geom:Point:srid=4326,name:String,code:String,population:Integer");
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        GeometryFactory gf = new GeometryFactory();
+        // fixed seed, runs must be comparable
+        Random random = new Random(42);
+        SimpleFeature[] result = new SimpleFeature[count];
+        for (int i = 0; i < count; i++) {
+            fb.add(
+                    gf.createPoint(
+                            new Coordinate(random.nextDouble() * 100, random.nextDouble() * 100)));
+            fb.add("name" + i);
+            fb.add("c" + random.nextInt(100));
+            fb.add(random.nextInt(10000));
+            result[i] = fb.buildFeature("bench." + i);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int evaluate() {
+        int matches = 0;
+        for (SimpleFeature feature : features) {
+            if (filter.evaluate(feature)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
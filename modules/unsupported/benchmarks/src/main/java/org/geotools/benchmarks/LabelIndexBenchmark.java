@@ -0,0 +1,116 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.geotools.renderer.label.LabelIndex;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulates the conflict resolution of the label cache, checking each candidate label against the
+ * ones already placed and adding it if free, with the packed {@link LabelIndex} and with a plain
+ * JTS {@link Quadtree} as a reference.
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LabelIndexBenchmark {
+
+    @Param({"1000", "100000"})
+    public int labels;
+
+    Rectangle2D[] candidates;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // label sized boxes on a map whose size grows with the number of labels
+        Random random = new Random(42);
+        double size = Math.sqrt(labels) * 50;
+        candidates = new Rectangle2D[labels];
+        for (int i = 0; i < labels; i++) {
+            candidates[i] =
+                    new Rectangle2D.Double(
+                            random.nextDouble() * size,
+                            random.nextDouble() * size,
+                            20 + random.nextDouble() * 60,
+                            12);
+        }
+    }
+
+    @Benchmark
+    public int labelIndex() {
+        LabelIndex index = new LabelIndex();
+        int placed = 0;
+        for (Rectangle2D candidate : candidates) {
+            if (!index.labelsWithinDistance(candidate, 2)) {
+                index.addLabel(null, candidate);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int quadtree() {
+        Quadtree index = new Quadtree();
+        int placed = 0;
+        for (Rectangle2D candidate : candidates) {
+            Envelope e =
+                    new Envelope(
+                            candidate.getMinX(),
+                            candidate.getMaxX(),
+                            candidate.getMinY(),
+                            candidate.getMaxY());
+            Envelope query = new Envelope(e);
+            query.expandBy(2);
+            boolean conflict = false;
+            for (Envelope other : (List<Envelope>) index.query(query)) {
+                if (other.intersects(query)) {
+                    conflict = true;
+                    break;
+                }
+            }
+            if (!conflict) {
+                index.insert(e, e);
+                placed++;
+            }
+        }
+        return placed;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CRS#findMathTransform(CoordinateReferenceSystem, CoordinateReferenceSystem,
+ * boolean)} lookups and bulk {@link MathTransform#transform(double[], int, double[], int, int)}
+ * calls for the projections most commonly found in map requests.
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferencingBenchmark {
+
+    static final int POINT_COUNT = 10000;
+
+    @Param({"EPSG:4326>EPSG:3857", "EPSG:4326>EPSG:32632", "EPSG:4326>EPSG:3035"})
+    public String transformation;
+
+    CoordinateReferenceSystem source;
+
+    CoordinateReferenceSystem target;
+
+    MathTransform transform;
+
+    double[] coordinates;
+
+    double[] transformed;
+
+    @Setup(Level.Trial)
+    public void setup() throws FactoryException {
+        String[] codes = transformation.split(">");
+        source = CRS.decode(codes[0], true);
+        target = CRS.decode(codes[1], true);
+        transform = CRS.findMathTransform(source, target, true);
+
+        // points around central Europe, valid in all of the above projections
+        Random random = new Random(42);
+        coordinates = new double[POINT_COUNT * 2];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            coordinates[i * 2] = 6 + random.nextDouble() * 6;
+            coordinates[i * 2 + 1] = 42 + random.nextDouble() * 10;
+        }
+        transformed = new double[coordinates.length];
+    }
+
+    @Benchmark
+    public MathTransform findMathTransform() throws FactoryException {
+        return CRS.findMathTransform(source, target, true);
+    }
+
+    @Benchmark
+    public double[] transform() throws TransformException {
+        transform.transform(coordinates, 0, transformed, 0, POINT_COUNT);
+        return transformed;
+    }
+}
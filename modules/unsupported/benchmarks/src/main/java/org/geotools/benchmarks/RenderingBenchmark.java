@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.SLD;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link StreamingRenderer#paint(Graphics2D, Rectangle, ReferencedEnvelope)} over the
+ * sample data layers, with and without labels.
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({BenchmarkData.STATES, BenchmarkData.STREAMS, BenchmarkData.SITES})
+    public String layer;
+
+    @Param({"512", "1024"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean labels;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    MapContent content;
+
+    ReferencedEnvelope bounds;
+
+    BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = BenchmarkData.createTempDirectory("render");
+        store = BenchmarkData.openShapefile(layer, directory, true);
+        SimpleFeatureSource source = store.getFeatureSource();
+        bounds = source.getBounds();
+
+        content = new MapContent();
+        content.addLayer(new FeatureLayer(source, buildStyle(source)));
+        content.getViewport().setBounds(bounds);
+
+        image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    private Style buildStyle(SimpleFeatureSource source) {
+        Style style = SLD.createSimpleStyle(source.getSchema(), Color.BLUE);
+        if (labels) {
+            StyleBuilder sb = new StyleBuilder(CommonFactoryFinder.getStyleFactory());
+            String label = source.getSchema().getDescriptor(1).getLocalName();
+            TextSymbolizer ts =
+                    sb.createTextSymbolizer(Color.BLACK, sb.createFont("Sans", 10), label);
+            style.featureTypeStyles().get(0).rules().get(0).symbolizers().add(ts);
+        }
+        return style;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        content.dispose();
+        store.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(
+                    RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size, size);
+
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(content);
+            renderer.paint(graphics, new Rectangle(size, size), bounds);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
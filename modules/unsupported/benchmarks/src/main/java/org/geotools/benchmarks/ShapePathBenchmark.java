@@ -0,0 +1,113 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.referencing.operation.MathTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of turning a geometry into a painted path, comparing the eager {@link
+ * LiteShape2} (copy, decimate and transform the coordinates) with the streaming one built by {@link
+ * LiteShape2#createStreaming(org.locationtech.jts.geom.Geometry, MathTransform, Decimator)}. Run
+ * with the GC profiler to get the allocation per feature ({@code gc.alloc.rate.norm}).
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShapePathBenchmark {
+
+    @Param({"100", "10000"})
+    public int vertices;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    Polygon polygon;
+
+    MathTransform transform;
+
+    Decimator decimator;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // a star shaped polygon with many vertices, in geographic coordinates
+        Random random = new Random(42);
+        Coordinate[] coordinates = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = Math.PI * 2 * i / vertices;
+            double radius = 5 + random.nextDouble();
+            coordinates[i] =
+                    new Coordinate(10 + radius * Math.cos(angle), 45 + radius * Math.sin(angle));
+        }
+        coordinates[vertices] = coordinates[0];
+        GeometryFactory factory = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        polygon = factory.createPolygon(coordinates);
+
+        // world to screen for a 1024x1024 map covering the polygon
+        Rectangle paintArea = new Rectangle(0, 0, 1024, 1024);
+        AffineTransform worldToScreen = new AffineTransform(1024 / 12d, 0, 0, -1024 / 12d, 0, 0);
+        worldToScreen.translate(-4, -51);
+        transform = new AffineTransform2D(worldToScreen);
+        decimator = new Decimator(transform.inverse(), paintArea, 0.8);
+    }
+
+    @Benchmark
+    public double paintPath() throws Exception {
+        LiteShape2 shape = null;
+        if (streaming) {
+            shape = LiteShape2.createStreaming(polygon, transform, decimator);
+        } else {
+            shape = new LiteShape2(polygon, transform, decimator, false, true);
+        }
+        // consume the path the way Graphics2D would
+        double[] coords = new double[6];
+        double sum = 0;
+        for (PathIterator pi = shape.getPathIterator(null); !pi.isDone(); pi.next()) {
+            pi.currentSegment(coords);
+            sum += coords[0] + coords[1];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures full and bounding box scans through the {@code ShapefileFeatureReader}, with and without
+ * memory mapping.
+ *
+ * @author GeoTools
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShapefileScanBenchmark {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    @Param({BenchmarkData.STATES, BenchmarkData.STREAMS, BenchmarkData.SITES})
+    public String layer;
+
+    @Param({"true", "false"})
+    public boolean memoryMapped;
+
+    File directory;
+
+    ShapefileDataStore store;
+
+    Query fullQuery;
+
+    Query bboxQuery;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = BenchmarkData.createTempDirectory("shapefile");
+        store = BenchmarkData.openShapefile(layer, directory, memoryMapped);
+        String typeName = store.getTypeNames()[0];
+        fullQuery = new Query(typeName);
+
+        // a bbox covering the lower left quarter of the layer
+        ReferencedEnvelope bounds = store.getFeatureSource().getBounds();
+        ReferencedEnvelope quarter =
+                new ReferencedEnvelope(
+                        bounds.getMinX(),
+                        bounds.getMinX() + bounds.getWidth() / 2,
+                        bounds.getMinY(),
+                        bounds.getMinY() + bounds.getHeight() / 2,
+                        bounds.getCoordinateReferenceSystem());
+        String geometry = store.getSchema().getGeometryDescriptor().getLocalName();
+        bboxQuery = new Query(typeName, FF.bbox(FF.property(geometry), quarter));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.dispose();
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int fullScan(Blackhole blackhole) throws IOException {
+        return scan(fullQuery, blackhole);
+    }
+
+    @Benchmark
+    public int bboxScan(Blackhole blackhole) throws IOException {
+        return scan(bboxQuery, blackhole);
+    }
+
+    private int scan(Query query, Blackhole blackhole) throws IOException {
+        int count = 0;
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader =
+                store.getFeatureReader(query, Transaction.AUTO_COMMIT)) {
+            while (reader.hasNext()) {
+                SimpleFeature feature = reader.next();
+                // make sure all attributes are actually touched
+                blackhole.consume(feature.getDefaultGeometry());
+                blackhole.consume(feature.getAttributes());
+                count++;
+            }
+        }
+        return count;
+    }
+}
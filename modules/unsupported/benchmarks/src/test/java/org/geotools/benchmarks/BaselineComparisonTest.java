@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.geotools.benchmarks.BaselineComparison.Comparison;
+import org.geotools.benchmarks.BaselineComparison.Measure;
+import org.junit.Test;
+
+public class BaselineComparisonTest {
+
+    private List<Measure> read(String name) throws IOException {
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            return BaselineComparison.read(is);
+        }
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        List<Measure> measures = read("baseline.json");
+        // three runs, each with throughput and normalized allocation
+        assertEquals(6, measures.size());
+        Measure first = measures.get(0);
+        assertEquals(
+                "org.geotools.benchmarks.FilterEvaluationBenchmark.evaluate{cql=code = 'c42'}",
+                first.getBenchmark());
+        assertEquals("thrpt", first.getMetric());
+        assertEquals(1000, first.getScore(), 0d);
+        Measure allocation = measures.get(1);
+        assertEquals(BaselineComparison.ALLOCATION_METRIC, allocation.getMetric());
+        assertEquals(2048, allocation.getScore(), 0d);
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        BaselineComparison comparison = new BaselineComparison(0.1);
+        List<Comparison> comparisons =
+                comparison.compare(read("baseline.json"), read("current.json"));
+        assertEquals(6, comparisons.size());
+
+        List<String> regressions =
+                comparisons
+                        .stream()
+                        .filter(c -> c.isRegression())
+                        .map(c -> c.getCurrent().getBenchmark() + " " + c.getCurrent().getMetric())
+                        .collect(Collectors.toList());
+        // 15% throughput loss on the first, allocation doubled on the second, the referencing
+        // one is within the threshold and has sub-byte allocation noise
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).contains("cql=code = 'c42'} thrpt"));
+        assertTrue(regressions.get(1).contains("cql=population > 5000}"));
+        assertTrue(regressions.get(1).endsWith(BaselineComparison.ALLOCATION_METRIC));
+    }
+
+    @Test
+    public void testLargerThreshold() throws Exception {
+        BaselineComparison comparison = new BaselineComparison(2);
+        List<Comparison> comparisons =
+                comparison.compare(read("baseline.json"), read("current.json"));
+        assertFalse(comparisons.stream().anyMatch(c -> c.isRegression()));
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        BaselineComparison comparison = new BaselineComparison(0.1);
+        List<Comparison> comparisons =
+                comparison.compare(read("baseline.json"), read("current.json"));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int regressions = comparison.report(comparisons, new PrintStream(bos, true, "UTF-8"));
+        assertEquals(2, regressions);
+        String report = bos.toString("UTF-8");
+        assertTrue(report.contains("REGRESSION"));
+        assertTrue(report.contains("2 regressions out of 6 metrics"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        new BaselineComparison(-1);
+    }
+}
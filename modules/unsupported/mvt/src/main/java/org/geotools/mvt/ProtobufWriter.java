@@ -0,0 +1,180 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal protocol buffers writer, covering the wire types used by the vector tile specification.
+ * Messages are accumulated in a growable byte array, nested messages are written by encoding them
+ * in a separate writer first and then appending them as length delimited fields.
+ */
+final class ProtobufWriter {
+
+    static final int WIRETYPE_VARINT = 0;
+
+    static final int WIRETYPE_FIXED64 = 1;
+
+    static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    static final int WIRETYPE_FIXED32 = 5;
+
+    private byte[] buffer;
+
+    private int size;
+
+    ProtobufWriter() {
+        this(64);
+    }
+
+    ProtobufWriter(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    /** Number of bytes written so far */
+    int size() {
+        return size;
+    }
+
+    /** Clears the contents, keeping the allocated buffer */
+    void reset() {
+        size = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    void writeTag(int field, int wireType) {
+        writeVarint((field << 3) | wireType);
+    }
+
+    void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void writeUInt32(int field, int value) {
+        writeTag(field, WIRETYPE_VARINT);
+        writeVarint(value & 0xFFFFFFFFL);
+    }
+
+    void writeUInt64(int field, long value) {
+        writeTag(field, WIRETYPE_VARINT);
+        writeVarint(value);
+    }
+
+    void writeSInt64(int field, long value) {
+        writeTag(field, WIRETYPE_VARINT);
+        writeVarint(zigZag(value));
+    }
+
+    void writeBool(int field, boolean value) {
+        writeTag(field, WIRETYPE_VARINT);
+        writeVarint(value ? 1 : 0);
+    }
+
+    void writeDouble(int field, double value) {
+        writeTag(field, WIRETYPE_FIXED64);
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            buffer[size++] = (byte) (bits >>> (i * 8));
+        }
+    }
+
+    void writeFloat(int field, float value) {
+        writeTag(field, WIRETYPE_FIXED32);
+        int bits = Float.floatToRawIntBits(value);
+        ensureCapacity(4);
+        for (int i = 0; i < 4; i++) {
+            buffer[size++] = (byte) (bits >>> (i * 8));
+        }
+    }
+
+    void writeString(int field, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeBytes(field, bytes, 0, bytes.length);
+    }
+
+    void writeBytes(int field, byte[] bytes, int offset, int length) {
+        writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+        writeVarint(length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    /** Appends the contents of another writer as a nested message */
+    void writeMessage(int field, ProtobufWriter message) {
+        writeBytes(field, message.buffer, 0, message.size);
+    }
+
+    /** Appends the contents of another writer as is, e.g. a sequence of already tagged fields */
+    void writeRaw(ProtobufWriter other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.buffer, 0, buffer, size, other.size);
+        size += other.size;
+    }
+
+    /** Writes the first {@code count} values as a packed repeated uint32 field */
+    void writePackedUInt32(int field, int[] values, int count) {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += varintSize(values[i] & 0xFFFFFFFFL);
+        }
+        writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+        writeVarint(length);
+        for (int i = 0; i < count; i++) {
+            writeVarint(values[i] & 0xFFFFFFFFL);
+        }
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int varintSize(long value) {
+        int result = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            result++;
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.geotools.data.util.ScreenMap;
+import org.geotools.geometry.jts.GeometryClipper;
+import org.geotools.util.Converters;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Lineal;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.Puntal;
+
+/**
+ * Encodes features into a Mapbox Vector Tile, version 2 of the specification.
+ *
+ * <p>Geometries are expected in tile coordinates, that is, the tile covers the area between 0 and
+ * {@link #getExtent()} on both axes, with the y axis pointing down. Each geometry is:
+ *
+ * <ul>
+ *   <li>clipped to the tile area, expanded by the buffer, using a {@link GeometryClipper}
+ *   <li>dropped if smaller than a pixel and sitting in a pixel that has already been occupied by
+ *       another feature of the same layer, tracked with a {@link ScreenMap} (the same logic
+ *       StreamingRenderer uses to skip sub-pixel features). Small features that are kept are
+ *       replaced by a pixel sized shape
+ *   <li>quantized to integer tile coordinates, removing the repeated points and the rings that
+ *       collapse as a result
+ * </ul>
+ *
+ * Attribute names and values are stored in per layer dictionaries, as mandated by the
+ * specification.
+ *
+ * <p>The encoder is not thread safe, a new one should be used for each tile.
+ */
+public class VectorTileEncoder {
+
+    /** The default tile extent, in tile units */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    /** The default buffer around the tile, in tile units */
+    public static final int DEFAULT_BUFFER = 64;
+
+    static final int GEOM_POINT = 1;
+
+    static final int GEOM_LINESTRING = 2;
+
+    static final int GEOM_POLYGON = 3;
+
+    static final int CMD_MOVE_TO = 1;
+
+    static final int CMD_LINE_TO = 2;
+
+    static final int CMD_CLOSE_PATH = 7;
+
+    private final int extent;
+
+    private final int buffer;
+
+    private final double pixelSize;
+
+    private final Envelope clipEnvelope;
+
+    private final GeometryClipper clipper;
+
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    /** Scratch feature message */
+    private final ProtobufWriter feature = new ProtobufWriter();
+
+    /** Scratch geometry commands */
+    private int[] commands = new int[256];
+
+    private int commandCount;
+
+    /** Scratch quantized coordinates of the current part */
+    private int[] part = new int[256];
+
+    /** Scratch tags of the current feature */
+    private int[] tags = new int[32];
+
+    /** The cursor position, geometry commands are relative to it */
+    private int cursorX, cursorY;
+
+    /**
+     * Creates an encoder with the default extent and buffer, dropping features smaller than a pixel
+     * of a 256x256 tile
+     */
+    public VectorTileEncoder() {
+        this(DEFAULT_EXTENT, DEFAULT_BUFFER, DEFAULT_EXTENT / 256d);
+    }
+
+    /**
+     * Creates a new encoder
+     *
+     * @param extent The tile extent, in tile units
+     * @param buffer The buffer around the tile, in tile units
+     * @param pixelSize The size of a pixel in tile units, features smaller than a pixel sitting in
+     *     an already occupied pixel will be dropped. Use 0 to keep all features
+     */
+    public VectorTileEncoder(int extent, int buffer, double pixelSize) {
+        if (extent <= 0) {
+            throw new IllegalArgumentException("The tile extent must be positive");
+        }
+        if (buffer < 0) {
+            throw new IllegalArgumentException("The tile buffer cannot be negative");
+        }
+        if (pixelSize < 0) {
+            throw new IllegalArgumentException("The pixel size cannot be negative");
+        }
+        this.extent = extent;
+        this.buffer = buffer;
+        this.pixelSize = pixelSize;
+        this.clipEnvelope = new Envelope(-buffer, extent + buffer, -buffer, extent + buffer);
+        this.clipper = new GeometryClipper(clipEnvelope);
+    }
+
+    /** The tile extent, in tile units */
+    public int getExtent() {
+        return extent;
+    }
+
+    /** The buffer around the tile, in tile units */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /** Returns true if no feature has been encoded so far */
+    public boolean isEmpty() {
+        for (Layer layer : layers.values()) {
+            if (layer.featureCount > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a feature to the tile
+     *
+     * @param layerName The layer the feature belongs to
+     * @param id The feature id, or null if not available
+     * @param attributes The feature attributes, null values and geometries are skipped
+     * @param geometry The geometry, in tile coordinates
+     * @return true if the feature was encoded, false if it fell outside of the tile, was dropped
+     *     because it sits in an already occupied pixel, or collapsed during quantization
+     */
+    public boolean addFeature(
+            String layerName, Long id, Map<String, ?> attributes, Geometry geometry) {
+        if (geometry == null || geometry.isEmpty()) {
+            return false;
+        }
+
+        // clip, making sure polygons stay valid after clipping
+        geometry = clipper.clipSafe(geometry, geometry instanceof Polygonal, 1);
+        if (geometry == null || geometry.isEmpty()) {
+            return false;
+        }
+
+        Layer layer = layers.computeIfAbsent(layerName, Layer::new);
+
+        // drop sub-pixel features sitting in an already occupied pixel
+        if (pixelSize > 0 && !(geometry instanceof Puntal)) {
+            ScreenMap screenMap = layer.getScreenMap();
+            Envelope envelope = geometry.getEnvelopeInternal();
+            if (screenMap.canSimplify(envelope)) {
+                double cx = (envelope.getMinX() + envelope.getMaxX()) / 2;
+                double cy = (envelope.getMinY() + envelope.getMaxY()) / 2;
+                int x = (int) Math.floor((cx + buffer) / pixelSize);
+                int y = (int) Math.floor((cy + buffer) / pixelSize);
+                if (screenMap.checkAndSet(x, y)) {
+                    return false;
+                }
+                // make sure it does not vanish during quantization
+                geometry = screenMap.getSimplifiedShape(geometry);
+            }
+        }
+
+        boolean encoded = false;
+        if (geometry instanceof GeometryCollection
+                && !(geometry instanceof MultiPoint
+                        || geometry instanceof MultiLineString
+                        || geometry instanceof MultiPolygon)) {
+            // heterogeneous collections, the clipper might return them, split by component
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                encoded |= encodeFeature(layer, id, attributes, geometry.getGeometryN(i));
+            }
+        } else {
+            encoded = encodeFeature(layer, id, attributes, geometry);
+        }
+        return encoded;
+    }
+
+    private boolean encodeFeature(
+            Layer layer, Long id, Map<String, ?> attributes, Geometry geometry) {
+        int type = encodeGeometry(geometry);
+        if (type == 0 || commandCount == 0) {
+            return false;
+        }
+
+        int tagCount = 0;
+        if (attributes != null) {
+            for (Map.Entry<String, ?> entry : attributes.entrySet()) {
+                Object value = toValue(entry.getValue());
+                if (value == null) {
+                    continue;
+                }
+                if (tagCount + 2 > tags.length) {
+                    tags = Arrays.copyOf(tags, tags.length * 2);
+                }
+                tags[tagCount++] = layer.getKeyIndex(entry.getKey());
+                tags[tagCount++] = layer.getValueIndex(value);
+            }
+        }
+
+        feature.reset();
+        if (id != null && id >= 0) {
+            feature.writeUInt64(1, id);
+        }
+        if (tagCount > 0) {
+            feature.writePackedUInt32(2, tags, tagCount);
+        }
+        feature.writeUInt32(3, type);
+        feature.writePackedUInt32(4, commands, commandCount);
+        layer.features.writeMessage(2, feature);
+        layer.featureCount++;
+        return true;
+    }
+
+    /**
+     * Encodes the geometry into the scratch command array, returning the geometry type, or 0 if the
+     * geometry cannot be encoded
+     */
+    private int encodeGeometry(Geometry geometry) {
+        commandCount = 0;
+        cursorX = 0;
+        cursorY = 0;
+        if (geometry instanceof Puntal) {
+            encodePoints(geometry);
+            return GEOM_POINT;
+        } else if (geometry instanceof Lineal) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                encodeLine((LineString) geometry.getGeometryN(i));
+            }
+            return GEOM_LINESTRING;
+        } else if (geometry instanceof Polygonal) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                encodePolygon((Polygon) geometry.getGeometryN(i));
+            }
+            return GEOM_POLYGON;
+        }
+        return 0;
+    }
+
+    private void encodePoints(Geometry geometry) {
+        int count = geometry.getNumGeometries();
+        ensureCommands(1 + count * 2);
+        int header = commandCount++;
+        int encoded = 0;
+        for (int i = 0; i < count; i++) {
+            Point point = (Point) geometry.getGeometryN(i);
+            if (point.isEmpty()) {
+                continue;
+            }
+            int x = (int) Math.round(point.getX());
+            int y = (int) Math.round(point.getY());
+            // repeated points are allowed, but are of no use
+            if (encoded > 0 && x == cursorX && y == cursorY) {
+                continue;
+            }
+            addPoint(x, y);
+            encoded++;
+        }
+        if (encoded == 0) {
+            commandCount = 0;
+        } else {
+            commands[header] = command(CMD_MOVE_TO, encoded);
+        }
+    }
+
+    private void encodeLine(LineString line) {
+        int n = quantize(line.getCoordinateSequence());
+        if (n < 2) {
+            return;
+        }
+        ensureCommands(2 + n * 2);
+        commands[commandCount++] = command(CMD_MOVE_TO, 1);
+        addPoint(part[0], part[1]);
+        commands[commandCount++] = command(CMD_LINE_TO, n - 1);
+        for (int i = 1; i < n; i++) {
+            addPoint(part[i * 2], part[i * 2 + 1]);
+        }
+    }
+
+    private void encodePolygon(Polygon polygon) {
+        // the exterior ring must have a positive area, holes a negative one
+        if (!encodeRing(polygon.getExteriorRing(), true)) {
+            return;
+        }
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            encodeRing(polygon.getInteriorRingN(i), false);
+        }
+    }
+
+    private boolean encodeRing(LineString ring, boolean exterior) {
+        int n = quantize(ring.getCoordinateSequence());
+        // the closing point is implied by the close path command
+        if (n > 1 && part[0] == part[(n - 1) * 2] && part[1] == part[(n - 1) * 2 + 1]) {
+            n--;
+        }
+        if (n < 3) {
+            return false;
+        }
+        long area = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            area += (long) part[i * 2] * part[j * 2 + 1] - (long) part[j * 2] * part[i * 2 + 1];
+        }
+        if (area == 0) {
+            return false;
+        }
+        boolean reverse = exterior ? area < 0 : area > 0;
+
+        ensureCommands(3 + n * 2);
+        commands[commandCount++] = command(CMD_MOVE_TO, 1);
+        int first = reverse ? n - 1 : 0;
+        addPoint(part[first * 2], part[first * 2 + 1]);
+        commands[commandCount++] = command(CMD_LINE_TO, n - 1);
+        for (int i = 1; i < n; i++) {
+            int idx = reverse ? n - 1 - i : i;
+            addPoint(part[idx * 2], part[idx * 2 + 1]);
+        }
+        commands[commandCount++] = command(CMD_CLOSE_PATH, 1);
+        return true;
+    }
+
+    /**
+     * Rounds the coordinates to integers, storing them in the scratch part array and skipping
+     * repeated points. Returns the number of points left
+     */
+    private int quantize(CoordinateSequence cs) {
+        int size = cs.size();
+        if (part.length < size * 2) {
+            part = new int[size * 2];
+        }
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int x = (int) Math.round(cs.getX(i));
+            int y = (int) Math.round(cs.getY(i));
+            if (n > 0 && part[(n - 1) * 2] == x && part[(n - 1) * 2 + 1] == y) {
+                continue;
+            }
+            part[n * 2] = x;
+            part[n * 2 + 1] = y;
+            n++;
+        }
+        return n;
+    }
+
+    private void addPoint(int x, int y) {
+        commands[commandCount++] = ProtobufWriter.zigZag(x - cursorX);
+        commands[commandCount++] = ProtobufWriter.zigZag(y - cursorY);
+        cursorX = x;
+        cursorY = y;
+    }
+
+    private void ensureCommands(int additional) {
+        if (commandCount + additional > commands.length) {
+            commands =
+                    Arrays.copyOf(
+                            commands, Math.max(commands.length * 2, commandCount + additional));
+        }
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    /**
+     * Converts an attribute value to one of the types supported by the specification (String,
+     * Float, Double, Long, Boolean), returns null if the value should be skipped
+     */
+    static Object toValue(Object value) {
+        if (value == null || value instanceof Geometry) {
+            return null;
+        } else if (value instanceof String
+                || value instanceof Boolean
+                || value instanceof Float
+                || value instanceof Double) {
+            return value;
+        } else if (value instanceof Long
+                || value instanceof Integer
+                || value instanceof Short
+                || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        String converted = Converters.convert(value, String.class);
+        return converted != null ? converted : value.toString();
+    }
+
+    /** Returns the encoded tile */
+    public byte[] encode() {
+        ProtobufWriter tile = new ProtobufWriter(1024);
+        encode(tile);
+        return tile.toByteArray();
+    }
+
+    /** Writes the encoded tile to the specified stream */
+    public void encode(OutputStream out) throws IOException {
+        ProtobufWriter tile = new ProtobufWriter(1024);
+        encode(tile);
+        tile.writeTo(out);
+    }
+
+    private void encode(ProtobufWriter tile) {
+        ProtobufWriter message = new ProtobufWriter(1024);
+        ProtobufWriter value = new ProtobufWriter();
+        for (Layer layer : layers.values()) {
+            if (layer.featureCount == 0) {
+                continue;
+            }
+            message.reset();
+            message.writeUInt32(15, 2);
+            message.writeString(1, layer.name);
+            message.writeRaw(layer.features);
+            for (String key : layer.keys.keySet()) {
+                message.writeString(3, key);
+            }
+            for (Object v : layer.values.keySet()) {
+                value.reset();
+                if (v instanceof String) {
+                    value.writeString(1, (String) v);
+                } else if (v instanceof Float) {
+                    value.writeFloat(2, (Float) v);
+                } else if (v instanceof Double) {
+                    value.writeDouble(3, (Double) v);
+                } else if (v instanceof Long) {
+                    value.writeSInt64(6, (Long) v);
+                } else if (v instanceof Boolean) {
+                    value.writeBool(7, (Boolean) v);
+                }
+                message.writeMessage(4, value);
+            }
+            message.writeUInt32(5, extent);
+            tile.writeMessage(3, message);
+        }
+    }
+
+    /** The state of a layer being encoded */
+    private class Layer {
+
+        final String name;
+
+        /** The encoded features, as a sequence of "features" fields of the layer message */
+        final ProtobufWriter features = new ProtobufWriter(1024);
+
+        int featureCount;
+
+        final Map<String, Integer> keys = new LinkedHashMap<>();
+
+        final Map<Object, Integer> values = new LinkedHashMap<>();
+
+        ScreenMap screenMap;
+
+        Layer(String name) {
+            this.name = name;
+        }
+
+        ScreenMap getScreenMap() {
+            if (screenMap == null) {
+                int size = (int) Math.ceil((extent + buffer * 2) / pixelSize);
+                screenMap = new ScreenMap(0, 0, size, size);
+                screenMap.setSpans(pixelSize, pixelSize);
+            }
+            return screenMap;
+        }
+
+        int getKeyIndex(String key) {
+            Integer index = keys.get(key);
+            if (index == null) {
+                index = keys.size();
+                keys.put(key, index);
+            }
+            return index;
+        }
+
+        int getValueIndex(Object value) {
+            Integer index = values.get(value);
+            if (index == null) {
+                index = values.size();
+                values.put(value, index);
+            }
+            return index;
+        }
+    }
+}
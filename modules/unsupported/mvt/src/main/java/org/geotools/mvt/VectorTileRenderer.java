@@ -0,0 +1,334 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Encodes the feature layers of a {@link MapContent} as a Mapbox Vector Tile, as an alternative to
+ * painting them with a StreamingRenderer.
+ *
+ * <p>Much like the renderer, for each visible layer the features in the tile area (plus the buffer)
+ * are read, with a query that only includes the features that would be painted by the layer style
+ * at the scale of the tile, then reprojected to the tile CRS and transformed into tile space. The
+ * {@link VectorTileEncoder} takes care of clipping, dropping the sub-pixel features, quantizing and
+ * encoding them. The styles are otherwise ignored, clients are expected to style the tiles on their
+ * own.
+ *
+ * <p>Each layer is encoded as a vector tile layer named after its feature type, all the non
+ * geometric attributes are included.
+ */
+public class VectorTileRenderer {
+
+    static final Logger LOGGER = Logging.getLogger(VectorTileRenderer.class);
+
+    /** The default size of the tile, in pixels, used to compute the scale denominator */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    private MapContent mapContent;
+
+    private int extent = VectorTileEncoder.DEFAULT_EXTENT;
+
+    private int buffer = VectorTileEncoder.DEFAULT_BUFFER;
+
+    private int tileSize = DEFAULT_TILE_SIZE;
+
+    private Map<Object, Object> rendererHints;
+
+    public MapContent getMapContent() {
+        return mapContent;
+    }
+
+    public void setMapContent(MapContent mapContent) {
+        this.mapContent = mapContent;
+    }
+
+    /** The tile extent, in tile units */
+    public int getExtent() {
+        return extent;
+    }
+
+    /** Sets the tile extent, in tile units. Defaults to {@link VectorTileEncoder#DEFAULT_EXTENT} */
+    public void setExtent(int extent) {
+        if (extent <= 0) {
+            throw new IllegalArgumentException("The tile extent must be positive");
+        }
+        this.extent = extent;
+    }
+
+    /** The buffer around the tile, in tile units */
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Sets the buffer around the tile, in tile units. Defaults to {@link
+     * VectorTileEncoder#DEFAULT_BUFFER}
+     */
+    public void setBuffer(int buffer) {
+        if (buffer < 0) {
+            throw new IllegalArgumentException("The tile buffer cannot be negative");
+        }
+        this.buffer = buffer;
+    }
+
+    /** The nominal size of the tile in pixels */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the nominal size of the tile in pixels, used to compute the scale denominator (for the
+     * style rule selection) and the size of a pixel (for the sub-pixel feature dropping). Defaults
+     * to {@link #DEFAULT_TILE_SIZE}
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("The tile size must be positive");
+        }
+        this.tileSize = tileSize;
+    }
+
+    public Map<Object, Object> getRendererHints() {
+        return rendererHints;
+    }
+
+    /**
+     * Sets the renderer hints, the same used by the StreamingRenderer. Only the ones affecting the
+     * scale computation, such as the DPI, are currently used
+     */
+    public void setRendererHints(Map<Object, Object> hints) {
+        this.rendererHints = hints;
+    }
+
+    /**
+     * Encodes the tile covering the specified area
+     *
+     * @param tileBounds The tile area. If it has no CRS, the map content one will be used
+     * @return The encoded tile
+     */
+    public byte[] encode(ReferencedEnvelope tileBounds) throws IOException {
+        return buildTile(tileBounds).encode();
+    }
+
+    /**
+     * Encodes the tile covering the specified area into a stream
+     *
+     * @param tileBounds The tile area. If it has no CRS, the map content one will be used
+     * @param out The stream the tile will be written to
+     */
+    public void encode(ReferencedEnvelope tileBounds, OutputStream out) throws IOException {
+        buildTile(tileBounds).encode(out);
+    }
+
+    /** Encodes all layers in a {@link VectorTileEncoder}, ready to be written out */
+    VectorTileEncoder buildTile(ReferencedEnvelope tileBounds) throws IOException {
+        if (mapContent == null) {
+            throw new IllegalStateException("The map content has not been set");
+        }
+        if (tileBounds.getCoordinateReferenceSystem() == null) {
+            tileBounds =
+                    new ReferencedEnvelope(tileBounds, mapContent.getCoordinateReferenceSystem());
+        }
+
+        VectorTileEncoder encoder =
+                new VectorTileEncoder(extent, buffer, extent / (double) tileSize);
+        double scaleDenominator =
+                RendererUtilities.calculateOGCScale(tileBounds, tileSize, rendererHints);
+        AffineTransform worldToTile =
+                RendererUtilities.worldToScreenTransform(
+                        tileBounds, new Rectangle(0, 0, extent, extent));
+
+        for (Layer layer : mapContent.layers()) {
+            if (!layer.isVisible() || !(layer instanceof FeatureLayer)) {
+                continue;
+            }
+            try {
+                encodeLayer(
+                        encoder, (FeatureLayer) layer, tileBounds, worldToTile, scaleDenominator);
+            } catch (FactoryException | TransformException e) {
+                throw new IOException("Failed to encode layer " + layer.getTitle(), e);
+            }
+        }
+        return encoder;
+    }
+
+    private void encodeLayer(
+            VectorTileEncoder encoder,
+            FeatureLayer layer,
+            ReferencedEnvelope tileBounds,
+            AffineTransform worldToTile,
+            double scaleDenominator)
+            throws IOException, FactoryException, TransformException {
+        FeatureSource<?, ?> source = layer.getFeatureSource();
+        if (!(source.getSchema() instanceof SimpleFeatureType)) {
+            LOGGER.fine("Skipping layer " + layer.getTitle() + ", it's not a simple feature layer");
+            return;
+        }
+        SimpleFeatureSource featureSource = DataUtilities.simple(source);
+        SimpleFeatureType schema = featureSource.getSchema();
+        GeometryDescriptor geometryDescriptor = schema.getGeometryDescriptor();
+        if (geometryDescriptor == null) {
+            return;
+        }
+
+        // only the features that the style would paint at this scale
+        Filter styleFilter = getStyleFilter(layer.getStyle(), scaleDenominator);
+        if (styleFilter == Filter.EXCLUDE) {
+            return;
+        }
+
+        // the area to read, in the native CRS, including the buffer
+        CoordinateReferenceSystem nativeCRS = geometryDescriptor.getCoordinateReferenceSystem();
+        ReferencedEnvelope queryArea = new ReferencedEnvelope(tileBounds);
+        queryArea.expandBy(
+                tileBounds.getWidth() * buffer / extent, tileBounds.getHeight() * buffer / extent);
+        MathTransform worldToTileTransform = new AffineTransform2D(worldToTile);
+        MathTransform transform = worldToTileTransform;
+        if (nativeCRS != null
+                && !CRS.equalsIgnoreMetadata(
+                        nativeCRS, tileBounds.getCoordinateReferenceSystem())) {
+            queryArea = queryArea.transform(nativeCRS, true);
+            MathTransform reprojection =
+                    CRS.findMathTransform(
+                            nativeCRS, tileBounds.getCoordinateReferenceSystem(), true);
+            transform = ConcatenatedTransform.create(reprojection, worldToTileTransform);
+        }
+
+        Filter filter = FF.bbox(FF.property(geometryDescriptor.getLocalName()), queryArea);
+        if (styleFilter != Filter.INCLUDE) {
+            filter = FF.and(filter, styleFilter);
+        }
+        Query query = new Query(schema.getTypeName(), filter);
+        query = DataUtilities.mixQueries(query, layer.getQuery(), null);
+
+        String layerName = schema.getTypeName();
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        SimpleFeatureCollection features = featureSource.getFeatures(query);
+        try (SimpleFeatureIterator it = features.features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+                attributes.clear();
+                for (int i = 0; i < descriptors.size(); i++) {
+                    if (!(descriptors.get(i) instanceof GeometryDescriptor)) {
+                        attributes.put(descriptors.get(i).getLocalName(), feature.getAttribute(i));
+                    }
+                }
+                try {
+                    Geometry tileGeometry = JTS.transform(geometry, transform);
+                    encoder.addFeature(layerName, getId(feature), attributes, tileGeometry);
+                } catch (TransformException e) {
+                    LOGGER.log(
+                            Level.FINE,
+                            "Skipping feature " + feature.getID() + ", failed to transform it",
+                            e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a filter matching the features that would be painted by the style at the given scale:
+     * {@link Filter#INCLUDE} if all of them would, {@link Filter#EXCLUDE} if none would
+     */
+    static Filter getStyleFilter(Style style, double scaleDenominator) {
+        if (style == null) {
+            return Filter.INCLUDE;
+        }
+        List<Filter> filters = new ArrayList<>();
+        for (FeatureTypeStyle fts : style.featureTypeStyles()) {
+            for (Rule rule : fts.rules()) {
+                if (scaleDenominator < rule.getMinScaleDenominator()
+                        || scaleDenominator >= rule.getMaxScaleDenominator()) {
+                    continue;
+                }
+                Filter filter = rule.getFilter();
+                if (rule.isElseFilter() || filter == null || filter == Filter.INCLUDE) {
+                    return Filter.INCLUDE;
+                }
+                filters.add(filter);
+            }
+        }
+        if (filters.isEmpty()) {
+            return Filter.EXCLUDE;
+        } else if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        return FF.or(filters);
+    }
+
+    /** Extracts a numeric id from the feature id, if it ends with a number */
+    static Long getId(SimpleFeature feature) {
+        String fid = feature.getID();
+        if (fid == null) {
+            return null;
+        }
+        String suffix = fid.substring(fid.lastIndexOf('.') + 1);
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A minimal vector tile decoder, used to check the encoder output */
+class VectorTileDecoder {
+
+    static class Tile {
+        Map<String, TileLayer> layers = new LinkedHashMap<>();
+    }
+
+    static class TileLayer {
+        int version;
+        String name;
+        int extent = 4096;
+        List<String> keys = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<TileFeature> features = new ArrayList<>();
+    }
+
+    static class TileFeature {
+        Long id;
+        int type;
+        List<Integer> tags = new ArrayList<>();
+        List<Integer> geometry = new ArrayList<>();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+
+        /**
+         * Decodes the geometry commands as a list of parts, each one being a list of absolute x/y
+         * coordinates, closed parts have the first point repeated at the end
+         */
+        List<List<int[]>> getParts() {
+            List<List<int[]>> parts = new ArrayList<>();
+            List<int[]> current = null;
+            int x = 0, y = 0;
+            int i = 0;
+            while (i < geometry.size()) {
+                int command = geometry.get(i++);
+                int id = command & 0x7;
+                int count = command >> 3;
+                if (id == VectorTileEncoder.CMD_CLOSE_PATH) {
+                    current.add(current.get(0));
+                    continue;
+                }
+                for (int c = 0; c < count; c++) {
+                    x += unZigZag(geometry.get(i++));
+                    y += unZigZag(geometry.get(i++));
+                    if (id == VectorTileEncoder.CMD_MOVE_TO) {
+                        current = new ArrayList<>();
+                        parts.add(current);
+                    }
+                    current.add(new int[] {x, y});
+                }
+            }
+            return parts;
+        }
+    }
+
+    private final byte[] data;
+
+    private int pos;
+
+    private VectorTileDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    static Tile decode(byte[] bytes) {
+        VectorTileDecoder reader = new VectorTileDecoder(bytes);
+        Tile tile = new Tile();
+        while (reader.pos < bytes.length) {
+            int tag = (int) reader.readVarint();
+            if (tag >> 3 == 3) {
+                TileLayer layer = decodeLayer(reader.readBytes());
+                tile.layers.put(layer.name, layer);
+            } else {
+                reader.skip(tag & 0x7);
+            }
+        }
+        return tile;
+    }
+
+    private static TileLayer decodeLayer(byte[] bytes) {
+        VectorTileDecoder reader = new VectorTileDecoder(bytes);
+        TileLayer layer = new TileLayer();
+        List<byte[]> features = new ArrayList<>();
+        while (reader.pos < bytes.length) {
+            int tag = (int) reader.readVarint();
+            switch (tag >> 3) {
+                case 15:
+                    layer.version = (int) reader.readVarint();
+                    break;
+                case 1:
+                    layer.name = new String(reader.readBytes(), StandardCharsets.UTF_8);
+                    break;
+                case 2:
+                    features.add(reader.readBytes());
+                    break;
+                case 3:
+                    layer.keys.add(new String(reader.readBytes(), StandardCharsets.UTF_8));
+                    break;
+                case 4:
+                    layer.values.add(decodeValue(reader.readBytes()));
+                    break;
+                case 5:
+                    layer.extent = (int) reader.readVarint();
+                    break;
+                default:
+                    reader.skip(tag & 0x7);
+            }
+        }
+        for (byte[] feature : features) {
+            TileFeature f = decodeFeature(feature);
+            for (int i = 0; i < f.tags.size(); i += 2) {
+                f.attributes.put(
+                        layer.keys.get(f.tags.get(i)), layer.values.get(f.tags.get(i + 1)));
+            }
+            layer.features.add(f);
+        }
+        return layer;
+    }
+
+    private static TileFeature decodeFeature(byte[] bytes) {
+        VectorTileDecoder reader = new VectorTileDecoder(bytes);
+        TileFeature feature = new TileFeature();
+        while (reader.pos < bytes.length) {
+            int tag = (int) reader.readVarint();
+            switch (tag >> 3) {
+                case 1:
+                    feature.id = reader.readVarint();
+                    break;
+                case 2:
+                    reader.readPacked(feature.tags);
+                    break;
+                case 3:
+                    feature.type = (int) reader.readVarint();
+                    break;
+                case 4:
+                    reader.readPacked(feature.geometry);
+                    break;
+                default:
+                    reader.skip(tag & 0x7);
+            }
+        }
+        return feature;
+    }
+
+    private static Object decodeValue(byte[] bytes) {
+        VectorTileDecoder reader = new VectorTileDecoder(bytes);
+        int tag = (int) reader.readVarint();
+        switch (tag >> 3) {
+            case 1:
+                return new String(reader.readBytes(), StandardCharsets.UTF_8);
+            case 2:
+                return Float.intBitsToFloat((int) reader.readFixed(4));
+            case 3:
+                return Double.longBitsToDouble(reader.readFixed(8));
+            case 4:
+            case 5:
+                return reader.readVarint();
+            case 6:
+                long v = reader.readVarint();
+                return (v >>> 1) ^ -(v & 1);
+            case 7:
+                return reader.readVarint() != 0;
+            default:
+                throw new IllegalArgumentException("Unexpected value tag " + tag);
+        }
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    private long readFixed(int bytes) {
+        long result = 0;
+        for (int i = 0; i < bytes; i++) {
+            result |= (long) (data[pos++] & 0xFF) << (i * 8);
+        }
+        return result;
+    }
+
+    private byte[] readBytes() {
+        int length = (int) readVarint();
+        byte[] result = new byte[length];
+        System.arraycopy(data, pos, result, 0, length);
+        pos += length;
+        return result;
+    }
+
+    private void readPacked(List<Integer> target) {
+        int length = (int) readVarint();
+        int end = pos + length;
+        while (pos < end) {
+            target.add((int) readVarint());
+        }
+    }
+
+    private void skip(int wireType) {
+        switch (wireType) {
+            case 0:
+                readVarint();
+                break;
+            case 1:
+                pos += 8;
+                break;
+            case 2:
+                readBytes();
+                break;
+            case 5:
+                pos += 4;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported wire type " + wireType);
+        }
+    }
+}
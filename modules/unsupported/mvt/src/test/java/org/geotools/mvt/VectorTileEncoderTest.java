@@ -0,0 +1,208 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.geotools.mvt.VectorTileDecoder.Tile;
+import org.geotools.mvt.VectorTileDecoder.TileFeature;
+import org.geotools.mvt.VectorTileDecoder.TileLayer;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+public class VectorTileEncoderTest {
+
+    WKTReader reader = new WKTReader();
+
+    Geometry geometry(String wkt) throws Exception {
+        return reader.read(wkt);
+    }
+
+    @Test
+    public void testPoint() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        assertTrue(encoder.isEmpty());
+        assertTrue(
+                encoder.addFeature(
+                        "points", 12L, Collections.emptyMap(), geometry("POINT(10.4 20.6)")));
+        assertFalse(encoder.isEmpty());
+
+        Tile tile = VectorTileDecoder.decode(encoder.encode());
+        TileLayer layer = tile.layers.get("points");
+        assertEquals(2, layer.version);
+        assertEquals(4096, layer.extent);
+        assertEquals(1, layer.features.size());
+        TileFeature feature = layer.features.get(0);
+        assertEquals(Long.valueOf(12), feature.id);
+        assertEquals(VectorTileEncoder.GEOM_POINT, feature.type);
+        // move to, one point, zig-zag encoded deltas
+        assertEquals(9, (int) feature.geometry.get(0));
+        assertArrayEquals(new int[] {10, 21}, feature.getParts().get(0).get(0));
+    }
+
+    @Test
+    public void testMultiPoint() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        encoder.addFeature("points", null, null, geometry("MULTIPOINT((10 10), (20 5))"));
+        TileFeature feature =
+                VectorTileDecoder.decode(encoder.encode()).layers.get("points").features.get(0);
+        assertNull(feature.id);
+        // a single move to with two points
+        assertEquals(17, (int) feature.geometry.get(0));
+        List<List<int[]>> parts = feature.getParts();
+        assertEquals(2, parts.size());
+        assertArrayEquals(new int[] {10, 10}, parts.get(0).get(0));
+        assertArrayEquals(new int[] {20, 5}, parts.get(1).get(0));
+    }
+
+    @Test
+    public void testLineQuantization() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64, 0);
+        encoder.addFeature(
+                "lines", 1L, null, geometry("LINESTRING(0 0, 0.2 0.2, 10 10, 10.1 10.2, 20 0)"));
+        TileFeature feature =
+                VectorTileDecoder.decode(encoder.encode()).layers.get("lines").features.get(0);
+        assertEquals(VectorTileEncoder.GEOM_LINESTRING, feature.type);
+        // repeated points after rounding are removed
+        List<int[]> line = feature.getParts().get(0);
+        assertEquals(3, line.size());
+        assertArrayEquals(new int[] {10, 10}, line.get(1));
+        assertArrayEquals(new int[] {20, 0}, line.get(2));
+    }
+
+    @Test
+    public void testClipping() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64, 0);
+        assertTrue(
+                encoder.addFeature("lines", 1L, null, geometry("LINESTRING(-1000 100, 5000 100)")));
+        assertFalse(
+                encoder.addFeature(
+                        "lines", 2L, null, geometry("LINESTRING(-1000 -1000, -500 -500)")));
+        TileLayer layer = VectorTileDecoder.decode(encoder.encode()).layers.get("lines");
+        assertEquals(1, layer.features.size());
+        List<int[]> line = layer.features.get(0).getParts().get(0);
+        assertArrayEquals(new int[] {-64, 100}, line.get(0));
+        assertArrayEquals(new int[] {4160, 100}, line.get(line.size() - 1));
+    }
+
+    @Test
+    public void testPolygonWinding() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64, 0);
+        // counter clockwise shell and clockwise hole, in a y down coordinate system
+        encoder.addFeature(
+                "polygons",
+                1L,
+                null,
+                geometry(
+                        "POLYGON((0 0, 0 100, 100 100, 100 0, 0 0), (10 10, 20 10, 20 20, 10 20, 10 10))"));
+        TileFeature feature =
+                VectorTileDecoder.decode(encoder.encode()).layers.get("polygons").features.get(0);
+        assertEquals(VectorTileEncoder.GEOM_POLYGON, feature.type);
+        List<List<int[]>> parts = feature.getParts();
+        assertEquals(2, parts.size());
+        assertTrue(area(parts.get(0)) > 0);
+        assertTrue(area(parts.get(1)) < 0);
+        // closed by the close path command, first point not repeated in the commands
+        assertEquals(5, parts.get(0).size());
+    }
+
+    @Test
+    public void testCollapsedPolygon() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64, 0);
+        assertFalse(
+                encoder.addFeature(
+                        "polygons", 1L, null, geometry("POLYGON((0 0, 0.1 0, 0.1 0.1, 0 0))")));
+        assertTrue(encoder.isEmpty());
+    }
+
+    @Test
+    public void testScreenMapDropping() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64, 16);
+        String small = "POLYGON((100 100, 101 100, 101 101, 100 101, 100 100))";
+        String other = "POLYGON((102 102, 103 102, 103 103, 102 103, 102 102))";
+        String elsewhere = "POLYGON((500 500, 501 500, 501 501, 500 501, 500 500))";
+        assertTrue(encoder.addFeature("polygons", 1L, null, geometry(small)));
+        // same pixel, dropped
+        assertFalse(encoder.addFeature("polygons", 2L, null, geometry(other)));
+        // other pixel, kept
+        assertTrue(encoder.addFeature("polygons", 3L, null, geometry(elsewhere)));
+        // same pixel but another layer, kept
+        assertTrue(encoder.addFeature("others", 4L, null, geometry(other)));
+
+        Tile tile = VectorTileDecoder.decode(encoder.encode());
+        TileLayer layer = tile.layers.get("polygons");
+        assertEquals(2, layer.features.size());
+        // the kept one has been expanded to a pixel size, so that it did not collapse
+        List<int[]> ring = layer.features.get(0).getParts().get(0);
+        assertEquals(16 * 16, Math.abs(area(ring)), 0d);
+    }
+
+    @Test
+    public void testDictionaries() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("name", "a");
+        attributes.put("count", 10);
+        attributes.put("missing", null);
+        encoder.addFeature("points", 1L, attributes, geometry("POINT(1 1)"));
+        attributes.put("name", "b");
+        attributes.put("count", 10L);
+        encoder.addFeature("points", 2L, attributes, geometry("POINT(2 2)"));
+        attributes.clear();
+        attributes.put("ratio", 0.5d);
+        attributes.put("flag", true);
+        attributes.put("small", 1.5f);
+        attributes.put("negative", -3);
+        encoder.addFeature("points", 3L, attributes, geometry("POINT(3 3)"));
+
+        TileLayer layer = VectorTileDecoder.decode(encoder.encode()).layers.get("points");
+        assertEquals(
+                Arrays.asList("name", "count", "ratio", "flag", "small", "negative"), layer.keys);
+        // "10" is shared between the first two features
+        assertEquals(Arrays.asList("a", 10L, "b", 0.5d, true, 1.5f, -3L), layer.values);
+        assertEquals("a", layer.features.get(0).attributes.get("name"));
+        assertEquals(10L, layer.features.get(1).attributes.get("count"));
+        assertEquals(-3L, layer.features.get(2).attributes.get("negative"));
+        assertFalse(layer.features.get(0).attributes.containsKey("missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExtent() {
+        new VectorTileEncoder(0, 64, 16);
+    }
+
+    /** Area computed with the surveyor's formula, skipping the closing point */
+    private double area(List<int[]> ring) {
+        double area = 0;
+        for (int i = 0; i < ring.size() - 1; i++) {
+            int[] p = ring.get(i);
+            int[] q = ring.get(i + 1);
+            area += (double) p[0] * q[1] - (double) q[0] * p[1];
+        }
+        return area / 2;
+    }
+}
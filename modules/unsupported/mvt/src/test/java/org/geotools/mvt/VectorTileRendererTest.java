@@ -0,0 +1,137 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2019, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mvt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.mvt.VectorTileDecoder.Tile;
+import org.geotools.mvt.VectorTileDecoder.TileFeature;
+import org.geotools.mvt.VectorTileDecoder.TileLayer;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Rule;
+import org.geotools.styling.SLD;
+import org.geotools.styling.Style;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.io.WKTReader;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory2;
+
+public class VectorTileRendererTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    SimpleFeatureSource points;
+
+    MapContent mc;
+
+    ReferencedEnvelope tile = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type =
+                DataUtilities.createType("points", "geom:Point,name:String,value:int");
+        type = DataUtilities.createSubType(type, null, DefaultGeographicCRS.WGS84);
+        MemoryDataStore store = new MemoryDataStore(type);
+        WKTReader reader = new WKTReader();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        store.addFeature(
+                fb.buildFeature("points.1", new Object[] {reader.read("POINT(5 5)"), "a", 1}));
+        store.addFeature(
+                fb.buildFeature("points.2", new Object[] {reader.read("POINT(2.5 7.5)"), "b", 2}));
+        store.addFeature(
+                fb.buildFeature("points.3", new Object[] {reader.read("POINT(50 50)"), "c", 3}));
+        points = store.getFeatureSource("points");
+        mc = new MapContent();
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+    }
+
+    @Test
+    public void testEncodeLayer() throws Exception {
+        mc.addLayer(
+                new FeatureLayer(
+                        points, SLD.createPointStyle("circle", Color.RED, Color.RED, 1, 5)));
+        VectorTileRenderer renderer = new VectorTileRenderer();
+        renderer.setMapContent(mc);
+
+        Tile decoded = VectorTileDecoder.decode(renderer.encode(tile));
+        TileLayer layer = decoded.layers.get("points");
+        // the third point is outside of the tile
+        assertEquals(2, layer.features.size());
+        TileFeature first = layer.features.get(0);
+        assertEquals(Long.valueOf(1), first.id);
+        assertEquals("a", first.attributes.get("name"));
+        assertEquals(1L, first.attributes.get("value"));
+        assertFalse(first.attributes.containsKey("geom"));
+        // y axis pointing down
+        assertArrayEquals(new int[] {2048, 2048}, first.getParts().get(0).get(0));
+        assertArrayEquals(new int[] {1024, 1024}, layer.features.get(1).getParts().get(0).get(0));
+
+        // same result when streaming
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        renderer.encode(tile, bos);
+        assertArrayEquals(renderer.encode(tile), bos.toByteArray());
+    }
+
+    @Test
+    public void testStyleFilter() throws Exception {
+        Style style = SLD.createPointStyle("circle", Color.RED, Color.RED, 1, 5);
+        Rule rule = style.featureTypeStyles().get(0).rules().get(0);
+        rule.setFilter(FF.equals(FF.property("name"), FF.literal("b")));
+        mc.addLayer(new FeatureLayer(points, style));
+        VectorTileRenderer renderer = new VectorTileRenderer();
+        renderer.setMapContent(mc);
+
+        TileLayer layer = VectorTileDecoder.decode(renderer.encode(tile)).layers.get("points");
+        assertEquals(1, layer.features.size());
+        assertEquals("b", layer.features.get(0).attributes.get("name"));
+
+        // out of scale, nothing gets encoded
+        rule.setMaxScaleDenominator(1000);
+        assertTrue(renderer.buildTile(tile).isEmpty());
+    }
+
+    @Test
+    public void testInvisibleLayer() throws Exception {
+        FeatureLayer layer =
+                new FeatureLayer(
+                        points, SLD.createPointStyle("circle", Color.RED, Color.RED, 1, 5));
+        layer.setVisible(false);
+        mc.addLayer(layer);
+        VectorTileRenderer renderer = new VectorTileRenderer();
+        renderer.setMapContent(mc);
+        assertTrue(renderer.buildTile(tile).isEmpty());
+    }
+}